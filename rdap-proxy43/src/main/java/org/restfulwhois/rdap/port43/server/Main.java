@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.restfulwhois.rdap.port43.service.ClearRateLimitMapTimer;
+import org.restfulwhois.rdap.port43.service.ProxyService;
 import org.restfulwhois.rdap.port43.util.RdapProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -137,6 +138,8 @@ public final class Main {
         }
         LOGGER.info("shutdown rate limit IP map clear timer...");
         ClearRateLimitMapTimer.stop();
+        LOGGER.info("shutdown proxy service...");
+        ProxyService.getInstance().shutdown();
         LOGGER.info("doShutdown end.");
     }
 
@@ -30,6 +30,7 @@
  */
 package org.restfulwhois.rdap.port43.server;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
@@ -40,14 +41,21 @@ import java.net.InetSocketAddress;
 
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.port43.service.ConnectionControlService;
+import org.restfulwhois.rdap.port43.service.ProxyCallback;
 import org.restfulwhois.rdap.port43.service.ProxyService;
-import org.restfulwhois.rdap.port43.service.ServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * service handler.
  * 
+ * <pre>
+ * Query is executed by ProxyService asynchronously, and response is written
+ * in callback, so netty event loop is not blocked by RDAP server.
+ * Cached response is written directly in event loop. Response bytes are
+ * written as ByteBuf, which is passed through StringEncoder.
+ * </pre>
+ * 
  * @author jiashuo
  * 
  */
@@ -63,6 +71,11 @@ public class ServiceHandler extends SimpleChannelInboundHandler<String> {
      */
     private static final String ERROR_MSG_RATE_LIMIT =
             "Exceed rate limit, please try some seconds later.";
+    /**
+     * busy msg.
+     */
+    private static final String ERROR_MSG_BUSY =
+            "Server is busy, please try some seconds later.";
     /**
      * logger.
      */
@@ -81,7 +94,8 @@ public class ServiceHandler extends SimpleChannelInboundHandler<String> {
      * @param request
      *            request.
      */
-    public void messageReceived(ChannelHandlerContext ctx, String request) {
+    public void messageReceived(final ChannelHandlerContext ctx,
+            String request) {
         InetSocketAddress socketAddress =
                 (InetSocketAddress) ctx.channel().remoteAddress();
         String remoteAddr = socketAddress.getAddress().getHostAddress();
@@ -95,18 +109,25 @@ public class ServiceHandler extends SimpleChannelInboundHandler<String> {
         }
         if (request.isEmpty()) {
             response = "command can't be empty.";
-        } else {
-            ProxyService proxyService = ProxyService.getInstance();
-            try {
-                response = proxyService.execute(request);
-            } catch (ServiceException e) {
-                response = e.getMessage();
-            } catch (Exception e) {
-                LOGGER.error("internal server error:{}", e);
-                response = "internal server error.";
-            }
+            writeResponseAndcloseConnection(ctx, response);
+            return;
+        }
+        ProxyService proxyService = ProxyService.getInstance();
+        byte[] cached = proxyService.queryCache(request);
+        if (null != cached) {
+            writeResponseAndcloseConnection(ctx, cached);
+            return;
+        }
+        boolean accepted =
+                proxyService.executeAsync(request, new ProxyCallback() {
+                    @Override
+                    public void onComplete(byte[] result) {
+                        writeResponseAndcloseConnection(ctx, result);
+                    }
+                });
+        if (!accepted) {
+            writeResponseAndcloseConnection(ctx, ERROR_MSG_BUSY);
         }
-        writeResponseAndcloseConnection(ctx, response);
     }
 
     /**
@@ -128,9 +149,37 @@ public class ServiceHandler extends SimpleChannelInboundHandler<String> {
      */
     private void writeResponseAndcloseConnection(ChannelHandlerContext ctx,
             String response) {
-        ChannelFuture future = ctx.writeAndFlush(response);
-        ctx.writeAndFlush(ManageServerInitializer.LINE_DELIMITER);
-        // Close the connection.
+        ctx.write(response);
+        flushDelimiterAndClose(ctx);
+    }
+
+    /**
+     * close connection.
+     * 
+     * @param ctx
+     *            ctx.
+     * @param response
+     *            response in UTF-8 bytes.
+     */
+    private void writeResponseAndcloseConnection(ChannelHandlerContext ctx,
+            byte[] response) {
+        ByteBuf buffer = ctx.alloc().buffer(response.length);
+        buffer.writeBytes(response);
+        ctx.write(buffer);
+        flushDelimiterAndClose(ctx);
+    }
+
+    /**
+     * write line delimiter and close connection.
+     * 
+     * @param ctx
+     *            ctx.
+     */
+    private void flushDelimiterAndClose(ChannelHandlerContext ctx) {
+        ChannelFuture future =
+                ctx.writeAndFlush(ManageServerInitializer.LINE_DELIMITER);
+        // Close the connection after both are written, this may be called
+        // out of event loop.
         future.addListener(ChannelFutureListener.CLOSE);
     }
 
@@ -30,9 +30,16 @@
  */
 package org.restfulwhois.rdap.port43.service;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.port43.service.command.AsQueryHandler;
@@ -50,6 +57,7 @@ import org.restfulwhois.rdap.port43.service.command.NameserverSearchHandler;
 import org.restfulwhois.rdap.port43.service.command.QueryHandler;
 import org.restfulwhois.rdap.port43.service.format.ResponseFormater;
 import org.restfulwhois.rdap.port43.util.JsonUtil;
+import org.restfulwhois.rdap.port43.util.RdapProperties;
 import org.restfulwhois.rdap.port43.util.RestClient;
 import org.restfulwhois.rdap.port43.util.RestResponse;
 import org.slf4j.Logger;
@@ -58,6 +66,15 @@ import org.slf4j.LoggerFactory;
 /**
  * proxy service.
  * 
+ * <pre>
+ * Queries are executed asynchronously by proxy worker threads, so that
+ * netty event loop threads are not blocked by RDAP server. Worker threads
+ * are limited by backendMaxConnections, and waiting queries are limited by
+ * maxPendingQueries.
+ * Formatted responses are cached as UTF-8 bytes by TextResponseCache, and
+ * cached response is returned by queryCache without worker threads.
+ * </pre>
+ * 
  * @author jiashuo
  * 
  */
@@ -67,6 +84,10 @@ public class ProxyService {
      */
     private static final Logger LOGGER = LoggerFactory
             .getLogger(ProxyService.class);
+    /**
+     * charset of response.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     /**
      * singleton instance.
      */
@@ -79,6 +100,14 @@ public class ProxyService {
      * </pre>
      */
     private List<QueryHandler> queryHandlers = new ArrayList<QueryHandler>();
+    /**
+     * executor of asynchronous queries.
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * formatted response cache.
+     */
+    private final TextResponseCache responseCache;
 
     /**
      * default constructor.
@@ -94,6 +123,16 @@ public class ProxyService {
         queryHandlers.add(new NameserverSearchHandler());
         queryHandlers.add(new IpQueryHandler());// MUST before domain query.
         queryHandlers.add(new DomainQueryHandler());// MUST at last.
+        int threads = RdapProperties.getBackendMaxConnections();
+        executor =
+                new ThreadPoolExecutor(threads, threads, 60L,
+                        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(
+                                RdapProperties.getMaxPendingQueries()),
+                        new ProxyThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        responseCache =
+                new TextResponseCache(RdapProperties.getResponseCacheMaxBytes(),
+                        RdapProperties.getResponseCacheTtlSeconds());
     }
 
     /**
@@ -105,6 +144,77 @@ public class ProxyService {
         return proxyService;
     }
 
+    /**
+     * get cached response of command.
+     * 
+     * @param commandStr
+     *            commandStr.
+     * @return response bytes in UTF-8, null if not cached.
+     */
+    public byte[] queryCache(String commandStr) {
+        if (!responseCache.isEnabled()) {
+            return null;
+        }
+        byte[] result = responseCache.get(resolveRequestURI(commandStr));
+        if (null != result) {
+            LOGGER.debug("hit response cache:{}", commandStr);
+        }
+        return result;
+    }
+
+    /**
+     * execute query asynchronously, callback is called with response or
+     * error message when query is completed.
+     * 
+     * @param commandStr
+     *            commandStr.
+     * @param callback
+     *            callback.
+     * @return true if query is accepted, false if too many queries are
+     *         waiting.
+     */
+    public boolean executeAsync(final String commandStr,
+            final ProxyCallback callback) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onComplete(executeAndGetMessage(commandStr));
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("too many pending queries, reject:{}", commandStr);
+            return false;
+        }
+    }
+
+    /**
+     * execute query, error is converted to message.
+     * 
+     * @param commandStr
+     *            commandStr.
+     * @return response, or error message, in UTF-8 bytes.
+     */
+    private byte[] executeAndGetMessage(String commandStr) {
+        try {
+            return executeAndCache(commandStr);
+        } catch (ServiceException e) {
+            return e.getMessage().getBytes(UTF8);
+        } catch (Exception e) {
+            LOGGER.error("internal server error:{}", e);
+            return "internal server error.".getBytes(UTF8);
+        }
+    }
+
+    /**
+     * shutdown worker threads and close connections to RDAP server.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        RestClient.getInstance().close();
+    }
+
     /**
      * main service method.This will parse command, construct URI and request
      * RDAP server for JSON response, and then convert JSON result to text
@@ -117,18 +227,25 @@ public class ProxyService {
      *             Exception.
      */
     public String execute(String commandStr) throws Exception {
+        return new String(executeAndCache(commandStr), UTF8);
+    }
+
+    /**
+     * execute query and put formatted response into cache.
+     * 
+     * @param commandStr
+     *            commandStr.
+     * @return query result in UTF-8 bytes.
+     * @throws Exception
+     *             Exception.
+     */
+    private byte[] executeAndCache(String commandStr) throws Exception {
         LOGGER.info("receive query:{}", commandStr);
-        String requestURI = StringUtils.EMPTY;
-        try {
-            Command command = CommandParser.parse(commandStr);
-            requestURI = generateRequestURI(command);
-            if (StringUtils.isBlank(requestURI)) {
-                LOGGER.error("requestURI to RDAP server is blank.");
-                throw new ServiceException("invalid command:" + commandStr);
-            }
-        } catch (Exception e) {
-            LOGGER.error("generateRequest URI for RDAP server error:{}", e);
-            LOGGER.error("try to generate error 400 URI...");
+        String requestURI = resolveRequestURI(commandStr);
+        boolean validCommand = null != requestURI;
+        if (!validCommand) {
+            LOGGER.error("invalid command:{}, try to generate error 400 URI...",
+                    commandStr);
             requestURI = generateRequestURIForError();
         }
         RestResponse restResponse =
@@ -138,10 +255,43 @@ public class ProxyService {
             throw new ServiceException("invalid command:" + commandStr);
         }
         Map jsonMap = JsonUtil.deserializateJsonToMap(restResponse);
-        String result = ResponseFormater.format(jsonMap);
+        byte[] result = ResponseFormater.format(jsonMap).getBytes(UTF8);
+        if (validCommand) {
+            responseCache.put(requestURI, restResponse, result);
+        }
         return result;
     }
 
+    /**
+     * parse command and generate request URI.
+     * 
+     * <pre>
+     * Request URI is the canonical form of parsed command, so it is also used
+     * as key of response cache.
+     * Command is resolved by both queryCache and executeAndCache, so invalid
+     * command is only logged at debug level here, and executeAndCache logs
+     * it once.
+     * </pre>
+     * 
+     * @param commandStr
+     *            commandStr.
+     * @return URI, null if command is invalid.
+     */
+    private String resolveRequestURI(String commandStr) {
+        try {
+            Command command = CommandParser.parse(commandStr);
+            String requestURI = generateRequestURI(command);
+            if (StringUtils.isBlank(requestURI)) {
+                LOGGER.debug("requestURI to RDAP server is blank.");
+                return null;
+            }
+            return requestURI;
+        } catch (Exception e) {
+            LOGGER.debug("generateRequest URI for RDAP server error", e);
+            return null;
+        }
+    }
+
     /**
      * generate request URI for error, this will return 400 error.
      * 
@@ -170,4 +320,23 @@ public class ProxyService {
         }
         return requestURI;
     }
+
+    /**
+     * thread factory of proxy worker threads.
+     */
+    private static class ProxyThreadFactory implements ThreadFactory {
+        /**
+         * thread number.
+         */
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread =
+                    new Thread(runnable, "proxy-worker-"
+                            + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ * 
+ * All rights reserved.
+ *  
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.port43.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpStatus;
+import org.restfulwhois.rdap.port43.util.RestResponse;
+
+/**
+ * cache of formatted text response.
+ * 
+ * <pre>
+ * Key is request URI to RDAP server, which is generated from parsed command,
+ * and value is formatted text in UTF-8 bytes.
+ * Cache is sized in bytes, least recently used responses are removed when
+ * total bytes exceed max bytes. Cache is disabled if max bytes is 0.
+ * Only 200 and 404 responses from RDAP server are cached. Time to live is
+ * the smaller one of configured ttl and max-age in Cache-Control, and
+ * response with no-store, no-cache or private is not cached.
+ * This class is thread-safe.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class TextResponseCache {
+    /**
+     * max-age in Cache-Control.
+     */
+    private static final Pattern MAX_AGE_PATTERN = Pattern
+            .compile("max-age\\s*=\\s*(\\d+)");
+    /**
+     * milliseconds per second.
+     */
+    private static final long MILLIS_PER_SECOND = 1000L;
+    /**
+     * max total bytes.
+     */
+    private final long maxBytes;
+    /**
+     * default time to live, in milliseconds.
+     */
+    private final long ttlMillis;
+    /**
+     * total bytes of cached responses.
+     */
+    private long totalBytes;
+    /**
+     * entries, in access order.
+     */
+    private final LinkedHashMap<String, CacheEntry> entries =
+            new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+
+    /**
+     * constructor.
+     * 
+     * @param maxBytes
+     *            max total bytes, 0 or negative means disabled.
+     * @param ttlSeconds
+     *            time to live, in seconds.
+     */
+    public TextResponseCache(long maxBytes, long ttlSeconds) {
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlSeconds * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * check if cache is enabled.
+     * 
+     * @return true if enabled.
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0 && ttlMillis > 0;
+    }
+
+    /**
+     * get cached response.
+     * 
+     * @param requestURI
+     *            request URI.
+     * @return response bytes, null if not cached or expired.
+     */
+    public synchronized byte[] get(String requestURI) {
+        if (!isEnabled() || null == requestURI) {
+            return null;
+        }
+        CacheEntry entry = entries.get(requestURI);
+        if (null == entry) {
+            return null;
+        }
+        if (entry.expireTime <= System.currentTimeMillis()) {
+            remove(requestURI);
+            return null;
+        }
+        return entry.body;
+    }
+
+    /**
+     * put response into cache if it can be cached.
+     * 
+     * @param requestURI
+     *            request URI.
+     * @param restResponse
+     *            response from RDAP server.
+     * @param body
+     *            formatted response bytes.
+     */
+    public void put(String requestURI, RestResponse restResponse, byte[] body) {
+        if (!isEnabled() || null == requestURI || null == body
+                || body.length > maxBytes) {
+            return;
+        }
+        long ttl = getTtlMillis(restResponse);
+        if (ttl <= 0) {
+            return;
+        }
+        CacheEntry entry =
+                new CacheEntry(body, System.currentTimeMillis() + ttl);
+        synchronized (this) {
+            remove(requestURI);
+            entries.put(requestURI, entry);
+            totalBytes += body.length;
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                totalBytes -= iterator.next().body.length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * get total bytes of cached responses.
+     * 
+     * @return total bytes.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * get cached response count.
+     * 
+     * @return count.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * remove entry, caller must hold the lock.
+     * 
+     * @param requestURI
+     *            request URI.
+     */
+    private void remove(String requestURI) {
+        CacheEntry removed = entries.remove(requestURI);
+        if (null != removed) {
+            totalBytes -= removed.body.length;
+        }
+    }
+
+    /**
+     * get time to live of response.
+     * 
+     * @param restResponse
+     *            response from RDAP server.
+     * @return ttl in milliseconds, 0 if response can not be cached.
+     */
+    private long getTtlMillis(RestResponse restResponse) {
+        int statusCode = restResponse.getStatusCode();
+        if (HttpStatus.SC_OK != statusCode
+                && HttpStatus.SC_NOT_FOUND != statusCode) {
+            return 0;
+        }
+        String cacheControl =
+                StringUtils.lowerCase(restResponse.getCacheControlHeader());
+        if (StringUtils.isBlank(cacheControl)) {
+            return ttlMillis;
+        }
+        if (cacheControl.contains("no-store")
+                || cacheControl.contains("no-cache")
+                || cacheControl.contains("private")) {
+            return 0;
+        }
+        Matcher matcher = MAX_AGE_PATTERN.matcher(cacheControl);
+        if (matcher.find()) {
+            try {
+                long maxAge =
+                        Long.parseLong(matcher.group(1)) * MILLIS_PER_SECOND;
+                return Math.min(maxAge, ttlMillis);
+            } catch (NumberFormatException e) {
+                return ttlMillis;
+            }
+        }
+        return ttlMillis;
+    }
+
+    /**
+     * cached response.
+     */
+    private static class CacheEntry {
+        /**
+         * response bytes.
+         */
+        private final byte[] body;
+        /**
+         * expire time, in milliseconds.
+         */
+        private final long expireTime;
+
+        /**
+         * constructor.
+         * 
+         * @param body
+         *            response bytes.
+         * @param expireTime
+         *            expire time.
+         */
+        CacheEntry(byte[] body, long expireTime) {
+            this.body = body;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -23,6 +23,30 @@ public class RdapProperties {
      * default value for manage port.
      */
     private static final String DEFAULT_MANAGE_PORT = "9999";
+    /**
+     * default value for backend connect timeout.
+     */
+    private static final String DEFAULT_BACKEND_CONNECT_TIMEOUT = "3000";
+    /**
+     * default value for backend socket timeout.
+     */
+    private static final String DEFAULT_BACKEND_SOCKET_TIMEOUT = "10000";
+    /**
+     * default value for backend max connections.
+     */
+    private static final String DEFAULT_BACKEND_MAX_CONNECTIONS = "64";
+    /**
+     * default value for max pending queries.
+     */
+    private static final String DEFAULT_MAX_PENDING_QUERIES = "1024";
+    /**
+     * default value for response cache max bytes.
+     */
+    private static final String DEFAULT_RESPONSE_CACHE_MAX_BYTES = "67108864";
+    /**
+     * default value for response cache ttl.
+     */
+    private static final String DEFAULT_RESPONSE_CACHE_TTL_SECONDS = "60";
     /**
      * logger.
      */
@@ -53,6 +77,30 @@ public class RdapProperties {
      * responseFormater class name.
      */
     private static String responseFormater;
+    /**
+     * connect timeout to RDAP server, in milliseconds.
+     */
+    private static Integer backendConnectTimeout;
+    /**
+     * socket timeout to RDAP server, in milliseconds.
+     */
+    private static Integer backendSocketTimeout;
+    /**
+     * max connections to RDAP server, which is also max concurrent queries.
+     */
+    private static Integer backendMaxConnections;
+    /**
+     * max queries waiting for connection to RDAP server.
+     */
+    private static Integer maxPendingQueries;
+    /**
+     * max total bytes of response cache, 0 means cache is disabled.
+     */
+    private static Long responseCacheMaxBytes;
+    /**
+     * time to live of response cache, in seconds.
+     */
+    private static Long responseCacheTtlSeconds;
     /**
      * prop file.
      */
@@ -80,6 +128,19 @@ public class RdapProperties {
             setMinSecondsAccessInterval(Long.parseLong(resource
                     .getProperty("minSecondsAccessInterval")));
             setResponseFormater(resource.getProperty("responseFormater"));
+            setBackendConnectTimeout(Integer.parseInt(resource.getProperty(
+                    "backendConnectTimeout", DEFAULT_BACKEND_CONNECT_TIMEOUT)));
+            setBackendSocketTimeout(Integer.parseInt(resource.getProperty(
+                    "backendSocketTimeout", DEFAULT_BACKEND_SOCKET_TIMEOUT)));
+            setBackendMaxConnections(Integer.parseInt(resource.getProperty(
+                    "backendMaxConnections", DEFAULT_BACKEND_MAX_CONNECTIONS)));
+            setMaxPendingQueries(Integer.parseInt(resource.getProperty(
+                    "maxPendingQueries", DEFAULT_MAX_PENDING_QUERIES)));
+            setResponseCacheMaxBytes(Long.parseLong(resource.getProperty(
+                    "responseCacheMaxBytes", DEFAULT_RESPONSE_CACHE_MAX_BYTES)));
+            setResponseCacheTtlSeconds(Long.parseLong(resource.getProperty(
+                    "responseCacheTtlSeconds",
+                    DEFAULT_RESPONSE_CACHE_TTL_SECONDS)));
         } catch (Exception e) {
             LOGGER.info("load properties error:{}", e);
         }
@@ -186,4 +247,142 @@ public class RdapProperties {
         RdapProperties.responseFormater = responseFormater;
     }
 
+    /**
+     * get backendConnectTimeout, default value is used if not configured.
+     * 
+     * @return backendConnectTimeout.
+     */
+    public static Integer getBackendConnectTimeout() {
+        if (null == backendConnectTimeout) {
+            return Integer.valueOf(DEFAULT_BACKEND_CONNECT_TIMEOUT);
+        }
+        return backendConnectTimeout;
+    }
+
+    /**
+     * set backendConnectTimeout.
+     * 
+     * @param backendConnectTimeout
+     *            backendConnectTimeout.
+     */
+    public static void setBackendConnectTimeout(Integer backendConnectTimeout) {
+        LOGGER.info("set backendConnectTimeout:{}", backendConnectTimeout);
+        RdapProperties.backendConnectTimeout = backendConnectTimeout;
+    }
+
+    /**
+     * get backendSocketTimeout, default value is used if not configured.
+     * 
+     * @return backendSocketTimeout.
+     */
+    public static Integer getBackendSocketTimeout() {
+        if (null == backendSocketTimeout) {
+            return Integer.valueOf(DEFAULT_BACKEND_SOCKET_TIMEOUT);
+        }
+        return backendSocketTimeout;
+    }
+
+    /**
+     * set backendSocketTimeout.
+     * 
+     * @param backendSocketTimeout
+     *            backendSocketTimeout.
+     */
+    public static void setBackendSocketTimeout(Integer backendSocketTimeout) {
+        LOGGER.info("set backendSocketTimeout:{}", backendSocketTimeout);
+        RdapProperties.backendSocketTimeout = backendSocketTimeout;
+    }
+
+    /**
+     * get backendMaxConnections, default value is used if not configured.
+     * 
+     * @return backendMaxConnections.
+     */
+    public static Integer getBackendMaxConnections() {
+        if (null == backendMaxConnections) {
+            return Integer.valueOf(DEFAULT_BACKEND_MAX_CONNECTIONS);
+        }
+        return backendMaxConnections;
+    }
+
+    /**
+     * set backendMaxConnections.
+     * 
+     * @param backendMaxConnections
+     *            backendMaxConnections.
+     */
+    public static void setBackendMaxConnections(Integer backendMaxConnections) {
+        LOGGER.info("set backendMaxConnections:{}", backendMaxConnections);
+        RdapProperties.backendMaxConnections = backendMaxConnections;
+    }
+
+    /**
+     * get maxPendingQueries, default value is used if not configured.
+     * 
+     * @return maxPendingQueries.
+     */
+    public static Integer getMaxPendingQueries() {
+        if (null == maxPendingQueries) {
+            return Integer.valueOf(DEFAULT_MAX_PENDING_QUERIES);
+        }
+        return maxPendingQueries;
+    }
+
+    /**
+     * set maxPendingQueries.
+     * 
+     * @param maxPendingQueries
+     *            maxPendingQueries.
+     */
+    public static void setMaxPendingQueries(Integer maxPendingQueries) {
+        LOGGER.info("set maxPendingQueries:{}", maxPendingQueries);
+        RdapProperties.maxPendingQueries = maxPendingQueries;
+    }
+
+    /**
+     * get responseCacheMaxBytes, default value is used if not configured.
+     * 
+     * @return responseCacheMaxBytes.
+     */
+    public static Long getResponseCacheMaxBytes() {
+        if (null == responseCacheMaxBytes) {
+            return Long.valueOf(DEFAULT_RESPONSE_CACHE_MAX_BYTES);
+        }
+        return responseCacheMaxBytes;
+    }
+
+    /**
+     * set responseCacheMaxBytes.
+     * 
+     * @param responseCacheMaxBytes
+     *            responseCacheMaxBytes.
+     */
+    public static void setResponseCacheMaxBytes(Long responseCacheMaxBytes) {
+        LOGGER.info("set responseCacheMaxBytes:{}", responseCacheMaxBytes);
+        RdapProperties.responseCacheMaxBytes = responseCacheMaxBytes;
+    }
+
+    /**
+     * get responseCacheTtlSeconds, default value is used if not configured.
+     * 
+     * @return responseCacheTtlSeconds.
+     */
+    public static Long getResponseCacheTtlSeconds() {
+        if (null == responseCacheTtlSeconds) {
+            return Long.valueOf(DEFAULT_RESPONSE_CACHE_TTL_SECONDS);
+        }
+        return responseCacheTtlSeconds;
+    }
+
+    /**
+     * set responseCacheTtlSeconds.
+     * 
+     * @param responseCacheTtlSeconds
+     *            responseCacheTtlSeconds.
+     */
+    public static void setResponseCacheTtlSeconds(Long responseCacheTtlSeconds) {
+        LOGGER.info("set responseCacheTtlSeconds:{}", responseCacheTtlSeconds);
+        RdapProperties.responseCacheTtlSeconds = responseCacheTtlSeconds;
+    }
+
 }
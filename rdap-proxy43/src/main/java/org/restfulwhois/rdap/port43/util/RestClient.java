@@ -30,21 +30,19 @@
  */
 package org.restfulwhois.rdap.port43.util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.restfulwhois.rdap.port43.service.ServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +50,12 @@ import org.slf4j.LoggerFactory;
 /**
  * rest client.
  * 
+ * <pre>
+ * Connections to RDAP server are pooled and kept alive, and shared by all
+ * queries. Connect, socket and pool waiting time are limited by
+ * backendConnectTimeout and backendSocketTimeout.
+ * </pre>
+ * 
  * @author weijunkai,jiashuo
  * 
  */
@@ -60,13 +64,45 @@ public final class RestClient {
      * logger.
      */
     private static final Logger LOGGER = LoggerFactory
-            .getLogger(JsonUtil.class);
+            .getLogger(RestClient.class);
 
     /**
      * instance.
      */
     private static RestClient restClient = new RestClient();
 
+    /**
+     * pooled http client.
+     */
+    private final CloseableHttpClient client;
+
+    /**
+     * request config.
+     */
+    private final RequestConfig requestConfig;
+
+    /**
+     * constructor.
+     */
+    private RestClient() {
+        int maxConnections = RdapProperties.getBackendMaxConnections();
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        int connectTimeout = RdapProperties.getBackendConnectTimeout();
+        requestConfig =
+                RequestConfig.custom().setRedirectsEnabled(false)
+                        .setConnectTimeout(connectTimeout)
+                        .setConnectionRequestTimeout(connectTimeout)
+                        .setSocketTimeout(
+                                RdapProperties.getBackendSocketTimeout())
+                        .build();
+        client =
+                HttpClients.custom().setConnectionManager(connectionManager)
+                        .setDefaultRequestConfig(requestConfig).build();
+    }
+
     /**
      * get singleton instance.
      * 
@@ -84,71 +120,70 @@ public final class RestClient {
      * @return rest response.
      */
     public RestResponse execute(String url) {
-        CloseableHttpClient client = HttpClients.createDefault();
-        RequestConfig requestConfig =
-                RequestConfig.custom().setRedirectsEnabled(false).build();
         HttpGet request = new HttpGet(url);
         request.setConfig(requestConfig);
         request.setHeader("Accept", "application/rdap+json");
-        HttpResponse response = null;
         String responseBody = StringUtils.EMPTY;
         int statusCode = HttpStatus.SC_OK;
         String locationHeader = StringUtils.EMPTY;
+        String cacheControlHeader = null;
+        CloseableHttpResponse response = null;
         try {
             response = client.execute(request);
-            HttpEntity entity = response.getEntity();
             statusCode = response.getStatusLine().getStatusCode();
             Header[] headers = response.getHeaders("location");
             if (null != headers && headers.length > 0) {
                 locationHeader = headers[0].getValue();
             }
+            Header cacheControl = response.getFirstHeader("Cache-Control");
+            if (null != cacheControl) {
+                cacheControlHeader = cacheControl.getValue();
+            }
+            HttpEntity entity = response.getEntity();
             if (entity != null) {
-                InputStream inStream = entity.getContent();
-                responseBody = convertStreamToString(inStream);
-                inStream.close();
+                responseBody = EntityUtils.toString(entity, "UTF-8");
             }
         } catch (Exception ex) {
             LOGGER.error("request RDAP server error:{}", ex);
+            request.abort();
             throw new ServiceException("request RDAP server error");
+        } finally {
+            closeResponse(response);
         }
         RestResponse result = new RestResponse();
         result.setBody(responseBody);
         result.setStatusCode(statusCode);
         result.setLocationHeader(locationHeader);
+        result.setCacheControlHeader(cacheControlHeader);
         return result;
     }
 
     /**
-     * convert the inputStream to string.
+     * close response, connection is released to pool if entity is consumed.
      * 
-     * @param inStream
-     *            input stream.
-     * @return string.
+     * @param response
+     *            response.
      */
-    private static String convertStreamToString(InputStream inStream) {
-        BufferedReader reader = null;
+    private static void closeResponse(CloseableHttpResponse response) {
+        if (null == response) {
+            return;
+        }
         try {
-            reader =
-                    new BufferedReader(new InputStreamReader(inStream, "UTF-8"));
-        } catch (UnsupportedEncodingException e1) {
-            e1.printStackTrace();
+            response.close();
+        } catch (IOException e) {
+            LOGGER.warn("close response error:{}", e.getMessage());
         }
-        StringBuilder strBuilder = new StringBuilder();
-        String line = null;
+    }
+
+    /**
+     * close client and all pooled connections.
+     */
+    public void close() {
         try {
-            while ((line = reader.readLine()) != null) {
-                strBuilder.append(line + "\n");
-            }
+            client.close();
         } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                inStream.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            LOGGER.warn("close client error:{}", e.getMessage());
         }
-        return strBuilder.toString();
     }
 
 }
@@ -50,6 +50,11 @@ public class RestResponse {
      */
     private String locationHeader;
 
+    /**
+     * Cache-Control header.
+     */
+    private String cacheControlHeader;
+
     /**
      * get statusCode.
      * 
@@ -107,4 +112,23 @@ public class RestResponse {
         this.locationHeader = locationHeader;
     }
 
+    /**
+     * get cacheControlHeader.
+     * 
+     * @return cacheControlHeader.
+     */
+    public String getCacheControlHeader() {
+        return cacheControlHeader;
+    }
+
+    /**
+     * set cacheControlHeader.
+     * 
+     * @param cacheControlHeader
+     *            cacheControlHeader.
+     */
+    public void setCacheControlHeader(String cacheControlHeader) {
+        this.cacheControlHeader = cacheControlHeader;
+    }
+
 }
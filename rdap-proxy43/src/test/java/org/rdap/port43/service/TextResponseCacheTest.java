@@ -0,0 +1,69 @@
+package org.rdap.port43.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.port43.service.TextResponseCache;
+import org.restfulwhois.rdap.port43.util.RestResponse;
+
+/**
+ * TextResponseCache test.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class TextResponseCacheTest {
+
+    @Test
+    public void test_put_and_get() {
+        TextResponseCache cache = new TextResponseCache(100, 60);
+        byte[] body = new byte[] { 1, 2, 3 };
+        cache.put("domain/cnnic.cn", response(200, null), body);
+        cache.put("domain/notexist.cn", response(404, "max-age=30"), body);
+        assertArrayEquals(body, cache.get("domain/cnnic.cn"));
+        assertArrayEquals(body, cache.get("domain/notexist.cn"));
+        assertNull(cache.get("domain/other.cn"));
+        assertEquals(6, cache.getTotalBytes());
+    }
+
+    @Test
+    public void test_not_cacheable() {
+        TextResponseCache cache = new TextResponseCache(100, 60);
+        byte[] body = new byte[] { 1 };
+        cache.put("a", response(429, null), body);
+        cache.put("b", response(500, null), body);
+        cache.put("c", response(200, "no-store"), body);
+        cache.put("d", response(200, "private, max-age=60"), body);
+        cache.put("e", response(200, "max-age=0"), body);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_evict_by_bytes() {
+        TextResponseCache cache = new TextResponseCache(10, 60);
+        cache.put("a", response(200, null), new byte[4]);
+        cache.put("b", response(200, null), new byte[4]);
+        cache.get("a");
+        cache.put("c", response(200, null), new byte[4]);
+        assertNull(cache.get("b"));
+        assertEquals(8, cache.getTotalBytes());
+        cache.put("d", response(200, null), new byte[11]);
+        assertNull(cache.get("d"));
+    }
+
+    @Test
+    public void test_disabled() {
+        TextResponseCache cache = new TextResponseCache(0, 60);
+        cache.put("a", response(200, null), new byte[1]);
+        assertNull(cache.get("a"));
+    }
+
+    private RestResponse response(int statusCode, String cacheControl) {
+        RestResponse response = new RestResponse();
+        response.setStatusCode(statusCode);
+        response.setCacheControlHeader(cacheControl);
+        return response;
+    }
+}
@@ -97,4 +97,33 @@ public class SecureObject {
         this.type = type;
     }
 
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((id == null) ? 0 : id.hashCode());
+        result = prime * result + ((type == null) ? 0 : type.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SecureObject)) {
+            return false;
+        }
+        SecureObject other = (SecureObject) obj;
+        if (id == null ? other.id != null : !id.equals(other.id)) {
+            return false;
+        }
+        return type == null ? other.type == null : type.equals(other.type);
+    }
+
+    @Override
+    public String toString() {
+        return "SecureObject [id=" + id + ", type=" + type + "]";
+    }
+
 }
@@ -30,6 +30,10 @@
  */
 package org.restfulwhois.rdap.acl.dao;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.restfulwhois.rdap.acl.bean.Principal;
 import org.restfulwhois.rdap.acl.bean.SecureObject;
 
@@ -52,4 +56,26 @@ public interface AclDao {
      */
     boolean hasEntry(Principal principal, SecureObject secureObject);
 
+    /**
+     * find role ids in acl entries for objects of the same type.
+     *
+     * @param objectType
+     *            object type name, eg domain/nameServer.
+     * @param objectIds
+     *            object ids.
+     * @return map, key is object id in objectIds, value is role id set. The
+     *         set is empty if the object has no acl entry.
+     */
+    Map<Long, Set<Long>> findAclRoleIds(String objectType,
+            List<Long> objectIds);
+
+    /**
+     * find role ids of principal.
+     *
+     * @param principal
+     *            principal.
+     * @return role id set, empty if principal has no role.
+     */
+    Set<Long> findRoleIds(Principal principal);
+
 }
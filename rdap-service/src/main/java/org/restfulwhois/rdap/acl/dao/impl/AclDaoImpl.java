@@ -34,6 +34,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
 
 import org.restfulwhois.rdap.acl.bean.Principal;
 import org.restfulwhois.rdap.acl.bean.SecureObject;
@@ -45,6 +52,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -152,6 +160,85 @@ public class AclDaoImpl implements AclDao {
         return count > 0;
     }
 
+    /**
+     * <pre>
+     * find role ids in acl entries for objects of the same type, in one query.
+     * </pre>
+     * 
+     * @param objectType
+     *            object type name.
+     * @param objectIds
+     *            object ids.
+     * @return map, key is object id, value is role id set.
+     */
+    @Override
+    public Map<Long, Set<Long>> findAclRoleIds(final String objectType,
+            List<Long> objectIds) {
+        final Map<Long, Set<Long>> result =
+                new LinkedHashMap<Long, Set<Long>>();
+        if (null == objectIds || objectIds.isEmpty()) {
+            return result;
+        }
+        for (Long objectId : objectIds) {
+            result.put(objectId, new HashSet<Long>());
+        }
+        final String sqlTpl = "select acl.OBJECT_ID, acl.ROLE_ID from "
+                + " RDAP_IDENTITY_ACL acl "
+                + " where acl.OBJECT_TYPE = ? and acl.OBJECT_ID in (%s) ";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        LOGGER.debug("findAclRoleIds, sql:{}", sql);
+        jdbcTemplate.query(new PreparedStatementCreator() {
+            public PreparedStatement createPreparedStatement(
+                    Connection connection) throws SQLException {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setString(1, objectType);
+                return ps;
+            }
+        }, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                Set<Long> roleIds = result.get(rs.getLong("OBJECT_ID"));
+                if (null != roleIds) {
+                    roleIds.add(rs.getLong("ROLE_ID"));
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * find role ids of principal.
+     * 
+     * @param principal
+     *            principal.
+     * @return role id set.
+     */
+    @Override
+    public Set<Long> findRoleIds(final Principal principal) {
+        final Set<Long> result = new HashSet<Long>();
+        if (null == principal || null == principal.getId()) {
+            return result;
+        }
+        final String sql = "select userRole.ROLE_ID from "
+                + " RDAP_IDENTITY_USER_REL_ROLE userRole "
+                + " where userRole.USER_ID = ? ";
+        jdbcTemplate.query(new PreparedStatementCreator() {
+            public PreparedStatement createPreparedStatement(
+                    Connection connection) throws SQLException {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setLong(1, principal.getId());
+                return ps;
+            }
+        }, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                result.add(rs.getLong("ROLE_ID"));
+            }
+        });
+        return result;
+    }
+
     /**
      * count ResultSet extractor.
      * 
@@ -30,12 +30,23 @@
  */
 package org.restfulwhois.rdap.acl.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import org.restfulwhois.rdap.acl.bean.Principal;
 import org.restfulwhois.rdap.acl.bean.SecureObject;
 import org.restfulwhois.rdap.acl.dao.AclDao;
 import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.model.base.ModelType;
 import org.restfulwhois.rdap.common.service.AccessControlManager;
 import org.restfulwhois.rdap.common.support.PrincipalHolder;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.LruCache;
+import org.restfulwhois.rdap.core.entity.service.InnerEntityCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,6 +63,11 @@ import org.springframework.util.Assert;
  * 
  * Provide authorization to user and its access object, 
  * according to Access Control List.
+ * <p>
+ * Role ids of secure object and role ids of principal are cached, and object
+ * is permitted if it has no acl entry, or principal has one of its roles.
+ * Objects are checked in bulk, cache missed objects are loaded in one query
+ * for each object type.
  * 
  * @author jiashuo
  * 
@@ -69,6 +85,23 @@ public class AccessControlManagerImpl implements AccessControlManager {
      */
     @Autowired
     private AclDao aclDao;
+
+    /**
+     * assembled inner entity cache, cleared when access control is changed.
+     */
+    @Autowired
+    private InnerEntityCache innerEntityCache;
+
+    /**
+     * cache for role ids of secure object, empty set for object which has no
+     * acl entry.
+     */
+    private volatile LruCache<SecureObject, Set<Long>> objectRoleCache;
+
+    /**
+     * cache for role ids of principal, key is principal id.
+     */
+    private volatile LruCache<Long, Set<Long>> principalRoleCache;
     
     /**
      * Is a model permitted for querying.
@@ -79,14 +112,223 @@ public class AccessControlManagerImpl implements AccessControlManager {
      */   
     @Override
     public boolean hasPermission(BaseModel object) {
-        Assert.notNull(object);
-        Assert.notNull(object.getId());
-        Assert.notNull(object.getObjectType());
-        
         LOGGER.debug("hasPermission:" + object);
-        Principal principal = PrincipalHolder.getPrincipal();
-        SecureObject secureObject = new SecureObject(object.getId(), object
-                .getObjectType().getName());
-        return aclDao.hasEntry(principal, secureObject);
-    }  
+        List<BaseModel> objects = new ArrayList<BaseModel>();
+        objects.add(object);
+        return !filterPermitted(objects).isEmpty();
+    }
+
+    /**
+     * filter permitted models for querying.
+     * 
+     * @param objects
+     *            objects to be queried.
+     * @return permitted objects, in the same order.
+     */
+    @Override
+    public <T extends BaseModel> List<T> filterPermitted(List<T> objects) {
+        List<T> result = new ArrayList<T>();
+        if (null == objects || objects.isEmpty()) {
+            return result;
+        }
+        List<SecureObject> secureObjects = new ArrayList<SecureObject>();
+        for (BaseModel object : objects) {
+            Assert.notNull(object);
+            Assert.notNull(object.getId());
+            Assert.notNull(object.getObjectType());
+            secureObjects.add(new SecureObject(object.getId(), object
+                    .getObjectType().getName()));
+        }
+        Set<Long> principalRoleIds =
+                getPrincipalRoleIds(PrincipalHolder.getPrincipal());
+        Map<SecureObject, Set<Long>> objectRoleIds =
+                getObjectRoleIds(secureObjects);
+        for (int i = 0; i < objects.size(); i++) {
+            if (isPermitted(objectRoleIds.get(secureObjects.get(i)),
+                    principalRoleIds)) {
+                result.add(objects.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * clear cache for object.
+     * 
+     * @param object
+     *            object.
+     */
+    @Override
+    public void clearCache(BaseModel object) {
+        if (null == object || null == object.getId()
+                || null == object.getObjectType()) {
+            return;
+        }
+        getObjectRoleCache().remove(
+                new SecureObject(object.getId(), object.getObjectType()
+                        .getName()));
+        if (ModelType.ENTITY.equals(object.getObjectType())) {
+            innerEntityCache.evict(object.getId());
+        }
+    }
+
+    /**
+     * clear all cache.
+     */
+    @Override
+    public void clearCache() {
+        getObjectRoleCache().clear();
+        getPrincipalRoleCache().clear();
+        innerEntityCache.clear();
+    }
+
+    /**
+     * check if object is permitted: object has no acl entry, or principal
+     * has one of object's roles.
+     * 
+     * @param objectRoleIds
+     *            role ids in acl entries of object.
+     * @param principalRoleIds
+     *            role ids of principal.
+     * @return true if permitted, false if not.
+     */
+    private boolean isPermitted(Set<Long> objectRoleIds,
+            Set<Long> principalRoleIds) {
+        if (null == objectRoleIds || objectRoleIds.isEmpty()) {
+            return true;
+        }
+        for (Long roleId : principalRoleIds) {
+            if (objectRoleIds.contains(roleId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * get role ids of secure objects, from cache or database.
+     * 
+     * @param secureObjects
+     *            secure objects.
+     * @return map, key is secure object, value is role id set.
+     */
+    private Map<SecureObject, Set<Long>> getObjectRoleIds(
+            List<SecureObject> secureObjects) {
+        LruCache<SecureObject, Set<Long>> cache = getObjectRoleCache();
+        Map<SecureObject, Set<Long>> result =
+                new HashMap<SecureObject, Set<Long>>();
+        Map<String, List<Long>> missedIdsByType =
+                new HashMap<String, List<Long>>();
+        for (SecureObject secureObject : secureObjects) {
+            if (result.containsKey(secureObject)) {
+                continue;
+            }
+            Set<Long> roleIds = cache.get(secureObject);
+            if (null != roleIds) {
+                result.put(secureObject, roleIds);
+                continue;
+            }
+            List<Long> missedIds = missedIdsByType.get(secureObject.getType());
+            if (null == missedIds) {
+                missedIds = new ArrayList<Long>();
+                missedIdsByType.put(secureObject.getType(), missedIds);
+            }
+            if (!missedIds.contains(secureObject.getId())) {
+                missedIds.add(secureObject.getId());
+            }
+        }
+        for (Map.Entry<String, List<Long>> entry : missedIdsByType
+                .entrySet()) {
+            String type = entry.getKey();
+            Map<Long, Set<Long>> roleIdsMap =
+                    aclDao.findAclRoleIds(type, entry.getValue());
+            for (Map.Entry<Long, Set<Long>> roleIdsEntry : roleIdsMap
+                    .entrySet()) {
+                SecureObject secureObject =
+                        new SecureObject(roleIdsEntry.getKey(), type);
+                result.put(secureObject, roleIdsEntry.getValue());
+                cache.put(secureObject, roleIdsEntry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * get role ids of principal, from cache or database.
+     * 
+     * @param principal
+     *            principal.
+     * @return role id set.
+     */
+    private Set<Long> getPrincipalRoleIds(Principal principal) {
+        LruCache<Long, Set<Long>> cache = getPrincipalRoleCache();
+        Long principalId = null == principal ? null : principal.getId();
+        Set<Long> roleIds = null;
+        if (null != principalId) {
+            roleIds = cache.get(principalId);
+        }
+        if (null == roleIds) {
+            roleIds = aclDao.findRoleIds(principal);
+            if (null != principalId) {
+                cache.put(principalId, roleIds);
+            }
+        }
+        return roleIds;
+    }
+
+    /**
+     * get object role cache, create if not exist.
+     * 
+     * @return cache.
+     */
+    private LruCache<SecureObject, Set<Long>> getObjectRoleCache() {
+        if (null == objectRoleCache) {
+            synchronized (this) {
+                if (null == objectRoleCache) {
+                    objectRoleCache =
+                            new LruCache<SecureObject, Set<Long>>(
+                                    getCacheMaxSize(), getCacheTtlMillis());
+                }
+            }
+        }
+        return objectRoleCache;
+    }
+
+    /**
+     * get principal role cache, create if not exist.
+     * 
+     * @return cache.
+     */
+    private LruCache<Long, Set<Long>> getPrincipalRoleCache() {
+        if (null == principalRoleCache) {
+            synchronized (this) {
+                if (null == principalRoleCache) {
+                    principalRoleCache =
+                            new LruCache<Long, Set<Long>>(getCacheMaxSize(),
+                                    getCacheTtlMillis());
+                }
+            }
+        }
+        return principalRoleCache;
+    }
+
+    /**
+     * get cache max size from properties.
+     * 
+     * @return max size, 0 if not configured.
+     */
+    private int getCacheMaxSize() {
+        Integer maxSize = RdapProperties.getAclCacheMaxSize();
+        return null == maxSize ? 0 : maxSize;
+    }
+
+    /**
+     * get cache ttl from properties.
+     * 
+     * @return ttl in milliseconds, 0 if not configured.
+     */
+    private long getCacheTtlMillis() {
+        Long ttlSeconds = RdapProperties.getAclCacheTtlSeconds();
+        return null == ttlSeconds ? 0 : TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
 }
@@ -33,11 +33,15 @@ package org.restfulwhois.rdap.common.controller;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.restfulwhois.rdap.common.dao.RequestSqlCounter;
 import org.restfulwhois.rdap.common.filter.QueryFilter;
 import org.restfulwhois.rdap.common.filter.QueryFilterManager;
 import org.restfulwhois.rdap.common.filter.QueryFilterResult;
+import org.restfulwhois.rdap.common.service.ResponseCache;
+import org.restfulwhois.rdap.common.support.PhaseMetrics;
 import org.restfulwhois.rdap.common.support.PrincipalHolder;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
 import org.restfulwhois.rdap.common.support.RestResponse;
 import org.restfulwhois.rdap.common.validation.QueryValidationError;
 import org.restfulwhois.rdap.common.validation.ValidationError;
@@ -45,6 +49,7 @@ import org.restfulwhois.rdap.common.validation.ValidationResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
@@ -65,6 +70,9 @@ import org.springframework.stereotype.Controller;
  * Some columns can not be shown for Policy reason, and this is checked before
  * return response to client.
  * <p>
+ * Response of doQuery is cached by {@link ResponseCache} if queryParam has
+ * cache key, and post query filters are applied to cached response too.
+ * <p>
  * 
  * <pre>
  * This class is used as 'controller' in MVC, and modified by
@@ -128,12 +136,23 @@ public class BaseController {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(BaseController.class);
 
+    /**
+     * debug response header of SQL statement count of request.
+     */
+    public static final String SQL_COUNT_HEADER = "X-Rdap-Sql-Count";
+
     /**
      * queryFilterManager.
      */
     @Autowired
     private QueryFilterManager queryFilterManager;
 
+    /**
+     * responseCache.
+     */
+    @Autowired
+    private ResponseCache responseCache;
+
     /**
      * Query method and write log.
      * 
@@ -158,9 +177,33 @@ public class BaseController {
         long usedTime = System.currentTimeMillis() - queryStart;
         LOGGER.info("query used time:{}ms;responseCode:{}.", usedTime,
                 responseEntity.getStatusCode());
+        responseEntity = addSqlCountHeader(responseEntity);
+        PhaseMetrics.markResponseReady();
         return responseEntity;
     }
 
+    /**
+     * add SQL statement count of current request to response header, if
+     * enabled and counter is started.
+     * 
+     * @param responseEntity
+     *            responseEntity.
+     * @return responseEntity with SQL count header.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private ResponseEntity addSqlCountHeader(ResponseEntity responseEntity) {
+        if (!Boolean.TRUE.equals(RdapProperties.getSqlCountHeaderEnabled())
+                || !RequestSqlCounter.isStarted()) {
+            return responseEntity;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(responseEntity.getHeaders());
+        headers.set(SQL_COUNT_HEADER,
+                String.valueOf(RequestSqlCounter.getCount()));
+        return new ResponseEntity(responseEntity.getBody(), headers,
+                responseEntity.getStatusCode());
+    }
+
     /**
      * Query template method.
      * 
@@ -178,6 +221,40 @@ public class BaseController {
      */
     @SuppressWarnings("rawtypes")
     protected ResponseEntity queryTemplate(QueryParam queryParam) {
+        long phaseStart = System.nanoTime();
+        ResponseEntity paramError = validateQueryParam(queryParam);
+        PhaseMetrics.recordPhase("paramValidation", phaseStart);
+        if (null != paramError) {
+            return paramError;
+        }
+        long cacheVersion = responseCache.getVersion();
+        ResponseEntity result = responseCache.get(queryParam);
+        boolean cached = null != result;
+        if (!cached) {
+            phaseStart = System.nanoTime();
+            result = doQuery(queryParam);
+            PhaseMetrics.recordPhase("doQuery", phaseStart);
+            responseCache.put(queryParam, result, cacheVersion);
+        }
+        QueryFilterResult postQueryResult =
+                queryFilterManager.postQuery(queryParam, result,
+                        getQueryFilters());
+        if (null != postQueryResult && postQueryResult.hasResult()) {
+            return postQueryResult.getResult();
+        }
+        return result;
+    }
+
+    /**
+     * fill, validate and convert query param, with pre and post param
+     * validate query filters.
+     * 
+     * @param queryParam
+     *            queryParam.
+     * @return error response if param is invalid, null if valid.
+     */
+    @SuppressWarnings("rawtypes")
+    private ResponseEntity validateQueryParam(QueryParam queryParam) {
         try {
             queryParam.fillParam();
         } catch (Exception e) {
@@ -206,14 +283,7 @@ public class BaseController {
             LOGGER.warn("convertParam error:{}", e);
             return RestResponse.createResponse400();
         }
-        ResponseEntity result = doQuery(queryParam);
-        QueryFilterResult postQueryResult =
-                queryFilterManager.postQuery(queryParam, result,
-                        getQueryFilters());
-        if (null != postQueryResult && postQueryResult.hasResult()) {
-            return postQueryResult.getResult();
-        }
-        return result;
+        return null;
     }
 
     /**
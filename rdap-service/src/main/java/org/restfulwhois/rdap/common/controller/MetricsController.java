@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.restfulwhois.rdap.common.dao.AbstractExistenceFilter;
+import org.restfulwhois.rdap.common.dao.SqlMetrics;
+import org.restfulwhois.rdap.common.service.ResponseCache;
+import org.restfulwhois.rdap.common.support.PhaseMetrics;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.support.RestResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * <pre>
+ * Controller for SQL, request phase, existence filter and response cache
+ * statistics.
+ * URI:/admin/sql, /admin/phases, /admin/existence, /admin/cache.
+ * Only clients in ipWhiteListForUpdateApi can access it.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@Controller
+public class MetricsController {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(MetricsController.class);
+    /**
+     * SQL metrics.
+     */
+    @Autowired
+    private SqlMetrics sqlMetrics;
+    /**
+     * request phase metrics.
+     */
+    @Autowired
+    private PhaseMetrics phaseMetrics;
+    /**
+     * existence filters.
+     */
+    @Autowired
+    private List<AbstractExistenceFilter> existenceFilters;
+    /**
+     * response cache.
+     */
+    @Autowired
+    private ResponseCache responseCache;
+
+    /**
+     * query SQL statistics by DAO method, sorted by total latency.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return JSON formated statistics, or 403 if client is not allowed.
+     */
+    @SuppressWarnings("rawtypes")
+    @RequestMapping(value = "/admin/sql", method = RequestMethod.GET)
+    public ResponseEntity querySqlStatistics(HttpServletRequest request) {
+        if (!isAdminAllowed(request)) {
+            return RestResponse.createResponse403();
+        }
+        return RestResponse.createResponse200(sqlMetrics.getStats());
+    }
+
+    /**
+     * query request phase statistics by endpoint, status and phase.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return JSON formated statistics, or 403 if client is not allowed.
+     */
+    @SuppressWarnings("rawtypes")
+    @RequestMapping(value = "/admin/phases", method = RequestMethod.GET)
+    public ResponseEntity queryPhaseStatistics(HttpServletRequest request) {
+        if (!isAdminAllowed(request)) {
+            return RestResponse.createResponse403();
+        }
+        return RestResponse.createResponse200(phaseMetrics.getStats());
+    }
+
+    /**
+     * query statistics of existence filters.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return JSON formated statistics, or 403 if client is not allowed.
+     */
+    @SuppressWarnings("rawtypes")
+    @RequestMapping(value = "/admin/existence", method = RequestMethod.GET)
+    public ResponseEntity queryExistenceStatistics(HttpServletRequest request) {
+        if (!isAdminAllowed(request)) {
+            return RestResponse.createResponse403();
+        }
+        List<Map<String, Object>> stats = new ArrayList<Map<String, Object>>();
+        for (AbstractExistenceFilter filter : existenceFilters) {
+            stats.add(filter.getStats());
+        }
+        return RestResponse.createResponse200(stats);
+    }
+
+    /**
+     * query statistics of response cache.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return JSON formated statistics, or 403 if client is not allowed.
+     */
+    @SuppressWarnings("rawtypes")
+    @RequestMapping(value = "/admin/cache", method = RequestMethod.GET)
+    public ResponseEntity queryCacheStatistics(HttpServletRequest request) {
+        if (!isAdminAllowed(request)) {
+            return RestResponse.createResponse403();
+        }
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("hitCount", responseCache.getHitCount());
+        stats.put("missCount", responseCache.getMissCount());
+        stats.put("size", responseCache.size());
+        return RestResponse.createResponse200(stats);
+    }
+
+    /**
+     * check if client is in ipWhiteListForUpdateApi.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return true if allowed, false if not.
+     */
+    private boolean isAdminAllowed(HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        List<String> ipWhiteList =
+                RdapProperties.getIpWhiteListArrayForUpdateApi();
+        if (null == ipWhiteList || !ipWhiteList.contains(ip)) {
+            LOGGER.warn("admin request from ip [{}] not in white list", ip);
+            return false;
+        }
+        return true;
+    }
+
+}
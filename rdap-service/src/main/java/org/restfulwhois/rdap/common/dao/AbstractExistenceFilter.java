@@ -0,0 +1,528 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.BloomFilter;
+import org.restfulwhois.rdap.common.util.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <pre>
+ * existence filter of object keys, such as domain LDH name, used by query
+ * DAO to skip database query for key which definitely does not exist.
+ * 
+ * Filter is a BloomFilter of lower case keys, built in background from
+ * database on startup when existenceFilterEnabled is true. It is sized by
+ * row count and existenceFilterFalsePositiveRate, limited by
+ * existenceFilterMaxMegabytes, and rebuilt after existenceFilterTtlSeconds
+ * for changes made out of this application.
+ * 
+ * A key missed by filter definitely does not exist, and is not queried in
+ * database. Saved keys are reported by update DAO with onSaved(), and are
+ * added again after transaction is committed, so filter built during the
+ * transaction does not miss them. Keys written out of this application are
+ * seen after filter is rebuilt.
+ * If existenceFilterConfirmMiss is true, for deployments which have such
+ * writers, a key missed by filter is still queried in database once, and
+ * query DAO reports the result by onQueried(): key found is added to filter,
+ * and key not found is skipped by later lookups until filter is rebuilt.
+ * Deleted keys are not removed, they are only false positives until rebuilt.
+ * mightExist() returns true if filter is disabled or not built yet.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@ManagedResource(description = "existence filter of object keys")
+public abstract class AbstractExistenceFilter {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(AbstractExistenceFilter.class);
+    /**
+     * filter is sized for row count multiplied by this factor, to keep false
+     * positive rate when keys are saved.
+     */
+    private static final double GROWTH_FACTOR = 1.5;
+    /**
+     * bits of one megabyte.
+     */
+    private static final long BITS_PER_MEGABYTE = 8L * 1024 * 1024;
+    /**
+     * max size of keys confirmed not exist in database.
+     */
+    private static final int MISSING_KEYS_MAX_SIZE = 10000;
+    /**
+     * JDBC template.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    /**
+     * built filter, null if not built.
+     */
+    private volatile BloomFilter filter;
+    /**
+     * expire time of filter, in milliseconds.
+     */
+    private volatile long filterExpireTime;
+    /**
+     * keys missed by filter and confirmed not exist in database, null if
+     * filter is not built.
+     */
+    private volatile LruCache<String, Boolean> missingKeys;
+    /**
+     * true if filter is building.
+     */
+    private boolean building;
+    /**
+     * keys saved when filter is building, which are put to new filter.
+     */
+    private final List<String> keysSavedInBuilding = new ArrayList<String>();
+    /**
+     * count of key loaded by last build.
+     */
+    private volatile long keyCount;
+    /**
+     * lookup count.
+     */
+    private final AtomicLong lookupCount = new AtomicLong();
+    /**
+     * count of lookup skipping database, for key confirmed not exist.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * get sql for loading keys of all rows, selecting one column.
+     * 
+     * @return sql.
+     */
+    protected abstract String getLoadSql();
+
+    /**
+     * get sql for counting all rows.
+     * 
+     * @return sql.
+     */
+    protected abstract String getCountSql();
+
+    /**
+     * start building filter on startup.
+     */
+    @PostConstruct
+    public void init() {
+        getFilter();
+    }
+
+    /**
+     * check if object of key might exist.
+     * 
+     * @param key
+     *            key.
+     * @return false if key is missed by filter, and is confirmed not exist in
+     *         database if existenceFilterConfirmMiss is true; true if might
+     *         exist or filter is not built.
+     */
+    public boolean mightExist(String key) {
+        BloomFilter currentFilter = getFilter();
+        if (null == currentFilter || null == key) {
+            return true;
+        }
+        lookupCount.incrementAndGet();
+        String normalizedKey = normalize(key);
+        if (currentFilter.mightContain(normalizedKey)) {
+            return true;
+        }
+        if (isConfirmMiss()) {
+            LruCache<String, Boolean> currentMissingKeys = missingKeys;
+            if (null == currentMissingKeys
+                    || null == currentMissingKeys.get(normalizedKey)) {
+                return true;
+            }
+        }
+        missCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * report result of database query for key, which is checked by
+     * mightExist() before. Key missed by filter is only queried if
+     * existenceFilterConfirmMiss is true.
+     * 
+     * @param key
+     *            key.
+     * @param found
+     *            true if object is found in database.
+     */
+    public void onQueried(String key, boolean found) {
+        if (null == key || !isEnabled()) {
+            return;
+        }
+        String normalizedKey = normalize(key);
+        BloomFilter currentFilter = filter;
+        if (null == currentFilter
+                || currentFilter.mightContain(normalizedKey)) {
+            return;
+        }
+        if (found) {
+            add(key);
+            return;
+        }
+        synchronized (this) {
+            // check again, key may be added after query.
+            LruCache<String, Boolean> currentMissingKeys = missingKeys;
+            if (filter == currentFilter && null != currentMissingKeys
+                    && !currentFilter.mightContain(normalizedKey)) {
+                currentMissingKeys.put(normalizedKey, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * report saved key, it is added to filter at once, and again after
+     * transaction is committed, so it is not missed by filter built during
+     * the transaction.
+     * 
+     * @param key
+     *            key.
+     */
+    public void onSaved(final String key) {
+        if (null == key || !isEnabled()) {
+            return;
+        }
+        add(key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        add(key);
+                    }
+                });
+    }
+
+    /**
+     * add key to filter, and to filter being built.
+     * 
+     * @param key
+     *            key.
+     */
+    public void add(String key) {
+        if (null == key || !isEnabled()) {
+            return;
+        }
+        String normalizedKey = normalize(key);
+        BloomFilter currentFilter = filter;
+        if (null != currentFilter) {
+            currentFilter.put(normalizedKey);
+        }
+        synchronized (this) {
+            if (building) {
+                keysSavedInBuilding.add(normalizedKey);
+            }
+            if (null != missingKeys) {
+                missingKeys.remove(normalizedKey);
+            }
+        }
+    }
+
+    /**
+     * clear filter, filter will be rebuilt on next lookup.
+     */
+    @ManagedOperation(description = "clear filter, rebuilt on next lookup")
+    public synchronized void clear() {
+        filter = null;
+        missingKeys = null;
+    }
+
+    /**
+     * check if filter is enabled.
+     * 
+     * @return true if enabled, false if not.
+     */
+    protected boolean isEnabled() {
+        return Boolean.TRUE.equals(RdapProperties.getExistenceFilterEnabled());
+    }
+
+    /**
+     * check if key missed by filter is confirmed in database.
+     * 
+     * @return true if existenceFilterConfirmMiss is true.
+     */
+    private boolean isConfirmMiss() {
+        return Boolean.TRUE.equals(RdapProperties
+                .getExistenceFilterConfirmMiss());
+    }
+
+    /**
+     * normalize key. Key columns are utf8_bin and compared case sensitive in
+     * database, so lower case key only adds false positives of keys in other
+     * case, and never misses an existing key.
+     * 
+     * @param key
+     *            key.
+     * @return lower case key.
+     */
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * get filter, start building it if not built or expired.
+     * 
+     * @return filter, null if not built.
+     */
+    private BloomFilter getFilter() {
+        if (!isEnabled()) {
+            return null;
+        }
+        BloomFilter currentFilter = filter;
+        if (null == currentFilter
+                || System.currentTimeMillis() >= filterExpireTime) {
+            startBuilding();
+        }
+        return currentFilter;
+    }
+
+    /**
+     * start building filter in background, if not building.
+     */
+    private synchronized void startBuilding() {
+        if (building) {
+            return;
+        }
+        building = true;
+        keysSavedInBuilding.clear();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    build();
+                } catch (Exception e) {
+                    LOGGER.error("build existence filter error:{}", e);
+                    synchronized (AbstractExistenceFilter.this) {
+                        building = false;
+                        keysSavedInBuilding.clear();
+                    }
+                }
+            }
+        }, getClass().getSimpleName() + "-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * build filter from database.
+     */
+    private void build() {
+        long startTime = System.currentTimeMillis();
+        Long rowCount = jdbcTemplate.queryForObject(getCountSql(), Long.class);
+        long count = null == rowCount ? 0 : rowCount;
+        final BloomFilter newFilter =
+                new BloomFilter((long) (count * GROWTH_FACTOR),
+                        getFalsePositiveRate(), getMaxBits());
+        final long[] loaded = new long[1];
+        jdbcTemplate.query(getLoadSql(), new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                String key = rs.getString(1);
+                if (null != key) {
+                    newFilter.put(normalize(key));
+                    loaded[0]++;
+                }
+            }
+        });
+        synchronized (this) {
+            // keys saved after loading started may not be loaded.
+            for (String key : keysSavedInBuilding) {
+                newFilter.put(key);
+            }
+            keysSavedInBuilding.clear();
+            keyCount = loaded[0];
+            filterExpireTime = startTime + getTtlMillis();
+            filter = newFilter;
+            missingKeys =
+                    new LruCache<String, Boolean>(MISSING_KEYS_MAX_SIZE,
+                            getMissingKeyTtlMillis());
+            building = false;
+        }
+        LOGGER.info("build {}, keys:{}, bits:{}, hashes:{}, cost {}ms",
+                new Object[] {getClass().getSimpleName(), loaded[0],
+                        newFilter.getBitSize(), newFilter.getHashCount(),
+                        System.currentTimeMillis() - startTime });
+    }
+
+    /**
+     * get false positive rate from properties.
+     * 
+     * @return false positive rate, 0.01 if not configured.
+     */
+    private double getFalsePositiveRate() {
+        Double rate = RdapProperties.getExistenceFilterFalsePositiveRate();
+        if (null == rate || rate <= 0 || rate >= 1) {
+            return 0.01;
+        }
+        return rate;
+    }
+
+    /**
+     * get max bits from properties.
+     * 
+     * @return max bits, 0 if not limited.
+     */
+    private long getMaxBits() {
+        Long maxMegabytes = RdapProperties.getExistenceFilterMaxMegabytes();
+        if (null == maxMegabytes || maxMegabytes <= 0) {
+            return 0;
+        }
+        return maxMegabytes * BITS_PER_MEGABYTE;
+    }
+
+    /**
+     * get ttl of missing keys from properties.
+     * 
+     * @return ttl in milliseconds, 0 if not configured, means never expire.
+     */
+    private long getMissingKeyTtlMillis() {
+        Long ttlSeconds = RdapProperties.getExistenceFilterTtlSeconds();
+        if (null == ttlSeconds || ttlSeconds <= 0) {
+            return 0;
+        }
+        return TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * get filter ttl from properties.
+     * 
+     * @return ttl in milliseconds, Long.MAX_VALUE / 2 if not configured.
+     */
+    private long getTtlMillis() {
+        Long ttlSeconds = RdapProperties.getExistenceFilterTtlSeconds();
+        if (null == ttlSeconds || ttlSeconds <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        return TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * get count of keys loaded by last build.
+     * 
+     * @return key count.
+     */
+    @ManagedAttribute(description = "count of keys loaded by last build")
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * get memory used by filter.
+     * 
+     * @return memory in bytes, 0 if not built.
+     */
+    @ManagedAttribute(description = "memory used by filter, in bytes")
+    public long getMemoryBytes() {
+        BloomFilter currentFilter = filter;
+        return null == currentFilter ? 0 : currentFilter.getMemoryBytes();
+    }
+
+    /**
+     * get estimated false positive rate.
+     * 
+     * @return false positive rate, 0 if not built.
+     */
+    @ManagedAttribute(description = "estimated false positive rate")
+    public double getFalsePositiveRateEstimate() {
+        BloomFilter currentFilter = filter;
+        return null == currentFilter ? 0 : currentFilter
+                .getFalsePositiveRate();
+    }
+
+    /**
+     * get lookup count.
+     * 
+     * @return lookup count.
+     */
+    @ManagedAttribute(description = "lookup count")
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    /**
+     * get count of lookups which definitely do not exist.
+     * 
+     * @return miss count.
+     */
+    @ManagedAttribute(description = "count of lookups skipping database")
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * get statistics, for admin controller.
+     * 
+     * @return statistics map.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("name", getClass().getSimpleName());
+        stats.put("built", null != filter);
+        stats.put("keyCount", getKeyCount());
+        stats.put("memoryBytes", getMemoryBytes());
+        stats.put("falsePositiveRate", getFalsePositiveRateEstimate());
+        stats.put("lookupCount", getLookupCount());
+        stats.put("missCount", getMissCount());
+        return stats;
+    }
+}
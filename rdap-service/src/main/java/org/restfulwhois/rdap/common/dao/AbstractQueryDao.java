@@ -32,14 +32,14 @@ package org.restfulwhois.rdap.common.dao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.time.DateFormatUtils;
+import org.apache.commons.lang.time.FastDateFormat;
 import org.restfulwhois.rdap.common.model.base.BaseModel;
 import org.restfulwhois.rdap.common.model.base.ModelType;
 import org.restfulwhois.rdap.common.support.QueryParam;
@@ -70,6 +70,16 @@ public abstract class AbstractQueryDao<T extends BaseModel> implements
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(AbstractQueryDao.class);
+    /**
+     * custom properties column name.
+     */
+    protected static final String COLUMN_CUSTOM_PROPERTIES =
+            "CUSTOM_PROPERTIES";
+    /**
+     * RDAP timestamp format, thread safe.
+     */
+    private static final FastDateFormat TIMESTAMP_FORMAT = FastDateFormat
+            .getInstance("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
     /**
      * %:used for SQL 'like' clause.
@@ -118,6 +128,35 @@ public abstract class AbstractQueryDao<T extends BaseModel> implements
                 "must be implemented in sub class if I'am called.");
     }
 
+    /**
+     * query results of object list of T for a batch of associated objects.
+     * <p>
+     * this default implementation query inner objects one outer object by one,
+     * sub class should override it to query all outer objects in one SQL.
+     * </p>
+     * 
+     * @param outerObjectIds
+     *            associated object id list.
+     * @param outerModelType
+     *            associated object type.
+     * @return map of associated object id to List<T>.
+     */
+    @Override
+    public Map<Long, List<T>> queryAsInnerObjects(List<Long> outerObjectIds,
+            ModelType outerModelType) {
+        Map<Long, List<T>> result = new LinkedHashMap<Long, List<T>>();
+        if (null == outerObjectIds) {
+            return result;
+        }
+        for (Long outerObjectId : outerObjectIds) {
+            if (!result.containsKey(outerObjectId)) {
+                result.put(outerObjectId,
+                        queryAsInnerObjects(outerObjectId, outerModelType));
+            }
+        }
+        return result;
+    }
+
     @Override
     public void queryAndSetInnerObjectsForSearch(List<T> result) {
         throw new UnsupportedOperationException(
@@ -157,6 +196,48 @@ public abstract class AbstractQueryDao<T extends BaseModel> implements
         return result;
     }
 
+    /**
+     * init result map for batch query of inner objects, each outer object id
+     * is mapped to an empty list.
+     * 
+     * @param outerObjectIds
+     *            outer object id list.
+     * @param <M>
+     *            inner object type.
+     * @return map of outer object id to empty list.
+     */
+    protected static <M> Map<Long, List<M>> initInnerObjectsMap(
+            List<Long> outerObjectIds) {
+        Map<Long, List<M>> result = new LinkedHashMap<Long, List<M>>();
+        if (null == outerObjectIds) {
+            return result;
+        }
+        for (Long outerObjectId : outerObjectIds) {
+            result.put(outerObjectId, new ArrayList<M>());
+        }
+        return result;
+    }
+
+    /**
+     * get inner objects of all outer objects, as a flat list.
+     * 
+     * @param innerObjectsMap
+     *            map of outer object id to inner object list.
+     * @param <M>
+     *            inner object type.
+     * @return inner object list.
+     */
+    protected static <M> List<M> flatInnerObjects(
+            Map<Long, List<M>> innerObjectsMap) {
+        List<M> result = new ArrayList<M>();
+        for (List<M> innerObjects : innerObjectsMap.values()) {
+            if (null != innerObjects) {
+                result.addAll(innerObjects);
+            }
+        }
+        return result;
+    }
+
     /**
      * extract timestamp value from ResultSet.
      * 
@@ -168,11 +249,11 @@ public abstract class AbstractQueryDao<T extends BaseModel> implements
      */
     protected String extractTimestampFromRs(ResultSet rs, String columnName) {
         try {
-            String dateTimeStr = rs.getString(columnName);
-            Date date =
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
-                            .parse(dateTimeStr);
-            return DateFormatUtils.format(date, "yyyy-MM-dd'T'HH:mm:ss'Z'");
+            Timestamp timestamp = rs.getTimestamp(columnName);
+            if (null == timestamp) {
+                return null;
+            }
+            return TIMESTAMP_FORMAT.format(timestamp);
         } catch (Exception e) {
             LOGGER.error("error timestamp format,error:{}", e);
             return null;
@@ -212,13 +293,32 @@ public abstract class AbstractQueryDao<T extends BaseModel> implements
      */
     protected static void extractCustomPropertiesFromRs(ResultSet rs,
             BaseModel model) throws SQLException {
-        LOGGER.debug("extractCustomPropertiesFromRs,prefix:{}",
-                RdapProperties.getCustomPropertyPrefix());
+        extractCustomPropertiesFromRs(rs,
+                rs.findColumn(COLUMN_CUSTOM_PROPERTIES), model);
+    }
+
+    /**
+     * extract custom properties from ResultSet by column index. Most rows
+     * have no custom properties, so JSON is only parsed if column is not
+     * blank.
+     * 
+     * @param rs
+     *            ResultSet.
+     * @param columnIndex
+     *            index of CUSTOM_PROPERTIES column, start from 1.
+     * @param model
+     *            model.
+     * @throws SQLException
+     *             SQLException.
+     */
+    protected static void extractCustomPropertiesFromRs(ResultSet rs,
+            int columnIndex, BaseModel model) throws SQLException {
         try {
-            String customPropertiesJSON = rs.getString("CUSTOM_PROPERTIES");
-            Map<String, String> customProperties =
-                    JsonUtil.deserializeJsonToMap(customPropertiesJSON);
-            model.setCustomProperties(customProperties);
+            String customPropertiesJSON = rs.getString(columnIndex);
+            if (StringUtils.isNotBlank(customPropertiesJSON)) {
+                model.setCustomProperties(JsonUtil
+                        .deserializeJsonToMap(customPropertiesJSON));
+            }
             model.setCustomPropertyPrefix(RdapProperties
                     .getCustomPropertyPrefix());
         } catch (Exception e) {
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.model.base.ModelType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * <pre>
+ * executor of independent inner object queries, used to query inner objects
+ * of one object in parallel instead of one after another.
+ * 
+ * Queries of one object are submitted to a QueryBatch and joined by
+ * QueryBatch.get(). Worker threads are bounded by threads and by half of
+ * connectionPoolSize, so the fan-out never takes more than half of the
+ * connection pool. At most maxPerRequest queries of one batch run in worker
+ * threads; query is run in caller thread if this is exceeded, if all worker
+ * threads are busy, or if a transaction is active in caller thread.
+ * All queries of a batch must be joined in timeoutMillis from the creation of
+ * batch, otherwise remaining queries are cancelled and QueryTimeoutException
+ * is thrown.
+ * 
+ * Request attributes and SQL counter of caller thread are passed to worker
+ * threads. All queries are run in caller thread if threads is 0.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class InnerQueryExecutor implements InitializingBean, DisposableBean {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(InnerQueryExecutor.class);
+    /**
+     * idle worker thread is stopped after this seconds.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    /**
+     * max worker threads, 0 means queries are run in caller thread.
+     */
+    private int threads;
+    /**
+     * max queries of one batch running in worker threads at the same time.
+     */
+    private int maxPerRequest = 4;
+    /**
+     * timeout of a batch in milliseconds, not more than 0 means no timeout.
+     */
+    private long timeoutMillis = 5000;
+    /**
+     * max size of connection pool.
+     */
+    private int connectionPoolSize;
+    /**
+     * executor, null if disabled.
+     */
+    private ThreadPoolExecutor executor;
+    /**
+     * permits of worker threads.
+     */
+    private Semaphore permits;
+
+    @Override
+    public void afterPropertiesSet() {
+        int workerThreads = Math.min(threads, connectionPoolSize / 2);
+        if (workerThreads <= 0 || maxPerRequest <= 0) {
+            LOGGER.info("inner query executor is disabled, threads:{},"
+                    + "connectionPoolSize:{}", threads, connectionPoolSize);
+            return;
+        }
+        permits = new Semaphore(workerThreads);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor =
+                new ThreadPoolExecutor(workerThreads, workerThreads,
+                        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(workerThreads),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                String name =
+                                        "rdap-inner-query-"
+                                                + threadNumber
+                                                        .incrementAndGet();
+                                Thread thread = new Thread(r, name);
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+        executor.allowCoreThreadTimeOut(true);
+        LOGGER.info("inner query executor threads:{},maxPerRequest:{},"
+                + "timeoutMillis:{}", new Object[] { workerThreads,
+                maxPerRequest, timeoutMillis });
+    }
+
+    @Override
+    public void destroy() {
+        if (null != executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * check if queries can be run in worker threads.
+     * 
+     * @return true if enabled, false if not.
+     */
+    public boolean isEnabled() {
+        return null != executor;
+    }
+
+    /**
+     * create a batch for queries of one object.
+     * 
+     * @return batch.
+     */
+    public QueryBatch newBatch() {
+        return new QueryBatch();
+    }
+
+    /**
+     * queries submitted by one caller thread, with the same deadline.
+     * 
+     * @author jiashuo
+     * 
+     */
+    public final class QueryBatch {
+        /**
+         * deadline in nanos.
+         */
+        private final long deadlineNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        /**
+         * queries submitted to worker threads.
+         */
+        private final List<Future<?>> futures = new ArrayList<Future<?>>();
+        /**
+         * SQL statements executed by worker threads, not added to caller yet.
+         */
+        private final AtomicInteger sqlCount = new AtomicInteger();
+
+        /**
+         * private constructor.
+         */
+        private QueryBatch() {
+            super();
+        }
+
+        /**
+         * submit query, which is run in worker thread if possible, otherwise
+         * in caller thread before return.
+         * 
+         * @param query
+         *            query.
+         * @param <T>
+         *            result type.
+         * @return future of query result, get result by get().
+         */
+        public <T> Future<T> submit(Callable<T> query) {
+            if (isEnabled() && futures.size() < maxPerRequest
+                    && !TransactionSynchronizationManager
+                            .isActualTransactionActive()
+                    && permits.tryAcquire()) {
+                final FutureTask<T> future =
+                        new FutureTask<T>(wrapWithCallerContext(query));
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                future.run();
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    });
+                    futures.add(future);
+                    return future;
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    LOGGER.debug("inner query is rejected, run in caller.");
+                }
+            }
+            FutureTask<T> future = new FutureTask<T>(query);
+            future.run();
+            return future;
+        }
+
+        /**
+         * submit query of inner objects of outer objects.
+         * 
+         * @param queryDao
+         *            query DAO of inner objects.
+         * @param outerObjectIds
+         *            outer object id list.
+         * @param outerModelType
+         *            outer object type.
+         * @param <T>
+         *            inner object type.
+         * @return future of map, key is outer object id.
+         */
+        public <T extends BaseModel> Future<Map<Long, List<T>>> submit(
+                final QueryDao<T> queryDao, final List<Long> outerObjectIds,
+                final ModelType outerModelType) {
+            return submit(new Callable<Map<Long, List<T>>>() {
+                @Override
+                public Map<Long, List<T>> call() {
+                    return queryDao.queryAsInnerObjects(outerObjectIds,
+                            outerModelType);
+                }
+            });
+        }
+
+        /**
+         * wait for query result until deadline of batch.
+         * 
+         * @param future
+         *            future returned by submit().
+         * @param <T>
+         *            result type.
+         * @return query result.
+         */
+        public <T> T get(Future<T> future) {
+            try {
+                if (timeoutMillis <= 0) {
+                    return future.get();
+                }
+                return future.get(
+                        Math.max(0L, deadlineNanos - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                cancel();
+                LOGGER.warn("inner query timeout, timeoutMillis:{}",
+                        timeoutMillis);
+                throw new QueryTimeoutException("inner query timeout after "
+                        + timeoutMillis + " milliseconds", e);
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new QueryTimeoutException("inner query is interrupted",
+                        e);
+            } catch (ExecutionException e) {
+                cancel();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new DataRetrievalFailureException("inner query failed",
+                        cause);
+            } finally {
+                RequestSqlCounter.add(sqlCount.getAndSet(0));
+            }
+        }
+
+        /**
+         * cancel queries which are not done.
+         */
+        private void cancel() {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        /**
+         * wrap query to run with request attributes and SQL counter of caller
+         * thread.
+         * 
+         * @param query
+         *            query.
+         * @param <T>
+         *            result type.
+         * @return wrapped query.
+         */
+        private <T> Callable<T> wrapWithCallerContext(final Callable<T> query) {
+            final RequestAttributes attributes =
+                    RequestContextHolder.getRequestAttributes();
+            final boolean countSql = RequestSqlCounter.isStarted();
+            return new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    RequestContextHolder.setRequestAttributes(attributes);
+                    if (countSql) {
+                        RequestSqlCounter.start();
+                    }
+                    try {
+                        return query.call();
+                    } finally {
+                        if (countSql) {
+                            sqlCount.addAndGet(RequestSqlCounter.stop());
+                        }
+                        RequestContextHolder.resetRequestAttributes();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * set threads.
+     * 
+     * @param threads
+     *            max worker threads, 0 means queries are run in caller
+     *            thread.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * set maxPerRequest.
+     * 
+     * @param maxPerRequest
+     *            max queries of one batch running in worker threads.
+     */
+    public void setMaxPerRequest(int maxPerRequest) {
+        this.maxPerRequest = maxPerRequest;
+    }
+
+    /**
+     * set timeoutMillis.
+     * 
+     * @param timeoutMillis
+     *            timeout of a batch, not more than 0 means no timeout.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * set connectionPoolSize.
+     * 
+     * @param connectionPoolSize
+     *            max size of connection pool.
+     */
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+
+/**
+ * <pre>
+ * JdbcTemplate recording latency and rows of each statement to SqlMetrics,
+ * and counting statements of current request by RequestSqlCounter.
+ * All query and update methods of JdbcTemplate end in the execute methods
+ * overridden here. Rows of query is the size of extracted list, or 1 for 
+ * single object; rows of update is updated count.
+ * SQL is only known if statement creator or callback provides it, and 
+ * statements created by anonymous PreparedStatementCreator are identified 
+ * by tag.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class InstrumentedJdbcTemplate extends JdbcTemplate {
+    /**
+     * rows extracted by the query of current thread.
+     */
+    private static final ThreadLocal<Long> QUERY_ROWS = new ThreadLocal<Long>();
+    /**
+     * SQL metrics.
+     */
+    private SqlMetrics sqlMetrics;
+
+    @Override
+    public <T> T execute(StatementCallback<T> action) {
+        long start = System.nanoTime();
+        boolean error = true;
+        T result = null;
+        try {
+            result = super.execute(action);
+            error = false;
+            return result;
+        } finally {
+            record(action, start, result, error);
+        }
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc,
+            PreparedStatementCallback<T> action) {
+        long start = System.nanoTime();
+        boolean error = true;
+        T result = null;
+        try {
+            result = super.execute(psc, action);
+            error = false;
+            return result;
+        } finally {
+            record(psc, start, result, error);
+        }
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) {
+        return super.query(sql, new RowCountingResultSetExtractor<T>(rse));
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc,
+            PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+        return super.query(psc, pss,
+                new RowCountingResultSetExtractor<T>(rse));
+    }
+
+    /**
+     * record statement.
+     * 
+     * @param sqlProvider
+     *            statement creator or callback, may provide SQL.
+     * @param start
+     *            start nano time.
+     * @param result
+     *            result of statement.
+     * @param error
+     *            true if statement failed.
+     */
+    private void record(Object sqlProvider, long start, Object result,
+            boolean error) {
+        long nanos = System.nanoTime() - start;
+        Long queryRows = QUERY_ROWS.get();
+        QUERY_ROWS.remove();
+        RequestSqlCounter.increment();
+        if (null == sqlMetrics) {
+            return;
+        }
+        long rows = 0;
+        if (null != queryRows) {
+            rows = queryRows;
+        } else if (result instanceof Integer) {
+            rows = (Integer) result;
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += count;
+            }
+        }
+        String sql = null;
+        if (sqlProvider instanceof SqlProvider) {
+            sql = ((SqlProvider) sqlProvider).getSql();
+        }
+        sqlMetrics.record(sql, nanos, rows, error);
+    }
+
+    /**
+     * ResultSetExtractor counting extracted rows.
+     * 
+     * @param <T>
+     *            result type.
+     * @author jiashuo
+     * 
+     */
+    private static class RowCountingResultSetExtractor<T> implements
+            ResultSetExtractor<T> {
+        /**
+         * delegate extractor.
+         */
+        private final ResultSetExtractor<T> delegate;
+
+        /**
+         * constructor.
+         * 
+         * @param delegate
+         *            delegate.
+         */
+        RowCountingResultSetExtractor(ResultSetExtractor<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public T extractData(ResultSet rs) throws SQLException,
+                DataAccessException {
+            T result = delegate.extractData(rs);
+            long rows = 0;
+            if (result instanceof Collection) {
+                rows = ((Collection<?>) result).size();
+            } else if (null != result) {
+                rows = 1;
+            }
+            QUERY_ROWS.set(rows);
+            return result;
+        }
+    }
+
+    /**
+     * set sqlMetrics.
+     * 
+     * @param sqlMetrics
+     *            sqlMetrics.
+     */
+    public void setSqlMetrics(SqlMetrics sqlMetrics) {
+        this.sqlMetrics = sqlMetrics;
+    }
+}
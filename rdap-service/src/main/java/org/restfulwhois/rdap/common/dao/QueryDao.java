@@ -31,6 +31,7 @@
 package org.restfulwhois.rdap.common.dao;
 
 import java.util.List;
+import java.util.Map;
 
 import org.restfulwhois.rdap.common.model.base.BaseModel;
 import org.restfulwhois.rdap.common.model.base.ModelType;
@@ -69,6 +70,23 @@ public interface QueryDao<T extends BaseModel> {
      */
     List<T> queryAsInnerObjects(Long outerObjectId, ModelType outerModelType);
 
+    /**
+     * query model list for a batch of outer objects, as nested models of other
+     * Model.
+     * <p>
+     * every outer object id in outerObjectIds is a key of the returned map, its
+     * value is the inner object list of this outer object, which may be empty.
+     * </p>
+     * 
+     * @param outerObjectIds
+     *            id list of outer objects.
+     * @param outerModelType
+     *            model type of outer objects.
+     * @return map of outer object id to its inner object list.
+     */
+    Map<Long, List<T>> queryAsInnerObjects(List<Long> outerObjectIds,
+            ModelType outerModelType);
+
     /**
      * query and set inner objects for search result.
      * 
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+import java.beans.PropertyVetoException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+
+/**
+ * <pre>
+ * DataSource routing read only connections to read replicas.
+ * 
+ * Connection is got from primary data source, except that current thread
+ * is marked read only by setReadOnly() and no transaction is active. 
+ * Read only connection is got from healthy replicas in round-robin, and 
+ * from primary if no replica is healthy.
+ * 
+ * Replicas are checked every healthCheckSeconds in a daemon thread: a 
+ * replica is unhealthy if connection fails, or its lag returned by 
+ * replicaLagSql is null or more than maxLagSeconds. A replica is also 
+ * marked unhealthy if getting connection from it fails.
+ * 
+ * Replica pools are created for replicaUrls, with the settings of primary
+ * pool. No replica is created if replicaUrls is blank, and then all
+ * connections are got from primary.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements
+        InitializingBean, DisposableBean {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(ReplicaRoutingDataSource.class);
+    /**
+     * SQL to check replica if replicaLagSql is blank.
+     */
+    private static final String SQL_CHECK = "select 1";
+    /**
+     * read only flag of current thread.
+     */
+    private static final ThreadLocal<Boolean> READ_ONLY =
+            new ThreadLocal<Boolean>();
+    /**
+     * primary data source.
+     */
+    private DataSource primaryDataSource;
+    /**
+     * replica JDBC urls, split by ','.
+     */
+    private String replicaUrls;
+    /**
+     * replica health check interval.
+     */
+    private int healthCheckSeconds = 5;
+    /**
+     * SQL returning replica lag in seconds.
+     */
+    private String replicaLagSql;
+    /**
+     * max replica lag in seconds.
+     */
+    private int maxLagSeconds = 10;
+    /**
+     * replicas.
+     */
+    private final List<Replica> replicas = new CopyOnWriteArrayList<Replica>();
+    /**
+     * round-robin counter.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+    /**
+     * health check executor.
+     */
+    private ScheduledExecutorService healthChecker;
+    /**
+     * SQL metrics recording time of getting connection, may be null.
+     */
+    private SqlMetrics sqlMetrics;
+
+    /**
+     * mark current thread read only or not.
+     * 
+     * @param readOnly
+     *            true if connections of current thread can be got from
+     *            replicas.
+     * @return previous read only flag of current thread.
+     */
+    public static boolean setReadOnly(boolean readOnly) {
+        boolean previous = isReadOnly();
+        if (readOnly) {
+            READ_ONLY.set(Boolean.TRUE);
+        } else {
+            READ_ONLY.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * check if current thread is read only.
+     * 
+     * @return true if is, false if not.
+     */
+    public static boolean isReadOnly() {
+        return Boolean.TRUE.equals(READ_ONLY.get());
+    }
+
+    @Override
+    public void afterPropertiesSet() throws PropertyVetoException {
+        if (StringUtils.isBlank(replicaUrls)) {
+            return;
+        }
+        for (String url : StringUtils.split(replicaUrls, ",")) {
+            if (StringUtils.isNotBlank(url)) {
+                addReplica(url.trim(), createReplicaPool(url.trim()));
+            }
+        }
+        if (healthCheckSeconds > 0) {
+            startHealthCheck();
+        }
+    }
+
+    /**
+     * add replica.
+     * 
+     * @param name
+     *            replica name for log.
+     * @param dataSource
+     *            replica data source.
+     */
+    public void addReplica(String name, DataSource dataSource) {
+        replicas.add(new Replica(name, dataSource));
+    }
+
+    /**
+     * create replica pool with settings of primary pool. Replica pool does
+     * not break after acquire failure, so it can recover.
+     * 
+     * @param url
+     *            replica JDBC url.
+     * @return replica pool.
+     * @throws PropertyVetoException
+     *             PropertyVetoException.
+     */
+    private DataSource createReplicaPool(String url)
+            throws PropertyVetoException {
+        ComboPooledDataSource replica = new ComboPooledDataSource();
+        replica.setJdbcUrl(url);
+        if (primaryDataSource instanceof ComboPooledDataSource) {
+            ComboPooledDataSource primary =
+                    (ComboPooledDataSource) primaryDataSource;
+            replica.setDriverClass(primary.getDriverClass());
+            replica.setUser(primary.getUser());
+            replica.setPassword(primary.getPassword());
+            replica.setMinPoolSize(primary.getMinPoolSize());
+            replica.setMaxPoolSize(primary.getMaxPoolSize());
+            replica.setInitialPoolSize(primary.getInitialPoolSize());
+            replica.setMaxIdleTime(primary.getMaxIdleTime());
+            replica.setAcquireIncrement(primary.getAcquireIncrement());
+            replica.setMaxStatements(primary.getMaxStatements());
+            replica.setIdleConnectionTestPeriod(primary
+                    .getIdleConnectionTestPeriod());
+            replica.setPreferredTestQuery(primary.getPreferredTestQuery());
+            replica.setTestConnectionOnCheckin(primary
+                    .isTestConnectionOnCheckin());
+        }
+        replica.setAcquireRetryAttempts(1);
+        replica.setBreakAfterAcquireFailure(false);
+        return replica;
+    }
+
+    /**
+     * start health check thread.
+     */
+    private void startHealthCheck() {
+        healthChecker =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread =
+                                new Thread(r, "rdap-replica-health-check");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        healthChecker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkReplicas();
+            }
+        }, 0, healthCheckSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * check all replicas, and update their health.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy = checkReplica(replica);
+            if (healthy != replica.healthy) {
+                LOGGER.warn("replica {} healthy:{}", replica.name, healthy);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * check replica.
+     * 
+     * @param replica
+     *            replica.
+     * @return true if replica is healthy, false if not.
+     */
+    private boolean checkReplica(Replica replica) {
+        boolean checkLag = StringUtils.isNotBlank(replicaLagSql);
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = replica.dataSource.getConnection();
+            stmt = conn.createStatement();
+            rs = stmt.executeQuery(checkLag ? replicaLagSql : SQL_CHECK);
+            if (!rs.next()) {
+                return false;
+            }
+            if (!checkLag) {
+                return true;
+            }
+            long lag = rs.getLong(1);
+            if (rs.wasNull() || lag > maxLagSeconds) {
+                LOGGER.debug("replica {} lag:{}", replica.name,
+                        rs.getObject(1));
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("check replica {} error:{}", replica.name, e);
+            return false;
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(stmt);
+            JdbcUtils.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (null == sqlMetrics) {
+            return routeConnection();
+        }
+        long start = System.nanoTime();
+        try {
+            return routeConnection();
+        } finally {
+            sqlMetrics.recordPoolWait(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * get connection from primary or replicas.
+     * 
+     * @return connection.
+     * @throws SQLException
+     *             SQLException.
+     */
+    private Connection routeConnection() throws SQLException {
+        int size = replicas.size();
+        if (size == 0 || !isReadOnly()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return primaryDataSource.getConnection();
+        }
+        int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                LOGGER.warn("replica {} connection error:{}", replica.name,
+                        e.getMessage());
+                replica.healthy = false;
+            }
+        }
+        return primaryDataSource.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return primaryDataSource.getConnection(username, password);
+    }
+
+    @Override
+    public void destroy() {
+        if (null != healthChecker) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof ComboPooledDataSource) {
+                ((ComboPooledDataSource) replica.dataSource).close();
+            }
+        }
+    }
+
+    /**
+     * read replica.
+     * 
+     * @author jiashuo
+     * 
+     */
+    private static class Replica {
+        /**
+         * name.
+         */
+        private final String name;
+        /**
+         * data source.
+         */
+        private final DataSource dataSource;
+        /**
+         * healthy or not, replica is healthy until checked.
+         */
+        private volatile boolean healthy = true;
+
+        /**
+         * constructor.
+         * 
+         * @param name
+         *            name.
+         * @param dataSource
+         *            data source.
+         */
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * set primaryDataSource.
+     * 
+     * @param primaryDataSource
+     *            primaryDataSource.
+     */
+    public void setPrimaryDataSource(DataSource primaryDataSource) {
+        this.primaryDataSource = primaryDataSource;
+    }
+
+    /**
+     * set replicaUrls.
+     * 
+     * @param replicaUrls
+     *            replicaUrls.
+     */
+    public void setReplicaUrls(String replicaUrls) {
+        this.replicaUrls = replicaUrls;
+    }
+
+    /**
+     * set healthCheckSeconds.
+     * 
+     * @param healthCheckSeconds
+     *            healthCheckSeconds.
+     */
+    public void setHealthCheckSeconds(int healthCheckSeconds) {
+        this.healthCheckSeconds = healthCheckSeconds;
+    }
+
+    /**
+     * set replicaLagSql.
+     * 
+     * @param replicaLagSql
+     *            replicaLagSql.
+     */
+    public void setReplicaLagSql(String replicaLagSql) {
+        this.replicaLagSql = replicaLagSql;
+    }
+
+    /**
+     * set sqlMetrics.
+     * 
+     * @param sqlMetrics
+     *            sqlMetrics.
+     */
+    public void setSqlMetrics(SqlMetrics sqlMetrics) {
+        this.sqlMetrics = sqlMetrics;
+    }
+
+    /**
+     * set maxLagSeconds.
+     * 
+     * @param maxLagSeconds
+     *            maxLagSeconds.
+     */
+    public void setMaxLagSeconds(int maxLagSeconds) {
+        this.maxLagSeconds = maxLagSeconds;
+    }
+}
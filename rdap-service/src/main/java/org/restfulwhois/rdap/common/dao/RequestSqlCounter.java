@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+/**
+ * <pre>
+ * request scoped counter of SQL statements.
+ * Counter is started for each request in FilterChainProxy, and increased by
+ * InstrumentedJdbcTemplate for each statement executed in request thread.
+ * Statements executed by InnerQueryExecutor in worker threads are added to
+ * counter of request thread when they are joined.
+ * Statements executed when counter is not started are not counted.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public final class RequestSqlCounter {
+
+    /**
+     * counter of current thread, null if not started.
+     */
+    private static final ThreadLocal<int[]> COUNTER =
+            new ThreadLocal<int[]>();
+
+    /**
+     * private constructor.
+     */
+    private RequestSqlCounter() {
+        super();
+    }
+
+    /**
+     * start counter of current thread, reset to 0 if already started.
+     */
+    public static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    /**
+     * increase counter of current thread, if started.
+     */
+    public static void increment() {
+        int[] counter = COUNTER.get();
+        if (null != counter) {
+            counter[0]++;
+        }
+    }
+
+    /**
+     * add count to counter of current thread, if started.
+     * 
+     * @param count
+     *            statement count.
+     */
+    public static void add(int count) {
+        int[] counter = COUNTER.get();
+        if (null != counter) {
+            counter[0] += count;
+        }
+    }
+
+    /**
+     * check if counter of current thread is started.
+     * 
+     * @return true if started, false if not.
+     */
+    public static boolean isStarted() {
+        return null != COUNTER.get();
+    }
+
+    /**
+     * get statement count of current thread.
+     * 
+     * @return statement count, 0 if counter is not started.
+     */
+    public static int getCount() {
+        int[] counter = COUNTER.get();
+        if (null == counter) {
+            return 0;
+        }
+        return counter[0];
+    }
+
+    /**
+     * stop counter of current thread.
+     * 
+     * @return statement count before stopped.
+     */
+    public static int stop() {
+        int count = getCount();
+        COUNTER.remove();
+        return count;
+    }
+}
@@ -54,11 +54,12 @@ public interface SearchDao<T extends BaseModel> {
     List<T> search(QueryParam queryParam);
 
     /**
-     * get search count.
+     * get search count, count is capped at maxsizeSearch + 1, which is
+     * enough to check if results are truncated.
      * 
      * @param queryParam
      *            queryParam.
-     * @return queryParam.
+     * @return capped count.
      */
     Long searchCount(QueryParam queryParam);
 
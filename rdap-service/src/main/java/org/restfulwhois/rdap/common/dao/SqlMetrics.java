@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * <pre>
+ * SQL statistics, grouped by tag of current thread.
+ * Tag is set by SqlTagInterceptor to the DAO method which executes SQL,
+ * and statements are recorded by InstrumentedJdbcTemplate.
+ * Statement taking more than slowSqlThresholdMillis is logged.
+ * Statistics are exposed by JMX and admin controller.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@ManagedResource(objectName = "org.restfulwhois.rdap:type=SqlMetrics",
+        description = "SQL statistics by DAO method")
+public class SqlMetrics {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(SqlMetrics.class);
+    /**
+     * tag of statement executed without tag.
+     */
+    public static final String UNKNOWN_TAG = "unknown";
+    /**
+     * nanos of one millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /**
+     * tag of current thread.
+     */
+    private static final ThreadLocal<String> TAG = new ThreadLocal<String>();
+    /**
+     * statistics by tag.
+     */
+    private final ConcurrentMap<String, SqlStat> stats =
+            new ConcurrentHashMap<String, SqlStat>();
+    /**
+     * slow statement count.
+     */
+    private final AtomicLong slowStatementCount = new AtomicLong();
+
+    /**
+     * set tag of current thread.
+     * 
+     * @param tag
+     *            tag, null to clear.
+     * @return previous tag, null if no tag.
+     */
+    public static String setTag(String tag) {
+        String previous = TAG.get();
+        if (null == tag) {
+            TAG.remove();
+        } else {
+            TAG.set(tag);
+        }
+        return previous;
+    }
+
+    /**
+     * get tag of current thread.
+     * 
+     * @return tag, UNKNOWN_TAG if no tag.
+     */
+    public static String getTag() {
+        String tag = TAG.get();
+        if (null == tag) {
+            return UNKNOWN_TAG;
+        }
+        return tag;
+    }
+
+    /**
+     * record statement to statistics of current tag, and log it if slow.
+     * 
+     * @param sql
+     *            SQL, may be null if unknown.
+     * @param nanos
+     *            latency.
+     * @param rows
+     *            rows returned or updated.
+     * @param error
+     *            true if statement failed.
+     */
+    public void record(String sql, long nanos, long rows, boolean error) {
+        String tag = getTag();
+        getStat(tag).record(nanos, rows, error);
+        Long threshold = RdapProperties.getSlowSqlThresholdMillis();
+        if (null != threshold && threshold > 0
+                && nanos > threshold * NANOS_PER_MILLI) {
+            slowStatementCount.incrementAndGet();
+            LOGGER.warn("slow SQL {}ms in {}, rows:{}, error:{}, sql:{}",
+                    new Object[] {nanos / NANOS_PER_MILLI, tag, rows, error,
+                            sql });
+        }
+    }
+
+    /**
+     * record time of getting connection from pool to statistics of current
+     * tag.
+     * 
+     * @param nanos
+     *            time.
+     */
+    public void recordPoolWait(long nanos) {
+        getStat(getTag()).recordPoolWait(nanos);
+    }
+
+    /**
+     * get statistics of tag, create it if not exist.
+     * 
+     * @param tag
+     *            tag.
+     * @return statistics.
+     */
+    private SqlStat getStat(String tag) {
+        SqlStat stat = stats.get(tag);
+        if (null == stat) {
+            stat = new SqlStat(tag);
+            SqlStat existing = stats.putIfAbsent(tag, stat);
+            if (null != existing) {
+                stat = existing;
+            }
+        }
+        return stat;
+    }
+
+    /**
+     * get statistics of all tags, sorted by total latency descending.
+     * 
+     * @return statistics list.
+     */
+    public List<SqlStat> getStats() {
+        List<SqlStat> result = new ArrayList<SqlStat>(stats.values());
+        Collections.sort(result, new Comparator<SqlStat>() {
+            @Override
+            public int compare(SqlStat o1, SqlStat o2) {
+                long diff = o2.getTotalMillis() - o1.getTotalMillis();
+                if (diff != 0) {
+                    return diff > 0 ? 1 : -1;
+                }
+                return o1.getTag().compareTo(o2.getTag());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * get statistics of all tags as strings, for JMX.
+     * 
+     * @return statistics strings.
+     */
+    @ManagedAttribute(description = "statistics by DAO method")
+    public String[] getStatistics() {
+        List<SqlStat> list = getStats();
+        String[] result = new String[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i).toString();
+        }
+        return result;
+    }
+
+    /**
+     * get total statement count.
+     * 
+     * @return statement count.
+     */
+    @ManagedAttribute(description = "statement count")
+    public long getStatementCount() {
+        long count = 0;
+        for (SqlStat stat : stats.values()) {
+            count += stat.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * get slow statement count.
+     * 
+     * @return slow statement count.
+     */
+    @ManagedAttribute(description = "slow statement count")
+    public long getSlowStatementCount() {
+        return slowStatementCount.get();
+    }
+
+    /**
+     * clear all statistics.
+     */
+    @ManagedOperation(description = "clear all statistics")
+    public void reset() {
+        stats.clear();
+        slowStatementCount.set(0);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restfulwhois.rdap.common.support.LatencyHistogram;
+
+/**
+ * <pre>
+ * statistics of SQL statements with the same tag, usually DAO method.
+ * Latency is recorded in a LatencyHistogram of millisecond buckets, and
+ * percentile is the upper bound of the bucket it falls in.
+ * This class is thread-safe.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class SqlStat {
+    /**
+     * upper bounds of latency buckets, in microseconds, from 1ms to 2s. The
+     * last bucket has no upper bound.
+     */
+    private static final long[] BUCKET_BOUNDS_MICROS = {1000, 2000, 5000,
+            10000, 20000, 50000, 100000, 200000, 500000, 1000000, 2000000 };
+    /**
+     * nanos of one millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /**
+     * micros of one millisecond.
+     */
+    private static final long MICROS_PER_MILLI = 1000L;
+    /**
+     * tag.
+     */
+    private final String tag;
+    /**
+     * failed statement count.
+     */
+    private final AtomicLong errorCount = new AtomicLong();
+    /**
+     * total rows returned or updated.
+     */
+    private final AtomicLong rows = new AtomicLong();
+    /**
+     * count of getting connection from pool.
+     */
+    private final AtomicLong poolWaitCount = new AtomicLong();
+    /**
+     * total time of getting connection from pool.
+     */
+    private final AtomicLong poolWaitNanos = new AtomicLong();
+    /**
+     * latency histogram.
+     */
+    private final LatencyHistogram histogram = new LatencyHistogram(
+            BUCKET_BOUNDS_MICROS);
+
+    /**
+     * constructor.
+     * 
+     * @param tag
+     *            tag.
+     */
+    public SqlStat(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * record statement.
+     * 
+     * @param nanos
+     *            latency.
+     * @param rowCount
+     *            rows returned or updated.
+     * @param error
+     *            true if statement failed.
+     */
+    public void record(long nanos, long rowCount, boolean error) {
+        if (error) {
+            errorCount.incrementAndGet();
+        }
+        rows.addAndGet(rowCount);
+        histogram.record(nanos);
+    }
+
+    /**
+     * record time of getting connection from pool.
+     * 
+     * @param nanos
+     *            time.
+     */
+    public void recordPoolWait(long nanos) {
+        poolWaitCount.incrementAndGet();
+        poolWaitNanos.addAndGet(nanos);
+    }
+
+    /**
+     * get latency percentile.
+     * 
+     * @param percent
+     *            percent, 0 to 100.
+     * @return upper bound of bucket in milliseconds, -1 if it is in the last
+     *         bucket, 0 if no statement.
+     */
+    public long getPercentileMillis(double percent) {
+        long micros = histogram.getPercentileMicros(percent);
+        if (micros <= 0) {
+            return micros;
+        }
+        return micros / MICROS_PER_MILLI;
+    }
+
+    /**
+     * get tag.
+     * 
+     * @return tag.
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * get count.
+     * 
+     * @return count.
+     */
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     * get errorCount.
+     * 
+     * @return errorCount.
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * get total latency in milliseconds.
+     * 
+     * @return total latency.
+     */
+    public long getTotalMillis() {
+        return histogram.getTotalNanos() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * get average latency in microseconds.
+     * 
+     * @return average latency.
+     */
+    public long getAvgMicros() {
+        return histogram.getAvgMicros();
+    }
+
+    /**
+     * get max latency in microseconds.
+     * 
+     * @return max latency.
+     */
+    public long getMaxMicros() {
+        return histogram.getMaxNanos() / 1000;
+    }
+
+    /**
+     * get median latency.
+     * 
+     * @return see getPercentileMillis.
+     */
+    public long getP50Millis() {
+        return getPercentileMillis(50);
+    }
+
+    /**
+     * get 95th percentile latency.
+     * 
+     * @return see getPercentileMillis.
+     */
+    public long getP95Millis() {
+        return getPercentileMillis(95);
+    }
+
+    /**
+     * get 99th percentile latency.
+     * 
+     * @return see getPercentileMillis.
+     */
+    public long getP99Millis() {
+        return getPercentileMillis(99);
+    }
+
+    /**
+     * get rows.
+     * 
+     * @return rows.
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * get average time of getting connection from pool, in microseconds.
+     * 
+     * @return average pool wait time.
+     */
+    public long getAvgPoolWaitMicros() {
+        long c = poolWaitCount.get();
+        if (c == 0) {
+            return 0;
+        }
+        return poolWaitNanos.get() / c / 1000;
+    }
+
+    /**
+     * get histogram as string.
+     * 
+     * @return bucket counts, such as '&lt;=1ms:10,&lt;=2ms:3,&gt;2000ms:0'.
+     */
+    public String getHistogram() {
+        return histogram.toString();
+    }
+
+    @Override
+    public String toString() {
+        return tag + " count:" + getCount() + " errors:" + getErrorCount()
+                + " totalMs:" + getTotalMillis() + " avgUs:" + getAvgMicros()
+                + " maxUs:" + getMaxMicros() + " p50Ms:" + getP50Millis()
+                + " p95Ms:" + getP95Millis() + " p99Ms:" + getP99Millis()
+                + " rows:" + getRows() + " poolWaitAvgUs:"
+                + getAvgPoolWaitMicros();
+    }
+}
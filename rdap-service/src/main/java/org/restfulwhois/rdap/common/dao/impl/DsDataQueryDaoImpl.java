@@ -36,7 +36,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.model.DsData;
@@ -97,79 +99,109 @@ public class DsDataQueryDaoImpl extends AbstractQueryDao<DsData> {
             ModelType outerModelType) {
         LOGGER.debug("queryAsInnerObjects,outerObjId:{},outerModel:{}",
                 outerObjectId, outerModelType);
-        List<DsData> dsDataList = queryWithoutInnerObjects(outerObjectId);
-        queryAndSetInnerObjects(dsDataList);
+        List<Long> outerObjectIds = new ArrayList<Long>();
+        outerObjectIds.add(outerObjectId);
+        List<DsData> dsDataList =
+                queryAsInnerObjects(outerObjectIds, outerModelType).get(
+                        outerObjectId);
         LOGGER.debug("queryAsInnerObjects,dsDataList:{}",
                 dsDataList);
         return dsDataList;
     }
 
     /**
-     * query inner objects for dsData list.
+     * query DsDatas associated to a batch of secureDns.
      * 
-     * @param dsDataList
-     *          dsData list which will be filled with inner objects one by one.
+     * @param outerObjectIds
+     *            secureDns id list.
+     * @param outerModelType
+     *            associated object type.
+     * @return map of secureDns id to its DsData list.
      */
-    private void queryAndSetInnerObjects(List<DsData> dsDataList) {
-        if (null == dsDataList || dsDataList.size() == 0) {
-            return;
-        }
-        for (DsData dsData : dsDataList) {
-            queryAndSetInnerObjects(dsData);
+    @Override
+    public Map<Long, List<DsData>> queryAsInnerObjects(
+            List<Long> outerObjectIds, ModelType outerModelType) {
+        Map<Long, List<DsData>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
         }
+        queryWithoutInnerObjects(result);
+        queryAndSetInnerObjects(flatInnerObjects(result));
+        return result;
     }
 
     /**
-     * query inner objects, and set them to dsData.
+     * query inner objects for dsData list.
      * 
-     * @param dsData
-     *            dsData which will be filled with inner objects.
+     * @param dsDataList
+     *          dsData list which will be filled with inner objects.
      */
-    private void queryAndSetInnerObjects(DsData dsData) {
-        if (null == dsData) {
+    private void queryAndSetInnerObjects(List<DsData> dsDataList) {
+        if (null == dsDataList || dsDataList.size() == 0) {
             return;
         }
-        List<Event> events = eventQueryDao.queryAsInnerObjects(dsData.getId(),
-                ModelType.DSDATA);
-        dsData.setEvents(events);
-        List<Link> links = linkQueryDao.queryAsInnerObjects(dsData.getId(),
-                ModelType.DSDATA);
-        dsData.setLinks(links);
+        List<Long> dsDataIds = getModelIds(dsDataList);
+        Map<Long, List<Event>> eventsMap =
+                eventQueryDao.queryAsInnerObjects(dsDataIds, ModelType.DSDATA);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(dsDataIds, ModelType.DSDATA);
+        for (DsData dsData : dsDataList) {
+            dsData.setEvents(eventsMap.get(dsData.getId()));
+            dsData.setLinks(linksMap.get(dsData.getId()));
+        }
     }
 
     /**
-     * query dsData from RDAP_DSDATA table, without inner objects.
+     * query dsData from RDAP_DSDATA table, without inner objects, and add them
+     * to the dsData list of its secure dns.
      * 
-     * @param outerObjectId secure dns id which is used as key while querying.
-     * @return dsData list object without inner objects.
+     * @param result
+     *            map of secure dns id to dsData list, will be filled.
      */
-    private List<DsData> queryWithoutInnerObjects(final Long outerObjectId) {
-        final String sql = "select * from REL_SECUREDNS_DSKEY rel,"
+    private void queryWithoutInnerObjects(final Map<Long, List<DsData>> result) {
+        final String sqlTpl = "select * from REL_SECUREDNS_DSKEY rel,"
                 + "RDAP_DSDATA ds " + " where rel.REL_ID = ds.DSDATA_ID "
-                + " and rel.SECUREDNS_ID=? and rel.REL_DSKEY_TYPE=? ";
-        List<DsData> result = jdbcTemplate.query(
+                + " and rel.SECUREDNS_ID in (%s) and rel.REL_DSKEY_TYPE=? ";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(
                 new PreparedStatementCreator() {
                     public PreparedStatement createPreparedStatement(
                             Connection connection) throws SQLException {
                         PreparedStatement ps = connection.prepareStatement(sql);
-                        ps.setLong(1, outerObjectId);
-                        ps.setString(2, SecureDNSRType.DsData.getName());
+                        ps.setString(1, SecureDNSRType.DsData.getName());
                         return ps;
                     }
-                }, new DsDataResultSetExtractor());
-        return result;
+                }, new DsDataResultSetExtractor(result));
     }
 
     /**
-     * dsData ResultSetExtractor, extract data from ResultSet.
+     * dsData ResultSetExtractor, extract data from ResultSet, and add dsData
+     * to the dsData list of its secure dns.
      * 
      * @author jiashuo
      * 
      */
-    class DsDataResultSetExtractor implements ResultSetExtractor<List<DsData>> {
+    class DsDataResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<DsData>>> {
+        /**
+         * result map, secure dns id to dsData list.
+         */
+        private Map<Long, List<DsData>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        DsDataResultSetExtractor(Map<Long, List<DsData>> result) {
+            this.result = result;
+        }
+
         @Override
-        public List<DsData> extractData(ResultSet rs) throws SQLException {
-            List<DsData> result = new ArrayList<DsData>();
+        public Map<Long, List<DsData>> extractData(ResultSet rs)
+                throws SQLException {
             while (rs.next()) {
                 DsData dsData = new DsData();
                 dsData.setId(rs.getLong("DSDATA_ID"));
@@ -177,7 +209,7 @@ public class DsDataQueryDaoImpl extends AbstractQueryDao<DsData> {
                 dsData.setDigest(rs.getString("DIGEST"));
                 dsData.setDigestType(getIntegerFromRs(rs, "DIGEST_TYPE"));
                 dsData.setKeyTag(getIntegerFromRs(rs, "KEY_TAG"));
-                result.add(dsData);
+                result.get(rs.getLong("SECUREDNS_ID")).add(dsData);
             }
             return result;
         }
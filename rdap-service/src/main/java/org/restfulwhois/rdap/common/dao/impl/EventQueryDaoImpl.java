@@ -36,7 +36,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.model.Event;
@@ -83,86 +85,113 @@ public class EventQueryDaoImpl extends AbstractQueryDao<Event> {
     @Override
     public List<Event> queryAsInnerObjects(final Long outerObjectId,
             final ModelType outerModelType) {
-        List<Event> events = queryWithoutInnerObjects(outerObjectId,
-                outerModelType);
-        queryAndSetInnerObjects(events);
-        return events;
+        List<Long> outerObjectIds = new ArrayList<Long>();
+        outerObjectIds.add(outerObjectId);
+        return queryAsInnerObjects(outerObjectIds, outerModelType).get(
+                outerObjectId);
     }
 
     /**
-     * query inner objects, and set it to event.
+     * query event as inner objects of a batch of other objects.
      * 
-     * @param events
-     *        the event list which will be set.
+     * @param outerObjectIds
+     *            id list of outer objects.
+     * @param outerModelType
+     *            model type of outer objects.
+     * @return map of outer object id to event list.
      */
-    private void queryAndSetInnerObjects(List<Event> events) {
-        if (null == events || events.size() == 0) {
-            return;
-        }
-        for (Event event : events) {
-            queryAndSetInnerObjects(event);
+    @Override
+    public Map<Long, List<Event>> queryAsInnerObjects(
+            final List<Long> outerObjectIds, final ModelType outerModelType) {
+        Map<Long, List<Event>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
         }
+        queryWithoutInnerObjects(result, outerModelType);
+        queryAndSetInnerObjects(flatInnerObjects(result));
+        return result;
     }
 
     /**
-     * query inner objects, and set them to event.
+     * query inner objects, and set them to events.
      * 
-     * @param event
-     *            event after set inner objects
+     * @param events
+     *        the event list which will be set.
      */
-    private void queryAndSetInnerObjects(Event event) {
-        if (null == event) {
+    private void queryAndSetInnerObjects(List<Event> events) {
+        if (null == events || events.size() == 0) {
             return;
         }
-        List<Link> links = linkQueryDao.queryAsInnerObjects(event.getId(),
-                ModelType.EVENT);
-        event.setLinks(links);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(getModelIds(events),
+                        ModelType.EVENT);
+        for (Event event : events) {
+            event.setLinks(linksMap.get(event.getId()));
+        }
     }
 
     /**
-     * query event from RDAP_EVENT,without inner objects.
+     * query event from RDAP_EVENT,without inner objects, and add them to the
+     * event list of its outer object.
      * 
-     * @param outerObjectId
-     *            outer object id
+     * @param result
+     *            map of outer object id to event list, will be filled.
      * @param outerModelType
      *            outer model type
-     * @return events list
      */
-    private List<Event> queryWithoutInnerObjects(final Long outerObjectId,
+    private void queryWithoutInnerObjects(
+            final Map<Long, List<Event>> result,
             final ModelType outerModelType) {
-        final String sql = "select event.*  from RDAP_EVENT event"
+        final String sqlTpl = "select event.*,rel.REL_ID from RDAP_EVENT event"
                 + " inner join REL_EVENT_REGISTRATION rel "
-                + " on (rel.EVENT_ID = event.EVENT_ID and rel.REL_ID = ?"
+                + " on (rel.EVENT_ID = event.EVENT_ID and rel.REL_ID in (%s)"
                 + " and rel.REL_OBJECT_TYPE = ?) ";
-        List<Event> result = jdbcTemplate.query(new PreparedStatementCreator() {
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setLong(1, outerObjectId);
-                ps.setString(2, outerModelType.getName());
+                ps.setString(1, outerModelType.getName());
                 return ps;
             }
-        }, new EventResultSetExtractor());
-        return result;
+        }, new EventResultSetExtractor(result));
     }
 
     /**
-     * event ResultSetExtractor, extract data from ResultSet.
+     * event ResultSetExtractor, extract data from ResultSet, and add event to
+     * the event list of its outer object(REL_ID).
      * 
      * @author jiashuo
      * 
      */
-    class EventResultSetExtractor implements ResultSetExtractor<List<Event>> {
+    class EventResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Event>>> {
+        /**
+         * result map, outer object id to event list.
+         */
+        private Map<Long, List<Event>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        EventResultSetExtractor(Map<Long, List<Event>> result) {
+            this.result = result;
+        }
+
         @Override
-        public List<Event> extractData(ResultSet rs) throws SQLException {
-            List<Event> result = new ArrayList<Event>();
+        public Map<Long, List<Event>> extractData(ResultSet rs)
+                throws SQLException {
             while (rs.next()) {
                 Event event = new Event();
                 event.setId(rs.getLong("EVENT_ID"));
                 event.setEventAction(rs.getString("EVENT_ACTION"));
                 event.setEventActor(rs.getString("EVENT_ACTOR"));
                 event.setEventDate(extractTimestampFromRs(rs, "EVENT_DATE"));
-                result.add(event);
+                result.get(rs.getLong("REL_ID")).add(event);
             }
             return result;
         }
@@ -36,7 +36,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.model.Event;
@@ -83,9 +85,31 @@ public class KeyDataQueryDaoImpl extends AbstractQueryDao<KeyData> {
     @Override
     public List<KeyData> queryAsInnerObjects(Long outerObjectId,
             ModelType outerModelType) {
-        List<KeyData> keyDataList = queryWithoutInnerObjects(outerObjectId);
-        queryAndSetInnerObjects(keyDataList);
-        return keyDataList;
+        List<Long> outerObjectIds = new ArrayList<Long>();
+        outerObjectIds.add(outerObjectId);
+        return queryAsInnerObjects(outerObjectIds, outerModelType).get(
+                outerObjectId);
+    }
+
+    /**
+     * query keyData list associated to a batch of secureDns.
+     * 
+     * @param outerObjectIds
+     *            secureDns id list.
+     * @param outerModelType
+     *            associated object type.
+     * @return map of secureDns id to its keyData list.
+     */
+    @Override
+    public Map<Long, List<KeyData>> queryAsInnerObjects(
+            List<Long> outerObjectIds, ModelType outerModelType) {
+        Map<Long, List<KeyData>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        queryWithoutInnerObjects(result);
+        queryAndSetInnerObjects(flatInnerObjects(result));
+        return result;
     }
 
     /**
@@ -98,62 +122,69 @@ public class KeyDataQueryDaoImpl extends AbstractQueryDao<KeyData> {
         if (null == keyDataList || keyDataList.size() == 0) {
             return;
         }
+        List<Long> keyDataIds = getModelIds(keyDataList);
+        Map<Long, List<Event>> eventsMap =
+                eventQueryDao.queryAsInnerObjects(keyDataIds, ModelType.KEYDATA);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(keyDataIds, ModelType.KEYDATA);
         for (KeyData keyData : keyDataList) {
-            queryAndSetInnerObjects(keyData);
+            keyData.setEvents(eventsMap.get(keyData.getId()));
+            keyData.setLinks(linksMap.get(keyData.getId()));
         }
     }
 
     /**
-     * query inner objects, and set them to keyData.
+     * query keyData from RDAP_KEYDATA, without inner objects, and add them to
+     * the keyData list of its secure dns.
      * 
-     * @param keyData
-     *            keyData which will be set with inner objects like event etc.
+     * @param result
+     *            map of secure dns id to keyData list, will be filled.
      */
-    private void queryAndSetInnerObjects(KeyData keyData) {
-        if (null == keyData) {
-            return;
-        }
-        List<Event> events = eventQueryDao.queryAsInnerObjects(keyData.getId(),
-                ModelType.KEYDATA);
-        keyData.setEvents(events);
-        List<Link> links = linkQueryDao.queryAsInnerObjects(keyData.getId(),
-                ModelType.KEYDATA);
-        keyData.setLinks(links);
-    }
-
-    /**
-     * query keyData from RDAP_KEYDATA, without inner objects.
-     * @param outerObjectId outer object id such as domain id.
-     * @return keyData list which will be filled to outer object.
-     */
-    private List<KeyData> queryWithoutInnerObjects(final Long outerObjectId) {
-        final String sql = "select * from REL_SECUREDNS_DSKEY rel,RDAP_KEYDATA"
+    private void queryWithoutInnerObjects(
+            final Map<Long, List<KeyData>> result) {
+        final String sqlTpl = "select * from REL_SECUREDNS_DSKEY rel,RDAP_KEYDATA"
                 + " keyData where rel.REL_ID = keyData.KEYDATA_ID "
-                + " and rel.SECUREDNS_ID=? and rel.REL_DSKEY_TYPE=? ";
-        List<KeyData> result = jdbcTemplate.query(
+                + " and rel.SECUREDNS_ID in (%s) and rel.REL_DSKEY_TYPE=? ";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(
                 new PreparedStatementCreator() {
                     public PreparedStatement createPreparedStatement(
                             Connection connection) throws SQLException {
                         PreparedStatement ps = connection.prepareStatement(sql);
-                        ps.setLong(1, outerObjectId);
-                        ps.setString(2, SecureDNSRType.KeyData.getName());
+                        ps.setString(1, SecureDNSRType.KeyData.getName());
                         return ps;
                     }
-                }, new KeyDataResultSetExtractor());
-        return result;
+                }, new KeyDataResultSetExtractor(result));
     }
 
     /**
-     * keyData ResultSetExtractor, extract data from ResultSet.
+     * keyData ResultSetExtractor, extract data from ResultSet, and add keyData
+     * to the keyData list of its secure dns.
      * 
      * @author jiashuo
      * 
      */
     class KeyDataResultSetExtractor implements
-            ResultSetExtractor<List<KeyData>> {
+            ResultSetExtractor<Map<Long, List<KeyData>>> {
+        /**
+         * result map, secure dns id to keyData list.
+         */
+        private Map<Long, List<KeyData>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        KeyDataResultSetExtractor(Map<Long, List<KeyData>> result) {
+            this.result = result;
+        }
+
         @Override
-        public List<KeyData> extractData(ResultSet rs) throws SQLException {
-            List<KeyData> result = new ArrayList<KeyData>();
+        public Map<Long, List<KeyData>> extractData(ResultSet rs)
+                throws SQLException {
             while (rs.next()) {
                 KeyData keyData = new KeyData();
                 keyData.setId(rs.getLong("KEYDATA_ID"));
@@ -161,7 +192,7 @@ public class KeyDataQueryDaoImpl extends AbstractQueryDao<KeyData> {
                 keyData.setPublicKey(rs.getString("PUBLIC_KEY"));
                 keyData.setFlags(getIntegerFromRs(rs, "FLAGS"));
                 keyData.setProtocol(getIntegerFromRs(rs, "PROTOCOL"));
-                result.add(keyData);
+                result.get(rs.getLong("SECUREDNS_ID")).add(keyData);
             }
             return result;
         }
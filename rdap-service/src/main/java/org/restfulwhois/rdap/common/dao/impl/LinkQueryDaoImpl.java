@@ -39,6 +39,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.Link;
 import org.restfulwhois.rdap.common.model.base.ModelType;
@@ -72,7 +73,34 @@ public class LinkQueryDaoImpl extends AbstractQueryDao<Link> {
                 outerModelType);        
         return linksWithHreflang;
     }
-   
+
+    @Override
+    public Map<Long, List<Link>> queryAsInnerObjects(
+            final List<Long> outerObjectIds, final ModelType outerModelType) {
+        Map<Long, List<Link>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sqlTpl =
+                "select link.*,hreflang.HREFLANG,rel.REL_ID from RDAP_LINK link"
+                        + " inner join REL_LINK_OBJECT rel "
+                        + " on (rel.LINK_ID = link.LINK_ID and rel.REL_ID in (%s)"
+                        + " and rel.REL_OBJECT_TYPE = ? ) "
+                        + " left outer join RDAP_LINK_HREFLANG hreflang "
+                        + " on link.LINK_ID = hreflang.LINK_ID";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(new PreparedStatementCreator() {
+            public PreparedStatement createPreparedStatement(
+                    Connection connection) throws SQLException {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setString(1, outerModelType.getName());
+                return ps;
+            }
+        }, new BatchLinkWithHreflangResultSetExtractor(result));
+        return result;
+    }
+
 
     /**
      * query link with hreflang as inner objects for outer object.
@@ -119,16 +147,8 @@ public class LinkQueryDaoImpl extends AbstractQueryDao<Link> {
                 Long linkId = rs.getLong("LINK_ID");
                 Link link = mapById.get(linkId);
                 if (null == link) {
-                    link = new Link();
-                    link.setId(rs.getLong("LINK_ID"));
-                    link.setValue(rs.getString("VALUE"));
-                    link.setRel(rs.getString("REL"));
-                    link.setHref(rs.getString("HREF"));
-                    link.setMedia(rs.getString("MEDIA"));
-                    link.setType(rs.getString("TYPE"));
-                    link.setTitle(rs.getString("TITLE"));
+                    link = extractLinkFromRs(rs);
                     result.add(link);
-                    encodeUriAndSetToLink(link);
                     mapById.put(linkId, link);
                 }
                 link.addHreflang(rs.getString("HREFLANG"));
@@ -137,6 +157,81 @@ public class LinkQueryDaoImpl extends AbstractQueryDao<Link> {
         }
     }
 
+    /**
+     * link ResultSetExtractor for batch query, extract data from ResultSet
+     * and group links by REL_ID.
+     * <p>
+     * the same link may be related to many outer objects, so a link object is
+     * created for each outer object.
+     * </p>
+     * 
+     * @author jiashuo
+     * 
+     */
+    class BatchLinkWithHreflangResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Link>>> {
+        /**
+         * result map, outer object id to link list.
+         */
+        private Map<Long, List<Link>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        BatchLinkWithHreflangResultSetExtractor(Map<Long, List<Link>> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Map<Long, List<Link>> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, Map<Long, Link>> mapByRelId =
+                    new HashMap<Long, Map<Long, Link>>();
+            while (rs.next()) {
+                Long relId = rs.getLong("REL_ID");
+                Long linkId = rs.getLong("LINK_ID");
+                Map<Long, Link> mapById = mapByRelId.get(relId);
+                if (null == mapById) {
+                    mapById = new HashMap<Long, Link>();
+                    mapByRelId.put(relId, mapById);
+                }
+                Link link = mapById.get(linkId);
+                if (null == link) {
+                    link = extractLinkFromRs(rs);
+                    result.get(relId).add(link);
+                    mapById.put(linkId, link);
+                }
+                link.addHreflang(rs.getString("HREFLANG"));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * extract link from ResultSet, without hreflang.
+     * 
+     * @param rs
+     *            ResultSet.
+     * @return link.
+     * @throws SQLException
+     *             SQLException.
+     */
+    private Link extractLinkFromRs(ResultSet rs) throws SQLException {
+        Link link = new Link();
+        link.setId(rs.getLong("LINK_ID"));
+        link.setValue(rs.getString("VALUE"));
+        link.setRel(rs.getString("REL"));
+        link.setHref(rs.getString("HREF"));
+        link.setMedia(rs.getString("MEDIA"));
+        link.setType(rs.getString("TYPE"));
+        link.setTitle(rs.getString("TITLE"));
+        encodeUriAndSetToLink(link);
+        return link;
+    }
+
     /**
      * encode URI for properties 'value' and 'href' in link,and set properties
      * to link.
@@ -35,13 +35,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.PublicId;
 import org.restfulwhois.rdap.common.model.base.ModelType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
@@ -84,6 +87,45 @@ public class PublicIdQueryDaoImpl extends AbstractQueryDao<PublicId> {
         return publicIds;
     }
 
+    /**
+     * query results of PublicId list for a batch of associated objects.
+     * 
+     * @param outerObjectIds
+     *            associated object id list.
+     * @param outerModelType
+     *            associated object type.
+     * @return map of associated object id to its publicId list.
+     */
+    @Override
+    public Map<Long, List<PublicId>> queryAsInnerObjects(
+            final List<Long> outerObjectIds, final ModelType outerModelType) {
+        final Map<Long, List<PublicId>> result =
+                initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sqlTpl = "select * from REL_PUBLICID_REGISTRATION rel,"
+                + " RDAP_PUBLICID publicId "
+                + " where rel.PUBLIC_ID=publicId.PUBLIC_ID "
+                + " and rel.REL_ID in (%s) and rel.REL_OBJECT_TYPE=? ";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(new PreparedStatementCreator() {
+            public PreparedStatement createPreparedStatement(
+                    Connection connection) throws SQLException {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setString(1, outerModelType.getName());
+                return ps;
+            }
+        }, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                result.get(rs.getLong("REL_ID")).add(extractPublicIdFromRs(rs));
+            }
+        });
+        return result;
+    }
+
     /**
      * query public id from RDAP_PUBLICID.
      * 
@@ -112,12 +154,25 @@ public class PublicIdQueryDaoImpl extends AbstractQueryDao<PublicId> {
                     @Override
                     public PublicId mapRow(ResultSet rs, int rowNum)
                             throws SQLException {
-                        PublicId publicId = new PublicId();
-                        publicId.setIdentifier(rs.getString("IDENTIFIER"));
-                        publicId.setType(rs.getString("TYPE"));
-                        return publicId;
+                        return extractPublicIdFromRs(rs);
                     }
                 });
         return result;
     }
+
+    /**
+     * extract public id from ResultSet.
+     * 
+     * @param rs
+     *            ResultSet.
+     * @return public id.
+     * @throws SQLException
+     *             SQLException.
+     */
+    private PublicId extractPublicIdFromRs(ResultSet rs) throws SQLException {
+        PublicId publicId = new PublicId();
+        publicId.setIdentifier(rs.getString("IDENTIFIER"));
+        publicId.setType(rs.getString("TYPE"));
+        return publicId;
+    }
 }
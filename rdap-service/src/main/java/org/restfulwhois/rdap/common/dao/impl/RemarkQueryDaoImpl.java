@@ -39,6 +39,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.model.Link;
@@ -91,13 +92,36 @@ public class RemarkQueryDaoImpl extends AbstractQueryDao<Remark> {
             final ModelType outerModelType) {
         LOGGER.debug("queryAsInnerObjects, outerObjectId:{},"
                 + " outerModelType:{}", outerObjectId, outerModelType);
-        List<Remark> remarks = queryWithoutInnerObjects(outerObjectId,
-                outerModelType);
-        queryAndSetInnerObjects(remarks);
+        List<Long> outerObjectIds = new ArrayList<Long>();
+        outerObjectIds.add(outerObjectId);
+        List<Remark> remarks =
+                queryAsInnerObjects(outerObjectIds, outerModelType).get(
+                        outerObjectId);
         LOGGER.debug("queryAsInnerObjects, result:{}", remarks);
         return remarks;
     }
 
+    /**
+     * query results of Remark list for a batch of associated objects.
+     * 
+     * @param outerObjectIds
+     *            associated object id list.
+     * @param outerModelType
+     *            associated object type.
+     * @return map of associated object id to its remark list.
+     */
+    @Override
+    public Map<Long, List<Remark>> queryAsInnerObjects(
+            final List<Long> outerObjectIds, final ModelType outerModelType) {
+        Map<Long, List<Remark>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        queryWithoutInnerObjects(result, outerModelType);
+        queryAndSetInnerObjects(flatInnerObjects(result));
+        return result;
+    }
+
     /**
      * query inner objects, and set them to remarks.
      * 
@@ -108,78 +132,91 @@ public class RemarkQueryDaoImpl extends AbstractQueryDao<Remark> {
         if (null == remarks || remarks.size() == 0) {
             return;
         }
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(getModelIds(remarks),
+                        ModelType.REMARK);
         for (Remark remark : remarks) {
-            queryAndSetInnerObjects(remark);
-        }
-    }
-
-    /**
-     * query inner objects, and set them to remark.
-     * 
-     * @param remark
-     *            remark after set inner objects.
-     */
-    private void queryAndSetInnerObjects(Remark remark) {
-        if (null == remark) {
-            return;
+            remark.setLinks(linksMap.get(remark.getId()));
         }
-        List<Link> links = linkQueryDao.queryAsInnerObjects(remark.getId(),
-                ModelType.REMARK);
-        remark.setLinks(links);
     }
 
     /**
-     * query remark from RDAP_NOTICE, without inner objects.
+     * query remark from RDAP_NOTICE, without inner objects, and add them to
+     * the remark list of its outer object.
      * 
-     * @param outerObjectId
-     *            object id of outer object.
+     * @param result
+     *            map of outer object id to remark list, will be filled.
      * @param outerModelType
      *            model type of outer object.
-     * @return remark list.
      */
-    private List<Remark> queryWithoutInnerObjects(final Long outerObjectId,
-            final ModelType outerModelType) {       
-        final String sql = "select notice.*, description.description "
-                + " from RDAP_NOTICE notice"
+    private void queryWithoutInnerObjects(
+            final Map<Long, List<Remark>> result,
+            final ModelType outerModelType) {
+        final String sqlTpl = "select notice.*, description.description, "
+                + " rel.REL_ID from RDAP_NOTICE notice"
                 + " inner join REL_NOTICE_REGISTRATION rel "
-                + " on (rel.NOTICE_ID = notice.NOTICE_ID and rel.REL_ID = ? "
+                + " on (rel.NOTICE_ID = notice.NOTICE_ID and rel.REL_ID in (%s) "
                 + " and rel.REL_OBJECT_TYPE = ? and notice.TYPE=?) "
                 + " left outer join RDAP_NOTICE_DESCRIPTION description "
                 + " on notice.NOTICE_ID = description.NOTICE_ID ";
-        List<Remark> result = jdbcTemplate.query(
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(
                 new PreparedStatementCreator() {
                     public PreparedStatement createPreparedStatement(
                             Connection connection) throws SQLException {
                         PreparedStatement ps = connection.prepareStatement(sql);
-                        ps.setLong(1, outerObjectId);
-                        ps.setString(2, outerModelType.getName());
-                        ps.setString(3, NoticeType.REMARK.getName());
+                        ps.setString(1, outerModelType.getName());
+                        ps.setString(2, NoticeType.REMARK.getName());
                         return ps;
                     }
-                }, new RemarkResultSetExtractor());
-        return result;
+                }, new RemarkResultSetExtractor(result));
     }
 
     /**
-     * remark ResultSetExtractor, extract data from ResultSet.
+     * remark ResultSetExtractor, extract data from ResultSet, and add remark
+     * to the remark list of its outer object(REL_ID).
      * 
      * @author jiashuo
      * 
      */
-    class RemarkResultSetExtractor implements ResultSetExtractor<List<Remark>> {
+    class RemarkResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Remark>>> {
+        /**
+         * result map, outer object id to remark list.
+         */
+        private Map<Long, List<Remark>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        RemarkResultSetExtractor(Map<Long, List<Remark>> result) {
+            this.result = result;
+        }
+
         @Override
-        public List<Remark> extractData(ResultSet rs) throws SQLException {
-            List<Remark> result = new ArrayList<Remark>();
-            Map<Long, Remark> remarkMapById = new HashMap<Long, Remark>();
+        public Map<Long, List<Remark>> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, Map<Long, Remark>> remarkMapByRelId =
+                    new HashMap<Long, Map<Long, Remark>>();
             while (rs.next()) {
+                Long relId = rs.getLong("REL_ID");
                 Long remarkId = rs.getLong("NOTICE_ID");
+                Map<Long, Remark> remarkMapById = remarkMapByRelId.get(relId);
+                if (null == remarkMapById) {
+                    remarkMapById = new HashMap<Long, Remark>();
+                    remarkMapByRelId.put(relId, remarkMapById);
+                }
                 Remark remark = remarkMapById.get(remarkId);
                 if (null == remark) {
                     remark = new Remark();
                     remark.setId(remarkId);
                     remark.setTitle(rs.getString("TITLE"));
                     remarkMapById.put(remarkId, remark);
-                    result.add(remark);
+                    result.get(relId).add(remark);
                 }
                 remark.addDescription(rs.getString("DESCRIPTION"));
             }
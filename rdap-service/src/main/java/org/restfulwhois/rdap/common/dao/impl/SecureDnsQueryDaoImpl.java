@@ -30,13 +30,13 @@
  */
 package org.restfulwhois.rdap.common.dao.impl;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.model.DsData;
@@ -47,7 +47,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Repository;
 
@@ -97,13 +96,37 @@ public class SecureDnsQueryDaoImpl extends AbstractQueryDao<SecureDns> {
             final ModelType outerModelType) {
         LOGGER.debug("queryAsInnerObjects, outerObjectId:{},"
                 + " outerModelType:{}", outerObjectId, outerModelType);
+        List<Long> outerObjectIds = new ArrayList<Long>();
+        outerObjectIds.add(outerObjectId);
         List<SecureDns> result =
-                queryWithoutInnerObjects(outerObjectId, outerModelType);
-        queryAndSetInnerObjects(result);
+                queryAsInnerObjects(outerObjectIds, outerModelType).get(
+                        outerObjectId);
         LOGGER.debug("queryAsInnerObjects, result:{}", result);
         return result;
     }
 
+    /**
+     * query results of SecureDns list for a batch of domains.
+     * 
+     * @param outerObjectIds
+     *            associated domain id list.
+     * @param outerModelType
+     *            associated object type.
+     * @return map of domain id to its SecureDns list.
+     */
+    @Override
+    public Map<Long, List<SecureDns>> queryAsInnerObjects(
+            final List<Long> outerObjectIds, final ModelType outerModelType) {
+        Map<Long, List<SecureDns>> result =
+                initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        queryWithoutInnerObjects(result);
+        queryAndSetInnerObjects(flatInnerObjects(result));
+        return result;
+    }
+
     /**
      * query and set inner objects for SecureDNS list.
      * 
@@ -114,69 +137,65 @@ public class SecureDnsQueryDaoImpl extends AbstractQueryDao<SecureDns> {
         if (null == secureDnsList || secureDnsList.size() == 0) {
             return;
         }
+        List<Long> secureDnsIds = getModelIds(secureDnsList);
+        Map<Long, List<DsData>> dsDataMap =
+                dsDataQueryDao.queryAsInnerObjects(secureDnsIds,
+                        ModelType.SECUREDNS);
+        Map<Long, List<KeyData>> keyDataMap =
+                keyDataQueryDao.queryAsInnerObjects(secureDnsIds,
+                        ModelType.SECUREDNS);
         for (SecureDns secureDns : secureDnsList) {
-            queryAndSetInnerObjects(secureDns);
-        }
-    }
-
-    /**
-     * query and set inner objects for SecureDNS.
-     * 
-     * @param secureDns
-     *            secureDns.
-     */
-    private void queryAndSetInnerObjects(SecureDns secureDns) {
-        if (null == secureDns) {
-            return;
+            secureDns.setDsData(dsDataMap.get(secureDns.getId()));
+            secureDns.setKeyData(keyDataMap.get(secureDns.getId()));
         }
-        Long secureDnsId = secureDns.getId();
-        List<DsData> dsDataList = dsDataQueryDao.queryAsInnerObjects(
-                secureDnsId, ModelType.SECUREDNS);
-        secureDns.setDsData(dsDataList);
-        List<KeyData> keyDataList = keyDataQueryDao.queryAsInnerObjects(
-                secureDnsId, ModelType.SECUREDNS);
-        secureDns.setKeyData(keyDataList);
     }
 
     /**
      * <pre>
-     * query SecureDNS from RDAP_SECUREDNS domain.
-     * every domain has 0 or 1 secureDns, so query first one.
+     * query SecureDNS from RDAP_SECUREDNS by domain id, and add them to the
+     * SecureDNS list of its domain.
+     * every domain has 0 or 1 secureDns.
      * </pre>
      * 
-     * @param outerObjectId
-     *            object id of outer object.
-     * @param type
-     *            object model type of outer object.
-     * @return SecureDNS list
+     * @param result
+     *            map of domain id to SecureDNS list, will be filled.
      */
-    private List<SecureDns> queryWithoutInnerObjects(
-            final Long outerObjectId, final ModelType type) {
-        final String sql = "select * from RDAP_SECUREDNS where "
-                + " DOMAIN_ID=? ";
-        List<SecureDns> result = jdbcTemplate.query(
-                new PreparedStatementCreator() {
-                    public PreparedStatement createPreparedStatement(
-                            Connection connection) throws SQLException {
-                        PreparedStatement ps = connection.prepareStatement(sql);
-                        ps.setLong(1, outerObjectId);
-                        return ps;
-                    }
-                }, new VariantsResultSetExtractor());
-        return result;
+    private void queryWithoutInnerObjects(
+            final Map<Long, List<SecureDns>> result) {
+        final String sqlTpl = "select * from RDAP_SECUREDNS where "
+                + " DOMAIN_ID in (%s) ";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(sql, new SecureDnsResultSetExtractor(result));
     }
 
     /**
-     * SecureDNS ResultSetExtractor, extract data from ResultSet.
+     * SecureDNS ResultSetExtractor, extract data from ResultSet, and add
+     * SecureDNS to the SecureDNS list of its domain.
      * 
      * @author jiashuo
      * 
      */
-    class VariantsResultSetExtractor implements
-            ResultSetExtractor<List<SecureDns>> {
+    class SecureDnsResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<SecureDns>>> {
+        /**
+         * result map, domain id to SecureDNS list.
+         */
+        private Map<Long, List<SecureDns>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        SecureDnsResultSetExtractor(Map<Long, List<SecureDns>> result) {
+            this.result = result;
+        }
+
         @Override
-        public List<SecureDns> extractData(ResultSet rs) throws SQLException {
-            List<SecureDns> result = new ArrayList<SecureDns>();
+        public Map<Long, List<SecureDns>> extractData(ResultSet rs)
+                throws SQLException {
             while (rs.next()) {
                 SecureDns secureDns = new SecureDns();
                 secureDns.setId(rs.getLong("SECUREDNS_ID"));
@@ -185,7 +204,7 @@ public class SecureDnsQueryDaoImpl extends AbstractQueryDao<SecureDns> {
                         .getBoolean("DELEGATION_SIGNED"));
                 Integer maxSigLifeIntVale = getIntegerFromRs(rs, "MAX_SIGLIFE");
                 secureDns.setMaxSigLife(maxSigLifeIntVale);
-                result.add(secureDns);
+                result.get(rs.getLong("DOMAIN_ID")).add(secureDns);
             }
             return result;
         }
@@ -35,8 +35,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.RelDomainVariant;
 import org.restfulwhois.rdap.common.model.Variant;
@@ -93,6 +96,40 @@ public class VariantsQueryDaoImpl extends AbstractQueryDao<Variants> {
         return result;
     }
 
+    /**
+     * query results of Variants list for a batch of domains.
+     * 
+     * @param outerObjectIds
+     *            associated domain id list.
+     * @param outerModelType
+     *            associated object type, must be DOMAIN.
+     * @return map of domain id to its variants list, empty if type is not
+     *         DOMAIN.
+     */
+    @Override
+    public Map<Long, List<Variants>> queryAsInnerObjects(
+            final List<Long> outerObjectIds, final ModelType outerModelType) {
+        if (!ModelType.DOMAIN.equals(outerModelType)) {
+            LOGGER.debug("queryAsInnerObjects, type is not DOMAIN.");
+            return new HashMap<Long, List<Variants>>();
+        }
+        Map<Long, List<Variants>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sqlTpl = "select * from REL_DOMAIN_VARIANT rel, "
+                + " RDAP_VARIANT variant where rel.DOMAIN_ID in (%s) "
+                + " and rel.VARIANT_ID=variant.VARIANT_ID ";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        Map<Long, List<Variant>> variantMap =
+                jdbcTemplate.query(sql, new BatchVariantsResultSetExtractor());
+        for (Map.Entry<Long, List<Variant>> entry : variantMap.entrySet()) {
+            result.put(entry.getKey(), geneVariantsList(entry.getValue()));
+        }
+        return result;
+    }
+
     /**
      * get Variants list from Variant list,by grouping relation and idntable.
      * 
@@ -173,19 +210,62 @@ public class VariantsQueryDaoImpl extends AbstractQueryDao<Variants> {
         public List<Variant> extractData(ResultSet rs) throws SQLException {
             List<Variant> result = new ArrayList<Variant>();
             while (rs.next()) {
-                Long variantId = rs.getLong("VARIANT_ID");
-                Variant variant = findVariantFromList(variantId, result);
-                if (null == variant) {
-                    variant = new Variant();
-                    result.add(variant);
-                    variant.setId(variantId);
-                    variant.setLdhName(rs.getString("LDH_NAME"));
-                    variant.setUnicodeName(rs.getString("UNICODE_NAME"));
-                    variant.setIdnTable(rs.getString("IDNTABLE"));
+                extractVariantFromRs(rs, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * extract variant and its relation from current row of ResultSet, and add
+     * variant to list if it is not in list.
+     * 
+     * @param rs
+     *            ResultSet.
+     * @param variantList
+     *            variant list.
+     * @throws SQLException
+     *             SQLException.
+     */
+    private void extractVariantFromRs(ResultSet rs, List<Variant> variantList)
+            throws SQLException {
+        Long variantId = rs.getLong("VARIANT_ID");
+        Variant variant = findVariantFromList(variantId, variantList);
+        if (null == variant) {
+            variant = new Variant();
+            variantList.add(variant);
+            variant.setId(variantId);
+            variant.setLdhName(rs.getString("LDH_NAME"));
+            variant.setUnicodeName(rs.getString("UNICODE_NAME"));
+            variant.setIdnTable(rs.getString("IDNTABLE"));
+        }
+        RelDomainVariant relation = new RelDomainVariant();
+        relation.setVariantType(rs.getString("VARIANT_TYPE"));
+        variant.addRelation(relation);
+    }
+
+    /**
+     * variant ResultSetExtractor for batch query, extract data from ResultSet
+     * and group variant by DOMAIN_ID.
+     * 
+     * @author jiashuo
+     * 
+     */
+    class BatchVariantsResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Variant>>> {
+        @Override
+        public Map<Long, List<Variant>> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, List<Variant>> result =
+                    new HashMap<Long, List<Variant>>();
+            while (rs.next()) {
+                Long domainId = rs.getLong("DOMAIN_ID");
+                List<Variant> variantList = result.get(domainId);
+                if (null == variantList) {
+                    variantList = new ArrayList<Variant>();
+                    result.put(domainId, variantList);
                 }
-                RelDomainVariant relation = new RelDomainVariant();
-                relation.setVariantType(rs.getString("VARIANT_TYPE"));
-                variant.addRelation(relation);
+                extractVariantFromRs(rs, variantList);
             }
             return result;
         }
@@ -35,6 +35,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -44,6 +48,12 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.restfulwhois.rdap.acl.bean.Principal;
+import org.restfulwhois.rdap.common.dao.RequestSqlCounter;
+import org.restfulwhois.rdap.common.model.ErrorMessage;
+import org.restfulwhois.rdap.common.support.PhaseMetrics;
+import org.restfulwhois.rdap.common.support.PrincipalHolder;
+import org.restfulwhois.rdap.common.support.RestResponse;
 import org.restfulwhois.rdap.filters.httpFilter.AuthenticationFilter;
 import org.restfulwhois.rdap.filters.httpFilter.AuthenticationForUpdateApiFilter;
 import org.restfulwhois.rdap.filters.httpFilter.ConcurrentQueryCountFilter;
@@ -52,8 +62,12 @@ import org.restfulwhois.rdap.filters.httpFilter.HttpRequestFilter;
 import org.restfulwhois.rdap.filters.httpFilter.InvalidUriFilter;
 import org.restfulwhois.rdap.filters.httpFilter.NotImplementedUriFilter;
 import org.restfulwhois.rdap.filters.httpFilter.RateLimitFilter;
+import org.restfulwhois.rdap.filters.httpFilter.service.ConnectionControlService;
+import org.restfulwhois.rdap.filters.httpFilter.service.QueryAdmissionQueue;
+import org.restfulwhois.rdap.filters.httpFilter.service.QueryAdmissionQueue.Admission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 
 /**
  * The FilterChainProxy is used to do filter for all {@link HttpFilter}.
@@ -66,6 +80,19 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Concurrent query count can't be used as RDAP filter, for it maintains a
  * global counter, which must be increased and decreased for each request.
+ * <p>
+ * SQL statements of each request are counted by {@link RequestSqlCounter},
+ * which is started before filters and logged after filters.
+ * <p>
+ * Latency of each filter, service and response write are recorded to
+ * {@link PhaseMetrics}, grouped by endpoint and response status.
+ * <p>
+ * If async query is enabled, query requests are admitted by admission queue
+ * of {@link ConnectionControlService} after pre filters. A query which can
+ * not run at once is suspended by Servlet 3.0 async, without holding
+ * container thread, and is dispatched again when admitted, then service and
+ * post filters are called in the async dispatch. It is rejected with 509 if
+ * queue is full, or in the async dispatch if it waits too long.
  * 
  * @author jiashuo
  * 
@@ -78,11 +105,32 @@ public class FilterChainProxy implements Filter {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(FilterChainProxy.class);
 
+    /**
+     * request attribute name of query waiting in admission queue.
+     */
+    private static final String ASYNC_QUERY_ATTRIBUTE =
+            FilterChainProxy.class.getName() + ".ASYNC_QUERY";
+
+    /**
+     * phase name of waiting in admission queue.
+     */
+    private static final String PHASE_ADMISSION_WAIT = "admissionWait";
+
     /**
      * all filters.
      */
     private static List<HttpFilter> filters;
 
+    /**
+     * phase names of filters preProcess, same order as filters.
+     */
+    private static String[] prePhases;
+
+    /**
+     * phase names of filters postProcess, same order as filters.
+     */
+    private static String[] postPhases;
+
     /**
      * init filters when class loading.
      */
@@ -97,6 +145,12 @@ public class FilterChainProxy implements Filter {
         filters.add(new DecodeUriForSpringFilter());
         filters.add(new NotImplementedUriFilter());
         filters.add(new InvalidUriFilter());
+        prePhases = new String[filters.size()];
+        postPhases = new String[filters.size()];
+        for (int i = 0; i < filters.size(); i++) {
+            prePhases[i] = "filter." + filters.get(i).getName() + ".pre";
+            postPhases[i] = "filter." + filters.get(i).getName() + ".post";
+        }
         LOGGER.debug("init RDAP filters end.");
     }
 
@@ -128,22 +182,153 @@ public class FilterChainProxy implements Filter {
     @Override
     public void doFilter(ServletRequest req, ServletResponse res,
             FilterChain chain) throws IOException, ServletException {
-        LOGGER.debug("begin pre filter ...");
         HttpServletRequest request = (HttpServletRequest) req;
         HttpServletResponse response = (HttpServletResponse) res;
+        AsyncQuery asyncQuery =
+                (AsyncQuery) request.getAttribute(ASYNC_QUERY_ATTRIBUTE);
+        if (null != asyncQuery
+                && DispatcherType.ASYNC == request.getDispatcherType()) {
+            request.removeAttribute(ASYNC_QUERY_ATTRIBUTE);
+            if (asyncQuery.isExpired()) {
+                doExpiredResponse(asyncQuery, request, response);
+            } else {
+                doAdmittedService(asyncQuery, chain, request, response);
+            }
+            return;
+        }
+        LOGGER.debug("begin pre filter ...");
+        RequestSqlCounter.start();
+        PhaseMetrics.startRequest();
+        boolean suspended = false;
+        boolean admitted = false;
         try {
             boolean success = safePreProcess(request, response);
             if (!success) {
                 LOGGER.error("some pre filter failed, not process service.");
                 return;
             }
+            if (needAdmission(request)) {
+                asyncQuery = new AsyncQuery(request, response);
+                Admission admission =
+                        ConnectionControlService.admitQuery(asyncQuery);
+                if (Admission.REJECTED == admission) {
+                    LOGGER.info("admission queue is full, reject query.");
+                    writeError509Response(response);
+                    return;
+                }
+                if (Admission.QUEUED == admission) {
+                    asyncQuery.suspend();
+                    suspended = true;
+                    return;
+                }
+                admitted = true;
+            }
             safeDoService(chain, request, response);
             LOGGER.debug("begin post filter ...");
         } catch (Exception e) {
             LOGGER.error("safeDoService error:", e);
         } finally {
-            boolean success = safePostProcess(request, response);
-            LOGGER.debug("end post filter, are all success?:{}", success);
+            if (!suspended) {
+                finishRequest(request, response);
+            }
+            if (admitted) {
+                ConnectionControlService.releaseQuery();
+            }
+        }
+    }
+
+    /**
+     * do service of query which is admitted from admission queue, in async
+     * dispatch.
+     * 
+     * @param asyncQuery
+     *            asyncQuery.
+     * @param chain
+     *            chain.
+     * @param request
+     *            request.
+     * @param response
+     *            response.
+     */
+    private void doAdmittedService(AsyncQuery asyncQuery, FilterChain chain,
+            HttpServletRequest request, HttpServletResponse response) {
+        asyncQuery.resume();
+        try {
+            safeDoService(chain, request, response);
+        } finally {
+            finishRequest(request, response);
+            asyncQuery.releaseSlot();
+        }
+    }
+
+    /**
+     * write 509 error of query which is expired in admission queue, in async
+     * dispatch.
+     * 
+     * @param asyncQuery
+     *            asyncQuery.
+     * @param request
+     *            request.
+     * @param response
+     *            response.
+     */
+    private void doExpiredResponse(AsyncQuery asyncQuery,
+            HttpServletRequest request, HttpServletResponse response) {
+        asyncQuery.resume();
+        LOGGER.info("query is expired in admission queue:{}",
+                request.getRequestURI());
+        try {
+            writeError509Response(response);
+        } finally {
+            finishRequest(request, response);
+        }
+    }
+
+    /**
+     * check if request must be admitted by admission queue.
+     * 
+     * @param request
+     *            request.
+     * @return true if must, false if not.
+     */
+    private boolean needAdmission(HttpServletRequest request) {
+        return ConnectionControlService.isAsyncQueryEnabled()
+                && request.isAsyncSupported()
+                && FilterHelper.isQueryUri(request);
+    }
+
+    /**
+     * do post process, and log and record request.
+     * 
+     * @param request
+     *            request.
+     * @param response
+     *            response.
+     */
+    private void finishRequest(HttpServletRequest request,
+            HttpServletResponse response) {
+        boolean success = safePostProcess(request, response);
+        LOGGER.debug("end post filter, are all success?:{}", success);
+        LOGGER.info("request uri:{};status:{};sql statements:{}.",
+                new Object[] { request.getRequestURI(), response.getStatus(),
+                        RequestSqlCounter.stop() });
+        PhaseMetrics.getInstance().endRequest(
+                FilterHelper.getEndpoint(request), response.getStatus());
+    }
+
+    /**
+     * write 509 error.
+     * 
+     * @param response
+     *            response.
+     */
+    private void writeError509Response(HttpServletResponse response) {
+        ResponseEntity<ErrorMessage> responseEntity =
+                RestResponse.createResponse509();
+        try {
+            FilterHelper.writeResponse(responseEntity, response);
+        } catch (IOException e) {
+            LOGGER.error("write 509 error:{}", e.getMessage());
         }
     }
 
@@ -159,11 +344,14 @@ public class FilterChainProxy implements Filter {
      */
     private void safeDoService(FilterChain chain, HttpServletRequest request,
             HttpServletResponse response) {
+        long phaseStart = System.nanoTime();
         try {
             chain.doFilter(request, response);
         } catch (Exception e) {
             LOGGER.error("chain.doFilter error:{}" + e.getMessage());
         }
+        PhaseMetrics.recordPhaseSinceResponseReady("responseWrite");
+        PhaseMetrics.recordPhase("service", phaseStart);
     }
 
     /**
@@ -178,11 +366,13 @@ public class FilterChainProxy implements Filter {
      */
     private boolean safePostProcess(HttpServletRequest request,
             HttpServletResponse response) {
-        for (HttpFilter filter : filters) {
+        for (int i = 0; i < filters.size(); i++) {
+            HttpFilter filter = filters.get(i);
             if (!filter.needFilter(request, response)) {
                 continue;
             }
             LOGGER.debug("call postProcess for:{}", filter.getName());
+            long phaseStart = System.nanoTime();
             try {
                 if (!filter.postProcess(request, response)) {
                     LOGGER.error("  postProcess error:{}", filter.getName());
@@ -190,6 +380,8 @@ public class FilterChainProxy implements Filter {
                 }
             } catch (Exception e) {
                 LOGGER.error("error:{}" + e.getMessage());
+            } finally {
+                PhaseMetrics.recordPhase(postPhases[i], phaseStart);
             }
         }
         return true;
@@ -207,11 +399,13 @@ public class FilterChainProxy implements Filter {
      */
     private boolean safePreProcess(HttpServletRequest request,
             HttpServletResponse response) {
-        for (HttpFilter filter : filters) {
+        for (int i = 0; i < filters.size(); i++) {
+            HttpFilter filter = filters.get(i);
             if (!filter.needFilter(request, response)) {
                 continue;
             }
             LOGGER.debug("call preProcess for:{}", filter.getName());
+            long phaseStart = System.nanoTime();
             try {
                 if (!filter.preProcess(request, response)) {
                     LOGGER.error("  preProcess error:{}", filter.getName());
@@ -219,11 +413,185 @@ public class FilterChainProxy implements Filter {
                 }
             } catch (Exception e) {
                 LOGGER.error("error:{}" + e.getMessage());
+            } finally {
+                PhaseMetrics.recordPhase(prePhases[i], phaseStart);
             }
         }
         return true;
     }
 
+    /**
+     * query waiting in admission queue, processed asynchronously.
+     * <p>
+     * Request is suspended by startAsync when queued, so it holds no
+     * container thread while waiting. It is dispatched again when admitted
+     * or expired, so that service, 509 error and post filters are all called
+     * in container thread of the dispatch, not in thread which admits or
+     * expires it. Principal, SQL count and phases of request are kept when
+     * suspended and restored in dispatch.
+     */
+    private class AsyncQuery implements QueryAdmissionQueue.Waiter,
+            AsyncListener {
+        /**
+         * request.
+         */
+        private final HttpServletRequest request;
+        /**
+         * response.
+         */
+        private final HttpServletResponse response;
+        /**
+         * async context, null if not suspended.
+         */
+        private AsyncContext asyncContext;
+        /**
+         * true if admitted.
+         */
+        private boolean admitted;
+        /**
+         * true if expired.
+         */
+        private boolean expired;
+        /**
+         * true if slot is released.
+         */
+        private boolean released;
+        /**
+         * principal of request.
+         */
+        private Principal principal;
+        /**
+         * SQL statement count before suspended.
+         */
+        private int sqlCount;
+        /**
+         * phases of request, from PhaseMetrics.detachRequest().
+         */
+        private Object phases;
+        /**
+         * time suspended, by System.nanoTime().
+         */
+        private long suspendNanos;
+
+        /**
+         * constructor.
+         * 
+         * @param request
+         *            request.
+         * @param response
+         *            response.
+         */
+        AsyncQuery(HttpServletRequest request, HttpServletResponse response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        /**
+         * suspend request, and keep context of current thread.
+         */
+        synchronized void suspend() {
+            principal = PrincipalHolder.getPrincipal();
+            sqlCount = RequestSqlCounter.stop();
+            phases = PhaseMetrics.detachRequest();
+            suspendNanos = System.nanoTime();
+            request.setAttribute(ASYNC_QUERY_ATTRIBUTE, this);
+            asyncContext = request.startAsync();
+            asyncContext.setTimeout(ConnectionControlService
+                    .getAsyncQueryQueueTimeoutMillis());
+            asyncContext.addListener(this);
+            LOGGER.debug("query is queued:{}", request.getRequestURI());
+            if (admitted || expired) {
+                dispatch();
+            }
+        }
+
+        /**
+         * check if query is expired in admission queue.
+         * 
+         * @return true if expired.
+         */
+        synchronized boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * restore context to current thread, in async dispatch.
+         */
+        void resume() {
+            PrincipalHolder.setPrincipal(principal);
+            RequestSqlCounter.start();
+            RequestSqlCounter.add(sqlCount);
+            PhaseMetrics.attachRequest(phases);
+            PhaseMetrics.recordPhase(PHASE_ADMISSION_WAIT, suspendNanos);
+        }
+
+        /**
+         * release slot of admitted query, only once.
+         */
+        void releaseSlot() {
+            synchronized (this) {
+                if (!admitted || released) {
+                    return;
+                }
+                released = true;
+            }
+            ConnectionControlService.releaseQuery();
+        }
+
+        @Override
+        public synchronized void admit() {
+            admitted = true;
+            if (null != asyncContext) {
+                dispatch();
+            }
+        }
+
+        @Override
+        public synchronized void expire() {
+            expired = true;
+            if (null != asyncContext) {
+                dispatch();
+            }
+        }
+
+        /**
+         * dispatch request to process query or write 509 error, slot of
+         * admitted query is released if failed.
+         */
+        private void dispatch() {
+            try {
+                asyncContext.dispatch();
+            } catch (IllegalStateException e) {
+                LOGGER.warn("dispatch queued query error:{}", e.getMessage());
+                if (admitted) {
+                    released = true;
+                    ConnectionControlService.releaseQuery();
+                }
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (ConnectionControlService.removeWaitingQuery(this)) {
+                expire();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            ConnectionControlService.removeWaitingQuery(this);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            releaseSlot();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
     /**
      * initialize.
      * 
@@ -32,6 +32,8 @@ package org.restfulwhois.rdap.common.filter;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -56,6 +58,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * 
  */
 public final class FilterHelper {
+    /**
+     * endpoint of URI not in KNOWN_ENDPOINTS.
+     */
+    public static final String OTHER_ENDPOINT = "other";
+    /**
+     * first segments of URI which are endpoints, other URIs are grouped to
+     * OTHER_ENDPOINT, to limit count of endpoints in statistics.
+     */
+    private static final Set<String> KNOWN_ENDPOINTS = new HashSet<String>(
+            Arrays.asList("domain", "domains", "nameserver", "nameservers",
+                    "entity", "entities", "ip", "autnum", "help", "admin"));
+    /**
+     * endpoints of object query and search, which query database.
+     */
+    private static final Set<String> QUERY_ENDPOINTS = new HashSet<String>(
+            Arrays.asList("domain", "domains", "nameserver", "nameservers",
+                    "entity", "entities", "ip", "autnum"));
     /**
      * constructor.
      */
@@ -79,6 +98,48 @@ public final class FilterHelper {
         return StringUtils.startsWith(uri, contextPath + "/u/");
     }
 
+    /**
+     * check if is object query or search URI.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return true if is query URI, false if not.
+     */
+    public static boolean isQueryUri(HttpServletRequest request) {
+        return QUERY_ENDPOINTS.contains(getEndpoint(request));
+    }
+
+    /**
+     * get endpoint of request, for statistics.
+     * <p>
+     * eg: 'domain' for '/domain/cnnic.cn', 'u/domain POST' for update
+     * URI '/u/domain'.
+     * 
+     * @param request
+     *            HttpServletRequest.
+     * @return endpoint, OTHER_ENDPOINT if URI is unknown.
+     */
+    public static String getEndpoint(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (StringUtils.isNotEmpty(contextPath)
+                && !StringUtils.equals(contextPath, "/")) {
+            uri = StringUtils.removeStart(uri, contextPath);
+        }
+        String[] segments = StringUtils.split(uri, "/");
+        if (null == segments || segments.length == 0) {
+            return OTHER_ENDPOINT;
+        }
+        if ("u".equals(segments[0]) && segments.length > 1
+                && KNOWN_ENDPOINTS.contains(segments[1])) {
+            return "u/" + segments[1] + " " + request.getMethod();
+        }
+        if (KNOWN_ENDPOINTS.contains(segments[0])) {
+            return segments[0];
+        }
+        return OTHER_ENDPOINT;
+    }
+
     /**
      * write response for responseEntity.
      * 
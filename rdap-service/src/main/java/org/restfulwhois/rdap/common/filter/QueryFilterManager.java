@@ -32,6 +32,7 @@ package org.restfulwhois.rdap.common.filter;
 
 import java.util.List;
 
+import org.restfulwhois.rdap.common.support.PhaseMetrics;
 import org.restfulwhois.rdap.common.support.QueryParam;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -106,8 +107,11 @@ public class QueryFilterManager {
     public QueryFilterResult postQuery(QueryParam queryParam,
             ResponseEntity response, List<QueryFilter> queryFilters) {
         for (QueryFilter serviceFilter : queryFilters) {
+            long phaseStart = System.nanoTime();
             QueryFilterResult result =
                     serviceFilter.postQuery(queryParam, response);
+            PhaseMetrics.recordPhase("postQuery."
+                    + serviceFilter.getClass().getSimpleName(), phaseStart);
             if (null != result && result.hasResult()) {
                 return result;
             }
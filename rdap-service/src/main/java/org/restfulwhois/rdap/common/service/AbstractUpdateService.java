@@ -119,6 +119,16 @@ public abstract class AbstractUpdateService<DTO extends BaseDto, MODEL extends B
      */
     @Autowired
     private UpdateDao<Entity, EntityDto> entityDao;
+    /**
+     * access control manager.
+     */
+    @Autowired
+    private AccessControlManager accessControlManager;
+    /**
+     * response cache.
+     */
+    @Autowired
+    private ResponseCache responseCache;
 
     @Override
     public UpdateResponse execute(DTO dto) {
@@ -132,6 +142,8 @@ public abstract class AbstractUpdateService<DTO extends BaseDto, MODEL extends B
         }
         MODEL model = convertDtoToModel(dto);
         execute(model);
+        accessControlManager.clearCache(model);
+        responseCache.clear();
         UpdateResponse response =
                 UpdateResponse.buildSuccessResponse(model.getHandle());
         long usedTime = System.currentTimeMillis() - queryStart;
@@ -30,6 +30,8 @@
  */
 package org.restfulwhois.rdap.common.service;
 
+import java.util.List;
+
 import org.restfulwhois.rdap.common.model.base.BaseModel;
 
 /**
@@ -48,6 +50,30 @@ public interface AccessControlManager {
      *            secure object.
      * @return true if has permission,false if not.
      */
-    boolean hasPermission(BaseModel object);   
-    
+    boolean hasPermission(BaseModel object);
+
+    /**
+     * filter objects which current request user has permission for, the
+     * order of objects is kept.
+     * 
+     * @param objects
+     *            secure objects.
+     * @return permitted objects.
+     */
+    <T extends BaseModel> List<T> filterPermitted(List<T> objects);
+
+    /**
+     * clear cached access control decision for model object, used after
+     * object is updated.
+     * 
+     * @param object
+     *            secure object.
+     */
+    void clearCache(BaseModel object);
+
+    /**
+     * clear all cached access control decisions.
+     */
+    void clearCache();
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.service;
+
+import org.restfulwhois.rdap.common.support.QueryParam;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * response cache for lookup query.
+ * 
+ * <pre>
+ * Response of BaseController.doQuery is cached by QueryParam.getCacheKey(),
+ * and query filters are still applied to cached response for each query.
+ * Cache is cleared when any object is created, updated or deleted.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public interface ResponseCache {
+    /**
+     * get current version of cache, which is changed when cache is cleared.
+     * Get it before query, and pass it to put().
+     * 
+     * @return version.
+     */
+    long getVersion();
+
+    /**
+     * get cached response.
+     * 
+     * @param queryParam
+     *            converted queryParam.
+     * @return response, null if not cached.
+     */
+    @SuppressWarnings("rawtypes")
+    ResponseEntity get(QueryParam queryParam);
+
+    /**
+     * put response into cache. Only 200 response is cached, and it is
+     * ignored if cache is cleared after version is got.
+     * 
+     * @param queryParam
+     *            converted queryParam.
+     * @param response
+     *            response.
+     * @param version
+     *            version got before query.
+     */
+    @SuppressWarnings("rawtypes")
+    void put(QueryParam queryParam, ResponseEntity response, long version);
+
+    /**
+     * clear cache, and clear it again after current transaction is completed.
+     */
+    void clear();
+
+    /**
+     * get hit count.
+     * 
+     * @return hit count.
+     */
+    long getHitCount();
+
+    /**
+     * get miss count.
+     * 
+     * @return miss count.
+     */
+    long getMissCount();
+
+    /**
+     * get cached response size.
+     * 
+     * @return size.
+     */
+    int size();
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.service.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restfulwhois.rdap.common.service.ResponseCache;
+import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.BeanUtil;
+import org.restfulwhois.rdap.common.util.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * response cache.
+ * 
+ * <pre>
+ * Responses are kept in LruCache with frequency admission, bounded by
+ * responseCacheMaxSize and responseCacheTtlSeconds.
+ * Cache is disabled if responseCacheMaxSize is 0.
+ * Response body is deep copied when it is put and got, because query
+ * filters modify the body of each response.
+ * Hit and miss counts are exported by JMX and /admin/cache.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@Service
+@ManagedResource(objectName = "org.restfulwhois.rdap:type=ResponseCache",
+        description = "lookup response cache")
+public class ResponseCacheImpl implements ResponseCache {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(ResponseCacheImpl.class);
+
+    /**
+     * version, increased when cache is cleared.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * cache, key is QueryParam.getCacheKey().
+     */
+    @SuppressWarnings("rawtypes")
+    private volatile LruCache<String, ResponseEntity> cache;
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public ResponseEntity get(QueryParam queryParam) {
+        LruCache<String, ResponseEntity> currentCache = getCache();
+        if (!currentCache.isEnabled()) {
+            return null;
+        }
+        String key = queryParam.getCacheKey();
+        if (null == key) {
+            return null;
+        }
+        ResponseEntity response = currentCache.get(key);
+        if (null == response) {
+            return null;
+        }
+        return copy(response);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void put(QueryParam queryParam, ResponseEntity response,
+            long queryVersion) {
+        LruCache<String, ResponseEntity> currentCache = getCache();
+        if (!currentCache.isEnabled() || null == response
+                || !HttpStatus.OK.equals(response.getStatusCode())) {
+            return;
+        }
+        String key = queryParam.getCacheKey();
+        if (null == key) {
+            return;
+        }
+        synchronized (version) {
+            if (queryVersion != version.get()) {
+                LOGGER.debug("cache is cleared during query, not put:{}", key);
+                return;
+            }
+            ResponseEntity copy;
+            try {
+                copy = copy(response);
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("response can not be copied, not put:{}", key, e);
+                return;
+            }
+            currentCache.put(key, copy);
+        }
+    }
+
+    /**
+     * copy response, with body deep copied.
+     * 
+     * @param response
+     *            response.
+     * @return copy.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private ResponseEntity copy(ResponseEntity response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        return new ResponseEntity(BeanUtil.deepCopy(response.getBody()),
+                headers, response.getStatusCode());
+    }
+
+    @Override
+    public void clear() {
+        clearNow();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        clearNow();
+                    }
+                });
+    }
+
+    /**
+     * clear cache and increase version.
+     */
+    private void clearNow() {
+        synchronized (version) {
+            version.incrementAndGet();
+            getCache().clear();
+        }
+    }
+
+    @ManagedAttribute(description = "hit count")
+    @Override
+    public long getHitCount() {
+        return getCache().getHitCount();
+    }
+
+    @ManagedAttribute(description = "miss count")
+    @Override
+    public long getMissCount() {
+        return getCache().getMissCount();
+    }
+
+    @Override
+    public int size() {
+        return getCache().size();
+    }
+
+    /**
+     * get cached response size, for JMX.
+     * 
+     * @return size.
+     */
+    @ManagedAttribute(description = "cached response size")
+    public int getSize() {
+        return size();
+    }
+
+    /**
+     * get cache, create if not exist.
+     * 
+     * @return cache.
+     */
+    @SuppressWarnings("rawtypes")
+    private LruCache<String, ResponseEntity> getCache() {
+        if (null == cache) {
+            synchronized (this) {
+                if (null == cache) {
+                    Integer maxSize = RdapProperties.getResponseCacheMaxSize();
+                    Long ttlSeconds =
+                            RdapProperties.getResponseCacheTtlSeconds();
+                    cache =
+                            new LruCache<String, ResponseEntity>(
+                                    null == maxSize ? 0 : maxSize,
+                                    null == ttlSeconds ? 0 : TimeUnit.SECONDS
+                                            .toMillis(ttlSeconds), true);
+                    LOGGER.info("response cache maxSize:{}, ttlSeconds:{}",
+                            maxSize, ttlSeconds);
+                }
+            }
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.support;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ * latency histogram of fixed buckets.
+ * Recording is lock free and does not allocate, so it can be used in
+ * request thread. Percentile is the upper bound of the bucket it falls in.
+ * This class is thread-safe.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class LatencyHistogram {
+    /**
+     * default upper bounds of latency buckets, in microseconds, from 10us to
+     * 2s.
+     */
+    public static final long[] DEFAULT_BOUNDS_MICROS = {10, 20, 50, 100, 200,
+            500, 1000, 2000, 5000, 10000, 20000, 50000, 100000, 200000,
+            500000, 1000000, 2000000 };
+    /**
+     * nanos of one microsecond.
+     */
+    private static final long NANOS_PER_MICRO = 1000L;
+    /**
+     * micros of one millisecond.
+     */
+    private static final long MICROS_PER_MILLI = 1000L;
+    /**
+     * upper bounds of buckets in microseconds, the last bucket has no upper
+     * bound.
+     */
+    private final long[] boundsMicros;
+    /**
+     * count.
+     */
+    private final AtomicLong count = new AtomicLong();
+    /**
+     * total latency.
+     */
+    private final AtomicLong totalNanos = new AtomicLong();
+    /**
+     * max latency.
+     */
+    private final AtomicLong maxNanos = new AtomicLong();
+    /**
+     * bucket counts.
+     */
+    private final AtomicLongArray buckets;
+
+    /**
+     * constructor with default bounds.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS_MICROS);
+    }
+
+    /**
+     * constructor.
+     * 
+     * @param boundsMicros
+     *            ascending upper bounds of buckets, in microseconds.
+     */
+    public LatencyHistogram(long[] boundsMicros) {
+        this.boundsMicros = boundsMicros.clone();
+        this.buckets = new AtomicLongArray(boundsMicros.length + 1);
+    }
+
+    /**
+     * record latency.
+     * 
+     * @param nanos
+     *            latency.
+     */
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+        buckets.incrementAndGet(bucketIndex(nanos));
+    }
+
+    /**
+     * get bucket index of latency.
+     * 
+     * @param nanos
+     *            latency.
+     * @return bucket index.
+     */
+    private int bucketIndex(long nanos) {
+        long micros = (nanos + NANOS_PER_MICRO - 1) / NANOS_PER_MICRO;
+        int index = Arrays.binarySearch(boundsMicros, micros);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index;
+    }
+
+    /**
+     * get latency percentile.
+     * 
+     * @param percent
+     *            percent, 0 to 100.
+     * @return upper bound of bucket in microseconds, -1 if it is in the last
+     *         bucket, 0 if nothing recorded.
+     */
+    public long getPercentileMicros(double percent) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percent / 100);
+        long seen = 0;
+        for (int i = 0; i < boundsMicros.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return boundsMicros[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * get count.
+     * 
+     * @return count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * get total latency.
+     * 
+     * @return total latency in nanos.
+     */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * get max latency.
+     * 
+     * @return max latency in nanos.
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * get average latency in microseconds.
+     * 
+     * @return average latency.
+     */
+    public long getAvgMicros() {
+        long c = count.get();
+        if (c == 0) {
+            return 0;
+        }
+        return totalNanos.get() / c / NANOS_PER_MICRO;
+    }
+
+    /**
+     * format bound as 'Nms' if it is whole milliseconds, or 'Nus'.
+     * 
+     * @param micros
+     *            bound.
+     * @return formatted bound.
+     */
+    private static String formatBound(long micros) {
+        if (micros % MICROS_PER_MILLI == 0) {
+            return micros / MICROS_PER_MILLI + "ms";
+        }
+        return micros + "us";
+    }
+
+    /**
+     * get bucket counts as string.
+     * 
+     * @return bucket counts, such as '&lt;=10us:10,&lt;=20us:3,&gt;2000ms:0'.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < boundsMicros.length; i++) {
+            sb.append("<=").append(formatBound(boundsMicros[i])).append(':')
+                    .append(buckets.get(i)).append(',');
+        }
+        sb.append('>')
+                .append(formatBound(boundsMicros[boundsMicros.length - 1]))
+                .append(':').append(buckets.get(boundsMicros.length));
+        return sb.toString();
+    }
+}
@@ -70,6 +70,20 @@ public class PageBean implements java.io.Serializable {
      * page count.
      */
     private int pageCount;
+    /**
+     * sort key of last object in previous batch, used for seek paging.
+     */
+    private String lastSortKey;
+    /**
+     * id of last object in previous batch, used for seek paging.
+     */
+    private Long lastId;
+    /**
+     * count of rows scanned by last batch, null if it is the count of
+     * returned objects. Rows found by index but deleted from database are
+     * scanned but not returned.
+     */
+    private Integer scannedCount;
 
     /**
      * Creates a new PageBean object.
@@ -246,4 +260,63 @@ public class PageBean implements java.io.Serializable {
     public int getPageCount() {
         return pageCount;
     }
+
+    /**
+     * check if has seek position, next batch is searched after this position.
+     * 
+     * @return true if has, false if not.
+     */
+    public boolean hasSeekPosition() {
+        return null != lastId;
+    }
+
+    /**
+     * set seek position to last object in previous batch.
+     * 
+     * @param lastSortKey
+     *            sort key of last object, may be null.
+     * @param lastId
+     *            id of last object.
+     */
+    public void setSeekPosition(String lastSortKey, Long lastId) {
+        this.lastSortKey = lastSortKey;
+        this.lastId = lastId;
+    }
+
+    /**
+     * get lastSortKey.
+     * 
+     * @return lastSortKey.
+     */
+    public String getLastSortKey() {
+        return lastSortKey;
+    }
+
+    /**
+     * get lastId.
+     * 
+     * @return lastId.
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * get scannedCount.
+     * 
+     * @return scannedCount, null if not set.
+     */
+    public Integer getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * set count of rows scanned by last batch.
+     * 
+     * @param scannedCount
+     *            scannedCount, null if it is the count of returned objects.
+     */
+    public void setScannedCount(Integer scannedCount) {
+        this.scannedCount = scannedCount;
+    }
 }
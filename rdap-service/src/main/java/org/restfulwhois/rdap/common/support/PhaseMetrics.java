@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * <pre>
+ * latency statistics of request phases, grouped by endpoint, response
+ * status and phase.
+ * Phases of current request are kept in thread, from startRequest called
+ * in FilterChainProxy, to endRequest which records them to statistics.
+ * Phases are timed by FilterChainProxy for each HttpFilter and response
+ * write, and by BaseController for param validation, doQuery and each
+ * QueryFilter.postQuery.
+ * Phases recorded when request is not started are ignored.
+ * Statistics are exposed by JMX and admin controller.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@ManagedResource(objectName = "org.restfulwhois.rdap:type=PhaseMetrics",
+        description = "latency statistics by request phase")
+public final class PhaseMetrics {
+    /**
+     * phase of whole request.
+     */
+    public static final String PHASE_TOTAL = "total";
+    /**
+     * max phases of one request, phases more than it are ignored.
+     */
+    private static final int MAX_PHASES = 64;
+    /**
+     * singleton, for FilterChainProxy is not managed by spring.
+     */
+    private static final PhaseMetrics INSTANCE = new PhaseMetrics();
+    /**
+     * phases of current request.
+     */
+    private static final ThreadLocal<RequestPhases> CURRENT =
+            new ThreadLocal<RequestPhases>();
+    /**
+     * statistics map, key is endpoint, status and phase.
+     */
+    private final ConcurrentMap<String, PhaseStat> stats =
+            new ConcurrentHashMap<String, PhaseStat>();
+    /**
+     * recorded request count.
+     */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * private constructor.
+     */
+    private PhaseMetrics() {
+        super();
+    }
+
+    /**
+     * get singleton.
+     * 
+     * @return PhaseMetrics.
+     */
+    public static PhaseMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * start request of current thread.
+     */
+    public static void startRequest() {
+        CURRENT.set(new RequestPhases(System.nanoTime()));
+    }
+
+    /**
+     * detach current request from current thread, when request is processed
+     * asynchronously.
+     * 
+     * @return phases of current request, to be passed to attachRequest(),
+     *         null if request is not started.
+     */
+    public static Object detachRequest() {
+        RequestPhases phases = CURRENT.get();
+        CURRENT.remove();
+        return phases;
+    }
+
+    /**
+     * attach request detached by detachRequest() to current thread.
+     * 
+     * @param phases
+     *            phases returned by detachRequest().
+     */
+    public static void attachRequest(Object phases) {
+        if (phases instanceof RequestPhases) {
+            CURRENT.set((RequestPhases) phases);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * record phase of current request, from startNanos to now.
+     * 
+     * @param phase
+     *            phase.
+     * @param startNanos
+     *            start time, by System.nanoTime().
+     */
+    public static void recordPhase(String phase, long startNanos) {
+        RequestPhases phases = CURRENT.get();
+        if (null != phases) {
+            phases.add(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * mark response of current request is ready to write, i.e. controller
+     * returned.
+     */
+    public static void markResponseReady() {
+        RequestPhases phases = CURRENT.get();
+        if (null != phases) {
+            phases.responseReadyNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * record phase of current request, from response ready to now.
+     * 
+     * @param phase
+     *            phase.
+     */
+    public static void recordPhaseSinceResponseReady(String phase) {
+        RequestPhases phases = CURRENT.get();
+        if (null != phases && phases.responseReadyNanos != 0) {
+            phases.add(phase, System.nanoTime() - phases.responseReadyNanos);
+        }
+    }
+
+    /**
+     * end request of current thread, and record its phases.
+     * 
+     * @param endpoint
+     *            endpoint.
+     * @param status
+     *            response status.
+     */
+    public void endRequest(String endpoint, int status) {
+        RequestPhases phases = CURRENT.get();
+        if (null == phases) {
+            return;
+        }
+        CURRENT.remove();
+        requestCount.incrementAndGet();
+        String keyPrefix = endpoint + " " + status + " ";
+        for (int i = 0; i < phases.size; i++) {
+            getStat(keyPrefix, endpoint, status, phases.names[i]).record(
+                    phases.nanos[i]);
+        }
+        getStat(keyPrefix, endpoint, status, PHASE_TOTAL).record(
+                System.nanoTime() - phases.startNanos);
+    }
+
+    /**
+     * get statistics, create it if not exist.
+     * 
+     * @param keyPrefix
+     *            endpoint and status.
+     * @param endpoint
+     *            endpoint.
+     * @param status
+     *            status.
+     * @param phase
+     *            phase.
+     * @return statistics.
+     */
+    private PhaseStat getStat(String keyPrefix, String endpoint, int status,
+            String phase) {
+        String key = keyPrefix + phase;
+        PhaseStat stat = stats.get(key);
+        if (null == stat) {
+            stat = new PhaseStat(endpoint, status, phase);
+            PhaseStat existing = stats.putIfAbsent(key, stat);
+            if (null != existing) {
+                stat = existing;
+            }
+        }
+        return stat;
+    }
+
+    /**
+     * get all statistics, sorted by endpoint, status, and total latency
+     * descending.
+     * 
+     * @return statistics list.
+     */
+    public List<PhaseStat> getStats() {
+        List<PhaseStat> result = new ArrayList<PhaseStat>(stats.values());
+        Collections.sort(result, new Comparator<PhaseStat>() {
+            @Override
+            public int compare(PhaseStat o1, PhaseStat o2) {
+                int diff = o1.getEndpoint().compareTo(o2.getEndpoint());
+                if (diff != 0) {
+                    return diff;
+                }
+                if (o1.getStatus() != o2.getStatus()) {
+                    return o1.getStatus() < o2.getStatus() ? -1 : 1;
+                }
+                long totalDiff = o2.getTotalMillis() - o1.getTotalMillis();
+                if (totalDiff != 0) {
+                    return totalDiff > 0 ? 1 : -1;
+                }
+                return o1.getPhase().compareTo(o2.getPhase());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * get all statistics as strings, for JMX.
+     * 
+     * @return statistics strings.
+     */
+    @ManagedAttribute(description = "statistics by endpoint, status, phase")
+    public String[] getStatistics() {
+        List<PhaseStat> list = getStats();
+        String[] result = new String[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i).toString();
+        }
+        return result;
+    }
+
+    /**
+     * get recorded request count.
+     * 
+     * @return request count.
+     */
+    @ManagedAttribute(description = "recorded request count")
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * clear statistics.
+     */
+    @ManagedOperation(description = "clear statistics")
+    public void reset() {
+        stats.clear();
+        requestCount.set(0);
+    }
+
+    /**
+     * phases of one request.
+     */
+    private static class RequestPhases {
+        /**
+         * start time of request.
+         */
+        private final long startNanos;
+        /**
+         * time of response ready, 0 if not marked.
+         */
+        private long responseReadyNanos;
+        /**
+         * phase names.
+         */
+        private String[] names = new String[16];
+        /**
+         * phase latencies.
+         */
+        private long[] nanos = new long[16];
+        /**
+         * phase count.
+         */
+        private int size;
+
+        /**
+         * constructor.
+         * 
+         * @param startNanos
+         *            start time of request.
+         */
+        RequestPhases(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * add phase.
+         * 
+         * @param name
+         *            phase name.
+         * @param latency
+         *            phase latency.
+         */
+        void add(String name, long latency) {
+            if (size == MAX_PHASES) {
+                return;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            names[size] = name;
+            nanos[size] = latency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.support;
+
+/**
+ * <pre>
+ * latency statistics of one request phase, for requests of the same
+ * endpoint and response status.
+ * This class is thread-safe.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class PhaseStat {
+    /**
+     * nanos of one millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /**
+     * endpoint, such as 'domain', 'domains'.
+     */
+    private final String endpoint;
+    /**
+     * response status.
+     */
+    private final int status;
+    /**
+     * phase, such as 'doQuery', 'filter.RateLimitFilter.pre'.
+     */
+    private final String phase;
+    /**
+     * latency histogram.
+     */
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * constructor.
+     * 
+     * @param endpoint
+     *            endpoint.
+     * @param status
+     *            response status.
+     * @param phase
+     *            phase.
+     */
+    public PhaseStat(String endpoint, int status, String phase) {
+        this.endpoint = endpoint;
+        this.status = status;
+        this.phase = phase;
+    }
+
+    /**
+     * record phase latency.
+     * 
+     * @param nanos
+     *            latency.
+     */
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    /**
+     * get endpoint.
+     * 
+     * @return endpoint.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * get status.
+     * 
+     * @return status.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * get phase.
+     * 
+     * @return phase.
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * get count.
+     * 
+     * @return count.
+     */
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    /**
+     * get total latency in milliseconds.
+     * 
+     * @return total latency.
+     */
+    public long getTotalMillis() {
+        return histogram.getTotalNanos() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * get average latency in microseconds.
+     * 
+     * @return average latency.
+     */
+    public long getAvgMicros() {
+        return histogram.getAvgMicros();
+    }
+
+    /**
+     * get max latency in microseconds.
+     * 
+     * @return max latency.
+     */
+    public long getMaxMicros() {
+        return histogram.getMaxNanos() / 1000;
+    }
+
+    /**
+     * get median latency.
+     * 
+     * @return see LatencyHistogram.getPercentileMicros.
+     */
+    public long getP50Micros() {
+        return histogram.getPercentileMicros(50);
+    }
+
+    /**
+     * get 95th percentile latency.
+     * 
+     * @return see LatencyHistogram.getPercentileMicros.
+     */
+    public long getP95Micros() {
+        return histogram.getPercentileMicros(95);
+    }
+
+    /**
+     * get 99th percentile latency.
+     * 
+     * @return see LatencyHistogram.getPercentileMicros.
+     */
+    public long getP99Micros() {
+        return histogram.getPercentileMicros(99);
+    }
+
+    /**
+     * get histogram as string.
+     * 
+     * @return bucket counts.
+     */
+    public String getHistogram() {
+        return histogram.toString();
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + " " + status + " " + phase + " count:" + getCount()
+                + " totalMs:" + getTotalMillis() + " avgUs:" + getAvgMicros()
+                + " maxUs:" + getMaxMicros() + " p50Us:" + getP50Micros()
+                + " p95Us:" + getP95Micros() + " p99Us:" + getP99Micros();
+    }
+}
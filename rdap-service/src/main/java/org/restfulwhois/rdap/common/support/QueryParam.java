@@ -237,6 +237,20 @@ public abstract class QueryParam {
         return validators;
     }
 
+    /**
+     * get key of response cache.
+     * <p>
+     * Sub class returns not null key, which is built from converted
+     * parameters, if response of this query can be cached. This method is
+     * called after convertParam().
+     * </p>
+     * 
+     * @return cache key, null if response can not be cached.
+     */
+    public String getCacheKey() {
+        return null;
+    }
+
     /**
      * validate parameters.
      * <p>
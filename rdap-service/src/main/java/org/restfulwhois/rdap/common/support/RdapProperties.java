@@ -32,6 +32,7 @@ package org.restfulwhois.rdap.common.support;
 
 import java.util.List;
 
+import org.restfulwhois.rdap.common.util.DomainSuffixTrie;
 import org.restfulwhois.rdap.common.util.StringUtil;
 
 /**
@@ -78,6 +79,160 @@ public class RdapProperties {
      */
     private static String ipWhiteListForUpdateApi;
 
+    /**
+     * max requests can be sent at once, for rate limit.
+     */
+    private static Integer rateLimitBurst;
+
+    /**
+     * IPv4 prefix length for rate limit of anonymous user.
+     */
+    private static Integer rateLimitIpv4PrefixLength;
+
+    /**
+     * IPv6 prefix length for rate limit of anonymous user.
+     */
+    private static Integer rateLimitIpv6PrefixLength;
+
+    /**
+     * max entry size of acl cache, 0 means acl cache is disabled.
+     */
+    private static Integer aclCacheMaxSize;
+
+    /**
+     * time to live of acl cache entry, in seconds.
+     */
+    private static Long aclCacheTtlSeconds;
+
+    /**
+     * time to live of local autnum index, in seconds, 0 means never expire.
+     */
+    private static Long autnumIndexTtlSeconds;
+
+    /**
+     * time to live of local network index, in seconds, 0 means never expire.
+     */
+    private static Long networkIndexTtlSeconds;
+
+    /**
+     * max entry size of response cache, 0 means response cache is disabled.
+     */
+    private static Integer responseCacheMaxSize;
+
+    /**
+     * time to live of response cache entry, in seconds.
+     */
+    private static Long responseCacheTtlSeconds;
+
+    /**
+     * max batch size for search, batch size is adjusted between
+     * batchsizeSearch and this value by ratio of permitted objects.
+     */
+    private static Long maxBatchsizeSearch;
+
+    /**
+     * true if in-memory name index is used for wildcard domain and
+     * nameserver search.
+     */
+    private static Boolean nameSearchIndexEnabled;
+
+    /**
+     * time to live of name search index, in seconds, index is rebuilt after
+     * it expired.
+     */
+    private static Long nameSearchIndexTtlSeconds;
+
+    /**
+     * true if in-memory index of case folded full name and handle is used for
+     * entity search.
+     */
+    private static Boolean entitySearchIndexEnabled;
+
+    /**
+     * max entry size of entity vcard cache, 0 means cache is disabled.
+     */
+    private static Integer vcardCacheMaxSize;
+
+    /**
+     * time to live of entity vcard cache entry, in seconds.
+     */
+    private static Long vcardCacheTtlSeconds;
+
+    /**
+     * SQL statement taking more than this millis is logged, not more than 0
+     * means slow SQL log is disabled.
+     */
+    private static Long slowSqlThresholdMillis;
+
+    /**
+     * if add SQL statement count of request to response header, for debug.
+     */
+    private static Boolean sqlCountHeaderEnabled;
+
+    /**
+     * if existence filter of domain, nameserver and entity is enabled, to skip
+     * database query for names which definitely do not exist.
+     */
+    private static Boolean existenceFilterEnabled;
+
+    /**
+     * expected false positive rate of existence filter.
+     */
+    private static Double existenceFilterFalsePositiveRate;
+
+    /**
+     * max memory of each existence filter, in megabytes, not more than 0
+     * means no limit.
+     */
+    private static Long existenceFilterMaxMegabytes;
+
+    /**
+     * time to live of existence filter, in seconds, filter is rebuilt after
+     * it for changes made out of this application.
+     */
+    private static Long existenceFilterTtlSeconds;
+
+    /**
+     * true if key missed by existence filter is still queried in database
+     * once, for keys written to database out of this application.
+     */
+    private static Boolean existenceFilterConfirmMiss;
+
+    /**
+     * max entry size of assembled inner entity cache, 0 means cache is
+     * disabled.
+     */
+    private static Integer innerEntityCacheMaxSize;
+
+    /**
+     * time to live of assembled inner entity cache entry, in seconds.
+     */
+    private static Long innerEntityCacheTtlSeconds;
+
+    /**
+     * if query requests are queued in admission queue and processed
+     * asynchronously, instead of being limited by maxConcurrentCount.
+     */
+    private static Boolean asyncQueryEnabled;
+
+    /**
+     * max query requests processed at the same time, if async query is
+     * enabled.
+     */
+    private static Integer asyncQueryMaxRunning;
+
+    /**
+     * max query requests waiting in admission queue, if async query is
+     * enabled.
+     */
+    private static Integer asyncQueryMaxQueued;
+
+    /**
+     * max waiting time of query request in admission queue, in
+     * milliseconds.
+     */
+    private static Long asyncQueryQueueTimeoutMillis;
+
     /**
      * min seconds between access interval,for Anonymous.
      */
@@ -115,6 +270,11 @@ public class RdapProperties {
      * list for not in tlds.
      */
     private static List<String> notInTldList;
+    /**
+     * trie for in tlds and not in tlds, value is true for in tld and false
+     * for not in tld.
+     */
+    private static volatile DomainSuffixTrie<Boolean> tldTrie;
     /**
      * list for not implemented uri,splited by ';'.
      */
@@ -131,6 +291,29 @@ public class RdapProperties {
         RdapProperties.inTldList = null;
         RdapProperties.notInTldList = null;
         RdapProperties.notImplementedUriList = null;
+        RdapProperties.tldTrie = null;
+    }
+
+    /**
+     * get trie of 'in' and 'not in' tlds, value is true for 'in' tld, and
+     * false for 'not in' tld. 'not in' tld replaces the same 'in' tld.
+     * 
+     * @return tld trie.
+     */
+    public static DomainSuffixTrie<Boolean> getTldTrie() {
+        DomainSuffixTrie<Boolean> trie = RdapProperties.tldTrie;
+        if (null != trie) {
+            return trie;
+        }
+        trie = new DomainSuffixTrie<Boolean>();
+        for (String tld : getInTldsInThisRegistry()) {
+            trie.put(tld, Boolean.TRUE);
+        }
+        for (String tld : getNotInTldsInThisRegistry()) {
+            trie.put(tld, Boolean.FALSE);
+        }
+        RdapProperties.tldTrie = trie;
+        return trie;
     }
 
     /**
@@ -430,4 +613,536 @@ public class RdapProperties {
         RdapProperties.ipWhiteListForUpdateApi = ipWhiteListForUpdateApi;
     }
 
+    /**
+     * get rateLimitBurst.
+     * 
+     * @return rateLimitBurst.
+     */
+    public static Integer getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    /**
+     * set rateLimitBurst.
+     * 
+     * @param rateLimitBurst
+     *            rateLimitBurst.
+     */
+    public void setRateLimitBurst(Integer rateLimitBurst) {
+        RdapProperties.rateLimitBurst = rateLimitBurst;
+    }
+
+    /**
+     * get rateLimitIpv4PrefixLength.
+     * 
+     * @return rateLimitIpv4PrefixLength.
+     */
+    public static Integer getRateLimitIpv4PrefixLength() {
+        return rateLimitIpv4PrefixLength;
+    }
+
+    /**
+     * set rateLimitIpv4PrefixLength.
+     * 
+     * @param rateLimitIpv4PrefixLength
+     *            rateLimitIpv4PrefixLength.
+     */
+    public void setRateLimitIpv4PrefixLength(Integer rateLimitIpv4PrefixLength) {
+        RdapProperties.rateLimitIpv4PrefixLength = rateLimitIpv4PrefixLength;
+    }
+
+    /**
+     * get rateLimitIpv6PrefixLength.
+     * 
+     * @return rateLimitIpv6PrefixLength.
+     */
+    public static Integer getRateLimitIpv6PrefixLength() {
+        return rateLimitIpv6PrefixLength;
+    }
+
+    /**
+     * set rateLimitIpv6PrefixLength.
+     * 
+     * @param rateLimitIpv6PrefixLength
+     *            rateLimitIpv6PrefixLength.
+     */
+    public void setRateLimitIpv6PrefixLength(Integer rateLimitIpv6PrefixLength) {
+        RdapProperties.rateLimitIpv6PrefixLength = rateLimitIpv6PrefixLength;
+    }
+
+    /**
+     * get aclCacheMaxSize.
+     * 
+     * @return aclCacheMaxSize.
+     */
+    public static Integer getAclCacheMaxSize() {
+        return aclCacheMaxSize;
+    }
+
+    /**
+     * set aclCacheMaxSize.
+     * 
+     * @param aclCacheMaxSize
+     *            aclCacheMaxSize.
+     */
+    public void setAclCacheMaxSize(Integer aclCacheMaxSize) {
+        RdapProperties.aclCacheMaxSize = aclCacheMaxSize;
+    }
+
+    /**
+     * get aclCacheTtlSeconds.
+     * 
+     * @return aclCacheTtlSeconds.
+     */
+    public static Long getAclCacheTtlSeconds() {
+        return aclCacheTtlSeconds;
+    }
+
+    /**
+     * set aclCacheTtlSeconds.
+     * 
+     * @param aclCacheTtlSeconds
+     *            aclCacheTtlSeconds.
+     */
+    public void setAclCacheTtlSeconds(Long aclCacheTtlSeconds) {
+        RdapProperties.aclCacheTtlSeconds = aclCacheTtlSeconds;
+    }
+
+    /**
+     * get autnumIndexTtlSeconds.
+     * 
+     * @return autnumIndexTtlSeconds.
+     */
+    public static Long getAutnumIndexTtlSeconds() {
+        return autnumIndexTtlSeconds;
+    }
+
+    /**
+     * set autnumIndexTtlSeconds.
+     * 
+     * @param autnumIndexTtlSeconds
+     *            autnumIndexTtlSeconds.
+     */
+    public void setAutnumIndexTtlSeconds(Long autnumIndexTtlSeconds) {
+        RdapProperties.autnumIndexTtlSeconds = autnumIndexTtlSeconds;
+    }
+
+    /**
+     * get networkIndexTtlSeconds.
+     * 
+     * @return networkIndexTtlSeconds.
+     */
+    public static Long getNetworkIndexTtlSeconds() {
+        return networkIndexTtlSeconds;
+    }
+
+    /**
+     * set networkIndexTtlSeconds.
+     * 
+     * @param networkIndexTtlSeconds
+     *            networkIndexTtlSeconds.
+     */
+    public void setNetworkIndexTtlSeconds(Long networkIndexTtlSeconds) {
+        RdapProperties.networkIndexTtlSeconds = networkIndexTtlSeconds;
+    }
+
+    /**
+     * get responseCacheMaxSize.
+     * 
+     * @return responseCacheMaxSize.
+     */
+    public static Integer getResponseCacheMaxSize() {
+        return responseCacheMaxSize;
+    }
+
+    /**
+     * set responseCacheMaxSize.
+     * 
+     * @param responseCacheMaxSize
+     *            responseCacheMaxSize.
+     */
+    public void setResponseCacheMaxSize(Integer responseCacheMaxSize) {
+        RdapProperties.responseCacheMaxSize = responseCacheMaxSize;
+    }
+
+    /**
+     * get responseCacheTtlSeconds.
+     * 
+     * @return responseCacheTtlSeconds.
+     */
+    public static Long getResponseCacheTtlSeconds() {
+        return responseCacheTtlSeconds;
+    }
+
+    /**
+     * set responseCacheTtlSeconds.
+     * 
+     * @param responseCacheTtlSeconds
+     *            responseCacheTtlSeconds.
+     */
+    public void setResponseCacheTtlSeconds(Long responseCacheTtlSeconds) {
+        RdapProperties.responseCacheTtlSeconds = responseCacheTtlSeconds;
+    }
+
+    /**
+     * get maxBatchsizeSearch.
+     * 
+     * @return maxBatchsizeSearch.
+     */
+    public static Long getMaxBatchsizeSearch() {
+        return maxBatchsizeSearch;
+    }
+
+    /**
+     * set maxBatchsizeSearch.
+     * 
+     * @param maxBatchsizeSearch
+     *            maxBatchsizeSearch.
+     */
+    public void setMaxBatchsizeSearch(Long maxBatchsizeSearch) {
+        RdapProperties.maxBatchsizeSearch = maxBatchsizeSearch;
+    }
+
+    /**
+     * get nameSearchIndexEnabled.
+     * 
+     * @return nameSearchIndexEnabled.
+     */
+    public static Boolean getNameSearchIndexEnabled() {
+        return nameSearchIndexEnabled;
+    }
+
+    /**
+     * set nameSearchIndexEnabled.
+     * 
+     * @param nameSearchIndexEnabled
+     *            nameSearchIndexEnabled.
+     */
+    public void setNameSearchIndexEnabled(Boolean nameSearchIndexEnabled) {
+        RdapProperties.nameSearchIndexEnabled = nameSearchIndexEnabled;
+    }
+
+    /**
+     * get nameSearchIndexTtlSeconds.
+     * 
+     * @return nameSearchIndexTtlSeconds.
+     */
+    public static Long getNameSearchIndexTtlSeconds() {
+        return nameSearchIndexTtlSeconds;
+    }
+
+    /**
+     * set nameSearchIndexTtlSeconds.
+     * 
+     * @param nameSearchIndexTtlSeconds
+     *            nameSearchIndexTtlSeconds.
+     */
+    public void setNameSearchIndexTtlSeconds(Long nameSearchIndexTtlSeconds) {
+        RdapProperties.nameSearchIndexTtlSeconds = nameSearchIndexTtlSeconds;
+    }
+
+    /**
+     * get entitySearchIndexEnabled.
+     * 
+     * @return entitySearchIndexEnabled.
+     */
+    public static Boolean getEntitySearchIndexEnabled() {
+        return entitySearchIndexEnabled;
+    }
+
+    /**
+     * set entitySearchIndexEnabled.
+     * 
+     * @param entitySearchIndexEnabled
+     *            entitySearchIndexEnabled.
+     */
+    public void setEntitySearchIndexEnabled(Boolean entitySearchIndexEnabled) {
+        RdapProperties.entitySearchIndexEnabled = entitySearchIndexEnabled;
+    }
+
+    /**
+     * get vcardCacheMaxSize.
+     * 
+     * @return vcardCacheMaxSize.
+     */
+    public static Integer getVcardCacheMaxSize() {
+        return vcardCacheMaxSize;
+    }
+
+    /**
+     * set vcardCacheMaxSize.
+     * 
+     * @param vcardCacheMaxSize
+     *            vcardCacheMaxSize.
+     */
+    public void setVcardCacheMaxSize(Integer vcardCacheMaxSize) {
+        RdapProperties.vcardCacheMaxSize = vcardCacheMaxSize;
+    }
+
+    /**
+     * get vcardCacheTtlSeconds.
+     * 
+     * @return vcardCacheTtlSeconds.
+     */
+    public static Long getVcardCacheTtlSeconds() {
+        return vcardCacheTtlSeconds;
+    }
+
+    /**
+     * set vcardCacheTtlSeconds.
+     * 
+     * @param vcardCacheTtlSeconds
+     *            vcardCacheTtlSeconds.
+     */
+    public void setVcardCacheTtlSeconds(Long vcardCacheTtlSeconds) {
+        RdapProperties.vcardCacheTtlSeconds = vcardCacheTtlSeconds;
+    }
+
+    /**
+     * get slowSqlThresholdMillis.
+     * 
+     * @return slowSqlThresholdMillis.
+     */
+    public static Long getSlowSqlThresholdMillis() {
+        return slowSqlThresholdMillis;
+    }
+
+    /**
+     * get sqlCountHeaderEnabled.
+     * 
+     * @return sqlCountHeaderEnabled.
+     */
+    public static Boolean getSqlCountHeaderEnabled() {
+        return sqlCountHeaderEnabled;
+    }
+
+    /**
+     * get existenceFilterEnabled.
+     * 
+     * @return existenceFilterEnabled.
+     */
+    public static Boolean getExistenceFilterEnabled() {
+        return existenceFilterEnabled;
+    }
+
+    /**
+     * get existenceFilterFalsePositiveRate.
+     * 
+     * @return existenceFilterFalsePositiveRate.
+     */
+    public static Double getExistenceFilterFalsePositiveRate() {
+        return existenceFilterFalsePositiveRate;
+    }
+
+    /**
+     * get existenceFilterMaxMegabytes.
+     * 
+     * @return existenceFilterMaxMegabytes.
+     */
+    public static Long getExistenceFilterMaxMegabytes() {
+        return existenceFilterMaxMegabytes;
+    }
+
+    /**
+     * get existenceFilterTtlSeconds.
+     * 
+     * @return existenceFilterTtlSeconds.
+     */
+    public static Long getExistenceFilterTtlSeconds() {
+        return existenceFilterTtlSeconds;
+    }
+
+    /**
+     * get existenceFilterConfirmMiss.
+     * 
+     * @return existenceFilterConfirmMiss.
+     */
+    public static Boolean getExistenceFilterConfirmMiss() {
+        return existenceFilterConfirmMiss;
+    }
+
+    /**
+     * get innerEntityCacheMaxSize.
+     * 
+     * @return innerEntityCacheMaxSize.
+     */
+    public static Integer getInnerEntityCacheMaxSize() {
+        return innerEntityCacheMaxSize;
+    }
+
+    /**
+     * get innerEntityCacheTtlSeconds.
+     * 
+     * @return innerEntityCacheTtlSeconds.
+     */
+    public static Long getInnerEntityCacheTtlSeconds() {
+        return innerEntityCacheTtlSeconds;
+    }
+
+    /**
+     * get asyncQueryEnabled.
+     * 
+     * @return asyncQueryEnabled.
+     */
+    public static Boolean getAsyncQueryEnabled() {
+        return asyncQueryEnabled;
+    }
+
+    /**
+     * get asyncQueryMaxRunning.
+     * 
+     * @return asyncQueryMaxRunning.
+     */
+    public static Integer getAsyncQueryMaxRunning() {
+        return asyncQueryMaxRunning;
+    }
+
+    /**
+     * get asyncQueryMaxQueued.
+     * 
+     * @return asyncQueryMaxQueued.
+     */
+    public static Integer getAsyncQueryMaxQueued() {
+        return asyncQueryMaxQueued;
+    }
+
+    /**
+     * get asyncQueryQueueTimeoutMillis.
+     * 
+     * @return asyncQueryQueueTimeoutMillis.
+     */
+    public static Long getAsyncQueryQueueTimeoutMillis() {
+        return asyncQueryQueueTimeoutMillis;
+    }
+
+    /**
+     * set slowSqlThresholdMillis.
+     * 
+     * @param slowSqlThresholdMillis
+     *            slowSqlThresholdMillis.
+     */
+    public void setSlowSqlThresholdMillis(Long slowSqlThresholdMillis) {
+        RdapProperties.slowSqlThresholdMillis = slowSqlThresholdMillis;
+    }
+
+    /**
+     * set sqlCountHeaderEnabled.
+     * 
+     * @param sqlCountHeaderEnabled
+     *            sqlCountHeaderEnabled.
+     */
+    public void setSqlCountHeaderEnabled(Boolean sqlCountHeaderEnabled) {
+        RdapProperties.sqlCountHeaderEnabled = sqlCountHeaderEnabled;
+    }
+
+    /**
+     * set existenceFilterEnabled.
+     * 
+     * @param existenceFilterEnabled
+     *            existenceFilterEnabled.
+     */
+    public void setExistenceFilterEnabled(Boolean existenceFilterEnabled) {
+        RdapProperties.existenceFilterEnabled = existenceFilterEnabled;
+    }
+
+    /**
+     * set existenceFilterFalsePositiveRate.
+     * 
+     * @param existenceFilterFalsePositiveRate
+     *            existenceFilterFalsePositiveRate.
+     */
+    public void setExistenceFilterFalsePositiveRate(Double existenceFilterFalsePositiveRate) {
+        RdapProperties.existenceFilterFalsePositiveRate = existenceFilterFalsePositiveRate;
+    }
+
+    /**
+     * set existenceFilterMaxMegabytes.
+     * 
+     * @param existenceFilterMaxMegabytes
+     *            existenceFilterMaxMegabytes.
+     */
+    public void setExistenceFilterMaxMegabytes(Long existenceFilterMaxMegabytes) {
+        RdapProperties.existenceFilterMaxMegabytes = existenceFilterMaxMegabytes;
+    }
+
+    /**
+     * set existenceFilterTtlSeconds.
+     * 
+     * @param existenceFilterTtlSeconds
+     *            existenceFilterTtlSeconds.
+     */
+    public void setExistenceFilterTtlSeconds(Long existenceFilterTtlSeconds) {
+        RdapProperties.existenceFilterTtlSeconds = existenceFilterTtlSeconds;
+    }
+
+    /**
+     * set existenceFilterConfirmMiss.
+     * 
+     * @param existenceFilterConfirmMiss
+     *            existenceFilterConfirmMiss.
+     */
+    public void setExistenceFilterConfirmMiss(
+            Boolean existenceFilterConfirmMiss) {
+        RdapProperties.existenceFilterConfirmMiss = existenceFilterConfirmMiss;
+    }
+
+    /**
+     * set innerEntityCacheMaxSize.
+     * 
+     * @param innerEntityCacheMaxSize
+     *            innerEntityCacheMaxSize.
+     */
+    public void setInnerEntityCacheMaxSize(Integer innerEntityCacheMaxSize) {
+        RdapProperties.innerEntityCacheMaxSize = innerEntityCacheMaxSize;
+    }
+
+    /**
+     * set innerEntityCacheTtlSeconds.
+     * 
+     * @param innerEntityCacheTtlSeconds
+     *            innerEntityCacheTtlSeconds.
+     */
+    public void setInnerEntityCacheTtlSeconds(Long innerEntityCacheTtlSeconds) {
+        RdapProperties.innerEntityCacheTtlSeconds = innerEntityCacheTtlSeconds;
+    }
+
+    /**
+     * set asyncQueryEnabled.
+     * 
+     * @param asyncQueryEnabled
+     *            asyncQueryEnabled.
+     */
+    public void setAsyncQueryEnabled(Boolean asyncQueryEnabled) {
+        RdapProperties.asyncQueryEnabled = asyncQueryEnabled;
+    }
+
+    /**
+     * set asyncQueryMaxRunning.
+     * 
+     * @param asyncQueryMaxRunning
+     *            asyncQueryMaxRunning.
+     */
+    public void setAsyncQueryMaxRunning(Integer asyncQueryMaxRunning) {
+        RdapProperties.asyncQueryMaxRunning = asyncQueryMaxRunning;
+    }
+
+    /**
+     * set asyncQueryMaxQueued.
+     * 
+     * @param asyncQueryMaxQueued
+     *            asyncQueryMaxQueued.
+     */
+    public void setAsyncQueryMaxQueued(Integer asyncQueryMaxQueued) {
+        RdapProperties.asyncQueryMaxQueued = asyncQueryMaxQueued;
+    }
+
+    /**
+     * set asyncQueryQueueTimeoutMillis.
+     * 
+     * @param asyncQueryQueueTimeoutMillis
+     *            asyncQueryQueueTimeoutMillis.
+     */
+    public void setAsyncQueryQueueTimeoutMillis(Long asyncQueryQueueTimeoutMillis) {
+        RdapProperties.asyncQueryQueueTimeoutMillis = asyncQueryQueueTimeoutMillis;
+    }
 }
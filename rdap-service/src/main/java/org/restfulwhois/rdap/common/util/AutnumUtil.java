@@ -84,4 +84,18 @@ public final class AutnumUtil {
         }
         return true;
     }
+
+    /**
+     * parse autnum str to long.
+     * 
+     * @param autnum
+     *            autnum str.
+     * @return autnum, null if autnum is not valid.
+     */
+    public static Long parseAutnum(String autnum) {
+        if (!isValidAutnum(autnum)) {
+            return null;
+        }
+        return Long.valueOf(autnum);
+    }
 }
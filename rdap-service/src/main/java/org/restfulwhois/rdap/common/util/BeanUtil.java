@@ -1,5 +1,21 @@
 package org.restfulwhois.rdap.common.util;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
@@ -39,4 +55,144 @@ public final class BeanUtil {
             LOGGER.error("copyProperties error:{}", e);
         }
     }
+
+    /**
+     * <pre>
+     * deep copy object, copying fields of all classes in hierarchy.
+     * Strings, numbers, booleans, characters and enums are shared, as they
+     * are immutable. List, Set and Map are copied to ArrayList,
+     * LinkedHashSet and LinkedHashMap. Object referred more than once is
+     * copied once.
+     * Other classes must have a constructor without arguments.
+     * </pre>
+     * 
+     * @param source
+     *            source object.
+     * @param <T>
+     *            object type.
+     * @return copy, null if source is null.
+     * @throws IllegalArgumentException
+     *             if object can not be copied.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deepCopy(T source) {
+        return (T) deepCopy(source, new IdentityHashMap<Object, Object>());
+    }
+
+    /**
+     * deep copy object.
+     * 
+     * @param source
+     *            source object.
+     * @param copied
+     *            copied objects, key is source object, value is its copy.
+     * @return copy.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object deepCopy(Object source, Map<Object, Object> copied) {
+        if (null == source || isImmutable(source.getClass())) {
+            return source;
+        }
+        Object copy = copied.get(source);
+        if (null != copy) {
+            return copy;
+        }
+        Class<?> clazz = source.getClass();
+        if (clazz.isArray()) {
+            int length = Array.getLength(source);
+            copy = Array.newInstance(clazz.getComponentType(), length);
+            copied.put(source, copy);
+            for (int i = 0; i < length; i++) {
+                Array.set(copy, i, deepCopy(Array.get(source, i), copied));
+            }
+            return copy;
+        }
+        if (source instanceof Date) {
+            copy = ((Date) source).clone();
+            copied.put(source, copy);
+            return copy;
+        }
+        if (source instanceof Map) {
+            Map sourceMap = (Map) source;
+            Map copyMap = new LinkedHashMap(sourceMap.size());
+            copied.put(source, copyMap);
+            for (Object entryObject : sourceMap.entrySet()) {
+                Map.Entry entry = (Map.Entry) entryObject;
+                copyMap.put(deepCopy(entry.getKey(), copied),
+                        deepCopy(entry.getValue(), copied));
+            }
+            return copyMap;
+        }
+        if (source instanceof Collection) {
+            Collection sourceCollection = (Collection) source;
+            Collection copyCollection;
+            if (source instanceof Set) {
+                copyCollection = new LinkedHashSet(sourceCollection.size());
+            } else if (source instanceof List) {
+                copyCollection = new ArrayList(sourceCollection.size());
+            } else {
+                throw new IllegalArgumentException(
+                        "can not copy collection:" + clazz.getName());
+            }
+            copied.put(source, copyCollection);
+            for (Object element : sourceCollection) {
+                copyCollection.add(deepCopy(element, copied));
+            }
+            return copyCollection;
+        }
+        copy = newInstance(clazz);
+        copied.put(source, copy);
+        for (Class<?> c = clazz; null != c && !Object.class.equals(c); c =
+                c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    field.set(copy, deepCopy(field.get(source), copied));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("can not copy field:"
+                            + field, e);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * create object by constructor without arguments.
+     * 
+     * @param clazz
+     *            class.
+     * @return new object.
+     */
+    private static Object newInstance(Class<?> clazz) {
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("can not create object:"
+                    + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * check if class is immutable and can be shared by copies.
+     * 
+     * @param clazz
+     *            class.
+     * @return true if immutable, false if not.
+     */
+    private static boolean isImmutable(Class<?> clazz) {
+        return String.class.equals(clazz) || Integer.class.equals(clazz)
+                || Long.class.equals(clazz) || Short.class.equals(clazz)
+                || Byte.class.equals(clazz) || Double.class.equals(clazz)
+                || Float.class.equals(clazz) || Boolean.class.equals(clazz)
+                || Character.class.equals(clazz)
+                || BigInteger.class.equals(clazz)
+                || BigDecimal.class.equals(clazz) || Class.class.equals(clazz)
+                || Enum.class.isAssignableFrom(clazz);
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ * Bloom filter of strings, used to know a key definitely does not exist.
+ * 
+ * Bit count and hash count are computed from expected insertions and false
+ * positive rate, bit count can be limited by max bits, which raises false
+ * positive rate. Index of each hash is computed by double hashing of a
+ * 64-bit FNV-1a hash with a mixed copy of it.
+ * Keys can not be removed, removed keys are only false positives.
+ * 
+ * This class is thread-safe, put and mightContain are lock free.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class BloomFilter {
+    /**
+     * min bit count.
+     */
+    private static final long MIN_BITS = 64;
+    /**
+     * max bit count, limited by AtomicLongArray size.
+     */
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * 64;
+    /**
+     * FNV-1a offset basis.
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /**
+     * FNV-1a prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /**
+     * bits.
+     */
+    private final AtomicLongArray bits;
+    /**
+     * bit count.
+     */
+    private final long bitSize;
+    /**
+     * hash count.
+     */
+    private final int hashCount;
+    /**
+     * count of bits set.
+     */
+    private final AtomicLong bitCount = new AtomicLong();
+
+    /**
+     * constructor.
+     * 
+     * @param expectedInsertions
+     *            expected count of keys.
+     * @param falsePositiveRate
+     *            expected false positive rate, between 0 and 1.
+     * @param maxBits
+     *            max bit count, not more than 0 means no limit.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate,
+            long maxBits) {
+        long n = Math.max(1, expectedInsertions);
+        double p = falsePositiveRate;
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("invalid false positive rate:"
+                    + falsePositiveRate);
+        }
+        long m =
+                (long) Math.ceil(-n * Math.log(p)
+                        / (Math.log(2) * Math.log(2)));
+        if (maxBits > 0) {
+            m = Math.min(m, maxBits);
+        }
+        m = Math.max(MIN_BITS, Math.min(m, MAX_BITS));
+        int words = (int) ((m + 63) / 64);
+        this.bitSize = (long) words * 64;
+        this.hashCount =
+                Math.max(1, (int) Math.round((double) bitSize / n
+                        * Math.log(2)));
+        this.bits = new AtomicLongArray(words);
+    }
+
+    /**
+     * put key.
+     * 
+     * @param key
+     *            key, ignored if null.
+     */
+    public void put(String key) {
+        if (null == key) {
+            return;
+        }
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashCount; i++) {
+            setBit(index(hash1, hash2, i));
+        }
+    }
+
+    /**
+     * check if key might be put.
+     * 
+     * @param key
+     *            key.
+     * @return false if key is definitely not put, true if it might be put.
+     */
+    public boolean mightContain(String key) {
+        if (null == key) {
+            return false;
+        }
+        long hash1 = hash(key);
+        long hash2 = mix(hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash1, hash2, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * set bit.
+     * 
+     * @param index
+     *            bit index.
+     */
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long old = bits.get(word);
+            if ((old & mask) != 0) {
+                return;
+            }
+            if (bits.compareAndSet(word, old, old | mask)) {
+                bitCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * get bit index of i-th hash.
+     * 
+     * @param hash1
+     *            first hash.
+     * @param hash2
+     *            second hash.
+     * @param i
+     *            hash number.
+     * @return bit index.
+     */
+    private long index(long hash1, long hash2, int i) {
+        long combined = hash1 + i * hash2;
+        return (combined & Long.MAX_VALUE) % bitSize;
+    }
+
+    /**
+     * FNV-1a hash of string.
+     * 
+     * @param key
+     *            key.
+     * @return hash.
+     */
+    private static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * mix hash bits, the finalizer of MurmurHash3.
+     * 
+     * @param hash
+     *            hash.
+     * @return mixed hash.
+     */
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h | 1;
+    }
+
+    /**
+     * get bit count.
+     * 
+     * @return bit count.
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * get hash count.
+     * 
+     * @return hash count.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * get memory used by bits, in bytes.
+     * 
+     * @return memory bytes.
+     */
+    public long getMemoryBytes() {
+        return bitSize / 8;
+    }
+
+    /**
+     * get current false positive rate, estimated from bits set.
+     * 
+     * @return false positive rate.
+     */
+    public double getFalsePositiveRate() {
+        return Math.pow((double) bitCount.get() / bitSize, hashCount);
+    }
+}
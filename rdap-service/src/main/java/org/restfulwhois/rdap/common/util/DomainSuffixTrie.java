@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * <pre>
+ * reversed-label suffix trie, for finding the suffixes of a domain name,
+ * eg: suffixes of "cnnic.edu.cn" are "cnnic.edu.cn", "edu.cn" and "cn".
+ * 
+ * Labels are compared exactly. Lookup is O(labels of name).
+ * 
+ * Call put() to build the trie. The trie is not thread-safe for put, so
+ * build a new one and replace the old one when data is changed.
+ * </pre>
+ * 
+ * @param <V>
+ *            value type.
+ * @author jiashuo
+ * 
+ */
+public class DomainSuffixTrie<V> {
+    /**
+     * label separator.
+     */
+    private static final char LABEL_SEPARATOR = '.';
+    /**
+     * root node.
+     */
+    private final Node<V> root = new Node<V>();
+    /**
+     * suffix count.
+     */
+    private int size;
+
+    /**
+     * put value for suffix, old value is replaced.
+     * 
+     * @param suffix
+     *            suffix, eg: "edu.cn".
+     * @param value
+     *            value.
+     */
+    public void put(String suffix, V value) {
+        if (StringUtils.isBlank(suffix)) {
+            return;
+        }
+        String[] labels = splitLabels(suffix);
+        Node<V> node = root;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            Node<V> child = node.getChild(labels[i]);
+            if (null == child) {
+                child = new Node<V>();
+                node.putChild(labels[i], child);
+            }
+            node = child;
+        }
+        if (!node.hasValue) {
+            size++;
+        }
+        node.hasValue = true;
+        node.value = value;
+    }
+
+    /**
+     * find value of the longest suffix of name.
+     * 
+     * @param name
+     *            domain name or tld.
+     * @return value, null if no suffix is found.
+     */
+    public V findLongest(String name) {
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        String[] labels = splitLabels(name);
+        Node<V> node = root;
+        V result = null;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            node = node.getChild(labels[i]);
+            if (null == node) {
+                break;
+            }
+            if (node.hasValue) {
+                result = node.value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * find values of all suffixes of name, from the shortest to the longest.
+     * 
+     * @param name
+     *            domain name or tld.
+     * @return value list, empty if no suffix is found.
+     */
+    public List<V> findAll(String name) {
+        List<V> result = new ArrayList<V>();
+        if (StringUtils.isBlank(name)) {
+            return result;
+        }
+        String[] labels = splitLabels(name);
+        Node<V> node = root;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            node = node.getChild(labels[i]);
+            if (null == node) {
+                break;
+            }
+            if (node.hasValue) {
+                result.add(node.value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * get suffix count.
+     * 
+     * @return suffix count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * split name to labels, empty labels are kept, so suffixes are the same
+     * as cutting name at every '.'.
+     * 
+     * @param name
+     *            name.
+     * @return labels.
+     */
+    private static String[] splitLabels(String name) {
+        return StringUtils.splitPreserveAllTokens(name, LABEL_SEPARATOR);
+    }
+
+    /**
+     * trie node.
+     * 
+     * @param <V>
+     *            value type.
+     */
+    private static class Node<V> {
+        /**
+         * children, key is label, created when first child is put.
+         */
+        private Map<String, Node<V>> children;
+        /**
+         * true if this node is end of a suffix.
+         */
+        private boolean hasValue;
+        /**
+         * value.
+         */
+        private V value;
+
+        /**
+         * get child.
+         * 
+         * @param label
+         *            label.
+         * @return child, null if not exist.
+         */
+        Node<V> getChild(String label) {
+            if (null == children) {
+                return null;
+            }
+            return children.get(label);
+        }
+
+        /**
+         * put child.
+         * 
+         * @param label
+         *            label.
+         * @param child
+         *            child.
+         */
+        void putChild(String label, Node<V> child) {
+            if (null == children) {
+                children = new HashMap<String, Node<V>>();
+            }
+            children.put(label, child);
+        }
+    }
+}
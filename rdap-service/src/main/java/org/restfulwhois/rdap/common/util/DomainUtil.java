@@ -35,6 +35,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.IDN;
 import java.net.URLDecoder;
 
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.exception.DecodeException;
 import org.slf4j.Logger;
@@ -341,6 +342,49 @@ public final class DomainUtil {
         return paramStr.substring(0, paramStr.length() - 1);
     }
 
+    /**
+     * reverse labels of domain name, eg: 'www.example.cn' is reversed to
+     * 'cn.example.www'. This is stored as REVERSED_LDH_NAME, for searching
+     * domains by suffix with index.
+     * 
+     * @param domainName
+     *            domain name.
+     * @return reversed domain name, null if domainName is null.
+     */
+    public static String reverseLabels(String domainName) {
+        if (null == domainName) {
+            return null;
+        }
+        String[] labels = StringUtils.splitPreserveAllTokens(domainName, '.');
+        ArrayUtils.reverse(labels);
+        return StringUtils.join(labels, '.');
+    }
+
+    /**
+     * get reversed prefix of search pattern which starts with the only '*',
+     * eg: '*.example.cn' and '*ple.example.cn' have the same prefix
+     * 'cn.example.', which is the reversed labels of complete labels after
+     * '*'.
+     * 
+     * @param pattern
+     *            search pattern.
+     * @return reversed prefix, null if pattern is not suffix pattern or has
+     *         no complete label.
+     */
+    public static String getReversedPrefixOfSuffixPattern(String pattern) {
+        if (StringUtils.isBlank(pattern) || !pattern.startsWith("*")
+                || StringUtils.countMatches(pattern, "*") != 1
+                || StringUtils.containsAny(pattern, "%_")) {
+            return null;
+        }
+        String suffix = pattern.substring(1);
+        int firstPoint = suffix.indexOf('.');
+        if (firstPoint < 0 || suffix.endsWith(".")) {
+            return null;
+        }
+        return reverseLabels(suffix.substring(firstPoint + 1)) + ".";
+    }
+
     /**
      * get lower case if label is all ASCII chars.
      * 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+/**
+ * <pre>
+ * Approximate access frequency of keys, used for TinyLFU cache admission.
+ * 
+ * It is a count-min sketch: each key increments one 4-bit counter in each of
+ * 4 rows, and frequency is the minimum of these counters. All counters are
+ * halved after sample size increments, so that frequency of keys which are
+ * not accessed recently ages out.
+ * 
+ * This class is NOT thread-safe, caller must synchronize.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class FrequencySketch {
+    /**
+     * max counter value.
+     */
+    private static final int MAX_COUNT = 15;
+    /**
+     * row count.
+     */
+    private static final int DEPTH = 4;
+    /**
+     * sample size is width * SAMPLE_FACTOR.
+     */
+    private static final int SAMPLE_FACTOR = 10;
+    /**
+     * min width.
+     */
+    private static final int MIN_WIDTH = 16;
+    /**
+     * max width.
+     */
+    private static final int MAX_WIDTH = 1 << 24;
+    /**
+     * hash seeds of rows.
+     */
+    private static final int[] SEEDS = {0x97cb3127, 0xbf58476d, 0x94d049bb,
+            0x2545f491 };
+    /**
+     * counters of all rows.
+     */
+    private final byte[] counters;
+    /**
+     * width of row, power of 2.
+     */
+    private final int width;
+    /**
+     * increments before counters are halved.
+     */
+    private final int sampleSize;
+    /**
+     * increments since counters are halved.
+     */
+    private int size;
+
+    /**
+     * constructor.
+     * 
+     * @param expectedSize
+     *            expected key size, eg: max size of cache.
+     */
+    public FrequencySketch(int expectedSize) {
+        int expected = Math.min(Math.max(expectedSize, MIN_WIDTH), MAX_WIDTH);
+        int w = Integer.highestOneBit(expected);
+        if (w < expected) {
+            w <<= 1;
+        }
+        this.width = w;
+        this.sampleSize = w * SAMPLE_FACTOR;
+        this.counters = new byte[w * DEPTH];
+    }
+
+    /**
+     * increment frequency of key.
+     * 
+     * @param key
+     *            key.
+     */
+    public void increment(Object key) {
+        int hash = spread(key);
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * get approximate frequency of key.
+     * 
+     * @param key
+     *            key.
+     * @return frequency, 0 to 15.
+     */
+    public int frequency(Object key) {
+        int hash = spread(key);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * halve all counters.
+     */
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = (byte) (counters[i] >>> 1);
+        }
+        size = size >>> 1;
+    }
+
+    /**
+     * get counter index of hash in row.
+     * 
+     * @param hash
+     *            spread hash.
+     * @param row
+     *            row.
+     * @return counter index.
+     */
+    private int indexOf(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+
+    /**
+     * spread hash code of key.
+     * 
+     * @param key
+     *            key.
+     * @return hash.
+     */
+    private static int spread(Object key) {
+        int h = null == key ? 0 : key.hashCode();
+        h ^= h >>> 17;
+        h *= 0xed5ad4bb;
+        h ^= h >>> 11;
+        return h;
+    }
+}
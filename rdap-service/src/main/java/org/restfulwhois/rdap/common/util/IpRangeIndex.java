@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <pre>
+ * in-memory index of IP ranges, for finding the most specific range which
+ * contains an IP or network, in O(log n).
+ * 
+ * It is the same as sql:
+ *   where STARTADDRESS &lt;= start and ENDADDRESS &gt;= end
+ *   order by STARTADDRESS desc, ENDADDRESS limit 1
+ * 
+ * Ranges are sorted by start address asc and end address desc, then the
+ * answer is the last range, in ranges whose start address &lt;= start, whose
+ * end address &gt;= end. It is found by binary search and a max-end segment
+ * tree, so ranges can be nested or overlapped.
+ * 
+ * Address is stored as two unsigned longs, all ranges in an index must be
+ * the same IP version, and ranges with other address length are ignored.
+ * Call add() to add ranges, and call build() before find(). The built index
+ * is read only and thread-safe.
+ * </pre>
+ * 
+ * @param <V>
+ *            value type of range.
+ * @author jiashuo
+ * 
+ */
+public class IpRangeIndex<V> {
+    /**
+     * bytes of a long.
+     */
+    private static final int BYTES_OF_LONG = 8;
+    /**
+     * bits of a byte.
+     */
+    private static final int BITS_OF_BYTE = 8;
+    /**
+     * address length in bytes.
+     */
+    private final int addressLength;
+    /**
+     * ranges to be built.
+     */
+    private List<Range<V>> pendingRanges = new ArrayList<Range<V>>();
+    /**
+     * start address high 64 bits, sorted.
+     */
+    private long[] startHighs;
+    /**
+     * start address low 64 bits, sorted.
+     */
+    private long[] startLows;
+    /**
+     * end address high 64 bits, sorted with start.
+     */
+    private long[] endHighs;
+    /**
+     * end address low 64 bits, sorted with start.
+     */
+    private long[] endLows;
+    /**
+     * values, sorted with start.
+     */
+    private Object[] values;
+    /**
+     * segment tree, each node is the index of max end address in its range.
+     */
+    private int[] maxEndTree;
+    /**
+     * range count.
+     */
+    private int size;
+
+    /**
+     * constructor.
+     * 
+     * @param addressLength
+     *            address length in bytes, 4 for IPv4 and 16 for IPv6.
+     */
+    public IpRangeIndex(int addressLength) {
+        this.addressLength = addressLength;
+    }
+
+    /**
+     * add a range.
+     * 
+     * @param startAddress
+     *            start address.
+     * @param endAddress
+     *            end address.
+     * @param value
+     *            value.
+     * @return true if added, false if address length is not valid.
+     */
+    public boolean add(byte[] startAddress, byte[] endAddress, V value) {
+        if (null == pendingRanges) {
+            throw new IllegalStateException("index is already built.");
+        }
+        if (!isValidAddress(startAddress) || !isValidAddress(endAddress)) {
+            return false;
+        }
+        pendingRanges.add(new Range<V>(getHigh(startAddress),
+                getLow(startAddress), getHigh(endAddress),
+                getLow(endAddress), value));
+        return true;
+    }
+
+    /**
+     * build index, ranges can not be added after build.
+     */
+    public void build() {
+        List<Range<V>> ranges = pendingRanges;
+        pendingRanges = null;
+        Collections.sort(ranges, new Comparator<Range<V>>() {
+            @Override
+            public int compare(Range<V> r1, Range<V> r2) {
+                int result =
+                        compareUnsigned(r1.startHigh, r1.startLow,
+                                r2.startHigh, r2.startLow);
+                if (0 != result) {
+                    return result;
+                }
+                return compareUnsigned(r2.endHigh, r2.endLow, r1.endHigh,
+                        r1.endLow);
+            }
+        });
+        size = ranges.size();
+        startHighs = new long[size];
+        startLows = new long[size];
+        endHighs = new long[size];
+        endLows = new long[size];
+        values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            Range<V> range = ranges.get(i);
+            startHighs[i] = range.startHigh;
+            startLows[i] = range.startLow;
+            endHighs[i] = range.endHigh;
+            endLows[i] = range.endLow;
+            values[i] = range.value;
+        }
+        if (size > 0) {
+            maxEndTree = new int[4 * size];
+            buildTree(1, 0, size - 1);
+        }
+    }
+
+    /**
+     * find value of the most specific range which contains [start, end].
+     * 
+     * @param startAddress
+     *            start address.
+     * @param endAddress
+     *            end address.
+     * @return value, null if not found.
+     */
+    @SuppressWarnings("unchecked")
+    public V find(byte[] startAddress, byte[] endAddress) {
+        if (null == values) {
+            throw new IllegalStateException("index is not built.");
+        }
+        if (0 == size || !isValidAddress(startAddress)
+                || !isValidAddress(endAddress)) {
+            return null;
+        }
+        long startHigh = getHigh(startAddress);
+        long startLow = getLow(startAddress);
+        int last = findLastStartNotAfter(startHigh, startLow);
+        if (last < 0) {
+            return null;
+        }
+        int index =
+                findLastEndNotBefore(1, 0, size - 1, last,
+                        getHigh(endAddress), getLow(endAddress));
+        if (index < 0) {
+            return null;
+        }
+        return (V) values[index];
+    }
+
+    /**
+     * get range count.
+     * 
+     * @return range count.
+     */
+    public int size() {
+        return null == values ? pendingRanges.size() : size;
+    }
+
+    /**
+     * binary search the last range whose start address &lt;= address.
+     * 
+     * @param high
+     *            high 64 bits of address.
+     * @param low
+     *            low 64 bits of address.
+     * @return index, -1 if not found.
+     */
+    private int findLastStartNotAfter(long high, long low) {
+        int lo = 0;
+        int hi = size - 1;
+        int result = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareUnsigned(startHighs[mid], startLows[mid], high, low) <= 0) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * find the last range in [0, last] whose end address &gt;= address.
+     * 
+     * @param node
+     *            tree node.
+     * @param lo
+     *            low index of node.
+     * @param hi
+     *            high index of node.
+     * @param last
+     *            max index to find.
+     * @param high
+     *            high 64 bits of address.
+     * @param low
+     *            low 64 bits of address.
+     * @return index, -1 if not found.
+     */
+    private int findLastEndNotBefore(int node, int lo, int hi, int last,
+            long high, long low) {
+        if (lo > last) {
+            return -1;
+        }
+        int maxIndex = maxEndTree[node];
+        if (compareUnsigned(endHighs[maxIndex], endLows[maxIndex], high, low) < 0) {
+            return -1;
+        }
+        if (lo == hi) {
+            return lo;
+        }
+        int mid = (lo + hi) >>> 1;
+        int result =
+                findLastEndNotBefore(2 * node + 1, mid + 1, hi, last, high,
+                        low);
+        if (result >= 0) {
+            return result;
+        }
+        return findLastEndNotBefore(2 * node, lo, mid, last, high, low);
+    }
+
+    /**
+     * build max end segment tree.
+     * 
+     * @param node
+     *            tree node.
+     * @param lo
+     *            low index of node.
+     * @param hi
+     *            high index of node.
+     */
+    private void buildTree(int node, int lo, int hi) {
+        if (lo == hi) {
+            maxEndTree[node] = lo;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        buildTree(2 * node, lo, mid);
+        buildTree(2 * node + 1, mid + 1, hi);
+        int left = maxEndTree[2 * node];
+        int right = maxEndTree[2 * node + 1];
+        if (compareUnsigned(endHighs[left], endLows[left], endHighs[right],
+                endLows[right]) >= 0) {
+            maxEndTree[node] = left;
+        } else {
+            maxEndTree[node] = right;
+        }
+    }
+
+    /**
+     * check if address is valid for this index.
+     * 
+     * @param address
+     *            address.
+     * @return true if valid, false if not.
+     */
+    private boolean isValidAddress(byte[] address) {
+        return null != address && address.length == addressLength;
+    }
+
+    /**
+     * get high 64 bits of address.
+     * 
+     * @param address
+     *            address.
+     * @return high 64 bits, 0 if address is not more than 8 bytes.
+     */
+    private static long getHigh(byte[] address) {
+        if (address.length <= BYTES_OF_LONG) {
+            return 0L;
+        }
+        return toLong(address, 0, address.length - BYTES_OF_LONG);
+    }
+
+    /**
+     * get low 64 bits of address.
+     * 
+     * @param address
+     *            address.
+     * @return low 64 bits.
+     */
+    private static long getLow(byte[] address) {
+        int from = Math.max(0, address.length - BYTES_OF_LONG);
+        return toLong(address, from, address.length);
+    }
+
+    /**
+     * convert bytes to long.
+     * 
+     * @param bytes
+     *            bytes.
+     * @param from
+     *            from index, inclusive.
+     * @param to
+     *            to index, exclusive.
+     * @return long.
+     */
+    private static long toLong(byte[] bytes, int from, int to) {
+        long result = 0L;
+        for (int i = from; i < to; i++) {
+            result = (result << BITS_OF_BYTE) | (bytes[i] & 0xFF);
+        }
+        return result;
+    }
+
+    /**
+     * compare two unsigned 128 bits addresses.
+     * 
+     * @param high1
+     *            high 64 bits of address1.
+     * @param low1
+     *            low 64 bits of address1.
+     * @param high2
+     *            high 64 bits of address2.
+     * @param low2
+     *            low 64 bits of address2.
+     * @return negative if address1 &lt; address2, 0 if equal, positive if
+     *         address1 &gt; address2.
+     */
+    private static int compareUnsigned(long high1, long low1, long high2,
+            long low2) {
+        if (high1 != high2) {
+            return (high1 ^ Long.MIN_VALUE) < (high2 ^ Long.MIN_VALUE) ? -1
+                    : 1;
+        }
+        if (low1 != low2) {
+            return (low1 ^ Long.MIN_VALUE) < (low2 ^ Long.MIN_VALUE) ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * range to be built.
+     * 
+     * @param <V>
+     *            value type.
+     */
+    private static class Range<V> {
+        /**
+         * start address high 64 bits.
+         */
+        private final long startHigh;
+        /**
+         * start address low 64 bits.
+         */
+        private final long startLow;
+        /**
+         * end address high 64 bits.
+         */
+        private final long endHigh;
+        /**
+         * end address low 64 bits.
+         */
+        private final long endLow;
+        /**
+         * value.
+         */
+        private final V value;
+
+        /**
+         * constructor.
+         * 
+         * @param startHigh
+         *            start address high 64 bits.
+         * @param startLow
+         *            start address low 64 bits.
+         * @param endHigh
+         *            end address high 64 bits.
+         * @param endLow
+         *            end address low 64 bits.
+         * @param value
+         *            value.
+         */
+        Range(long startHigh, long startLow, long endHigh, long endLow,
+                V value) {
+            this.startHigh = startHigh;
+            this.startLow = startLow;
+            this.endHigh = endHigh;
+            this.endLow = endLow;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <pre>
+ * in-memory index of long ranges, eg: autnum ranges, for finding the
+ * smallest range which contains a value.
+ * 
+ * It is the same as sql:
+ *   where START &lt;= value and END &gt;= value order by END - START limit 1
+ * 
+ * Ranges are stored in primitive long arrays, sorted by start asc and end
+ * desc, and each range keeps the index of its nearest enclosing range.
+ * Lookup is a binary search for the last range whose start &lt;= value, then
+ * walking up enclosing ranges until one contains value, so it is
+ * O(log n + nesting depth).
+ * If ranges are partially overlapped, which is not expected for registry
+ * data, lookup falls back to scanning ranges whose start &lt;= value.
+ * 
+ * Call add() to add ranges, and call build() before find(). The built index
+ * is read only and thread-safe.
+ * </pre>
+ * 
+ * @param <V>
+ *            value type of range.
+ * @author jiashuo
+ * 
+ */
+public class LongRangeIndex<V> {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(LongRangeIndex.class);
+    /**
+     * no enclosing range.
+     */
+    private static final int NO_PARENT = -1;
+    /**
+     * ranges to be built.
+     */
+    private List<Range<V>> pendingRanges = new ArrayList<Range<V>>();
+    /**
+     * starts, sorted.
+     */
+    private long[] starts;
+    /**
+     * ends, sorted with start.
+     */
+    private long[] ends;
+    /**
+     * index of nearest enclosing range.
+     */
+    private int[] parents;
+    /**
+     * values, sorted with start.
+     */
+    private Object[] values;
+    /**
+     * true if no ranges are partially overlapped.
+     */
+    private boolean nested = true;
+
+    /**
+     * add a range.
+     * 
+     * @param start
+     *            start, inclusive.
+     * @param end
+     *            end, inclusive.
+     * @param value
+     *            value.
+     * @return true if added, false if start &gt; end.
+     */
+    public boolean add(long start, long end, V value) {
+        if (null == pendingRanges) {
+            throw new IllegalStateException("index is already built.");
+        }
+        if (start > end) {
+            return false;
+        }
+        pendingRanges.add(new Range<V>(start, end, value));
+        return true;
+    }
+
+    /**
+     * build index, ranges can not be added after build.
+     */
+    public void build() {
+        List<Range<V>> ranges = pendingRanges;
+        pendingRanges = null;
+        Collections.sort(ranges, new Comparator<Range<V>>() {
+            @Override
+            public int compare(Range<V> r1, Range<V> r2) {
+                if (r1.start != r2.start) {
+                    return r1.start < r2.start ? -1 : 1;
+                }
+                if (r1.end != r2.end) {
+                    return r1.end > r2.end ? -1 : 1;
+                }
+                return 0;
+            }
+        });
+        int size = ranges.size();
+        starts = new long[size];
+        ends = new long[size];
+        parents = new int[size];
+        values = new Object[size];
+        int[] stack = new int[size];
+        int stackSize = 0;
+        for (int i = 0; i < size; i++) {
+            Range<V> range = ranges.get(i);
+            starts[i] = range.start;
+            ends[i] = range.end;
+            values[i] = range.value;
+            while (stackSize > 0 && ends[stack[stackSize - 1]] < starts[i]) {
+                stackSize--;
+            }
+            parents[i] = NO_PARENT;
+            if (stackSize > 0) {
+                int top = stack[stackSize - 1];
+                if (ends[top] >= ends[i]) {
+                    parents[i] = top;
+                } else {
+                    nested = false;
+                }
+            }
+            stack[stackSize++] = i;
+        }
+        if (!nested) {
+            LOGGER.warn("ranges are partially overlapped, lookup may be slow.");
+        }
+    }
+
+    /**
+     * find value of the smallest range which contains value.
+     * 
+     * @param value
+     *            value.
+     * @return value of range, null if not found.
+     */
+    @SuppressWarnings("unchecked")
+    public V find(long value) {
+        if (null == values) {
+            throw new IllegalStateException("index is not built.");
+        }
+        int index = findLastStartNotAfter(value);
+        if (nested) {
+            while (index >= 0 && ends[index] < value) {
+                index = parents[index];
+            }
+        } else {
+            index = findSmallestByScan(index, value);
+        }
+        if (index < 0) {
+            return null;
+        }
+        return (V) values[index];
+    }
+
+    /**
+     * get range count.
+     * 
+     * @return range count.
+     */
+    public int size() {
+        return null == values ? pendingRanges.size() : values.length;
+    }
+
+    /**
+     * binary search the last range whose start &lt;= value.
+     * 
+     * @param value
+     *            value.
+     * @return index, -1 if not found.
+     */
+    private int findLastStartNotAfter(long value) {
+        int lo = 0;
+        int hi = starts.length - 1;
+        int result = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= value) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * scan ranges in [0, last], find the smallest one which contains value.
+     * 
+     * @param last
+     *            max index to scan.
+     * @param value
+     *            value.
+     * @return index, -1 if not found.
+     */
+    private int findSmallestByScan(int last, long value) {
+        int result = -1;
+        for (int i = last; i >= 0; i--) {
+            if (ends[i] < value) {
+                continue;
+            }
+            if (result < 0
+                    || ends[i] - starts[i] < ends[result] - starts[result]) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * range to be built.
+     * 
+     * @param <V>
+     *            value type.
+     */
+    private static class Range<V> {
+        /**
+         * start.
+         */
+        private final long start;
+        /**
+         * end.
+         */
+        private final long end;
+        /**
+         * value.
+         */
+        private final V value;
+
+        /**
+         * constructor.
+         * 
+         * @param start
+         *            start.
+         * @param end
+         *            end.
+         * @param value
+         *            value.
+         */
+        Range(long start, long end, V value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+    }
+}
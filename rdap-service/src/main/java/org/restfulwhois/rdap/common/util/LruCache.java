@@ -0,0 +1,476 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * A bounded in-memory cache, the least recently used entry is removed when
+ * the cache exceeds max size.
+ * Entry expires after time-to-live, and will be removed when it is got.
+ * Cache is disabled if max size is not more than 0: put does nothing and get
+ * always returns null.
+ * If frequency admission is enabled, a new key is put into a full cache only
+ * if it is accessed more often than the least recently used key, which is
+ * estimated by FrequencySketch (TinyLFU). This keeps one-hit keys from
+ * flushing frequently used ones.
+ * Large cache is split into segments by key hash, each segment has its own
+ * lock, LRU order, max size and sketch, so that get and put of different
+ * segments do not block each other. Small cache has one segment and is
+ * exactly LRU.
+ * This class is thread-safe.
+ * </pre>
+ * 
+ * @param <K>
+ *            key type.
+ * @param <V>
+ *            value type.
+ * @author jiashuo
+ * 
+ */
+public class LruCache<K, V> {
+    /**
+     * default load factor of map.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+    /**
+     * max initial capacity of map.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+    /**
+     * max segment count, power of 2.
+     */
+    private static final int MAX_SEGMENT_COUNT = 16;
+    /**
+     * min max size of segment, cache is not split into segments smaller than
+     * it.
+     */
+    private static final int MIN_SEGMENT_SIZE = 64;
+    /**
+     * max entry size.
+     */
+    private final int maxSize;
+    /**
+     * time to live, in milliseconds. 0 or negative means never expire.
+     */
+    private final long ttlMillis;
+    /**
+     * segments, count is power of 2.
+     */
+    private final Segment<K, V>[] segments;
+    /**
+     * hit count.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+    /**
+     * miss count.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * constructor.
+     * 
+     * @param maxSize
+     *            max entry size, 0 or negative means cache is disabled.
+     * @param ttlMillis
+     *            time to live in milliseconds, 0 or negative means never
+     *            expire.
+     */
+    public LruCache(final int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, false);
+    }
+
+    /**
+     * constructor.
+     * 
+     * @param maxSize
+     *            max entry size, 0 or negative means cache is disabled.
+     * @param ttlMillis
+     *            time to live in milliseconds, 0 or negative means never
+     *            expire.
+     * @param frequencyAdmission
+     *            true if new key is admitted by access frequency.
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(final int maxSize, long ttlMillis,
+            boolean frequencyAdmission) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        int segmentCount = getSegmentCount(maxSize);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentMaxSize = maxSize / segmentCount;
+            if (i < maxSize % segmentCount) {
+                segmentMaxSize++;
+            }
+            segments[i] =
+                    new Segment<K, V>(Math.max(segmentMaxSize, 0),
+                            frequencyAdmission);
+        }
+    }
+
+    /**
+     * get segment count for max size: the max power of 2 not more than
+     * MAX_SEGMENT_COUNT, with which each segment is not smaller than
+     * MIN_SEGMENT_SIZE.
+     * 
+     * @param maxSize
+     *            max entry size.
+     * @return segment count.
+     */
+    static int getSegmentCount(int maxSize) {
+        int count = 1;
+        while (count < MAX_SEGMENT_COUNT
+                && maxSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+            count *= 2;
+        }
+        return count;
+    }
+
+    /**
+     * get segment of key.
+     * 
+     * @param key
+     *            key.
+     * @return segment.
+     */
+    private Segment<K, V> segmentFor(K key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        int h = null == key ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * check if cache is enabled.
+     * 
+     * @return true if max size is more than 0, false if not.
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * get value from cache.
+     * 
+     * @param key
+     *            key.
+     * @return value if exist and not expired, null if not.
+     */
+    public V get(K key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        V value = segmentFor(key).get(key, System.currentTimeMillis());
+        if (null == value) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * put value to cache.
+     * 
+     * @param key
+     *            key.
+     * @param value
+     *            value, null value is ignored.
+     */
+    public void put(K key, V value) {
+        if (!isEnabled() || null == value) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expireTime = Long.MAX_VALUE;
+        if (ttlMillis > 0) {
+            expireTime = now + ttlMillis;
+        }
+        segmentFor(key).put(key, new CacheEntry<V>(value, expireTime), now);
+    }
+
+    /**
+     * remove value from cache.
+     * 
+     * @param key
+     *            key.
+     */
+    public void remove(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * remove all values from cache.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * get entry size, expired entries which are not removed are included.
+     * 
+     * @return size.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * get hit count.
+     * 
+     * @return hit count.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * get miss count.
+     * 
+     * @return miss count.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * get max size.
+     * 
+     * @return max size.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * segment of cache, entries in access order guarded by the segment lock.
+     * 
+     * @param <K>
+     *            key type.
+     * @param <V>
+     *            value type.
+     */
+    private static class Segment<K, V> {
+        /**
+         * max entry size of segment.
+         */
+        private final int maxSize;
+        /**
+         * entries, in access order.
+         */
+        private final Map<K, CacheEntry<V>> entries;
+        /**
+         * access frequency, null if frequency admission is disabled.
+         */
+        private final FrequencySketch sketch;
+
+        /**
+         * constructor.
+         * 
+         * @param maxSize
+         *            max entry size of segment.
+         * @param frequencyAdmission
+         *            true if new key is admitted by access frequency.
+         */
+        Segment(final int maxSize, boolean frequencyAdmission) {
+            this.maxSize = maxSize;
+            if (frequencyAdmission && maxSize > 0) {
+                this.sketch = new FrequencySketch(maxSize);
+            } else {
+                this.sketch = null;
+            }
+            int initialCapacity = Math.min(maxSize, MAX_INITIAL_CAPACITY);
+            this.entries =
+                    new LinkedHashMap<K, CacheEntry<V>>(initialCapacity,
+                            LOAD_FACTOR, true) {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected boolean removeEldestEntry(
+                                Map.Entry<K, CacheEntry<V>> eldest) {
+                            return size() > Segment.this.maxSize;
+                        }
+                    };
+        }
+
+        /**
+         * get value.
+         * 
+         * @param key
+         *            key.
+         * @param now
+         *            current time, in milliseconds.
+         * @return value if exist and not expired, null if not.
+         */
+        synchronized V get(K key, long now) {
+            if (null != sketch) {
+                sketch.increment(key);
+            }
+            CacheEntry<V> entry = entries.get(key);
+            if (null == entry) {
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.getValue();
+        }
+
+        /**
+         * put entry if admitted.
+         * 
+         * @param key
+         *            key.
+         * @param entry
+         *            entry.
+         * @param now
+         *            current time, in milliseconds.
+         */
+        synchronized void put(K key, CacheEntry<V> entry, long now) {
+            if (!admit(key, now)) {
+                return;
+            }
+            entries.put(key, entry);
+        }
+
+        /**
+         * check if key can be put into segment, caller must hold the lock.
+         * 
+         * @param key
+         *            key.
+         * @param now
+         *            current time, in milliseconds.
+         * @return true if admission is disabled, segment is not full, or key
+         *         is accessed more often than the least recently used key.
+         */
+        private boolean admit(K key, long now) {
+            if (null == sketch || entries.size() < maxSize
+                    || entries.containsKey(key)) {
+                return true;
+            }
+            Map.Entry<K, CacheEntry<V>> eldest =
+                    entries.entrySet().iterator().next();
+            if (eldest.getValue().isExpired(now)) {
+                return true;
+            }
+            return sketch.frequency(key) > sketch.frequency(eldest.getKey());
+        }
+
+        /**
+         * remove entry.
+         * 
+         * @param key
+         *            key.
+         */
+        synchronized void remove(K key) {
+            entries.remove(key);
+        }
+
+        /**
+         * remove all entries.
+         */
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        /**
+         * get entry size.
+         * 
+         * @return size.
+         */
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * cache entry with expire time.
+     * 
+     * @param <V>
+     *            value type.
+     */
+    private static class CacheEntry<V> {
+        /**
+         * value.
+         */
+        private final V value;
+        /**
+         * expire time, in milliseconds.
+         */
+        private final long expireTime;
+
+        /**
+         * constructor.
+         * 
+         * @param value
+         *            value.
+         * @param expireTime
+         *            expire time, in milliseconds.
+         */
+        CacheEntry(V value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        /**
+         * check if expired.
+         * 
+         * @param now
+         *            current time, in milliseconds.
+         * @return true if expired, false if not.
+         */
+        boolean isExpired(long now) {
+            return now > expireTime;
+        }
+
+        /**
+         * get value.
+         * 
+         * @return value.
+         */
+        V getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,634 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * <pre>
+ * in-memory trigram index of names, eg: domain LDH name and unicode name,
+ * for searching names by wildcard patterns like '*bank*'.
+ * 
+ * It is the same as sql:
+ *   where FIELD0 like ? or FIELD1 like ? order by SORT_KEY, ID limit ?
+ * 
+ * Entries are sorted by sort key and id, and each entry is identified by its
+ * position in sorted entries. For each trigram of each field, the positions
+ * of entries containing it are stored as a delta and varint encoded byte
+ * array. Search intersects positions of trigrams in literal parts of the
+ * pattern, from the shortest one, and then verifies each candidate by the
+ * pattern, in sort order, until limit is reached.
+ * 
+ * Names and patterns are compared as is, the same as utf8_bin collation of
+ * RDAP tables. Patterns containing '%' or '_', which are wildcards of sql
+ * 'like', and patterns without any 3 continuous literal characters, can not
+ * be searched by index, and search returns null for them.
+ * 
+ * Call add() to add entries, and call build() before search(). The built
+ * index is read only and thread-safe.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class TrigramIndex {
+    /**
+     * wildcard in pattern.
+     */
+    public static final String WILDCARD = "*";
+    /**
+     * gram length.
+     */
+    private static final int GRAM_LENGTH = 3;
+    /**
+     * bits of a char in trigram key.
+     */
+    private static final int CHAR_BITS = 16;
+    /**
+     * candidates are verified directly if less than this count, instead of
+     * intersecting more trigrams.
+     */
+    private static final int ENOUGH_CANDIDATES = 256;
+    /**
+     * order of entries: by sort key, null first, and then by id.
+     */
+    public static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            if (o1.sortKey != o2.sortKey) {
+                if (null == o1.sortKey) {
+                    return -1;
+                }
+                if (null == o2.sortKey) {
+                    return 1;
+                }
+                int result = o1.sortKey.compareTo(o2.sortKey);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return o1.id < o2.id ? -1 : (o1.id == o2.id ? 0 : 1);
+        }
+    };
+    /**
+     * entries to be built.
+     */
+    private List<Entry> pendingEntries = new ArrayList<Entry>();
+    /**
+     * entries, sorted by ORDER.
+     */
+    private Entry[] entries;
+    /**
+     * encoded positions, by trigram key.
+     */
+    private Map<Long, byte[]> postings;
+
+    /**
+     * add an entry.
+     * 
+     * @param entry
+     *            entry.
+     */
+    public void add(Entry entry) {
+        if (null == pendingEntries) {
+            throw new IllegalStateException("index is already built.");
+        }
+        pendingEntries.add(entry);
+    }
+
+    /**
+     * build index, entries can not be added after built.
+     */
+    public void build() {
+        if (null == pendingEntries) {
+            return;
+        }
+        entries = pendingEntries.toArray(new Entry[pendingEntries.size()]);
+        pendingEntries = null;
+        Arrays.sort(entries, ORDER);
+        Map<Long, PositionsBuilder> builders =
+                new HashMap<Long, PositionsBuilder>();
+        for (int position = 0; position < entries.length; position++) {
+            String[] fields = entries[position].fields;
+            for (int field = 0; field < fields.length; field++) {
+                String value = fields[field];
+                if (null == value) {
+                    continue;
+                }
+                for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+                    Long key = trigramKey(field, value, i);
+                    PositionsBuilder builder = builders.get(key);
+                    if (null == builder) {
+                        builder = new PositionsBuilder();
+                        builders.put(key, builder);
+                    }
+                    builder.add(position);
+                }
+            }
+        }
+        postings = new HashMap<Long, byte[]>(builders.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, PositionsBuilder> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+    }
+
+    /**
+     * get entry count.
+     * 
+     * @return count.
+     */
+    public int size() {
+        return null == entries ? 0 : entries.length;
+    }
+
+    /**
+     * search entries matching any field pattern, in ORDER.
+     * 
+     * @param patterns
+     *            patterns of fields, '*' is wildcard, null if field is not
+     *            searched.
+     * @param after
+     *            only entries after it are returned, null for all.
+     * @param limit
+     *            max count.
+     * @param excludedIds
+     *            ids not returned, may be null.
+     * @return entries, or null if patterns can not be searched by index.
+     */
+    public List<Entry> search(String[] patterns, Entry after, int limit,
+            Set<Long> excludedIds) {
+        if (null == entries) {
+            throw new IllegalStateException("index is not built.");
+        }
+        if (!isSearchable(patterns)) {
+            return null;
+        }
+        int[] candidates = null;
+        for (int field = 0; field < patterns.length; field++) {
+            if (null == patterns[field]) {
+                continue;
+            }
+            int[] fieldCandidates = findCandidates(field, patterns[field]);
+            if (null == fieldCandidates) {
+                return null;
+            }
+            candidates =
+                    null == candidates ? fieldCandidates : union(candidates,
+                            fieldCandidates);
+        }
+        if (null == candidates) {
+            return null;
+        }
+        int start = 0;
+        if (null != after) {
+            int firstAfter = firstPositionAfter(after);
+            start = Arrays.binarySearch(candidates, firstAfter);
+            start = start >= 0 ? start : -start - 1;
+        }
+        List<Entry> result = new ArrayList<Entry>();
+        for (int i = start; i < candidates.length && result.size() < limit;
+                i++) {
+            Entry entry = entries[candidates[i]];
+            if (null != excludedIds && excludedIds.contains(entry.id)) {
+                continue;
+            }
+            if (matches(entry, patterns)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * scan all entries matching any field pattern, in ORDER. It is used for
+     * patterns which can not be searched by trigrams, and costs linear time.
+     *
+     * @param patterns
+     *            patterns of fields, '*' is wildcard, null if field is not
+     *            searched.
+     * @param after
+     *            only entries after it are returned, null for all.
+     * @param limit
+     *            max count.
+     * @param excludedIds
+     *            ids not returned, may be null.
+     * @return entries.
+     */
+    public List<Entry> scan(String[] patterns, Entry after, int limit,
+            Set<Long> excludedIds) {
+        if (null == entries) {
+            throw new IllegalStateException("index is not built.");
+        }
+        int start = null == after ? 0 : firstPositionAfter(after);
+        List<Entry> result = new ArrayList<Entry>();
+        for (int i = start; i < entries.length && result.size() < limit; i++) {
+            Entry entry = entries[i];
+            if (null != excludedIds && excludedIds.contains(entry.id)) {
+                continue;
+            }
+            if (matches(entry, patterns)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * check if entry matches any field pattern.
+     * 
+     * @param entry
+     *            entry.
+     * @param patterns
+     *            patterns of fields, '*' is wildcard, null if field is not
+     *            searched.
+     * @return true if matches, false if not.
+     */
+    public static boolean matches(Entry entry, String[] patterns) {
+        int count = Math.min(patterns.length, entry.fields.length);
+        for (int field = 0; field < count; field++) {
+            if (null != patterns[field] && null != entry.fields[field]
+                    && globMatches(entry.fields[field], patterns[field])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * check if patterns can be searched by index.
+     * 
+     * @param patterns
+     *            patterns of fields.
+     * @return true if can, false if not.
+     */
+    public static boolean isSearchable(String[] patterns) {
+        boolean hasPattern = false;
+        for (String pattern : patterns) {
+            if (null == pattern) {
+                continue;
+            }
+            if (StringUtils.containsAny(pattern, "%_")
+                    || longestLiteralLength(pattern) < GRAM_LENGTH) {
+                return false;
+            }
+            hasPattern = true;
+        }
+        return hasPattern;
+    }
+
+    /**
+     * get length of longest literal part of pattern.
+     * 
+     * @param pattern
+     *            pattern.
+     * @return length.
+     */
+    private static int longestLiteralLength(String pattern) {
+        int longest = 0;
+        for (String literal : StringUtils.split(pattern, WILDCARD)) {
+            longest = Math.max(longest, literal.length());
+        }
+        return longest;
+    }
+
+    /**
+     * check if value matches wildcard pattern.
+     * 
+     * @param value
+     *            value.
+     * @param pattern
+     *            pattern.
+     * @return true if matches, false if not.
+     */
+    static boolean globMatches(String value, String pattern) {
+        String[] parts = StringUtils.splitPreserveAllTokens(pattern, WILDCARD);
+        if (parts.length == 1) {
+            return value.equals(pattern);
+        }
+        String first = parts[0];
+        String last = parts[parts.length - 1];
+        if (!value.startsWith(first) || !value.endsWith(last)
+                || first.length() + last.length() > value.length()) {
+            return false;
+        }
+        int from = first.length();
+        int end = value.length() - last.length();
+        for (int i = 1; i < parts.length - 1; i++) {
+            if (parts[i].isEmpty()) {
+                continue;
+            }
+            int found = value.indexOf(parts[i], from);
+            if (found < 0 || found + parts[i].length() > end) {
+                return false;
+            }
+            from = found + parts[i].length();
+        }
+        return true;
+    }
+
+    /**
+     * find candidate positions of field pattern, by intersecting positions
+     * of trigrams, shortest first.
+     * 
+     * @param field
+     *            field.
+     * @param pattern
+     *            pattern.
+     * @return sorted positions, maybe not matched.
+     */
+    private int[] findCandidates(int field, String pattern) {
+        List<byte[]> lists = new ArrayList<byte[]>();
+        for (String literal : StringUtils.split(pattern, WILDCARD)) {
+            for (int i = 0; i + GRAM_LENGTH <= literal.length(); i++) {
+                byte[] positions = postings.get(trigramKey(field, literal, i));
+                if (null == positions) {
+                    return new int[0];
+                }
+                lists.add(positions);
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        Collections.sort(lists, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] o1, byte[] o2) {
+                return o1.length - o2.length;
+            }
+        });
+        int[] candidates = decode(lists.get(0));
+        for (int i = 1; i < lists.size()
+                && candidates.length > ENOUGH_CANDIDATES; i++) {
+            if (lists.get(i) == lists.get(i - 1)) {
+                continue;
+            }
+            candidates = intersect(candidates, lists.get(i));
+        }
+        return candidates;
+    }
+
+    /**
+     * get first position after entry.
+     * 
+     * @param after
+     *            entry.
+     * @return position.
+     */
+    private int firstPositionAfter(Entry after) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(entries[mid], after) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * get trigram key.
+     * 
+     * @param field
+     *            field.
+     * @param value
+     *            value.
+     * @param start
+     *            start of trigram in value.
+     * @return key.
+     */
+    private static Long trigramKey(int field, String value, int start) {
+        long key = field;
+        for (int i = start; i < start + GRAM_LENGTH; i++) {
+            key = (key << CHAR_BITS) | value.charAt(i);
+        }
+        return key;
+    }
+
+    /**
+     * decode positions.
+     * 
+     * @param encoded
+     *            encoded positions.
+     * @return positions.
+     */
+    private static int[] decode(byte[] encoded) {
+        int[] result = new int[encoded.length];
+        int count = 0;
+        int position = 0;
+        int i = 0;
+        while (i < encoded.length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[i++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            position += delta;
+            result[count++] = position;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * intersect sorted positions with encoded positions.
+     * 
+     * @param positions
+     *            sorted positions.
+     * @param encoded
+     *            encoded positions.
+     * @return positions in both.
+     */
+    private static int[] intersect(int[] positions, byte[] encoded) {
+        int[] result = new int[positions.length];
+        int count = 0;
+        int index = 0;
+        int position = 0;
+        int i = 0;
+        while (i < encoded.length && index < positions.length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[i++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            position += delta;
+            while (index < positions.length && positions[index] < position) {
+                index++;
+            }
+            if (index < positions.length && positions[index] == position) {
+                result[count++] = position;
+                index++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * union sorted positions.
+     * 
+     * @param first
+     *            sorted positions.
+     * @param second
+     *            sorted positions.
+     * @return sorted positions in any.
+     */
+    private static int[] union(int[] first, int[] second) {
+        int[] result = new int[first.length + second.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            int value;
+            if (j >= second.length
+                    || (i < first.length && first[i] <= second[j])) {
+                value = first[i++];
+            } else {
+                value = second[j++];
+            }
+            if (count == 0 || result[count - 1] != value) {
+                result[count++] = value;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * builder of encoded positions, positions are added in ascending order.
+     */
+    private static class PositionsBuilder {
+        /**
+         * encoded bytes.
+         */
+        private final ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(8);
+        /**
+         * last added position.
+         */
+        private int lastPosition = -1;
+
+        /**
+         * add position, duplicated position is ignored.
+         * 
+         * @param position
+         *            position.
+         */
+        void add(int position) {
+            if (position == lastPosition) {
+                return;
+            }
+            int delta = lastPosition < 0 ? position : position - lastPosition;
+            lastPosition = position;
+            while ((delta & ~0x7F) != 0) {
+                bytes.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes.write(delta);
+        }
+
+        /**
+         * get encoded bytes.
+         * 
+         * @return bytes.
+         */
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * entry of index.
+     */
+    public static class Entry {
+        /**
+         * id.
+         */
+        private final long id;
+        /**
+         * sort key.
+         */
+        private final String sortKey;
+        /**
+         * field values.
+         */
+        private final String[] fields;
+
+        /**
+         * constructor.
+         * 
+         * @param id
+         *            id.
+         * @param sortKey
+         *            sort key, may be null.
+         * @param fields
+         *            field values, may be null.
+         */
+        public Entry(long id, String sortKey, String... fields) {
+            this.id = id;
+            this.sortKey = sortKey;
+            this.fields = fields;
+        }
+
+        /**
+         * get id.
+         * 
+         * @return id.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * get sort key.
+         * 
+         * @return sort key.
+         */
+        public String getSortKey() {
+            return sortKey;
+        }
+    }
+}
@@ -38,9 +38,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
+import org.restfulwhois.rdap.common.dao.ReplicaRoutingDataSource;
 import org.restfulwhois.rdap.common.dao.impl.SelfLinkGenerator;
 import org.restfulwhois.rdap.common.model.Autnum;
 import org.restfulwhois.rdap.common.model.Entity;
@@ -49,12 +51,16 @@ import org.restfulwhois.rdap.common.model.Link;
 import org.restfulwhois.rdap.common.model.Remark;
 import org.restfulwhois.rdap.common.model.base.ModelType;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.AutnumUtil;
+import org.restfulwhois.rdap.common.util.LongRangeIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -66,6 +72,13 @@ import org.springframework.stereotype.Repository;
  * query, queryAsInnerObjects methods overrite the counterpart 
  * in abstractQueryDao.
  * ResultSetExtractor, createPreparedStatement implement from jdbc.
+ * 
+ * Autnum is found by in-memory LongRangeIndex of AS_ID, which finds the
+ * smallest autnum range, and then selected by AS_ID. Index is cleared by
+ * AutnumUpdateDaoImpl after autnum is changed, and reloaded after
+ * autnumIndexTtlSeconds for changes made out of this application.
+ * Autnum not found by index, or changed after index is loaded, is looked up
+ * in database, and index is reloaded if it is found there.
  * </pre>
  * 
  * @author jiashuo
@@ -79,6 +92,20 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(AutnumQueryDaoImpl.class);    
+    /**
+     * autnum columns selected by autnum query SQL, in the order
+     * AutnumResultSetExtractor reads them by index. Must be the first columns
+     * of select list.
+     */
+    private static final String SQL_AUTNUM_COLUMNS =
+            "autnum.AS_ID,autnum.HANDLE,autnum.START_AUTNUM,"
+                    + "autnum.END_AUTNUM,autnum.NAME,autnum.TYPE,"
+                    + "autnum.COUNTRY,autnum.LANG,autnum.PORT43,"
+                    + "autnum.CUSTOM_PROPERTIES";
+    /**
+     * count of SQL_AUTNUM_COLUMNS, other columns start after it.
+     */
+    private static final int AUTNUM_COLUMN_COUNT = 10;
     
     /**
      * remarkQueryDao.
@@ -104,6 +131,22 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
      */
     @Autowired
     private QueryDao<Entity> entityQueryDao;
+
+    /**
+     * select all autnum ranges, for building index.
+     */
+    private static final String SELECT_ALL_RANGES =
+            "select AS_ID,START_AUTNUM,END_AUTNUM from RDAP_AUTNUM";
+
+    /**
+     * AS_ID index, null if not loaded.
+     */
+    private volatile LongRangeIndex<Long> asIdIndex;
+
+    /**
+     * expire time of asIdIndex, in milliseconds.
+     */
+    private volatile long asIdIndexExpireTime;
     
     /**
      * query an autnum.
@@ -189,7 +232,8 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
      */
     private List<Autnum> queryWithoutInnerObjects(final Long outerObjectId) {
         final String sql =
-                "select * from RDAP_AUTNUM autnum inner join "
+                "select " + SQL_AUTNUM_COLUMNS + ",status.STATUS"
+                        + " from RDAP_AUTNUM autnum inner join "
                         + " REL_ENTITY_REGISTRATION rel "
                         + " on autnum.AS_ID = rel.REL_ID "
                         + " left outer join RDAP_AUTNUM_STATUS status "
@@ -241,9 +285,40 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
      * @return autnum
      */
     private Autnum queryWithoutInnerObjects(QueryParam queryParam) {
-        final String autnumQ = queryParam.getQ();
+        Long autnumQ = AutnumUtil.parseAutnum(queryParam.getQ());
+        if (null == autnumQ) {
+            return null;
+        }
+        Long asId = getAsIdIndex().find(autnumQ);
+        if (null != asId) {
+            Autnum autnum = queryWithoutInnerObjectsById(asId);
+            if (null != autnum && autnum.getStartAutnum() <= autnumQ
+                    && autnum.getEndAutnum() >= autnumQ) {
+                return autnum;
+            }
+        }
+        Autnum autnum = queryWithoutInnerObjectsByRange(autnumQ);
+        if (null != autnum) {
+            LOGGER.info("autnum index is stale, reload it. asId:{}", asId);
+            clearIndex();
+        }
+        return autnum;
+    }
+
+    /**
+     * query the smallest autnum containing autnumQ from database, without
+     * inner objects. Used when index misses, for autnum changed out of this
+     * application after index is loaded.
+     * 
+     * @param autnumQ
+     *            autnum.
+     * @return autnum, null if not found.
+     */
+    private Autnum queryWithoutInnerObjectsByRange(final Long autnumQ) {
         final String sql =
-                "select *,end_autnum - start_autnum as asInterval "
+                "select " + SQL_AUTNUM_COLUMNS + ",status.STATUS,"
+                        + "autnum.END_AUTNUM - autnum.START_AUTNUM"
+                        + " as asInterval"
                         + " from RDAP_AUTNUM autnum "
                         + " left outer join RDAP_AUTNUM_STATUS status "
                         + " on autnum.as_id = status.as_id "
@@ -255,8 +330,39 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
                     public PreparedStatement createPreparedStatement(
                             Connection conn) throws SQLException {
                         PreparedStatement ps = conn.prepareStatement(sql);
-                        ps.setString(1, autnumQ);
-                        ps.setString(2, autnumQ);
+                        ps.setLong(1, autnumQ);
+                        ps.setLong(2, autnumQ);
+                        return ps;
+                    }
+                }, new AutnumResultSetExtractor());
+        Autnum autnum = null;
+        if (null != result && result.size() > 0) {
+            autnum = result.get(0);
+        }
+        return autnum;
+    }
+
+    /**
+     * query autnum by id, without inner objects.
+     * 
+     * @param asId
+     *            AS_ID.
+     * @return autnum, null if not found.
+     */
+    private Autnum queryWithoutInnerObjectsById(final Long asId) {
+        final String sql =
+                "select " + SQL_AUTNUM_COLUMNS + ",status.STATUS"
+                        + " from RDAP_AUTNUM autnum "
+                        + " left outer join RDAP_AUTNUM_STATUS status "
+                        + " on autnum.as_id = status.as_id "
+                        + " where autnum.as_id = ?";
+        List<Autnum> result =
+                jdbcTemplate.query(new PreparedStatementCreator() {
+                    @Override
+                    public PreparedStatement createPreparedStatement(
+                            Connection conn) throws SQLException {
+                        PreparedStatement ps = conn.prepareStatement(sql);
+                        ps.setLong(1, asId);
                         return ps;
                     }
                 }, new AutnumResultSetExtractor());
@@ -267,6 +373,72 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
         return autnum;
     }
 
+    /**
+     * get AS_ID index, load it if not loaded or expired.
+     * 
+     * @return index.
+     */
+    private LongRangeIndex<Long> getAsIdIndex() {
+        LongRangeIndex<Long> currentIndex = asIdIndex;
+        if (null != currentIndex
+                && System.currentTimeMillis() < asIdIndexExpireTime) {
+            return currentIndex;
+        }
+        return loadAsIdIndex();
+    }
+
+    /**
+     * load AS_ID index from database.
+     * 
+     * @return index.
+     */
+    private synchronized LongRangeIndex<Long> loadAsIdIndex() {
+        long now = System.currentTimeMillis();
+        if (null != asIdIndex && now < asIdIndexExpireTime) {
+            return asIdIndex;
+        }
+        final LongRangeIndex<Long> newIndex = new LongRangeIndex<Long>();
+        // load from primary, a missing autnum in index loaded from a
+        // lagging replica costs a range query until index expires.
+        boolean readOnly = ReplicaRoutingDataSource.setReadOnly(false);
+        try {
+            jdbcTemplate.query(SELECT_ALL_RANGES, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    newIndex.add(rs.getLong("START_AUTNUM"),
+                            rs.getLong("END_AUTNUM"), rs.getLong("AS_ID"));
+                }
+            });
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(readOnly);
+        }
+        newIndex.build();
+        asIdIndexExpireTime = now + getIndexTtlMillis();
+        asIdIndex = newIndex;
+        LOGGER.debug("load autnum index, size:{}", newIndex.size());
+        return newIndex;
+    }
+
+    /**
+     * get index ttl from properties.
+     * 
+     * @return ttl in milliseconds, Long.MAX_VALUE if not configured.
+     */
+    private long getIndexTtlMillis() {
+        Long ttlSeconds = RdapProperties.getAutnumIndexTtlSeconds();
+        if (null == ttlSeconds || ttlSeconds <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        return TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * clear AS_ID index, index will be reloaded on next query.
+     */
+    public synchronized void clearIndex() {
+        asIdIndex = null;
+    }
+
     /**
      * autnum ResultSetExtractor, extract data from ResultSet.
      * 
@@ -279,24 +451,24 @@ public class AutnumQueryDaoImpl extends AbstractQueryDao<Autnum> {
             List<Autnum> result = new ArrayList<Autnum>();
             Map<Long, Autnum> autnumMapById = new HashMap<Long, Autnum>();
             while (rs.next()) {
-                Long autnumId = rs.getLong("as_id");
+                Long autnumId = rs.getLong(1);
                 Autnum autnum = autnumMapById.get(autnumId);
                 if (null == autnum) {
                     autnum = new Autnum();
                     autnum.setId(autnumId);
-                    autnum.setHandle(rs.getString("HANDLE"));
-                    autnum.setStartAutnum(rs.getLong("START_AUTNUM"));
-                    autnum.setEndAutnum(rs.getLong("END_AUTNUM"));
-                    autnum.setName(rs.getString("NAME"));
-                    autnum.setType(rs.getString("TYPE"));
-                    autnum.setCountry(rs.getString("COUNTRY"));
-                    autnum.setLang(rs.getString("LANG"));
-                    autnum.setPort43(rs.getString("PORT43"));
-                    extractCustomPropertiesFromRs(rs, autnum);
+                    autnum.setHandle(rs.getString(2));
+                    autnum.setStartAutnum(rs.getLong(3));
+                    autnum.setEndAutnum(rs.getLong(4));
+                    autnum.setName(rs.getString(5));
+                    autnum.setType(rs.getString(6));
+                    autnum.setCountry(rs.getString(7));
+                    autnum.setLang(rs.getString(8));
+                    autnum.setPort43(rs.getString(9));
+                    extractCustomPropertiesFromRs(rs, 10, autnum);
                     result.add(autnum);
                     autnumMapById.put(autnumId, autnum);
                 }
-                autnum.addStatus(rs.getString("STATUS"));
+                autnum.addStatus(rs.getString(AUTNUM_COLUMN_COUNT + 1));
             }
             return result;
         }
@@ -40,11 +40,14 @@ import org.restfulwhois.rdap.common.dto.AutnumDto;
 import org.restfulwhois.rdap.common.model.Autnum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * 
@@ -78,6 +81,12 @@ public class AutnumUpdateDaoImpl extends AbstractUpdateDao<Autnum, AutnumDto> {
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(AutnumUpdateDaoImpl.class);
 
+    /**
+     * autnumQueryDao, whose index is cleared after autnum is changed.
+     */
+    @Autowired
+    private AutnumQueryDaoImpl autnumQueryDao;
+
     @Override
     public Autnum save(final Autnum model) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -100,6 +109,7 @@ public class AutnumUpdateDaoImpl extends AbstractUpdateDao<Autnum, AutnumDto> {
             }
         }, keyHolder);
         model.setId(keyHolder.getKey().longValue());
+        clearAutnumIndex();
         return model;
     }
 
@@ -123,6 +133,7 @@ public class AutnumUpdateDaoImpl extends AbstractUpdateDao<Autnum, AutnumDto> {
                 ps.setLong(9, model.getId());
             }
         });
+        clearAutnumIndex();
     }
 
     @Override
@@ -132,6 +143,7 @@ public class AutnumUpdateDaoImpl extends AbstractUpdateDao<Autnum, AutnumDto> {
                 ps.setLong(1, model.getId());
             }
         });
+        clearAutnumIndex();
     }
 
     @Override
@@ -150,4 +162,22 @@ public class AutnumUpdateDaoImpl extends AbstractUpdateDao<Autnum, AutnumDto> {
         return super.findIdByHandle(handle, "AS_ID", "RDAP_AUTNUM");
     }
 
+    /**
+     * clear autnum index now, and again after transaction is committed, so
+     * index loaded in this transaction is not used by other threads.
+     */
+    private void clearAutnumIndex() {
+        autnumQueryDao.clearIndex();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        autnumQueryDao.clearIndex();
+                    }
+                });
+    }
+
 }
@@ -71,6 +71,11 @@ public class AsQueryParam extends QueryParam {
     public void convertParam() throws Exception {
     }
 
+    @Override
+    public String getCacheKey() {
+        return getQueryUri().getName() + getQ();
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this).append(getQ()).toString();
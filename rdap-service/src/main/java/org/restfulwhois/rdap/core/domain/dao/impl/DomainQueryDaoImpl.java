@@ -38,8 +38,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
+import org.restfulwhois.rdap.common.dao.InnerQueryExecutor;
+import org.restfulwhois.rdap.common.dao.InnerQueryExecutor.QueryBatch;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.dao.SearchDao;
 import org.restfulwhois.rdap.common.dao.impl.SelfLinkGenerator;
@@ -54,6 +58,8 @@ import org.restfulwhois.rdap.common.model.PublicId;
 import org.restfulwhois.rdap.common.model.Remark;
 import org.restfulwhois.rdap.common.model.SecureDns;
 import org.restfulwhois.rdap.common.model.Variants;
+import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.model.base.ModelStatus;
 import org.restfulwhois.rdap.common.model.base.ModelType;
 import org.restfulwhois.rdap.common.support.QueryParam;
 import org.restfulwhois.rdap.common.util.ArpaUtil;
@@ -67,6 +73,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -83,17 +90,37 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
 
+    /**
+     * domain columns selected by domain query and search SQL, in the order
+     * extractDomainFromRs reads them by index. Must be the first columns of
+     * select list.
+     */
+    public static final String SQL_DOMAIN_COLUMNS =
+            "domain.DOMAIN_ID,domain.HANDLE,domain.LDH_NAME,"
+                    + "domain.UNICODE_NAME,domain.PORT43,domain.LANG,"
+                    + "domain.TYPE,domain.NETWORK_ID,domain.CUSTOM_PROPERTIES";
     /**
      * left join domain status SQL.
      */
     public static final String SQL_QUERY_DOMAIN_STATUS =
             "select * from RDAP_DOMAIN_STATUS status"
                     + " where status.DOMAIN_ID = ?";
+    /**
+     * domain status SQL template for domain id list.
+     */
+    public static final String SQL_QUERY_DOMAINS_STATUS_TPL =
+            "select * from RDAP_DOMAIN_STATUS status"
+                    + " where status.DOMAIN_ID in (%s)";
     /**
      * logger.
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(DomainQueryDaoImpl.class);
+    /**
+     * existence filter of domain name.
+     */
+    @Autowired
+    private DomainExistenceFilter domainExistenceFilter;
     /**
      * variant dao.
      */
@@ -148,6 +175,12 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
     @Autowired
     private QueryDao<Entity> entityQueryDao;
 
+    /**
+     * executor of inner object queries.
+     */
+    @Autowired
+    private InnerQueryExecutor innerQueryExecutor;
+
     /**
      * searchDao.
      */
@@ -176,7 +209,15 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
             return domain;
         } else {
             // LDH domain for DNR
+            if (!domainExistenceFilter.mightExist(domainQueryParam
+                    .getPunyName())) {
+                LOGGER.debug("query, domain not exist:{}",
+                        domainQueryParam.getPunyName());
+                return null;
+            }
             Domain domain = queryDomainWithoutInnerObjects(queryParam);
+            domainExistenceFilter.onQueried(domainQueryParam.getPunyName(),
+                    null != domain);
             queryAndSetInnerObjects(domain);
             LOGGER.debug("query, domain:" + domain);
             queryDomainStatus(domain, jdbcTemplate);
@@ -186,12 +227,7 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
 
     @Override
     public void queryAndSetInnerObjectsForSearch(List<Domain> domains) {
-        if (null == domains) {
-            return;
-        }
-        for (Domain domain : domains) {
-            queryAndSetInnerObjects(domain);
-        }
+        queryAndSetInnerObjects(domains);
     }
 
     /**
@@ -204,66 +240,142 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
         if (null == domain) {
             return;
         }
-        Long domainId = domain.getId();
+        List<Domain> domains = new ArrayList<Domain>();
+        domains.add(domain);
+        queryAndSetInnerObjects(domains);
+    }
+
+    /**
+     * <pre>
+     * query inner objects of domain list,and set them to domain objects.
+     * inner objects of all domains are queried in batch, so the number of
+     * SQL does not grow with the size of domain list. Inner objects of
+     * nameservers, entities and networks are queried in batch as well.
+     * queries of different inner objects are independent, and are submitted
+     * to innerQueryExecutor to run in parallel, then joined.
+     * </pre>
+     * 
+     * @param domains
+     *            inner objects will be filled.
+     */
+    private void queryAndSetInnerObjects(List<Domain> domains) {
+        if (null == domains || domains.size() == 0) {
+            return;
+        }
+        List<Long> domainIds = getModelIds(domains);
         ModelType type = ModelType.DOMAIN;
-        List<Nameserver> nameServers =
-                nameserverQueryDao.queryAsInnerObjects(domainId, type);
-        domain.setNameservers(nameServers);
-        List<SecureDns> secureDnsList =
-                secureDnsQueryDao.queryAsInnerObjects(domainId, type);
-        if (null != secureDnsList && secureDnsList.size() > 0) {
-            domain.setSecureDns(secureDnsList.get(0));
+        QueryBatch batch = innerQueryExecutor.newBatch();
+        Future<Map<Long, List<Nameserver>>> nameServersFuture =
+                batch.submit(nameserverQueryDao, domainIds, type);
+        Future<Map<Long, List<SecureDns>>> secureDnsFuture =
+                batch.submit(secureDnsQueryDao, domainIds, type);
+        Future<Map<Long, List<PublicId>>> publicIdsFuture =
+                batch.submit(publicIdQueryDao, domainIds, type);
+        Future<Map<Long, List<Remark>>> remarksFuture =
+                batch.submit(remarkQueryDao, domainIds, type);
+        Future<Map<Long, List<Link>>> linksFuture =
+                batch.submit(linkQueryDao, domainIds, type);
+        Future<Map<Long, List<Event>>> eventsFuture =
+                batch.submit(eventQueryDao, domainIds, type);
+        Future<Map<Long, List<Entity>>> entitiesFuture =
+                batch.submit(entityQueryDao, domainIds, type);
+        List<Domain> dnrDomains = getDnrDomains(domains);
+        Future<Map<Long, List<Variants>>> variantsFuture = null;
+        if (dnrDomains.size() > 0) {
+            variantsFuture =
+                    batch.submit(variantsQueryDao, getModelIds(dnrDomains),
+                            type);
+        }
+        List<Domain> arpaDomains = getArpaDomains(domains);
+        Future<Map<Long, List<Network>>> networksFuture = null;
+        if (arpaDomains.size() > 0) {
+            networksFuture =
+                    batch.submit(networkQueryDao, getModelIds(arpaDomains),
+                            type);
+        }
+        Map<Long, List<Nameserver>> nameServersMap =
+                batch.get(nameServersFuture);
+        Map<Long, List<SecureDns>> secureDnsMap = batch.get(secureDnsFuture);
+        Map<Long, List<PublicId>> publicIdsMap = batch.get(publicIdsFuture);
+        Map<Long, List<Remark>> remarksMap = batch.get(remarksFuture);
+        Map<Long, List<Link>> linksMap = batch.get(linksFuture);
+        Map<Long, List<Event>> eventsMap = batch.get(eventsFuture);
+        Map<Long, List<Entity>> entitiesMap = batch.get(entitiesFuture);
+        for (Domain domain : domains) {
+            Long domainId = domain.getId();
+            domain.setNameservers(nameServersMap.get(domainId));
+            List<SecureDns> secureDnsList = secureDnsMap.get(domainId);
+            if (null != secureDnsList && secureDnsList.size() > 0) {
+                domain.setSecureDns(secureDnsList.get(0));
+            }
+            domain.setPublicIds(publicIdsMap.get(domainId));
+            domain.setRemarks(remarksMap.get(domainId));
+            List<Link> links = linksMap.get(domainId);
+            links.add(SelfLinkGenerator.generateSelfLink(domain));
+            domain.setLinks(links);
+            domain.setEvents(eventsMap.get(domainId));
+            domain.setEntities(entitiesMap.get(domainId));
+        }
+        if (null != variantsFuture) {
+            Map<Long, List<Variants>> variantsMap = batch.get(variantsFuture);
+            for (Domain domain : dnrDomains) {
+                domain.setVariants(variantsMap.get(domain.getId()));
+            }
+        }
+        if (null != networksFuture) {
+            setInnerNetwork(arpaDomains, batch.get(networksFuture));
         }
-        List<PublicId> publicIds =
-                publicIdQueryDao.queryAsInnerObjects(domainId, type);
-        domain.setPublicIds(publicIds);
-        List<Remark> remarks =
-                remarkQueryDao.queryAsInnerObjects(domainId, type);
-        domain.setRemarks(remarks);
-        List<Link> links = linkQueryDao.queryAsInnerObjects(domainId, type);
-        links.add(SelfLinkGenerator.generateSelfLink(domain));
-        domain.setLinks(links);
-        List<Event> events = eventQueryDao.queryAsInnerObjects(domainId, type);
-        domain.setEvents(events);
-        List<Entity> entities =
-                entityQueryDao.queryAsInnerObjects(domainId, type);
-        domain.setEntities(entities);
-        queryAndSetVariants(domain);
-        queryAndSetInnerNetwork(domain);
     }
 
     /**
-     * query and set variants for domain object.
+     * get DNR domains.
      * 
-     * @param domain
-     *            domain object which will be filled with variants.
+     * @param domains
+     *            domain list.
+     * @return DNR domains.
      */
-    private void queryAndSetVariants(Domain domain) {
-        if (null == domain || !domain.isDnrDomain()) {
-            return;
+    private List<Domain> getDnrDomains(List<Domain> domains) {
+        List<Domain> dnrDomains = new ArrayList<Domain>();
+        for (Domain domain : domains) {
+            if (domain.isDnrDomain()) {
+                dnrDomains.add(domain);
+            }
         }
-        List<Variants> variants =
-                variantsQueryDao.queryAsInnerObjects(domain.getId(),
-                        ModelType.DOMAIN);
-        domain.setVariants(variants);
+        return dnrDomains;
     }
 
     /**
-     * query networks for arpa ,then fill them to domain.
+     * get arpa domains.
      * 
-     * @param domain
-     *            which will be filled with networks.
+     * @param domains
+     *            domain list.
+     * @return arpa domains.
      */
-    private void queryAndSetInnerNetwork(Domain domain) {
-        if (null == domain || !domain.isArpaDomain()) {
-            return;
+    private List<Domain> getArpaDomains(List<Domain> domains) {
+        List<Domain> arpaDomains = new ArrayList<Domain>();
+        for (Domain domain : domains) {
+            if (domain.isArpaDomain()) {
+                arpaDomains.add(domain);
+            }
         }
-        List<Network> networks =
-                networkQueryDao.queryAsInnerObjects(domain.getId(),
-                        ModelType.DOMAIN);
-        if (null != networks && networks.size() > 0) {
-            Network network = networks.get(0);
-            domain.setNetwork(network);
+        return arpaDomains;
+    }
+
+    /**
+     * set networks to arpa domains.
+     * 
+     * @param arpaDomains
+     *            arpa domain list.
+     * @param networksMap
+     *            map of domain id to networks.
+     */
+    private void setInnerNetwork(List<Domain> arpaDomains,
+            Map<Long, List<Network>> networksMap) {
+        for (Domain domain : arpaDomains) {
+            List<Network> networks = networksMap.get(domain.getId());
+            if (null != networks && networks.size() > 0) {
+                domain.setNetwork(networks.get(0));
+            }
         }
     }
 
@@ -283,7 +395,7 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
         List<Domain> result = null;
         final int hexCharSize = IpUtil.getHexCharSize(network.getIpVersion());
         String sql =
-                "select domain.*"
+                "select " + SQL_DOMAIN_COLUMNS
                         + " from RDAP_IP ip "
                         + " inner join RDAP_DOMAIN domain "
                         + " on domain.NETWORK_ID = ip.IP_ID "
@@ -324,7 +436,8 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
         final String punyName = domainQueryParam.getPunyName();
         LOGGER.debug("query LDH_NAME with punyName:{}", punyName);
         final String sql =
-                "select * from RDAP_DOMAIN domain "
+                "select " + SQL_DOMAIN_COLUMNS
+                        + " from RDAP_DOMAIN domain "
                         + " where LDH_NAME= ? order by domain.DOMAIN_ID";
         List<Domain> result =
                 jdbcTemplate.query(new PreparedStatementCreator() {
@@ -369,7 +482,44 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
     }
 
     /**
-     * extract domain from ResultSet.
+     * query status of domain list in one SQL, and add them to domains.
+     * 
+     * @param domains
+     *            domain list.
+     * @param jdbcTemplate
+     *            jdbcTemplate.
+     */
+    public void queryDomainStatus(List<Domain> domains,
+            JdbcTemplate jdbcTemplate) {
+        List<Long> domainIds = getModelIds(domains);
+        if (domainIds.size() == 0) {
+            return;
+        }
+        final String sql =
+                String.format(SQL_QUERY_DOMAINS_STATUS_TPL,
+                        StringUtils.join(domainIds, ","));
+        List<ModelStatus> statusList =
+                jdbcTemplate.query(sql, new RowMapper<ModelStatus>() {
+                    @Override
+                    public ModelStatus mapRow(ResultSet rs, int rowNum)
+                            throws SQLException {
+                        return new ModelStatus(rs.getLong("DOMAIN_ID"), rs
+                                .getString("STATUS"));
+                    }
+                });
+        for (ModelStatus status : statusList) {
+            BaseModel obj =
+                    BaseModel.findObjectFromListById(domains, status.getId());
+            if (null == obj) {
+                continue;
+            }
+            ((Domain) obj).addStatus(status.getStatus());
+        }
+    }
+
+    /**
+     * extract domain from ResultSet, columns must be selected by
+     * SQL_DOMAIN_COLUMNS.
      * 
      * @param rs
      *            ResultSet extract from.
@@ -380,15 +530,15 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
      */
     private void extractDomainFromRs(ResultSet rs, Domain domain)
             throws SQLException {
-        domain.setId(rs.getLong("DOMAIN_ID"));
-        domain.setHandle(rs.getString("HANDLE"));
-        domain.setLdhName(rs.getString("LDH_NAME"));
-        domain.setUnicodeName(rs.getString("UNICODE_NAME"));
-        domain.setPort43(rs.getString("PORT43"));
-        domain.setLang(rs.getString("LANG"));
-        domain.setType(DomainType.getByTypeName(rs.getString("TYPE")));
-        domain.setNetworkId(rs.getLong("NETWORK_ID"));
-        extractCustomPropertiesFromRs(rs, domain);
+        domain.setId(rs.getLong(1));
+        domain.setHandle(rs.getString(2));
+        domain.setLdhName(rs.getString(3));
+        domain.setUnicodeName(rs.getString(4));
+        domain.setPort43(rs.getString(5));
+        domain.setLang(rs.getString(6));
+        domain.setType(DomainType.getByTypeName(rs.getString(7)));
+        domain.setNetworkId(rs.getLong(8));
+        extractCustomPropertiesFromRs(rs, 9, domain);
     }
 
     /**
@@ -404,12 +554,11 @@ public class DomainQueryDaoImpl extends AbstractQueryDao<Domain> {
             List<Domain> result = new ArrayList<Domain>();
             Map<Long, Domain> domainMapById = new HashMap<Long, Domain>();
             while (rs.next()) {
-                Long domainId = rs.getLong("DOMAIN_ID");
+                Long domainId = rs.getLong(1);
                 Domain domain = domainMapById.get(domainId);
                 if (null == domain) {
                     domain = new Domain();
                     extractDomainFromRs(rs, domain);
-                    extractCustomPropertiesFromRs(rs, domain);
                     result.add(domain);
                     domainMapById.put(domainId, domain);
                 }
@@ -40,8 +40,11 @@ import org.restfulwhois.rdap.common.dto.DomainDto;
 import org.restfulwhois.rdap.common.model.Domain;
 import org.restfulwhois.rdap.common.model.Network;
 import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.util.DomainUtil;
+import org.restfulwhois.rdap.search.domain.dao.DomainNameSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -65,14 +68,15 @@ public class DomainUpdateDaoImpl extends AbstractUpdateDao<Domain, DomainDto> {
      */
     private static final String SQL_CREATE_DOMAIN =
             "INSERT INTO RDAP_DOMAIN"
-                    + " (HANDLE,LDH_NAME,UNICODE_NAME,PORT43,LANG,TYPE,NETWORK_ID,CUSTOM_PROPERTIES)"
-                    + " values(?,?,?,?,?,?,?,?)";
+                    + " (HANDLE,LDH_NAME,UNICODE_NAME,PORT43,LANG,TYPE,NETWORK_ID,CUSTOM_PROPERTIES"
+                    + ",REVERSED_LDH_NAME)"
+                    + " values(?,?,?,?,?,?,?,?,?)";
     /**
      * SQL_UPDATE_DOMAIN.
      */
     private static final String SQL_UPDATE_DOMAIN = "UPDATE RDAP_DOMAIN"
             + " SET LDH_NAME=?,UNICODE_NAME=?,PORT43=?,LANG=?,NETWORK_ID=?"
-            + " ,CUSTOM_PROPERTIES=? WHERE DOMAIN_ID=?";
+            + " ,CUSTOM_PROPERTIES=?,REVERSED_LDH_NAME=? WHERE DOMAIN_ID=?";
     /**
      * SQL_DELETE_DOMAIN.
      */
@@ -83,6 +87,16 @@ public class DomainUpdateDaoImpl extends AbstractUpdateDao<Domain, DomainDto> {
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(DomainUpdateDaoImpl.class);
+    /**
+     * domain name index, changed domains are reported to it.
+     */
+    @Autowired
+    private DomainNameSearchIndex domainNameSearchIndex;
+    /**
+     * existence filter, saved domain names are reported to it.
+     */
+    @Autowired
+    private DomainExistenceFilter domainExistenceFilter;
 
     @Override
     public Domain save(final Domain model) {
@@ -101,10 +115,13 @@ public class DomainUpdateDaoImpl extends AbstractUpdateDao<Domain, DomainDto> {
                 ps.setString(6, model.getType().getName());
                 ps.setObject(7, model.getNetworkId());
                 ps.setString(8, model.getCustomPropertiesJsonVal());
+                ps.setString(9, DomainUtil.reverseLabels(model.getLdhName()));
                 return ps;
             }
         }, keyHolder);
         model.setId(keyHolder.getKey().longValue());
+        domainNameSearchIndex.onChanged(model.getId());
+        domainExistenceFilter.onSaved(model.getLdhName());
         return model;
     }
 
@@ -123,9 +140,12 @@ public class DomainUpdateDaoImpl extends AbstractUpdateDao<Domain, DomainDto> {
                 ps.setString(4, model.getLang());
                 ps.setObject(5, model.getNetworkId());
                 ps.setString(6, model.getCustomPropertiesJsonVal());
-                ps.setLong(7, model.getId());
+                ps.setString(7, DomainUtil.reverseLabels(model.getLdhName()));
+                ps.setLong(8, model.getId());
             }
         });
+        domainNameSearchIndex.onChanged(model.getId());
+        domainExistenceFilter.onSaved(model.getLdhName());
     }
 
     @Override
@@ -135,6 +155,7 @@ public class DomainUpdateDaoImpl extends AbstractUpdateDao<Domain, DomainDto> {
                 ps.setLong(1, model.getId());
             }
         });
+        domainNameSearchIndex.onChanged(model.getId());
     }
 
     @Override
@@ -35,7 +35,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.IPAddress;
@@ -78,6 +80,31 @@ public class IPAddressQueryDaoImpl extends AbstractQueryDao<IPAddress> {
         return listIPAddress;
     }
 
+    @Override
+    public Map<Long, List<IPAddress>> queryAsInnerObjects(
+            List<Long> outerObjectIds, ModelType outerModelType) {
+        Map<Long, List<IPAddress>> result =
+                initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sql =
+                "select * from RDAP_NAMESERVER_IP nsIP "
+                        + " where nsIP.NAMESERVER_ID in ("
+                        + StringUtils.collectionToCommaDelimitedString(result
+                                .keySet()) + ") and "
+                        + IpUtil.generateNetworkRangeSql("IP", "VERSION");
+        Map<Long, IPAddress> ipAddressMap =
+                jdbcTemplate.query(sql, new BatchNetworkResultSetExtractor());
+        for (Map.Entry<Long, IPAddress> entry : ipAddressMap.entrySet()) {
+            IPAddress ipAddress = entry.getValue();
+            if (ipAddress.getIpExisted()) {
+                result.get(entry.getKey()).add(ipAddress);
+            }
+        }
+        return result;
+    }
+
     /**
      * query IPAddress from RDAP_NAMESERVER_IP for nameserver, without inner
      * objects.
@@ -112,54 +139,75 @@ public class IPAddressQueryDaoImpl extends AbstractQueryDao<IPAddress> {
         @Override
         public IPAddress extractData(ResultSet rs) throws SQLException {
             IPAddress result = new IPAddress();
-
-            List<String> ipV4 = new ArrayList<String>();
-            List<String> ipV6 = new ArrayList<String>();
+            result.setIpExisted(false);
             while (rs.next()) {
                 Long ipId = rs.getLong("NAMESERVER_IP_ID");
                 result.setId(ipId);
-                setIpVersionAndAddress(rs, ipV4, ipV6);
+                setIpVersionAndAddress(rs, result);
             }
-            if (ipV4.size() > 0) {
-                result.setAddressV4(ipV4);
-                result.setIpExisted(true);
-            }
-            if (ipV6.size() > 0) {
-                result.setAddressV6(ipV6);
-                result.setIpExisted(true);
-            }
-            if (ipV4.size() <= 0 && ipV6.size() <= 0) {
-                result.setIpExisted(false);
+            return result;
+        }
+    }
+
+    /**
+     * IPAddress ResultSetExtractor for batch query, extract data from
+     * ResultSet and group addresses by NAMESERVER_ID.
+     * 
+     * @author weijunkai
+     * 
+     */
+    class BatchNetworkResultSetExtractor implements
+            ResultSetExtractor<Map<Long, IPAddress>> {
+        @Override
+        public Map<Long, IPAddress> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, IPAddress> result = new HashMap<Long, IPAddress>();
+            while (rs.next()) {
+                Long nameserverId = rs.getLong("NAMESERVER_ID");
+                IPAddress ipAddress = result.get(nameserverId);
+                if (null == ipAddress) {
+                    ipAddress = new IPAddress();
+                    ipAddress.setIpExisted(false);
+                    result.put(nameserverId, ipAddress);
+                }
+                ipAddress.setId(rs.getLong("NAMESERVER_IP_ID"));
+                setIpVersionAndAddress(rs, ipAddress);
             }
             return result;
         }
+    }
 
-        /**
-         * set ip version,and high/low address. change them to unsigned long.
-         * 
-         * @param rs
-         *            ResultSet.
-         * @param ipV4
-         *            List<String>.
-         * @param ipV6
-         *            List<String>.
-         * @throws SQLException
-         *             SQLException.
-         */
-        private void setIpVersionAndAddress(ResultSet rs, List<String> ipV4,
-                List<String> ipV6) throws SQLException {
-            String ipVersionStr = rs.getString("VERSION");
-            IpVersion ipVersion = IpVersion.getIpVersion(ipVersionStr);
-            byte[] ipBytes = rs.getBytes("IP");
-            String realAddress = IpUtil.toString(ipBytes, ipVersion);
-            if (StringUtils.isEmpty(realAddress)) {
-                return;
+    /**
+     * add ip address of current row to IPAddress, by ip version.
+     * 
+     * @param rs
+     *            ResultSet.
+     * @param ipAddress
+     *            IPAddress.
+     * @throws SQLException
+     *             SQLException.
+     */
+    private static void setIpVersionAndAddress(ResultSet rs,
+            IPAddress ipAddress) throws SQLException {
+        String ipVersionStr = rs.getString("VERSION");
+        IpVersion ipVersion = IpVersion.getIpVersion(ipVersionStr);
+        byte[] ipBytes = rs.getBytes("IP");
+        String realAddress = IpUtil.toString(ipBytes, ipVersion);
+        if (StringUtils.isEmpty(realAddress)) {
+            return;
+        }
+        if (ipVersion.isV4()) {
+            if (null == ipAddress.getAddressV4()) {
+                ipAddress.setAddressV4(new ArrayList<String>());
             }
-            if (ipVersion.isV4()) {
-                ipV4.add(realAddress);
-            } else if (ipVersion.isV6()) {
-                ipV6.add(realAddress);
+            ipAddress.getAddressV4().add(realAddress);
+            ipAddress.setIpExisted(true);
+        } else if (ipVersion.isV6()) {
+            if (null == ipAddress.getAddressV6()) {
+                ipAddress.setAddressV6(new ArrayList<String>());
             }
+            ipAddress.getAddressV6().add(realAddress);
+            ipAddress.setIpExisted(true);
         }
     }
 }
@@ -191,6 +191,14 @@ public class DomainQueryParam extends QueryParam {
         return fullTld;
     }
 
+    @Override
+    public String getCacheKey() {
+        if (StringUtils.isBlank(punyName)) {
+            return null;
+        }
+        return getQueryUri().getName() + punyName;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this).append(getQ()).append(punyName)
@@ -30,22 +30,18 @@
  */
 package org.restfulwhois.rdap.core.domain.service.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.QueryDao;
 import org.restfulwhois.rdap.common.model.Domain;
 import org.restfulwhois.rdap.common.support.QueryParam;
 import org.restfulwhois.rdap.common.support.RdapProperties;
-import org.restfulwhois.rdap.common.util.StringUtil;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainQueryParam;
 import org.restfulwhois.rdap.core.domain.service.DomainQueryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
 /**
  * query service implementation.
@@ -98,47 +94,15 @@ public class DomainQueryServiceImpl implements DomainQueryService {
         LOGGER.debug("tldInThisRegistry, queryParam:" + queryParam);
         DomainQueryParam domainQueryParam = (DomainQueryParam) queryParam;
         String fullPunyTld = domainQueryParam.getFullPunyTld();
-        List<String> allTlds = getAllTlds(fullPunyTld);
-        boolean inNotInTlds =
-                CollectionUtils.containsAny(allTlds,
-                        RdapProperties.getNotInTldsInThisRegistry());
-        if (inNotInTlds) {
+        List<Boolean> inThisRegFlags =
+                RdapProperties.getTldTrie().findAll(fullPunyTld);
+        if (inThisRegFlags.contains(Boolean.FALSE)) {
             LOGGER.debug("tldInThisRegistry, false");
             return false;
         }
-        boolean inThisRegTlds =
-                CollectionUtils.containsAny(allTlds,
-                        RdapProperties.getInTldsInThisRegistry());
+        boolean inThisRegTlds = inThisRegFlags.contains(Boolean.TRUE);
         LOGGER.debug("tldInThisRegistry, return:" + inThisRegTlds);
         return inThisRegTlds;
     }
 
-    /**
-     * get all tlds,eg: for "edu.cn", return ["edu.cn","cn"].
-     * 
-     * @param fullTld
-     *            fullTld.
-     * @return tld list.
-     */
-    private List<String> getAllTlds(String fullTld) {
-        LOGGER.debug("getAllTlds, fullTld:" + fullTld);
-        if (StringUtils.isBlank(fullTld)) {
-            return null;
-        }
-        List<String> tldList = new ArrayList<String>();
-        String currentTld = fullTld;
-        tldList.add(currentTld);
-        while (StringUtils.isNotBlank(currentTld)) {
-            String subTld =
-                    StringUtils.substringAfter(currentTld,
-                            StringUtil.TLD_SPLITOR);
-            if (StringUtils.isNotBlank(subTld)) {
-                tldList.add(subTld);
-            }
-            currentTld = subTld;
-        }
-        LOGGER.debug("getAllTlds, tldList:" + tldList);
-        return tldList;
-    }
-
 }
@@ -36,7 +36,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.common.model.EntityAddress;
@@ -46,6 +48,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -97,6 +100,34 @@ public class EntityAddressDao extends AbstractQueryDao<EntityAddress> {
         return result;
     }
 
+    /**
+     * query entity addresses of entity list from RDAP_VCARD_ADR in one SQL.
+     * 
+     * @param entityIds
+     *            entity id list.
+     * @return map of entity id to EntityAddress list.
+     */
+    public Map<Long, List<EntityAddress>> query(List<Long> entityIds) {
+        final Map<Long, List<EntityAddress>> result =
+                initInnerObjectsMap(entityIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sql =
+                String.format(
+                        "select * from RDAP_VCARD_ADR where ENTITY_ID in (%s)",
+                        StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(sql, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                EntityAddress entityAddr = new EntityAddress();
+                extractEntityAddressFromRs(rs, entityAddr);
+                result.get(entityAddr.getEntityId()).add(entityAddr);
+            }
+        });
+        return result;
+    }
+
     /**
      * entity address ResultSetExtractor, extract data from ResultSet.
      * 
@@ -36,6 +36,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -62,7 +63,10 @@ import org.restfulwhois.rdap.common.model.base.TruncatedInfo.TruncateReason;
 import org.restfulwhois.rdap.common.service.RemarkService;
 import org.restfulwhois.rdap.common.support.QueryParam;
 import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.BeanUtil;
 import org.restfulwhois.rdap.core.entity.model.jcard.Jcard;
+import org.restfulwhois.rdap.core.entity.service.InnerEntityCache;
+import org.restfulwhois.rdap.core.entity.service.VcardCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -93,6 +97,20 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(EntityQueryDaoImpl.class);
 
+    /**
+     * entity columns selected by entity query and search SQL, in the order
+     * extractEntityFromRs reads them by index. Must be the first columns of
+     * select list.
+     */
+    public static final String SQL_ENTITY_COLUMNS =
+            "entity.ENTITY_ID,entity.HANDLE,entity.KIND,entity.FN,"
+                    + "entity.EMAIL,entity.TITLE,entity.ORG,entity.URL,"
+                    + "entity.PORT43,entity.LANG,entity.CUSTOM_PROPERTIES";
+    /**
+     * count of SQL_ENTITY_COLUMNS, other columns start after it.
+     */
+    public static final int ENTITY_COLUMN_COUNT = 11;
+
     /**
      * publicId dao.
      */
@@ -104,6 +122,11 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
      */
     @Autowired
     private RemarkService remarkService;
+    /**
+     * existence filter of entity handle.
+     */
+    @Autowired
+    private EntityExistenceFilter entityExistenceFilter;
     /**
      * remark dao.
      */
@@ -143,6 +166,16 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
      */
     @Autowired
     private EntityAddressDao entityAddressDao;
+    /**
+     * vcard cache.
+     */
+    @Autowired
+    private VcardCache vcardCache;
+    /**
+     * assembled inner entity cache.
+     */
+    @Autowired
+    private InnerEntityCache innerEntityCache;
 
     /**
      * searchDao.
@@ -153,7 +186,11 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
 
     @Override
     public Entity query(QueryParam queryParam) {
+        if (!entityExistenceFilter.mightExist(queryParam.getQ())) {
+            return null;
+        }
         Entity entity = queryWithoutInnerObjects(queryParam);
+        entityExistenceFilter.onQueried(queryParam.getQ(), null != entity);
         if (null == entity) {
             return entity;
         }
@@ -175,10 +212,101 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
         if (null == entities) {
             return entities;
         }
-        queryAndSetInnerObjectsWithoutEntities(entities);
+        assembleInnerObjectsWithoutEntities(entities);
         return entities;
     }
 
+    /**
+     * query entities of a batch of outer objects in one SQL, and assemble
+     * their inner objects in batch. The same entity of different outer
+     * objects is different object, with its own roles.
+     * 
+     * @param outerObjectIds
+     *            outer object id list.
+     * @param outerModelType
+     *            outer object type.
+     * @return map of outer object id to entity list.
+     */
+    @Override
+    public Map<Long, List<Entity>> queryAsInnerObjects(
+            List<Long> outerObjectIds, final ModelType outerModelType) {
+        Map<Long, List<Entity>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sql =
+                generateSqlForQueryRelEntity(outerModelType, " in ("
+                        + StringUtils.join(result.keySet(), ",") + ")");
+        jdbcTemplate.query(new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection conn)
+                    throws SQLException {
+                PreparedStatement ps = conn.prepareStatement(sql);
+                ps.setString(1, outerModelType.getName());
+                return ps;
+            }
+        }, new BatchEntityWithRoleResultSetExtractor(result));
+        assembleInnerObjectsWithoutEntities(flatInnerObjects(result));
+        return result;
+    }
+
+    /**
+     * set inner objects of inner entities, from inner entity cache if cached,
+     * or query them in batch and put them into cache. Entity rows from
+     * relation query keep their own roles.
+     * 
+     * @param entities
+     *            entity list, the same entity may be in it more than once.
+     */
+    private void assembleInnerObjectsWithoutEntities(List<Entity> entities) {
+        long cacheVersion = innerEntityCache.getVersion();
+        Map<Long, Entity> missed = new LinkedHashMap<Long, Entity>();
+        List<Entity> duplicated = new ArrayList<Entity>();
+        for (Entity entity : entities) {
+            Entity assembled = innerEntityCache.get(entity.getId());
+            if (null != assembled) {
+                copyInnerObjectsWithoutEntities(assembled, entity);
+            } else if (missed.containsKey(entity.getId())) {
+                duplicated.add(entity);
+            } else {
+                missed.put(entity.getId(), entity);
+            }
+        }
+        if (missed.isEmpty()) {
+            return;
+        }
+        queryAndSetInnerObjectsWithoutEntities(new ArrayList<Entity>(missed
+                .values()));
+        for (Entity entity : missed.values()) {
+            Entity assembled = new Entity();
+            copyInnerObjectsWithoutEntities(entity, assembled);
+            innerEntityCache.put(entity.getId(), assembled, cacheVersion);
+        }
+        for (Entity entity : duplicated) {
+            copyInnerObjectsWithoutEntities(missed.get(entity.getId()), entity);
+        }
+    }
+
+    /**
+     * copy inner objects which only depend on entity id. They are deep
+     * copied, for entity in cache is shared by requests, and response is
+     * changed after query, eg: hidden columns are set to null by policy.
+     * 
+     * @param from
+     *            assembled entity.
+     * @param to
+     *            entity to be filled.
+     */
+    static void copyInnerObjectsWithoutEntities(Entity from, Entity to) {
+        to.setVcardArray(from.getVcardArray());
+        to.setStatus(BeanUtil.deepCopy(from.getStatus()));
+        to.setPublicIds(BeanUtil.deepCopy(from.getPublicIds()));
+        to.setRemarks(BeanUtil.deepCopy(from.getRemarks()));
+        to.setLinks(BeanUtil.deepCopy(from.getLinks()));
+        to.setEvents(BeanUtil.deepCopy(from.getEvents()));
+        to.setAsEventActor(BeanUtil.deepCopy(from.getAsEventActor()));
+    }
+
     @Override
     public void queryAndSetInnerObjectsForSearch(List<Entity> entities) {
         queryAndSetNetworksAndAs(entities);
@@ -194,11 +322,13 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
      *            entities which will be set to entity.
      */
     private void queryAndSetInnerEntities(List<Entity> entities) {
-        if (null == entities) {
+        if (null == entities || entities.isEmpty()) {
             return;
         }
+        Map<Long, List<Entity>> innerEntitiesMap =
+                queryAsInnerObjects(getModelIds(entities), ModelType.ENTITY);
         for (Entity entity : entities) {
-            queryAndSetInnerEntities(entity);
+            entity.setEntities(innerEntitiesMap.get(entity.getId()));
         }
     }
 
@@ -236,32 +366,72 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
     }
 
     /**
-     * query inner objects of entity,and fill them to entity.
+     * query inner objects of entity list in batch,and fill them to entities.
      * 
      * @param entities
-     *            entity list.
+     *            entity list, entity id must be unique in it.
      */
     private void queryAndSetInnerObjectsWithoutEntities(List<Entity> entities) {
-        if (null == entities) {
+        if (null == entities || entities.isEmpty()) {
             return;
         }
+        convertAndSetVcardArray(entities);
+        queryAndSetStatus(entities);
+        List<Long> entityIds = getModelIds(entities);
+        ModelType type = ModelType.ENTITY;
+        Map<Long, List<PublicId>> publicIdsMap =
+                publicIdQueryDao.queryAsInnerObjects(entityIds, type);
+        Map<Long, List<Remark>> remarksMap =
+                remarkQueryDao.queryAsInnerObjects(entityIds, type);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(entityIds, type);
+        Map<Long, List<Event>> eventsMap =
+                eventQueryDao.queryAsInnerObjects(entityIds, type);
         for (Entity entity : entities) {
-            queryAndSetInnerObjectsWithoutEntities(entity);
+            Long entityId = entity.getId();
+            entity.setPublicIds(publicIdsMap.get(entityId));
+            setRemarks(entity, remarksMap.get(entityId));
+            List<Link> links = linksMap.get(entityId);
+            links.add(SelfLinkGenerator.generateSelfLink(entity));
+            entity.setLinks(links);
+            setEvents(entity, eventsMap.get(entityId));
         }
     }
 
     /**
-     * convert entity to vcard and set to entity.
+     * convert entities to vcard and set to entities. Cached vcard is used if
+     * exists, and addresses and telephones of other entities are queried in
+     * batch.
      * 
-     * @param entity
-     *            entity object.
-     */
-    private void convertAndSetVcardArray(Entity entity) {
-        List<EntityTelephone> telephones = entityTelDao.query(entity);
-        entity.setTelephones(telephones);
-        List<EntityAddress> addresses = entityAddressDao.query(entity);
-        entity.setAddresses(addresses);
-        entity.setVcardArray(Jcard.build(entity).toJSON());
+     * @param entities
+     *            entity list, entity id must be unique in it.
+     */
+    private void convertAndSetVcardArray(List<Entity> entities) {
+        long cacheVersion = vcardCache.getVersion();
+        List<Entity> missed = new ArrayList<Entity>();
+        for (Entity entity : entities) {
+            String vcardArray = vcardCache.get(entity.getId());
+            if (null != vcardArray) {
+                entity.setVcardArray(vcardArray);
+            } else {
+                missed.add(entity);
+            }
+        }
+        if (missed.isEmpty()) {
+            return;
+        }
+        List<Long> entityIds = getModelIds(missed);
+        Map<Long, List<EntityTelephone>> telephonesMap =
+                entityTelDao.query(entityIds);
+        Map<Long, List<EntityAddress>> addressesMap =
+                entityAddressDao.query(entityIds);
+        for (Entity entity : missed) {
+            entity.setTelephones(telephonesMap.get(entity.getId()));
+            entity.setAddresses(addressesMap.get(entity.getId()));
+            String vcardArray = Jcard.build(entity).toJSON();
+            entity.setVcardArray(vcardArray);
+            vcardCache.put(entity.getId(), vcardArray, cacheVersion);
+        }
     }
 
     /**
@@ -276,15 +446,20 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
         }
         LOGGER.debug("queryAndSetInnerObjectsWithoutEntities,entityHandle:{}",
                 entity.getHandle());
-        convertAndSetVcardArray(entity);
-        queryAndSetStatus(entity);
-        Long entityId = entity.getId();
-        List<PublicId> publicIds =
-                publicIdQueryDao
-                        .queryAsInnerObjects(entityId, ModelType.ENTITY);
-        entity.setPublicIds(publicIds);
-        List<Remark> remarks =
-                remarkQueryDao.queryAsInnerObjects(entityId, ModelType.ENTITY);
+        List<Entity> entities = new ArrayList<Entity>();
+        entities.add(entity);
+        queryAndSetInnerObjectsWithoutEntities(entities);
+    }
+
+    /**
+     * set remarks, and add truncated remarks if entity is truncated.
+     * 
+     * @param entity
+     *            entity.
+     * @param remarks
+     *            remarks of entity.
+     */
+    private void setRemarks(Entity entity, List<Remark> remarks) {
         if (entity.getTruncatedInfo() != null
                 && entity.getTruncatedInfo().getResultsTruncated()) {
             List<TruncateReason> truncateReasons =
@@ -294,25 +469,18 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
             remarks.addAll(truncatedRemarks);
         }
         entity.setRemarks(remarks);
-        List<Link> links =
-                linkQueryDao.queryAsInnerObjects(entityId, ModelType.ENTITY);
-        links.add(SelfLinkGenerator.generateSelfLink(entity));
-        entity.setLinks(links);
-        queryAndSetEvents(entity, entityId);
     }
 
     /**
-     * query and set events and asEventActor.
+     * set events and asEventActor.
      * 
      * @param entity
      *            entity.
-     * @param entityId
-     *            entityId.
+     * @param events
+     *            events of entity.
      */
-    private void queryAndSetEvents(Entity entity, Long entityId) {
-        List<Event> events =
-                eventQueryDao.queryAsInnerObjects(entityId, ModelType.ENTITY);
-        entity.setEvents(events);
+    private void setEvents(Entity entity, List<Event> events) {
+        Long entityId = entity.getId();
         List<Event> eventsAsActor = new ArrayList<Event>();
         List<Event> eventsNotAsActor = new ArrayList<Event>();
         for (Event event : events) {
@@ -387,7 +555,8 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
             return null;
         }
         final String sql =
-                "select * from RDAP_ENTITY entity "
+                "select " + SQL_ENTITY_COLUMNS + ",rel.ENTITY_ROLE"
+                        + " from RDAP_ENTITY entity "
                         + " left outer join REL_ENTITY_REGISTRATION rel "
                         + " on entity.ENTITY_ID = rel.ENTITY_ID "
                         + " where entity.HANDLE= ? ";
@@ -418,7 +587,7 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
      */
     private List<Entity> queryWithoutInnerObjects(final Long outerObjectId,
             final ModelType outerModelType) {
-        final String sql = generateSqlForQueryRelEntity(outerModelType);
+        final String sql = generateSqlForQueryRelEntity(outerModelType, "= ?");
         List<Entity> result =
                 jdbcTemplate.query(new PreparedStatementCreator() {
                     @Override
@@ -440,20 +609,25 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
      * 
      * @param outerModelType
      *            outerModelType.
+     * @param relIdCondition
+     *            condition of REL_ID, '= ?' or 'in (...)'.
      * @return sql.
      */
-    private String generateSqlForQueryRelEntity(ModelType outerModelType) {
+    private String generateSqlForQueryRelEntity(ModelType outerModelType,
+            String relIdCondition) {
         final String sqlForNotEntityRel =
-                "select * from RDAP_ENTITY entity "
+                "select " + SQL_ENTITY_COLUMNS + ",rel.ENTITY_ROLE,rel.REL_ID"
+                        + " from RDAP_ENTITY entity "
                         + " inner join REL_ENTITY_REGISTRATION rel "
                         + " on entity.ENTITY_ID = rel.ENTITY_ID "
-                        + " where rel.REL_ID= ? "
+                        + " where rel.REL_ID" + relIdCondition
                         + " and rel.REL_OBJECT_TYPE= ? ";
         final String sqlForEntityRel =
-                "select * from RDAP_ENTITY entity "
+                "select " + SQL_ENTITY_COLUMNS + ",rel.ENTITY_ROLE,rel.REL_ID"
+                        + " from RDAP_ENTITY entity "
                         + " inner join REL_ENTITY_REGISTRATION rel "
                         + " on entity.ENTITY_ID = rel.ENTITY_ID "
-                        + " where rel.REL_ID= ? "
+                        + " where rel.REL_ID" + relIdCondition
                         + " and rel.ENTITY_ID != rel.REL_ID "
                         + " and rel.REL_OBJECT_TYPE= ? ";
         if (ModelType.ENTITY.equals(outerModelType)) {
@@ -463,7 +637,8 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
     }
 
     /**
-     * extract entity ResultSet.
+     * extract entity ResultSet, columns must be selected by
+     * SQL_ENTITY_COLUMNS.
      * 
      * @param rs
      *            ResultSet will be set to entity.
@@ -474,17 +649,17 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
      */
     public static void extractEntityFromRs(ResultSet rs, Entity entity)
             throws SQLException {
-        entity.setId(rs.getLong("ENTITY_ID"));
-        entity.setHandle(rs.getString("HANDLE"));
-        entity.setKind(rs.getString("KIND"));
-        entity.setFn(rs.getString("FN"));
-        entity.setEmail(rs.getString("EMAIL"));
-        entity.setTitle(rs.getString("TITLE"));
-        entity.setOrg(rs.getString("ORG"));
-        entity.setUrl(rs.getString("URL"));
-        entity.setPort43(rs.getString("PORT43"));
-        entity.setLang(rs.getString("LANG"));
-        extractCustomPropertiesFromRs(rs, entity);
+        entity.setId(rs.getLong(1));
+        entity.setHandle(rs.getString(2));
+        entity.setKind(rs.getString(3));
+        entity.setFn(rs.getString(4));
+        entity.setEmail(rs.getString(5));
+        entity.setTitle(rs.getString(6));
+        entity.setOrg(rs.getString(7));
+        entity.setUrl(rs.getString(8));
+        entity.setPort43(rs.getString(9));
+        entity.setLang(rs.getString(10));
+        extractCustomPropertiesFromRs(rs, 11, entity);
     }
 
     /**
@@ -500,7 +675,7 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
             List<Entity> result = new ArrayList<Entity>();
             Map<Long, Entity> entityMapById = new HashMap<Long, Entity>();
             while (rs.next()) {
-                Long entityId = rs.getLong("ENTITY_ID");
+                Long entityId = rs.getLong(1);
                 Entity entity = entityMapById.get(entityId);
                 if (null == entity) {
                     entity = new Entity();
@@ -508,25 +683,60 @@ public class EntityQueryDaoImpl extends AbstractQueryDao<Entity> {
                     result.add(entity);
                     entityMapById.put(entityId, entity);
                 }
-                entity.addRole(rs.getString("ENTITY_ROLE"));
+                entity.addRole(rs.getString(ENTITY_COLUMN_COUNT + 1));
             }
             return result;
         }
     }
 
     /**
-     * query and set status to entity.
+     * entity ResultSetExtractor for batch query, extract data from ResultSet
+     * and group entities by REL_ID.
+     * 
+     * @author jiashuo
      * 
-     * @param entity
-     *            entity which will be set.
      */
-    private void queryAndSetStatus(Entity entity) {
-        List<Entity> models = new ArrayList<Entity>();
-        if (null == entity) {
-            return;
+    class BatchEntityWithRoleResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Entity>>> {
+        /**
+         * result map, outer object id to entity list.
+         */
+        private Map<Long, List<Entity>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        BatchEntityWithRoleResultSetExtractor(Map<Long, List<Entity>> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Map<Long, List<Entity>> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, Map<Long, Entity>> mapByRelId =
+                    new HashMap<Long, Map<Long, Entity>>();
+            while (rs.next()) {
+                Long entityId = rs.getLong(1);
+                Long relId = rs.getLong(ENTITY_COLUMN_COUNT + 2);
+                Map<Long, Entity> entityMapById = mapByRelId.get(relId);
+                if (null == entityMapById) {
+                    entityMapById = new HashMap<Long, Entity>();
+                    mapByRelId.put(relId, entityMapById);
+                }
+                Entity entity = entityMapById.get(entityId);
+                if (null == entity) {
+                    entity = new Entity();
+                    extractEntityFromRs(rs, entity);
+                    result.get(relId).add(entity);
+                    entityMapById.put(entityId, entity);
+                }
+                entity.addRole(rs.getString(ENTITY_COLUMN_COUNT + 1));
+            }
+            return result;
         }
-        models.add(entity);
-        queryAndSetStatus(models);
     }
 
     /**
@@ -36,7 +36,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.common.model.EntityTelephone;
@@ -46,6 +48,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -94,6 +97,33 @@ public class EntityTelDao extends AbstractQueryDao<EntityTelephone> {
         return result;
     }
 
+    /**
+     * query entity telephones of entity list from RDAP_VCARD_TEL in one SQL.
+     * 
+     * @param entityIds
+     *            entity id list.
+     * @return map of entity id to EntityTelephone list.
+     */
+    public Map<Long, List<EntityTelephone>> query(List<Long> entityIds) {
+        final Map<Long, List<EntityTelephone>> result =
+                initInnerObjectsMap(entityIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sql =
+                String.format(
+                        "select * from RDAP_VCARD_TEL where ENTITY_ID in (%s)",
+                        StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(sql, new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                result.get(rs.getLong("ENTITY_ID")).add(
+                        extractEntityTelFromRs(rs));
+            }
+        });
+        return result;
+    }
+
     /**
      * entity address ResultSetExtractor, extract data from ResultSet.
      * 
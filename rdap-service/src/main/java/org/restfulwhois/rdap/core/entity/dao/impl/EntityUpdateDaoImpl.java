@@ -41,8 +41,10 @@ import org.restfulwhois.rdap.common.dto.EntityDto;
 import org.restfulwhois.rdap.common.dto.embedded.EntityHandleDto;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.search.entity.dao.EntityNameSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
@@ -67,6 +69,16 @@ public class EntityUpdateDaoImpl extends AbstractUpdateDao<Entity, EntityDto> {
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(EntityUpdateDaoImpl.class);
+    /**
+     * entity index, changed entities are reported to it.
+     */
+    @Autowired
+    private EntityNameSearchIndex entityNameSearchIndex;
+    /**
+     * existence filter, saved entity handles are reported to it.
+     */
+    @Autowired
+    private EntityExistenceFilter entityExistenceFilter;
     /**
      * SQL_SAVE_ENTITY.
      */
@@ -109,6 +121,8 @@ public class EntityUpdateDaoImpl extends AbstractUpdateDao<Entity, EntityDto> {
             }
         }, keyHolder);
         model.setId(keyHolder.getKey().longValue());
+        entityNameSearchIndex.onChanged(model.getId());
+        entityExistenceFilter.onSaved(model.getHandle());
         return model;
     }
 
@@ -133,6 +147,7 @@ public class EntityUpdateDaoImpl extends AbstractUpdateDao<Entity, EntityDto> {
                 ps.setLong(10, model.getId());
             }
         });
+        entityNameSearchIndex.onChanged(model.getId());
     }
 
     @Override
@@ -148,6 +163,7 @@ public class EntityUpdateDaoImpl extends AbstractUpdateDao<Entity, EntityDto> {
                 ps.setLong(1, model.getId());
             }
         });
+        entityNameSearchIndex.onChanged(model.getId());
     }
 
     @Override
@@ -30,7 +30,10 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.restfulwhois.rdap.common.model.Entity;
@@ -43,9 +46,11 @@ import org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter.JcardOrgConv
 import org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter.JcardTelephoneConverter;
 import org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter.JcardTitleConverter;
 import org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter.JcardUrlConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import ezvcard.Ezvcard;
-import ezvcard.VCard;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * This class is used to convert <a href='http://tools.ietf.org/html/rfc6350'>
@@ -53,8 +58,10 @@ import ezvcard.VCard;
  * href='http://tools.ietf.org/html/draft-ietf-jcardcal-jcard-07'>
  * draft-ietf-jcardcal-jcard</a>.
  * <p>
- * This class use <a href='https://code.google.com/p/ez-vcard'>ezvcard</a> to
- * convert VCARD to JSON.
+ * Properties are written to Jackson JsonGenerator directly by converters,
+ * and the output is the same as <a
+ * href='https://code.google.com/p/ez-vcard'>ezvcard</a> for vCard 4.0,
+ * without building ezvcard VCard object.
  * 
  * <p>
  * property will not be write to JSON if exception occurred.
@@ -64,13 +71,27 @@ import ezvcard.VCard;
  */
 public final class Jcard {
     /**
-     * entity, datasource of VCARD.
+     * logger.
      */
-    private Entity entity;
+    private static final Logger LOGGER = LoggerFactory.getLogger(Jcard.class);
+    /**
+     * JSON factory, thread-safe.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    /**
+     * VCARD property converters, they are stateless and shared.
+     * 
+     * <pre>
+     * WARN: the order of the converters IS the order of the JSON outputs, 
+     * so it SHOULD not be changed.
+     * </pre>
+     */
+    private static final List<JcardPropertyConverter> CONVERTERS =
+            initPropertyConverters();
     /**
-     * VCARD property converters.
+     * entity, datasource of VCARD.
      */
-    private List<JcardPropertyConverter> converters;
+    private Entity entity;
 
     /**
      * factory method.
@@ -92,19 +113,16 @@ public final class Jcard {
     private Jcard(Entity entity) {
         super();
         this.entity = entity;
-        this.initPropertyConverters();
     }
 
     /**
      * initialize converters.
      * 
-     * <pre>
-     * WARN: the order of the converters IS the order of the JSON outputs, 
-     * so it SHOULD not be changed.
-     * </pre>
+     * @return converters.
      */
-    private void initPropertyConverters() {
-        converters = new ArrayList<JcardPropertyConverter>();
+    private static List<JcardPropertyConverter> initPropertyConverters() {
+        List<JcardPropertyConverter> converters =
+                new ArrayList<JcardPropertyConverter>();
         converters.add(new JcardKindConverter());
         converters.add(new JcardFnConverter());
         converters.add(new JcardAddressConverter());
@@ -114,36 +132,42 @@ public final class Jcard {
         converters.add(new JcardOrgConverter());
         converters.add(new JcardUrlConverter());
         converters.add(new JcardLangConverter());
+        return Collections.unmodifiableList(converters);
     }
 
     /**
      * convert VCARD to JSON.
      * 
-     * @return JSON string.
+     * @return JSON string, null if entity has no VCARD property.
      */
     public String toJSON() {
-        VCard vcard = new VCard();
-        if (null == entity) {
-            return this.writeJSON(vcard);
-        }
-        for (JcardPropertyConverter converter : converters) {
-            converter.convertAndSetProperty(vcard, entity);
-        }
-        if (!vcard.iterator().hasNext()) {
+        StringWriter writer = new StringWriter();
+        try {
+            JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+            generator.writeStartArray();
+            generator.writeString("vcard");
+            generator.writeStartArray();
+            JcardPropertyWriter.writeProperty(generator, "version", "text",
+                    "4.0");
+            int propertyCount = 0;
+            if (null != entity) {
+                for (JcardPropertyConverter converter : CONVERTERS) {
+                    propertyCount +=
+                            converter.convertAndWriteProperty(generator,
+                                    entity);
+                }
+                if (propertyCount == 0) {
+                    return null;
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndArray();
+            generator.close();
+        } catch (IOException e) {
+            LOGGER.error("write jcard error:{}", e);
             return null;
         }
-        return this.writeJSON(vcard);
-    }
-
-    /**
-     * write JSON.
-     * 
-     * @param vcard
-     *            VCARD.
-     * @return JSON string.
-     */
-    private String writeJSON(VCard vcard) {
-        return Ezvcard.writeJson(vcard).prodId(false).go();
+        return writer.toString();
     }
 
 }
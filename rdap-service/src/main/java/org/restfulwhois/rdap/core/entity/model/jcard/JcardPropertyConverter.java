@@ -30,15 +30,17 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard;
 
+import java.io.IOException;
+
 import org.restfulwhois.rdap.common.model.Entity;
 
-import ezvcard.VCard;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
- * convert a certain property of Entity, and set it to corresponding VCARD
+ * convert a certain property of Entity, and write it to corresponding jCard
  * property.
  * <p>
- * property value will be ignored and not setted if exception occurred when
+ * property value will be ignored and not written if exception occurred when
  * converting.
  * 
  * @author jiashuo
@@ -46,13 +48,17 @@ import ezvcard.VCard;
  */
 public interface JcardPropertyConverter {
     /**
-     * convert and set property to VCARD object.
+     * convert and write property to JSON generator, by JcardPropertyWriter.
      * 
-     * @param vcard
-     *            VCARD object.
+     * @param generator
+     *            JSON generator, in properties array of jCard.
      * @param entity
      *            Entity object.
+     * @return count of written properties.
+     * @throws IOException
+     *             IOException of generator.
      */
-    void convertAndSetProperty(VCard vcard, Entity entity);
+    int convertAndWriteProperty(JsonGenerator generator, Entity entity)
+            throws IOException;
 
 }
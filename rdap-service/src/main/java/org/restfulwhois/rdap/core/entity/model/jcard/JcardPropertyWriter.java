@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.core.entity.model.jcard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * <pre>
+ * write jCard property to JSON generator, as:
+ *   ["name", {"type":"home","pref":"1"}, "valueType", value]
+ * Type parameter is written as string if there is only one type, or else as
+ * array, and it is not written if there is no type. Value is string, or array
+ * of string for structured value. Null value is written as empty string.
+ * 
+ * Parameters are handled the same as ezvcard for vCard 4.0: type 'pref' is
+ * removed and written as parameter "pref":"1", and pref out of range [1,100]
+ * is ignored.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public final class JcardPropertyWriter {
+    /**
+     * type 'pref'.
+     */
+    private static final String TYPE_PREF = "pref";
+    /**
+     * min value of pref.
+     */
+    private static final int MIN_PREF = 1;
+    /**
+     * max value of pref.
+     */
+    private static final int MAX_PREF = 100;
+
+    /**
+     * private constructor.
+     */
+    private JcardPropertyWriter() {
+        super();
+    }
+
+    /**
+     * write property without parameter.
+     * 
+     * @param generator
+     *            JSON generator.
+     * @param name
+     *            property name.
+     * @param valueType
+     *            value type, eg: text, uri.
+     * @param value
+     *            value.
+     * @throws IOException
+     *             IOException of generator.
+     */
+    public static void writeProperty(JsonGenerator generator, String name,
+            String valueType, String value) throws IOException {
+        writeProperty(generator, name, null, null, valueType, value);
+    }
+
+    /**
+     * write property.
+     * 
+     * @param generator
+     *            JSON generator.
+     * @param name
+     *            property name.
+     * @param types
+     *            values of type parameter, can be null.
+     * @param pref
+     *            pref parameter, can be null.
+     * @param valueType
+     *            value type, eg: text, uri.
+     * @param value
+     *            value.
+     * @throws IOException
+     *             IOException of generator.
+     */
+    public static void writeProperty(JsonGenerator generator, String name,
+            List<String> types, Integer pref, String valueType, String value)
+            throws IOException {
+        writePropertyStart(generator, name, types, pref, valueType);
+        writeValue(generator, value);
+        generator.writeEndArray();
+    }
+
+    /**
+     * write property with structured value.
+     * 
+     * @param generator
+     *            JSON generator.
+     * @param name
+     *            property name.
+     * @param types
+     *            values of type parameter, can be null.
+     * @param pref
+     *            pref parameter, can be null.
+     * @param valueType
+     *            value type, eg: text.
+     * @param values
+     *            components of structured value.
+     * @throws IOException
+     *             IOException of generator.
+     */
+    public static void writeStructuredProperty(JsonGenerator generator,
+            String name, List<String> types, Integer pref, String valueType,
+            String... values) throws IOException {
+        writePropertyStart(generator, name, types, pref, valueType);
+        generator.writeStartArray();
+        for (String value : values) {
+            writeValue(generator, value);
+        }
+        generator.writeEndArray();
+        generator.writeEndArray();
+    }
+
+    /**
+     * write property name, parameters and value type.
+     * 
+     * @param generator
+     *            JSON generator.
+     * @param name
+     *            property name.
+     * @param types
+     *            values of type parameter, can be null.
+     * @param pref
+     *            pref parameter, can be null.
+     * @param valueType
+     *            value type.
+     * @throws IOException
+     *             IOException of generator.
+     */
+    private static void writePropertyStart(JsonGenerator generator,
+            String name, List<String> types, Integer pref, String valueType)
+            throws IOException {
+        generator.writeStartArray();
+        generator.writeString(name);
+        generator.writeStartObject();
+        List<String> typeList = new ArrayList<String>();
+        if (null != types) {
+            typeList.addAll(types);
+        }
+        Integer prefParam = pref;
+        if (null != prefParam
+                && (prefParam < MIN_PREF || prefParam > MAX_PREF)) {
+            prefParam = null;
+        }
+        if (typeList.remove(TYPE_PREF)) {
+            prefParam = MIN_PREF;
+        }
+        if (typeList.size() == 1) {
+            generator.writeStringField("type", typeList.get(0));
+        } else if (typeList.size() > 1) {
+            generator.writeArrayFieldStart("type");
+            for (String type : typeList) {
+                generator.writeString(type);
+            }
+            generator.writeEndArray();
+        }
+        if (null != prefParam) {
+            generator.writeStringField("pref", prefParam.toString());
+        }
+        generator.writeEndObject();
+        generator.writeString(valueType);
+    }
+
+    /**
+     * write value, null is written as empty string.
+     * 
+     * @param generator
+     *            JSON generator.
+     * @param value
+     *            value.
+     * @throws IOException
+     *             IOException of generator.
+     */
+    private static void writeValue(JsonGenerator generator, String value)
+            throws IOException {
+        generator.writeString(null == value ? "" : value);
+    }
+}
@@ -30,18 +30,19 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.common.model.EntityAddress;
 import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyConverter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyWriter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
 
-import ezvcard.VCard;
 import ezvcard.parameter.AddressType;
-import ezvcard.property.Address;
 
 /**
  * JcardAddressConverter.
@@ -50,85 +51,47 @@ import ezvcard.property.Address;
  * 
  */
 public class JcardAddressConverter implements JcardPropertyConverter {
-    /**
-     * logger.
-     */
-    private static final Logger LOGGER = LoggerFactory
-            .getLogger(JcardAddressConverter.class);
 
     @Override
-    public void convertAndSetProperty(VCard vcard, Entity entity) {
-        this.addAddressToVcard(vcard, entity);
-    }
-
-    /**
-     * add addresses to VCARD.
-     * 
-     * @param vcard
-     *            VCARD.
-     * @param entity
-     *            entity.
-     */
-    private void addAddressToVcard(VCard vcard, Entity entity) {
+    public int convertAndWriteProperty(JsonGenerator generator, Entity entity)
+            throws IOException {
         List<EntityAddress> addressList = entity.getAddresses();
         if (null == addressList) {
-            return;
+            return 0;
         }
         for (EntityAddress entityAddress : addressList) {
-            Address address = new Address();
-            address.setPoBox(entityAddress.getPoBox());
-            address.setExtendedAddress(entityAddress.getExtendedAddress());
-            address.setStreetAddress(entityAddress.getStreetAddress());
-            address.setLocality(entityAddress.getLocality());
-            address.setRegion(entityAddress.getRegion());
-            address.setPostalCode(entityAddress.getPostalCode());
-            address.setCountry(entityAddress.getCountry());
-            addAddressTypes(entityAddress.getTypes(), address);
-            setAddressPref(entityAddress, address);
-            vcard.addAddress(address);
-        }
-    }
-
-    /**
-     * set address PREF.
-     * 
-     * @param entityAddress
-     *            entityAddress.
-     * @param address
-     *            address.
-     */
-    private void setAddressPref(EntityAddress entityAddress, Address address) {
-        if (null == entityAddress.getPref()) {
-            return;
-        }
-        try {
-            address.setPref(entityAddress.getPref());
-        } catch (Exception e) {
-            LOGGER.error("setAddressPref error:{}. Not set pref:{}.",
-                    e.getMessage(), entityAddress.getPref());
+            JcardPropertyWriter.writeStructuredProperty(generator, "adr",
+                    parseAddressTypes(entityAddress.getTypes()),
+                    entityAddress.getPref(), "text",
+                    entityAddress.getPoBox(),
+                    entityAddress.getExtendedAddress(),
+                    entityAddress.getStreetAddress(),
+                    entityAddress.getLocality(), entityAddress.getRegion(),
+                    entityAddress.getPostalCode(), entityAddress.getCountry());
         }
+        return addressList.size();
     }
 
     /**
-     * add addressTypes to address.
+     * parse address types.
      * 
      * @param addressTypesStr
-     *            addressesStr,splitted by ';'.
-     * @param address
-     *            address.
+     *            ';' separated types.
+     * @return type values.
      */
-    private void addAddressTypes(String addressTypesStr, Address address) {
+    private List<String> parseAddressTypes(String addressTypesStr) {
+        List<String> types = new ArrayList<String>();
         if (StringUtils.isBlank(addressTypesStr)) {
-            return;
+            return types;
         }
         String[] addressTypeStrArray = StringUtils.split(addressTypesStr, ";");
         if (null == addressTypeStrArray) {
-            return;
+            return types;
         }
         for (String addressStr : addressTypeStrArray) {
-            AddressType addressType = AddressType.get(addressStr);
-            address.addType(addressType);
+            types.add(AddressType.get(addressStr).getValue());
         }
+        return types;
     }
 
 }
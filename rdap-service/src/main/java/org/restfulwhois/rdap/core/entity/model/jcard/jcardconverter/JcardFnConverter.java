@@ -30,11 +30,14 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter;
 
+import java.io.IOException;
+
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyConverter;
+import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyWriter;
 
-import ezvcard.VCard;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * JcardFnConverter.
@@ -45,10 +48,14 @@ import ezvcard.VCard;
 public class JcardFnConverter implements JcardPropertyConverter {
 
     @Override
-    public void convertAndSetProperty(VCard vcard, Entity entity) {
-        if (StringUtils.isNotBlank(entity.getFn())) {
-            vcard.setFormattedName(entity.getFn());
+    public int convertAndWriteProperty(JsonGenerator generator, Entity entity)
+            throws IOException {
+        if (StringUtils.isBlank(entity.getFn())) {
+            return 0;
         }
+        JcardPropertyWriter.writeProperty(generator, "fn", "text",
+                entity.getFn());
+        return 1;
     }
 
 }
@@ -30,12 +30,14 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter;
 
+import java.io.IOException;
+
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyConverter;
+import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyWriter;
 
-import ezvcard.VCard;
-import ezvcard.property.Kind;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * JcardKindConverter.
@@ -46,10 +48,14 @@ import ezvcard.property.Kind;
 public class JcardKindConverter implements JcardPropertyConverter {
 
     @Override
-    public void convertAndSetProperty(VCard vcard, Entity entity) {
-        if (StringUtils.isNotBlank(entity.getKind())) {
-            vcard.setKind(new Kind(entity.getKind()));
+    public int convertAndWriteProperty(JsonGenerator generator, Entity entity)
+            throws IOException {
+        if (StringUtils.isBlank(entity.getKind())) {
+            return 0;
         }
+        JcardPropertyWriter.writeProperty(generator, "kind", "text",
+                entity.getKind());
+        return 1;
     }
 
 }
@@ -30,11 +30,14 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter;
 
+import java.io.IOException;
+
 import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyConverter;
+import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyWriter;
 
-import ezvcard.VCard;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * JcardOrgConverter.
@@ -45,10 +48,14 @@ import ezvcard.VCard;
 public class JcardOrgConverter implements JcardPropertyConverter {
 
     @Override
-    public void convertAndSetProperty(VCard vcard, Entity entity) {
-        if (StringUtils.isNotBlank(entity.getOrg())) {
-            vcard.setOrganization(entity.getOrg());
+    public int convertAndWriteProperty(JsonGenerator generator, Entity entity)
+            throws IOException {
+        if (StringUtils.isBlank(entity.getOrg())) {
+            return 0;
         }
+        JcardPropertyWriter.writeProperty(generator, "org", "text",
+                entity.getOrg());
+        return 1;
     }
 
 }
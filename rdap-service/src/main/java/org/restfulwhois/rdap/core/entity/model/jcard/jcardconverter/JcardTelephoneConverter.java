@@ -30,6 +30,7 @@
  */
 package org.restfulwhois.rdap.core.entity.model.jcard.jcardconverter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,12 +38,13 @@ import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.common.model.EntityTelephone;
 import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyConverter;
+import org.restfulwhois.rdap.core.entity.model.jcard.JcardPropertyWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ezvcard.VCard;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import ezvcard.parameter.TelephoneType;
-import ezvcard.property.Telephone;
 import ezvcard.util.TelUri;
 import ezvcard.util.TelUri.Builder;
 
@@ -60,98 +62,66 @@ public class JcardTelephoneConverter implements JcardPropertyConverter {
             .getLogger(JcardTelephoneConverter.class);
 
     @Override
-    public void convertAndSetProperty(VCard vcard, Entity entity) {
-        this.addTelsToVcard(vcard, entity);
-    }
-
-    /**
-     * add telephone to VCARD.
-     * 
-     * @param vcard
-     *            VCARD.
-     * @param entity
-     *            entity.
-     */
-    private void addTelsToVcard(VCard vcard, Entity entity) {
+    public int convertAndWriteProperty(JsonGenerator generator, Entity entity)
+            throws IOException {
         List<EntityTelephone> telList = entity.getTelephones();
         if (null == telList) {
-            return;
+            return 0;
         }
+        int count = 0;
         for (EntityTelephone tel : telList) {
             if (tel.isEmpty()) {
                 continue;
             }
-            addTelephoneToVcard(tel, vcard);
+            TelUri telUri = buildTelUri(tel);
+            if (null == telUri) {
+                continue;
+            }
+            JcardPropertyWriter.writeProperty(generator, "tel",
+                    parseTelephoneTypes(tel.getTypes()), tel.getPref(), "uri",
+                    telUri.toString());
+            count++;
         }
+        return count;
     }
 
     /**
-     * add PREF.
+     * build tel URI.
      * 
      * @param tel
-     *            tel.
-     * @param telephone
      *            telephone.
+     * @return tel URI, null if number or extension is invalid.
      */
-    private void addPref(EntityTelephone tel, Telephone telephone) {
-        if (null == tel.getPref()) {
-            return;
-        }
-        try {
-            telephone.setPref(tel.getPref());
-        } catch (Exception e) {
-            LOGGER.error("addPref error:{}. Not set pref:{}.", e.getMessage(),
-                    tel.getPref());
-        }
-    }
-
-    /**
-     * build telephone URI.
-     * 
-     * @param tel
-     *            tel.
-     * @param vcard vcard.
-     */
-    private void addTelephoneToVcard(EntityTelephone tel, VCard vcard) {
-        if (tel.isEmpty()) {
-            return;
-        }
+    private TelUri buildTelUri(EntityTelephone tel) {
         try {
             Builder telBuilder = new TelUri.Builder(tel.getNumber());
             if (StringUtils.isNotBlank(tel.getExtNumber())) {
                 telBuilder.extension(tel.getExtNumber());
             }
-            TelUri telUri = telBuilder.build();
-            Telephone telephone = new Telephone(telUri);
-            List<TelephoneType> types = parseTelephoneTypes(tel.getTypes());
-            for (TelephoneType type : types) {
-                telephone.addType(type);
-            }
-            addPref(tel, telephone);
-            vcard.addTelephoneNumber(telephone);
+            return telBuilder.build();
         } catch (Exception e) {
-            LOGGER.error("addFaxTelToVcard error:{} tel:{}", e.getMessage(),
-                    tel);
+            LOGGER.error("buildTelUri error:{} tel:{}", e.getMessage(), tel);
         }
+        return null;
     }
 
     /**
-     * parseTelephoneTypes.
+     * parse telephone types, unknown types are ignored.
      * 
      * @param typesStr
-     *            types String, split by ';'.
-     * @return TelephoneType list.
+     *            ';' separated types.
+     * @return type values.
      */
-    private List<TelephoneType> parseTelephoneTypes(String typesStr) {
-        List<TelephoneType> types = new ArrayList<TelephoneType>();
+    private List<String> parseTelephoneTypes(String typesStr) {
+        List<String> types = new ArrayList<String>();
         String[] typeSplitStrArray = StringUtils.split(typesStr, ";");
-        if(null == typeSplitStrArray){
+        if (null == typeSplitStrArray) {
             return types;
         }
         for (String typeSplit : typeSplitStrArray) {
             TelephoneType type = TelephoneType.find(typeSplit);
             if (null != type) {
-                types.add(type);
+                types.add(type.getValue());
             }
         }
         return types;
@@ -122,6 +122,14 @@ public class EntityQueryParam extends QueryParam {
         this.searchParamName = searchParamName;
     }
 
+    @Override
+    public String getCacheKey() {
+        if (null != searchParamName) {
+            return null;
+        }
+        return getQueryUri().getName() + getQ();
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this).append(searchParamName).append(getQ())
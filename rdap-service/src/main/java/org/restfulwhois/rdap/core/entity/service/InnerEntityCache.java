@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.core.entity.service;
+
+import org.restfulwhois.rdap.common.model.Entity;
+
+/**
+ * cache of assembled inner entities.
+ * <pre>
+ * Inner objects of entity which only depend on entity id: vcardArray,
+ * status, publicIds, remarks, links, events and asEventActor, are assembled
+ * once and kept by entity id. Roles depend on relation and are not cached.
+ * Entity is looked up in identity map of current request first, so it is
+ * assembled once per response, then in cache shared by requests, which is
+ * bounded by innerEntityCacheMaxSize and innerEntityCacheTtlSeconds.
+ * Entry is evicted when entity is updated or deleted, and all entries are
+ * cleared when access control is changed.
+ * </pre>
+ * @author jiashuo
+ */
+public interface InnerEntityCache {
+    /**
+     * get current version of cache, which is changed when entry is evicted.
+     * Get it before query, and pass it to put().
+     * @return version.
+     */
+    long getVersion();
+
+    /**
+     * get assembled entity, from identity map of current request, or from
+     * shared cache.
+     * @param entityId
+     *            entity id.
+     * @return assembled entity, null if not cached.
+     */
+    Entity get(Long entityId);
+
+    /**
+     * put assembled entity into identity map of current request and shared
+     * cache. It is not put into shared cache if any entry is evicted after
+     * version is got.
+     * @param entityId
+     *            entity id.
+     * @param entity
+     *            assembled entity, which must not be changed after put.
+     * @param version
+     *            version got before query.
+     */
+    void put(Long entityId, Entity entity, long version);
+
+    /**
+     * evict entry of entity, and evict it again after current transaction is
+     * completed.
+     * @param entityId
+     *            entity id.
+     */
+    void evict(Long entityId);
+
+    /**
+     * clear all entries.
+     */
+    void clear();
+
+    /**
+     * get hit count of shared cache.
+     * @return hit count.
+     */
+    long getHitCount();
+
+    /**
+     * get miss count of shared cache.
+     * @return miss count.
+     */
+    long getMissCount();
+
+    /**
+     * get cached entry size of shared cache.
+     * @return size.
+     */
+    int size();
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.core.entity.service;
+
+/**
+ * cache of entity vcardArray JSON.
+ * <pre>
+ * Registrar and contact entities are repeated in many responses, so their
+ * rendered vcardArray is cached by entity id, and addresses and telephones
+ * are not queried again. Entry is evicted when entity is updated or deleted,
+ * and expires after vcardCacheTtlSeconds for changes made out of this
+ * application.
+ * </pre>
+ * @author jiashuo
+ */
+public interface VcardCache {
+    /**
+     * get current version of cache, which is changed when entry is evicted.
+     * Get it before query, and pass it to put().
+     * @return version.
+     */
+    long getVersion();
+
+    /**
+     * get cached vcardArray.
+     * @param entityId
+     *            entity id.
+     * @return vcardArray JSON, null if not cached.
+     */
+    String get(Long entityId);
+
+    /**
+     * put vcardArray into cache. It is ignored if any entry is evicted after
+     * version is got.
+     * @param entityId
+     *            entity id.
+     * @param vcardArray
+     *            vcardArray JSON, null is not cached.
+     * @param version
+     *            version got before query.
+     */
+    void put(Long entityId, String vcardArray, long version);
+
+    /**
+     * evict entry of entity, and evict it again after current transaction is
+     * completed.
+     * @param entityId
+     *            entity id.
+     */
+    void evict(Long entityId);
+
+    /**
+     * get hit count.
+     * @return hit count.
+     */
+    long getHitCount();
+
+    /**
+     * get miss count.
+     * @return miss count.
+     */
+    long getMissCount();
+
+    /**
+     * get cached entry size.
+     * @return size.
+     */
+    int size();
+}
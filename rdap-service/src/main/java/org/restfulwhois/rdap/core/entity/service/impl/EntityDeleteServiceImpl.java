@@ -62,6 +62,8 @@ public class EntityDeleteServiceImpl extends EntityUpdateBaseServiceImpl {
         deleteEntityTels(entity);
         deletePublicIds(entity);
         deleteBaseModelRel(entity);
+        vcardCache.evict(entity.getId());
+        innerEntityCache.evict(entity.getId());
     }
 
     @Override
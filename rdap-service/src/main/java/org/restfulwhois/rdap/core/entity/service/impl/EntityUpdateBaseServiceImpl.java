@@ -47,6 +47,8 @@ import org.restfulwhois.rdap.common.model.EntityTelephone;
 import org.restfulwhois.rdap.common.service.AbstractUpdateService;
 import org.restfulwhois.rdap.common.util.BeanUtil;
 import org.restfulwhois.rdap.common.validation.ValidationResult;
+import org.restfulwhois.rdap.core.entity.service.InnerEntityCache;
+import org.restfulwhois.rdap.core.entity.service.VcardCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -69,6 +71,16 @@ public abstract class EntityUpdateBaseServiceImpl extends
      */
     @Autowired
     protected UpdateDao<EntityTelephone, EntityTelephoneDto> entityTelDao;
+    /**
+     * vcardCache, entity is evicted when updated or deleted.
+     */
+    @Autowired
+    protected VcardCache vcardCache;
+    /**
+     * innerEntityCache, entity is evicted when updated or deleted.
+     */
+    @Autowired
+    protected InnerEntityCache innerEntityCache;
     /**
      * logger.
      */
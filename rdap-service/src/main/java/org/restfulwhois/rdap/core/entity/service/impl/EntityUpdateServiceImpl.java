@@ -63,6 +63,8 @@ public class EntityUpdateServiceImpl extends EntityUpdateBaseServiceImpl {
         updateEntityTels(entity);
         updatePublicIds(dto.getPublicIds(), entity);
         updateBaseModel(entity);
+        vcardCache.evict(entity.getId());
+        innerEntityCache.evict(entity.getId());
     }
 
     @Override
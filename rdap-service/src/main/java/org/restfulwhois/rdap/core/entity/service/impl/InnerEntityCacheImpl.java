@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.core.entity.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.LruCache;
+import org.restfulwhois.rdap.core.entity.service.InnerEntityCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * inner entity cache.
+ * 
+ * <pre>
+ * Identity map of request is kept in request attribute, and there is no
+ * identity map if not in request.
+ * Shared entries are kept in LruCache with frequency admission, bounded by
+ * innerEntityCacheMaxSize and innerEntityCacheTtlSeconds.
+ * Shared cache is disabled if innerEntityCacheMaxSize is 0.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@Service
+public class InnerEntityCacheImpl implements InnerEntityCache {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(InnerEntityCacheImpl.class);
+
+    /**
+     * request attribute name of identity map.
+     */
+    private static final String IDENTITY_MAP_ATTRIBUTE =
+            InnerEntityCacheImpl.class.getName() + ".IDENTITY_MAP";
+
+    /**
+     * version, increased when entry is evicted.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * cache, key is entity id.
+     */
+    private volatile LruCache<Long, Entity> cache;
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public Entity get(Long entityId) {
+        if (null == entityId) {
+            return null;
+        }
+        Map<Long, Entity> identityMap = getIdentityMap();
+        if (null != identityMap) {
+            Entity entity = identityMap.get(entityId);
+            if (null != entity) {
+                return entity;
+            }
+        }
+        LruCache<Long, Entity> currentCache = getCache();
+        if (!currentCache.isEnabled()) {
+            return null;
+        }
+        Entity entity = currentCache.get(entityId);
+        if (null != entity && null != identityMap) {
+            identityMap.put(entityId, entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public void put(Long entityId, Entity entity, long queryVersion) {
+        if (null == entityId || null == entity) {
+            return;
+        }
+        Map<Long, Entity> identityMap = getIdentityMap();
+        if (null != identityMap) {
+            identityMap.put(entityId, entity);
+        }
+        LruCache<Long, Entity> currentCache = getCache();
+        if (!currentCache.isEnabled()) {
+            return;
+        }
+        synchronized (version) {
+            if (queryVersion != version.get()) {
+                LOGGER.debug("entry is evicted during query, not put:{}",
+                        entityId);
+                return;
+            }
+            currentCache.put(entityId, entity);
+        }
+    }
+
+    @Override
+    public void evict(final Long entityId) {
+        if (null == entityId) {
+            return;
+        }
+        evictNow(entityId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        evictNow(entityId);
+                    }
+                });
+    }
+
+    @Override
+    public void clear() {
+        synchronized (version) {
+            version.incrementAndGet();
+            getCache().clear();
+        }
+        Map<Long, Entity> identityMap = getIdentityMap();
+        if (null != identityMap) {
+            identityMap.clear();
+        }
+    }
+
+    /**
+     * evict entry and increase version.
+     * 
+     * @param entityId
+     *            entity id.
+     */
+    private void evictNow(Long entityId) {
+        synchronized (version) {
+            version.incrementAndGet();
+            getCache().remove(entityId);
+        }
+        Map<Long, Entity> identityMap = getIdentityMap();
+        if (null != identityMap) {
+            identityMap.remove(entityId);
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return getCache().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return getCache().getMissCount();
+    }
+
+    @Override
+    public int size() {
+        return getCache().size();
+    }
+
+    /**
+     * get identity map of current request, create if not exist.
+     * 
+     * @return identity map, null if not in request.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Entity> getIdentityMap() {
+        RequestAttributes attributes =
+                RequestContextHolder.getRequestAttributes();
+        if (null == attributes) {
+            return null;
+        }
+        Map<Long, Entity> identityMap =
+                (Map<Long, Entity>) attributes.getAttribute(
+                        IDENTITY_MAP_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST);
+        if (null == identityMap) {
+            identityMap = new ConcurrentHashMap<Long, Entity>();
+            attributes.setAttribute(IDENTITY_MAP_ATTRIBUTE, identityMap,
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+        return identityMap;
+    }
+
+    /**
+     * get cache, create if not exist.
+     * 
+     * @return cache.
+     */
+    private LruCache<Long, Entity> getCache() {
+        if (null == cache) {
+            synchronized (this) {
+                if (null == cache) {
+                    Integer maxSize =
+                            RdapProperties.getInnerEntityCacheMaxSize();
+                    Long ttlSeconds =
+                            RdapProperties.getInnerEntityCacheTtlSeconds();
+                    cache =
+                            new LruCache<Long, Entity>(null == maxSize ? 0
+                                    : maxSize, null == ttlSeconds ? 0
+                                    : TimeUnit.SECONDS.toMillis(ttlSeconds),
+                                    true);
+                    LOGGER.info("inner entity cache maxSize:{}, ttlSeconds:{}",
+                            maxSize, ttlSeconds);
+                }
+            }
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.core.entity.service.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.LruCache;
+import org.restfulwhois.rdap.core.entity.service.VcardCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * vcard cache.
+ * 
+ * <pre>
+ * vcardArray JSON is kept in LruCache with frequency admission, bounded by
+ * vcardCacheMaxSize and vcardCacheTtlSeconds.
+ * Cache is disabled if vcardCacheMaxSize is 0.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@Service
+public class VcardCacheImpl implements VcardCache {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(VcardCacheImpl.class);
+
+    /**
+     * version, increased when entry is evicted.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * cache, key is entity id.
+     */
+    private volatile LruCache<Long, String> cache;
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public String get(Long entityId) {
+        LruCache<Long, String> currentCache = getCache();
+        if (!currentCache.isEnabled() || null == entityId) {
+            return null;
+        }
+        return currentCache.get(entityId);
+    }
+
+    @Override
+    public void put(Long entityId, String vcardArray, long queryVersion) {
+        LruCache<Long, String> currentCache = getCache();
+        if (!currentCache.isEnabled() || null == entityId
+                || null == vcardArray) {
+            return;
+        }
+        synchronized (version) {
+            if (queryVersion != version.get()) {
+                LOGGER.debug("entry is evicted during query, not put:{}",
+                        entityId);
+                return;
+            }
+            currentCache.put(entityId, vcardArray);
+        }
+    }
+
+    @Override
+    public void evict(final Long entityId) {
+        if (null == entityId) {
+            return;
+        }
+        evictNow(entityId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        evictNow(entityId);
+                    }
+                });
+    }
+
+    /**
+     * evict entry and increase version.
+     * 
+     * @param entityId
+     *            entity id.
+     */
+    private void evictNow(Long entityId) {
+        synchronized (version) {
+            version.incrementAndGet();
+            getCache().remove(entityId);
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return getCache().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return getCache().getMissCount();
+    }
+
+    @Override
+    public int size() {
+        return getCache().size();
+    }
+
+    /**
+     * get cache, create if not exist.
+     * 
+     * @return cache.
+     */
+    private LruCache<Long, String> getCache() {
+        if (null == cache) {
+            synchronized (this) {
+                if (null == cache) {
+                    Integer maxSize = RdapProperties.getVcardCacheMaxSize();
+                    Long ttlSeconds = RdapProperties.getVcardCacheTtlSeconds();
+                    cache =
+                            new LruCache<Long, String>(null == maxSize ? 0
+                                    : maxSize, null == ttlSeconds ? 0
+                                    : TimeUnit.SECONDS.toMillis(ttlSeconds),
+                                    true);
+                    LOGGER.info("vcard cache maxSize:{}, ttlSeconds:{}",
+                            maxSize, ttlSeconds);
+                }
+            }
+        }
+        return cache;
+    }
+}
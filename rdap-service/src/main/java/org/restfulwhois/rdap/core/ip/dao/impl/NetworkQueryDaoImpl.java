@@ -38,10 +38,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.dao.NoticeDao;
 import org.restfulwhois.rdap.common.dao.QueryDao;
+import org.restfulwhois.rdap.common.dao.ReplicaRoutingDataSource;
 import org.restfulwhois.rdap.common.dao.impl.SelfLinkGenerator;
 import org.restfulwhois.rdap.common.model.Domain;
 import org.restfulwhois.rdap.common.model.Entity;
@@ -52,6 +57,8 @@ import org.restfulwhois.rdap.common.model.Network;
 import org.restfulwhois.rdap.common.model.Remark;
 import org.restfulwhois.rdap.common.model.base.ModelType;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.IpRangeIndex;
 import org.restfulwhois.rdap.common.util.IpUtil;
 import org.restfulwhois.rdap.common.util.NetworkInBytes;
 import org.restfulwhois.rdap.core.ip.queryparam.NetworkQueryParam;
@@ -61,13 +68,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * <pre>
  * network query DAO select ip from RDAP_IP.
  * need to query notice remark link event entity as inner objects.
  * for ipAddress,support ipv4 and ipv6.
+ * 
+ * Network is found by in-memory IpRangeIndex of IP_ID, one for each IP
+ * version, which finds the most specific network in O(log n), and then
+ * selected by IP_ID. Index is built in background, and replaced atomically
+ * after networkIndexTtlSeconds for changes made out of this application, so
+ * lookups are never blocked by building, and are served by the old index
+ * meanwhile.
+ * Networks changed by NetworkUpdateDaoImpl are reported by onChanged(), and
+ * reloaded after transaction is completed into a small set of changed
+ * networks. Index is rebuilt when there are more than MAX_CHANGED_NETWORKS.
+ * Networks not found in index, and networks whose index answer is changed or
+ * which are contained in a changed network, are looked up in database by
+ * walking at most MAX_WALK_ROWS rows.
  * </pre>
  * 
  * @author weijunkai
@@ -81,6 +104,71 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
      */
     private static final Logger LOGGER = LoggerFactory
             .getLogger(NetworkQueryDaoImpl.class);
+    /**
+     * network columns selected by network query SQL, in the order
+     * extractNetworkFromRs reads them by index. Must be the first columns of
+     * select list.
+     */
+    private static final String SQL_NETWORK_COLUMNS =
+            "ip.IP_ID,ip.HANDLE,ip.VERSION,ip.STARTADDRESS,ip.ENDADDRESS,"
+                    + "ip.NAME,ip.TYPE,ip.COUNTRY,ip.PARENT_HANDLE,ip.LANG,"
+                    + "ip.PORT43,ip.CIDR,ip.CUSTOM_PROPERTIES";
+    /**
+     * count of SQL_NETWORK_COLUMNS, other columns start after it.
+     */
+    private static final int NETWORK_COLUMN_COUNT = 13;
+    /**
+     * max rows walked backward from start address by network lookup in
+     * database.
+     */
+    private static final int MAX_WALK_ROWS = 1000;
+    /**
+     * select all network ranges, for building index.
+     */
+    private static final String SELECT_ALL_RANGES =
+            "select IP_ID,STARTADDRESS,ENDADDRESS,VERSION from RDAP_IP";
+    /**
+     * select network range by id, for reloading changed network.
+     */
+    private static final String SELECT_RANGE_BY_ID = SELECT_ALL_RANGES
+            + " where IP_ID = ?";
+    /**
+     * index is rebuilt if changed networks are more than this count.
+     */
+    private static final int MAX_CHANGED_NETWORKS = 1000;
+    /**
+     * backoff time after first build failure, in milliseconds.
+     */
+    private static final long MIN_BUILD_BACKOFF_MILLIS = 1000;
+    /**
+     * max backoff time after build failures, in milliseconds.
+     */
+    private static final long MAX_BUILD_BACKOFF_MILLIS = 300000;
+    /**
+     * IP_ID index, null if not built.
+     */
+    private volatile IpIdIndex ipIdIndex;
+    /**
+     * true if index is building.
+     */
+    private boolean building;
+    /**
+     * count of build failures since last successful build.
+     */
+    private int buildFailureCount;
+    /**
+     * time when next build can be started, in milliseconds.
+     */
+    private long nextBuildTime;
+    /**
+     * networks changed after index is built, by IP_ID.
+     */
+    private final Map<Long, ChangedNetwork> changedNetworks =
+            new ConcurrentHashMap<Long, ChangedNetwork>();
+    /**
+     * sequence of changes.
+     */
+    private final AtomicLong changeSequence = new AtomicLong();
     /**
      * notice dao.
      */
@@ -182,6 +270,69 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
                 "only support ENTITY/ARPA model.");
     }
 
+    /**
+     * query network of a batch of arpa domains in one SQL, and query their
+     * inner objects in batch. Other outer model is queried one by one.
+     * 
+     * @param outerObjectIds
+     *            outer object id list.
+     * @param outerModelType
+     *            outer object type.
+     * @return map of outer object id to network list.
+     */
+    @Override
+    public Map<Long, List<Network>> queryAsInnerObjects(
+            List<Long> outerObjectIds, ModelType outerModelType) {
+        if (!ModelType.DOMAIN.equals(outerModelType)) {
+            return super.queryAsInnerObjects(outerObjectIds, outerModelType);
+        }
+        Map<Long, List<Network>> result = initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sqlTpl =
+                "select " + SQL_NETWORK_COLUMNS + ",status.STATUS,d.DOMAIN_ID"
+                        + " from RDAP_IP ip inner join RDAP_DOMAIN d "
+                        + " on ip.IP_ID=d.NETWORK_ID "
+                        + " left outer join RDAP_IP_STATUS status"
+                        + " on ip.IP_ID = status.IP_ID "
+                        + " where d.DOMAIN_ID in (%s)";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(sql, new BatchNetworkWithStatusResultSetExtractor(
+                result));
+        queryAndSetInnerObjectsWithoutStatus(flatInnerObjects(result));
+        return result;
+    }
+
+    /**
+     * query remarks, links and events of networks in batch, and set them to
+     * networks. Status must be queried with networks.
+     * 
+     * @param networks
+     *            networks which will be set.
+     */
+    private void queryAndSetInnerObjectsWithoutStatus(List<Network> networks) {
+        if (networks.isEmpty()) {
+            return;
+        }
+        List<Long> ipIds = getModelIds(networks);
+        Map<Long, List<Remark>> remarksMap =
+                remarkQueryDao.queryAsInnerObjects(ipIds, ModelType.IP);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(ipIds, ModelType.IP);
+        Map<Long, List<Event>> eventsMap =
+                eventQueryDao.queryAsInnerObjects(ipIds, ModelType.IP);
+        for (Network network : networks) {
+            Long ipId = network.getId();
+            network.setRemarks(new ArrayList<Remark>(remarksMap.get(ipId)));
+            List<Link> links = new ArrayList<Link>(linksMap.get(ipId));
+            links.add(SelfLinkGenerator.generateSelfLink(network));
+            network.setLinks(links);
+            network.setEvents(new ArrayList<Event>(eventsMap.get(ipId)));
+        }
+    }
+
     /**
      * find by ARPA domain id.
      * 
@@ -191,7 +342,8 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
      */
     private List<Network> findByArpaDomainId(final Long arpaDomainId) {
         final String sql =
-                "select * from RDAP_IP ip" + " inner join RDAP_DOMAIN d "
+                "select " + SQL_NETWORK_COLUMNS + ",status.STATUS"
+                        + " from RDAP_IP ip inner join RDAP_DOMAIN d "
                         + " on ip.IP_ID=d.NETWORK_ID "
                         + " left outer join RDAP_IP_STATUS status"
                         + " on ip.IP_ID = status.IP_ID "
@@ -234,7 +386,8 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
     private List<Network> queryWithoutInnerObjectsForEntity(
             final Long outerObjectId) {
         final String sql =
-                "select * from RDAP_IP ip inner join "
+                "select " + SQL_NETWORK_COLUMNS + ",status.STATUS"
+                        + " from RDAP_IP ip inner join "
                         + " REL_ENTITY_REGISTRATION rel "
                         + " on ip.IP_ID = rel.REL_ID "
                         + " left outer join RDAP_IP_STATUS status on ip.IP_ID = "
@@ -273,14 +426,58 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
             List<Network> result = new ArrayList<Network>();
             Map<Long, Network> networkMapById = new HashMap<Long, Network>();
             while (rs.next()) {
-                Long networkId = rs.getLong("IP_ID");
+                Long networkId = rs.getLong(1);
                 Network network = networkMapById.get(networkId);
                 if (null == network) {
                     network = extractNetworkFromRs(rs, networkId);
                     result.add(network);
                     networkMapById.put(networkId, network);
                 }
-                network.addStatus(rs.getString("STATUS"));
+                network.addStatus(rs.getString(NETWORK_COLUMN_COUNT + 1));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * network with status resultSet extractor for batch query, group networks
+     * by DOMAIN_ID.
+     * 
+     * @author jiashuo
+     * 
+     */
+    class BatchNetworkWithStatusResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Network>>> {
+        /**
+         * result map, domain id to network list.
+         */
+        private Map<Long, List<Network>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        BatchNetworkWithStatusResultSetExtractor(
+                Map<Long, List<Network>> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Map<Long, List<Network>> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, Network> networkMapByDomainId =
+                    new HashMap<Long, Network>();
+            while (rs.next()) {
+                Long domainId = rs.getLong(NETWORK_COLUMN_COUNT + 2);
+                Network network = networkMapByDomainId.get(domainId);
+                if (null == network) {
+                    network = extractNetworkFromRs(rs, rs.getLong(1));
+                    result.get(domainId).add(network);
+                    networkMapByDomainId.put(domainId, network);
+                }
+                network.addStatus(rs.getString(NETWORK_COLUMN_COUNT + 1));
             }
             return result;
         }
@@ -343,10 +540,20 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
      * @return Ip object
      */
     private Network queryWithoutInnerObjects(QueryParam queryParam) {
-        PreparedStatementCreator pstatCreator =
-                generatePStatCreator(queryParam, "RDAP_IP");
+        NetworkInBytes network =
+                ((NetworkQueryParam) queryParam).getNetworkInBytes();
+        Long ipId = findIpIdInIndex(network);
+        if (null != ipId) {
+            Network result = queryWithoutInnerObjectsById(ipId, network);
+            if (null != result) {
+                return result;
+            }
+            LOGGER.info("network index is stale, reload network. ipId:{}",
+                    ipId);
+            reload(ipId);
+        }
         List<Network> result =
-                jdbcTemplate.query(pstatCreator,
+                jdbcTemplate.query(generatePStatCreator(queryParam, "RDAP_IP"),
                         new NetworkResultSetExtractor());
         if (null == result || result.size() == 0) {
             return null;
@@ -354,11 +561,410 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
         return result.get(0);
     }
 
+    /**
+     * query network by id, without inner objects.
+     * 
+     * @param ipId
+     *            IP_ID.
+     * @param network
+     *            network which must be contained.
+     * @return network, null if not found or not contains network.
+     */
+    private Network queryWithoutInnerObjectsById(final Long ipId,
+            final NetworkInBytes network) {
+        final String sql =
+                "select " + SQL_NETWORK_COLUMNS + " from RDAP_IP ip"
+                        + " where IP_ID = ? and VERSION = ?"
+                        + " and STARTADDRESS <= ? and ENDADDRESS >= ?";
+        List<Network> result =
+                jdbcTemplate.query(new PreparedStatementCreator() {
+                    @Override
+                    public PreparedStatement createPreparedStatement(
+                            Connection connection) throws SQLException {
+                        PreparedStatement ps = connection.prepareStatement(sql);
+                        ps.setLong(1, ipId);
+                        ps.setString(2, network.getIpVersion().getName());
+                        ps.setBytes(3, network.getStartAddress());
+                        ps.setBytes(4, network.getEndAddress());
+                        return ps;
+                    }
+                }, new NetworkResultSetExtractor());
+        if (result.size() == 0) {
+            return null;
+        }
+        return result.get(0);
+    }
+
+    /**
+     * find IP_ID of the most specific network containing network in index.
+     * Index is not used, and null is returned, if it is not built, or if the
+     * network found or any network containing it is changed after index is
+     * built, so the network is looked up in database.
+     * 
+     * @param network
+     *            network.
+     * @return IP_ID, null if not found in index or index can not be used.
+     */
+    Long findIpIdInIndex(NetworkInBytes network) {
+        IpIdIndex currentIndex = getIpIdIndex();
+        if (null == currentIndex) {
+            return null;
+        }
+        Long ipId = currentIndex.find(network);
+        if (null == ipId || changedNetworks.isEmpty()) {
+            return ipId;
+        }
+        if (changedNetworks.containsKey(ipId)) {
+            return null;
+        }
+        for (ChangedNetwork changed : changedNetworks.values()) {
+            if (changed.contains(network)) {
+                return null;
+            }
+        }
+        return ipId;
+    }
+
+    /**
+     * report changed network, network is reloaded after transaction is
+     * completed, and overrides the built index until index is rebuilt.
+     * 
+     * @param ipId
+     *            IP_ID.
+     */
+    public void onChanged(final Long ipId) {
+        if (null == ipId) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload(ipId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        reload(ipId);
+                    }
+                });
+    }
+
+    /**
+     * get IP_ID index, start building it if not built, expired, or there are
+     * too many changed networks.
+     * 
+     * @return index, null if not built.
+     */
+    private IpIdIndex getIpIdIndex() {
+        IpIdIndex currentIndex = ipIdIndex;
+        if (null == currentIndex
+                || System.currentTimeMillis() >= currentIndex.expireTime
+                || changedNetworks.size() > MAX_CHANGED_NETWORKS) {
+            startBuilding();
+        }
+        return currentIndex;
+    }
+
+    /**
+     * start building index in background, if not building and not backing
+     * off after build failure.
+     */
+    private synchronized void startBuilding() {
+        if (building || System.currentTimeMillis() < nextBuildTime) {
+            return;
+        }
+        building = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean success = false;
+                try {
+                    buildIpIdIndex();
+                    success = true;
+                } catch (Exception e) {
+                    LOGGER.error("build network index error", e);
+                } finally {
+                    onBuildCompleted(success);
+                }
+            }
+        }, "NetworkIndex-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * reset building state after build, and set backoff time if failed.
+     * Backoff doubles on each failure, from MIN_BUILD_BACKOFF_MILLIS up to
+     * MAX_BUILD_BACKOFF_MILLIS.
+     * 
+     * @param success
+     *            true if build is successful.
+     */
+    private synchronized void onBuildCompleted(boolean success) {
+        building = false;
+        if (success) {
+            buildFailureCount = 0;
+            nextBuildTime = 0;
+            return;
+        }
+        buildFailureCount++;
+        int shift = Math.min(buildFailureCount - 1, 20);
+        long backoff =
+                Math.min(MAX_BUILD_BACKOFF_MILLIS,
+                        MIN_BUILD_BACKOFF_MILLIS << shift);
+        nextBuildTime = System.currentTimeMillis() + backoff;
+        LOGGER.warn("network index build failed {} times, retry after {}ms",
+                buildFailureCount, backoff);
+    }
+
+    /**
+     * build IP_ID index from database, and publish it with changed networks
+     * which are reloaded after loading started.
+     */
+    private void buildIpIdIndex() {
+        long startSequence = changeSequence.get();
+        long startTime = System.currentTimeMillis();
+        final IpRangeIndex<Long> v4Index =
+                new IpRangeIndex<Long>(IpUtil.getHexCharSize(IpVersion.V4) / 2);
+        final IpRangeIndex<Long> v6Index =
+                new IpRangeIndex<Long>(IpUtil.getHexCharSize(IpVersion.V6) / 2);
+        // load from primary, same as autnum index.
+        boolean readOnly = ReplicaRoutingDataSource.setReadOnly(false);
+        try {
+            jdbcTemplate.query(SELECT_ALL_RANGES, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    IpVersion ipVersion =
+                            IpVersion.getIpVersion(rs.getString("VERSION"));
+                    if (null == ipVersion || ipVersion.isNotValidIp()) {
+                        return;
+                    }
+                    IpRangeIndex<Long> index =
+                            ipVersion.isV4() ? v4Index : v6Index;
+                    index.add(rs.getBytes("STARTADDRESS"),
+                            rs.getBytes("ENDADDRESS"), rs.getLong("IP_ID"));
+                }
+            });
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(readOnly);
+        }
+        v4Index.build();
+        v6Index.build();
+        IpIdIndex newIndex =
+                new IpIdIndex(v4Index, v6Index, startTime
+                        + getIndexTtlMillis());
+        synchronized (this) {
+            // changes after loading started are kept.
+            for (Map.Entry<Long, ChangedNetwork> changed : changedNetworks
+                    .entrySet()) {
+                if (changed.getValue().sequence <= startSequence) {
+                    changedNetworks.remove(changed.getKey());
+                }
+            }
+            ipIdIndex = newIndex;
+        }
+        LOGGER.info("build network index, v4 size:{}, v6 size:{}, cost {}ms",
+                new Object[] { v4Index.size(), v6Index.size(),
+                        System.currentTimeMillis() - startTime });
+    }
+
+    /**
+     * reload changed network from primary into changed networks.
+     * 
+     * @param ipId
+     *            IP_ID.
+     */
+    private void reload(Long ipId) {
+        final List<ChangedNetwork> loaded = new ArrayList<ChangedNetwork>();
+        final long sequence = changeSequence.incrementAndGet();
+        boolean readOnly = ReplicaRoutingDataSource.setReadOnly(false);
+        try {
+            jdbcTemplate.query(SELECT_RANGE_BY_ID, new Object[] { ipId },
+                    new RowCallbackHandler() {
+                        @Override
+                        public void processRow(ResultSet rs)
+                                throws SQLException {
+                            loaded.add(new ChangedNetwork(IpVersion
+                                    .getIpVersion(rs.getString("VERSION")),
+                                    rs.getBytes("STARTADDRESS"), rs
+                                            .getBytes("ENDADDRESS"),
+                                    sequence));
+                        }
+                    });
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(readOnly);
+        }
+        changedNetworks.put(ipId, loaded.isEmpty() ? new ChangedNetwork(null,
+                null, null, sequence) : loaded.get(0));
+    }
+
+    /**
+     * get index ttl from properties.
+     * 
+     * @return ttl in milliseconds, Long.MAX_VALUE / 2 if not configured.
+     */
+    private long getIndexTtlMillis() {
+        Long ttlSeconds = RdapProperties.getNetworkIndexTtlSeconds();
+        if (null == ttlSeconds || ttlSeconds <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        return TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * network changed after index is built.
+     * 
+     * @author jiashuo
+     * 
+     */
+    private static class ChangedNetwork {
+        /**
+         * IP version, null if deleted.
+         */
+        private final IpVersion ipVersion;
+        /**
+         * start address, null if deleted.
+         */
+        private final byte[] startAddress;
+        /**
+         * end address, null if deleted.
+         */
+        private final byte[] endAddress;
+        /**
+         * change sequence.
+         */
+        private final long sequence;
+
+        /**
+         * constructor.
+         * 
+         * @param ipVersion
+         *            IP version, null if deleted.
+         * @param startAddress
+         *            start address, null if deleted.
+         * @param endAddress
+         *            end address, null if deleted.
+         * @param sequence
+         *            change sequence.
+         */
+        ChangedNetwork(IpVersion ipVersion, byte[] startAddress,
+                byte[] endAddress, long sequence) {
+            this.ipVersion = ipVersion;
+            this.startAddress = startAddress;
+            this.endAddress = endAddress;
+            this.sequence = sequence;
+        }
+
+        /**
+         * check if this network contains network.
+         * 
+         * @param network
+         *            network.
+         * @return true if contains, false if not or deleted.
+         */
+        boolean contains(NetworkInBytes network) {
+            if (null == ipVersion || ipVersion != network.getIpVersion()
+                    || null == startAddress || null == endAddress) {
+                return false;
+            }
+            return compareAddress(startAddress, network.getStartAddress())
+                    <= 0
+                    && compareAddress(endAddress, network.getEndAddress())
+                    >= 0;
+        }
+
+        /**
+         * compare addresses of the same length as unsigned bytes.
+         * 
+         * @param address1
+         *            address.
+         * @param address2
+         *            address.
+         * @return negative, zero or positive if address1 is less than, equal
+         *         to or greater than address2.
+         */
+        private static int compareAddress(byte[] address1, byte[] address2) {
+            if (address1.length != address2.length) {
+                return address1.length - address2.length;
+            }
+            for (int i = 0; i < address1.length; i++) {
+                int result = (address1[i] & 0xFF) - (address2[i] & 0xFF);
+                if (0 != result) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * IP_ID indexes of IPv4 and IPv6, published together.
+     * 
+     * @author jiashuo
+     * 
+     */
+    private static class IpIdIndex {
+        /**
+         * index of IPv4 networks.
+         */
+        private final IpRangeIndex<Long> v4Index;
+        /**
+         * index of IPv6 networks.
+         */
+        private final IpRangeIndex<Long> v6Index;
+        /**
+         * expire time, in milliseconds.
+         */
+        private final long expireTime;
+
+        /**
+         * constructor.
+         * 
+         * @param v4Index
+         *            index of IPv4 networks.
+         * @param v6Index
+         *            index of IPv6 networks.
+         * @param expireTime
+         *            expire time, in milliseconds.
+         */
+        IpIdIndex(IpRangeIndex<Long> v4Index, IpRangeIndex<Long> v6Index,
+                long expireTime) {
+            this.v4Index = v4Index;
+            this.v6Index = v6Index;
+            this.expireTime = expireTime;
+        }
+
+        /**
+         * find IP_ID of the most specific network containing network.
+         * 
+         * @param network
+         *            network.
+         * @return IP_ID, null if not found.
+         */
+        Long find(NetworkInBytes network) {
+            IpVersion ipVersion = network.getIpVersion();
+            if (null == ipVersion || ipVersion.isNotValidIp()) {
+                return null;
+            }
+            IpRangeIndex<Long> index = ipVersion.isV4() ? v4Index : v6Index;
+            return index.find(network.getStartAddress(),
+                    network.getEndAddress());
+        }
+    }
+
     /**
      * <pre>
      * generate PreparedStatementCreator by executing sql.
      * select network ip by high address and low address and match the 
-     * most accurate one.
+     * most accurate one: max start address, then min end address.
+     * 
+     * The sub query walks index (VERSION,STARTADDRESS,ENDADDRESS) backward
+     * from start address and stops at the first row containing the network,
+     * then the outer query finds the min end address for this start
+     * address. Address length is checked for the rows walked only.
+     * The walk is bounded by MAX_WALK_ROWS, so that address out of every
+     * range does not walk all rows before it. Networks starting farther are
+     * found by index.
      * </pre>
      * 
      * @param queryParam
@@ -371,25 +977,35 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
             QueryParam queryParam, String ipTableName) {
         NetworkQueryParam ipQueryParam = (NetworkQueryParam) queryParam;
         final NetworkInBytes network = ipQueryParam.getNetworkInBytes();
-        final int hexCharSize = IpUtil.getHexCharSize(network.getIpVersion());
-        String sql =
-                "select * from "
+        final int addressLength =
+                IpUtil.getHexCharSize(network.getIpVersion()) / 2;
+        final String sql =
+                "select " + SQL_NETWORK_COLUMNS + " from " + ipTableName
+                        + " ip where VERSION = ? and ENDADDRESS >= ?"
+                        + " and LENGTH(ENDADDRESS) = ?"
+                        + " and STARTADDRESS = (select STARTADDRESS from"
+                        + " (select STARTADDRESS,ENDADDRESS from "
                         + ipTableName
-                        + " where STARTADDRESS<=? && ENDADDRESS>=? && VERSION = ?"
-                        + " && LENGTH(HEX(STARTADDRESS))=? && LENGTH(HEX(ENDADDRESS))=? "
-                        + " && " + IpUtil.generateNetworkVersionSql("VERSION")
-                        + " order by STARTADDRESS desc,ENDADDRESS limit 1";
-        final String finalSql = sql;
+                        + " where VERSION = ? and STARTADDRESS <= ?"
+                        + " and LENGTH(STARTADDRESS) = ?"
+                        + " order by STARTADDRESS desc limit "
+                        + MAX_WALK_ROWS + ") walked"
+                        + " where ENDADDRESS >= ? and LENGTH(ENDADDRESS) = ?"
+                        + " order by STARTADDRESS desc limit 1)"
+                        + " order by ENDADDRESS limit 1";
         PreparedStatementCreator pstatCreator = new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
-                PreparedStatement ps = null;
-                ps = connection.prepareStatement(finalSql);
-                ps.setBytes(1, network.getStartAddress());
+                PreparedStatement ps = connection.prepareStatement(sql);
+                String ipVersion = network.getIpVersion().getName();
+                ps.setString(1, ipVersion);
                 ps.setBytes(2, network.getEndAddress());
-                ps.setString(3, network.getIpVersion().getName());
-                ps.setInt(4, hexCharSize);
-                ps.setInt(5, hexCharSize);
+                ps.setInt(3, addressLength);
+                ps.setString(4, ipVersion);
+                ps.setBytes(5, network.getStartAddress());
+                ps.setInt(6, addressLength);
+                ps.setBytes(7, network.getEndAddress());
+                ps.setInt(8, addressLength);
                 return ps;
             }
         };
@@ -418,7 +1034,8 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
     }
 
     /**
-     * extract network from ResultSet.
+     * extract network from ResultSet, columns must be selected by
+     * SQL_NETWORK_COLUMNS.
      * 
      * @param rs
      *            ResultSet.
@@ -432,16 +1049,16 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
             throws SQLException {
         Network network = new Network();
         network.setId(networkId);
-        network.setHandle(rs.getString("HANDLE"));
+        network.setHandle(rs.getString(2));
         setIpVersionAndStartEndAddress(rs, network);
-        network.setName(rs.getString("NAME"));
-        network.setType(rs.getString("TYPE"));
-        network.setCountry(rs.getString("COUNTRY"));
-        network.setParentHandle(rs.getString("PARENT_HANDLE"));
-        network.setLang(rs.getString("LANG"));
-        network.setPort43(rs.getString("PORT43"));
-        network.setCidr(rs.getString("CIDR"));
-        extractCustomPropertiesFromRs(rs, network);
+        network.setName(rs.getString(6));
+        network.setType(rs.getString(7));
+        network.setCountry(rs.getString(8));
+        network.setParentHandle(rs.getString(9));
+        network.setLang(rs.getString(10));
+        network.setPort43(rs.getString(11));
+        network.setCidr(rs.getString(12));
+        extractCustomPropertiesFromRs(rs, 13, network);
         return network;
     }
 
@@ -457,11 +1074,11 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
      */
     private void setIpVersionAndStartEndAddress(ResultSet rs, Network objIp)
             throws SQLException {
-        String ipVersionStr = rs.getString("VERSION");
+        String ipVersionStr = rs.getString(3);
         IpVersion ipVersion = IpVersion.getIpVersion(ipVersionStr);
         objIp.setIpVersion(ipVersion);
-        byte[] startAddressBytes = rs.getBytes("STARTADDRESS");
-        byte[] endAddressBytes = rs.getBytes("ENDADDRESS");
+        byte[] startAddressBytes = rs.getBytes(4);
+        byte[] endAddressBytes = rs.getBytes(5);
         objIp.setStartAddress(IpUtil.toString(startAddressBytes, ipVersion));
         objIp.setEndAddress(IpUtil.toString(endAddressBytes, ipVersion));
     }
@@ -478,7 +1095,7 @@ public class NetworkQueryDaoImpl extends AbstractQueryDao<Network> {
         public List<Network> extractData(ResultSet rs) throws SQLException {
             List<Network> result = new ArrayList<Network>();
             while (rs.next()) {
-                Long networkId = rs.getLong("IP_ID");
+                Long networkId = rs.getLong(1);
                 Network network = extractNetworkFromRs(rs, networkId);
                 result.add(network);
             }
@@ -41,6 +41,7 @@ import org.restfulwhois.rdap.common.model.Network;
 import org.restfulwhois.rdap.common.util.IpUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -86,6 +87,12 @@ public class NetworkUpdateDaoImpl extends AbstractUpdateDao<Network, IpDto> {
     private static final String SQL_DELETE_IP =
             "DELETE FROM RDAP_IP where IP_ID=?";
 
+    /**
+     * networkQueryDao, whose index is updated after network is changed.
+     */
+    @Autowired
+    private NetworkQueryDaoImpl networkQueryDao;
+
     @Override
     public Network save(final Network model) {
          KeyHolder keyHolder = new GeneratedKeyHolder();
@@ -111,6 +118,7 @@ public class NetworkUpdateDaoImpl extends AbstractUpdateDao<Network, IpDto> {
              }
          }, keyHolder);
          model.setId(keyHolder.getKey().longValue());
+         networkQueryDao.onChanged(model.getId());
          return model;
      
     }
@@ -139,7 +147,7 @@ public class NetworkUpdateDaoImpl extends AbstractUpdateDao<Network, IpDto> {
                 ps.setLong(12, model.getId());
             }
         });
-
+        networkQueryDao.onChanged(model.getId());
     }
     @Override
     public void updateStatus(Network model) {
@@ -153,7 +161,7 @@ public class NetworkUpdateDaoImpl extends AbstractUpdateDao<Network, IpDto> {
                 ps.setLong(1, model.getId());
             }
         });
-
+        networkQueryDao.onChanged(model.getId());
     }
     @Override
     public void deleteStatus(Network model) {
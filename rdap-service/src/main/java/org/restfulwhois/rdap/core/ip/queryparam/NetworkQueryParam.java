@@ -149,6 +149,16 @@ public class NetworkQueryParam extends QueryParam {
         this.networkInBytes = networkInBytes;
     }
 
+    @Override
+    public String getCacheKey() {
+        if (null == networkInBytes) {
+            return null;
+        }
+        return getQueryUri().getName()
+                + networkInBytes.getStartAddressAsString() + "-"
+                + networkInBytes.getEndAddressAsString();
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this).append(getQ()).toString();
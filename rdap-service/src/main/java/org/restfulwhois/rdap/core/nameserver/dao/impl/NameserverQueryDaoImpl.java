@@ -83,6 +83,23 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(LinkQueryDaoImpl.class);
+    /**
+     * nameserver columns selected by nameserver query and search SQL, in the
+     * order extractNameserverFromRs reads them by index. Must be the first
+     * columns of select list.
+     */
+    public static final String SQL_NAMESERVER_COLUMNS =
+            "ns.NAMESERVER_ID,ns.HANDLE,ns.LDH_NAME,ns.UNICODE_NAME,"
+                    + "ns.PORT43,ns.LANG,ns.CUSTOM_PROPERTIES";
+    /**
+     * count of SQL_NAMESERVER_COLUMNS, other columns start after it.
+     */
+    public static final int NAMESERVER_COLUMN_COUNT = 7;
+    /**
+     * existence filter of nameserver name.
+     */
+    @Autowired
+    private NameserverExistenceFilter nameserverExistenceFilter;
     /**
      * remark dao.
      */
@@ -130,7 +147,8 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
     private List<Nameserver> queryNameserverWithDomainID(
             final Long outerObjectId) {
         final String sql =
-                "select * from RDAP_NAMESERVER ns inner join "
+                "select " + SQL_NAMESERVER_COLUMNS + ",status.STATUS"
+                        + " from RDAP_NAMESERVER ns inner join "
                         + "REL_DOMAIN_NAMESERVER rel on (ns.NAMESERVER_ID = "
                         + "rel.NAMESERVER_ID and rel.DOMAIN_ID = ?) "
                         + " left outer join RDAP_NAMESERVER_STATUS status"
@@ -167,9 +185,54 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
         return listNameserver;
     }
 
+    /**
+     * query nameservers of a batch of domains in one SQL, and query their
+     * inner objects in batch. The same nameserver of different domains is
+     * different object.
+     * 
+     * @param outerObjectIds
+     *            domain id list.
+     * @param outerModelType
+     *            outer object type.
+     * @return map of domain id to nameserver list, value is null if domain
+     *         has no nameserver.
+     */
+    @Override
+    public Map<Long, List<Nameserver>> queryAsInnerObjects(
+            List<Long> outerObjectIds, ModelType outerModelType) {
+        Map<Long, List<Nameserver>> result =
+                initInnerObjectsMap(outerObjectIds);
+        if (result.isEmpty()) {
+            return result;
+        }
+        final String sqlTpl =
+                "select " + SQL_NAMESERVER_COLUMNS + ",status.STATUS,"
+                        + "rel.DOMAIN_ID"
+                        + " from RDAP_NAMESERVER ns inner join "
+                        + "REL_DOMAIN_NAMESERVER rel on (ns.NAMESERVER_ID = "
+                        + "rel.NAMESERVER_ID and rel.DOMAIN_ID in (%s)) "
+                        + " left outer join RDAP_NAMESERVER_STATUS status"
+                        + " on ns.NAMESERVER_ID = status.NAMESERVER_ID";
+        final String sql =
+                String.format(sqlTpl, StringUtils.join(result.keySet(), ","));
+        jdbcTemplate.query(sql, new BatchNSResultSetExtractor(result));
+        queryAndSetInnerObjects(flatInnerObjects(result));
+        for (Map.Entry<Long, List<Nameserver>> entry : result.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                entry.setValue(null);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Nameserver query(QueryParam queryParam) {
+        String punyName = ((DomainQueryParam) queryParam).getPunyName();
+        if (!nameserverExistenceFilter.mightExist(punyName)) {
+            return null;
+        }
         Nameserver nameserver = queryWithoutInnerObjects(queryParam);
+        nameserverExistenceFilter.onQueried(punyName, null != nameserver);
         queryAndSetInnerObjects(nameserver);
         queryAndSetEntities(nameserver);
         return nameserver;
@@ -185,24 +248,9 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
         if (null == ns) {
             return;
         }
-        Long nsID = ns.getId();
-        List<IPAddress> listIPAddress =
-                ipAddressQueryDao.queryAsInnerObjects(nsID,
-                        ModelType.NAMESERVER);
-        if (listIPAddress.size() > 0) {
-            IPAddress objIPAddress = listIPAddress.get(0);
-            ns.setIpAddresses(objIPAddress);
-        }
-        List<Remark> remarks =
-                remarkQueryDao.queryAsInnerObjects(nsID, ModelType.NAMESERVER);
-        ns.setRemarks(remarks);
-        List<Link> links =
-                linkQueryDao.queryAsInnerObjects(nsID, ModelType.NAMESERVER);
-        links.add(SelfLinkGenerator.generateSelfLink(ns));
-        ns.setLinks(links);
-        List<Event> events =
-                eventQueryDao.queryAsInnerObjects(nsID, ModelType.NAMESERVER);
-        ns.setEvents(events);
+        List<Nameserver> nameservers = new ArrayList<Nameserver>();
+        nameservers.add(ns);
+        queryAndSetInnerObjects(nameservers);
     }
 
     /**
@@ -233,7 +281,8 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
         DomainQueryParam nsQueryParam = (DomainQueryParam) queryParam;
         final String punyName = nsQueryParam.getPunyName();
         final String sql =
-                "select * from RDAP_NAMESERVER ns "
+                "select " + SQL_NAMESERVER_COLUMNS + ",status.STATUS"
+                        + " from RDAP_NAMESERVER ns "
                         + " left outer join RDAP_NAMESERVER_STATUS status "
                         + " on ns.NAMESERVER_ID = status.NAMESERVER_ID "
                         + " where LDH_NAME= ?";
@@ -264,7 +313,7 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
             List<Nameserver> result = new ArrayList<Nameserver>();
             Map<Long, Nameserver> nsMapById = new HashMap<Long, Nameserver>();
             while (rs.next()) {
-                Long nsId = rs.getLong("NAMESERVER_ID");
+                Long nsId = rs.getLong(1);
                 Nameserver ns = nsMapById.get(nsId);
                 if (null == ns) {
                     ns = new Nameserver();
@@ -273,7 +322,57 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
                     result.add(ns);
                     nsMapById.put(nsId, ns);
                 }
-                ns.addStatus(rs.getString("STATUS"));
+                ns.addStatus(rs.getString(NAMESERVER_COLUMN_COUNT + 1));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * nameserver ResultSetExtractor for batch query, extract data from
+     * ResultSet and group nameservers by DOMAIN_ID.
+     * 
+     * @author weijunkai
+     * 
+     */
+    class BatchNSResultSetExtractor implements
+            ResultSetExtractor<Map<Long, List<Nameserver>>> {
+        /**
+         * result map, domain id to nameserver list.
+         */
+        private Map<Long, List<Nameserver>> result;
+
+        /**
+         * constructor.
+         * 
+         * @param result
+         *            result map to be filled.
+         */
+        BatchNSResultSetExtractor(Map<Long, List<Nameserver>> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Map<Long, List<Nameserver>> extractData(ResultSet rs)
+                throws SQLException {
+            Map<Long, Map<Long, Nameserver>> mapByDomainId =
+                    new HashMap<Long, Map<Long, Nameserver>>();
+            while (rs.next()) {
+                Long nsId = rs.getLong(1);
+                Long domainId = rs.getLong(NAMESERVER_COLUMN_COUNT + 2);
+                Map<Long, Nameserver> nsMapById = mapByDomainId.get(domainId);
+                if (null == nsMapById) {
+                    nsMapById = new HashMap<Long, Nameserver>();
+                    mapByDomainId.put(domainId, nsMapById);
+                }
+                Nameserver ns = nsMapById.get(nsId);
+                if (null == ns) {
+                    ns = new Nameserver();
+                    extractNameserverFromRs(rs, ns);
+                    result.get(domainId).add(ns);
+                    nsMapById.put(nsId, ns);
+                }
+                ns.addStatus(rs.getString(NAMESERVER_COLUMN_COUNT + 1));
             }
             return result;
         }
@@ -293,11 +392,14 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
      *            nameserver list which will be set with entities.
      */
     private void queryAndSetEntities(List<Nameserver> nameservers) {
-        if (null == nameservers) {
+        if (null == nameservers || nameservers.isEmpty()) {
             return;
         }
+        Map<Long, List<Entity>> entitiesMap =
+                entityQueryDao.queryAsInnerObjects(getModelIds(nameservers),
+                        ModelType.NAMESERVER);
         for (Nameserver nameserver : nameservers) {
-            queryAndSetEntities(nameserver);
+            nameserver.setEntities(entitiesMap.get(nameserver.getId()));
         }
     }
 
@@ -322,7 +424,8 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
     }
 
     /**
-     * extract nameserver from ResultSet.
+     * extract nameserver from ResultSet, columns must be selected by
+     * SQL_NAMESERVER_COLUMNS.
      * 
      * @param rs
      *            ResultSet of sql.
@@ -333,27 +436,48 @@ public class NameserverQueryDaoImpl extends AbstractQueryDao<Nameserver> {
      */
     public static void extractNameserverFromRs(ResultSet rs,
             Nameserver nameserver) throws SQLException {
-        nameserver.setId(rs.getLong("NAMESERVER_ID"));
-        nameserver.setHandle(rs.getString("HANDLE"));
-        nameserver.setLdhName(rs.getString("LDH_NAME"));
-        nameserver.setUnicodeName(rs.getString("UNICODE_NAME"));
-        nameserver.setPort43(rs.getString("PORT43"));
-        nameserver.setLang(rs.getString("LANG"));
-        extractCustomPropertiesFromRs(rs, nameserver);
+        nameserver.setId(rs.getLong(1));
+        nameserver.setHandle(rs.getString(2));
+        nameserver.setLdhName(rs.getString(3));
+        nameserver.setUnicodeName(rs.getString(4));
+        nameserver.setPort43(rs.getString(5));
+        nameserver.setLang(rs.getString(6));
+        extractCustomPropertiesFromRs(rs, 7, nameserver);
     }
 
     /**
-     * query inner objects of nameserver,and set fill them to nameserver.
+     * query inner objects of nameserver list in batch,and fill them to
+     * nameservers. Each nameserver has its own lists, even if the same
+     * nameserver is in the list more than once.
      * 
      * @param nameservers
      *            nameservers list.
      */
     private void queryAndSetInnerObjects(List<Nameserver> nameservers) {
-        if (null == nameservers) {
+        if (null == nameservers || nameservers.isEmpty()) {
             return;
         }
-        for (Nameserver nameserver : nameservers) {
-            queryAndSetInnerObjects(nameserver);
+        List<Long> nsIds = getModelIds(nameservers);
+        ModelType type = ModelType.NAMESERVER;
+        Map<Long, List<IPAddress>> ipAddressesMap =
+                ipAddressQueryDao.queryAsInnerObjects(nsIds, type);
+        Map<Long, List<Remark>> remarksMap =
+                remarkQueryDao.queryAsInnerObjects(nsIds, type);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(nsIds, type);
+        Map<Long, List<Event>> eventsMap =
+                eventQueryDao.queryAsInnerObjects(nsIds, type);
+        for (Nameserver ns : nameservers) {
+            Long nsId = ns.getId();
+            List<IPAddress> listIPAddress = ipAddressesMap.get(nsId);
+            if (listIPAddress.size() > 0) {
+                ns.setIpAddresses(listIPAddress.get(0));
+            }
+            ns.setRemarks(new ArrayList<Remark>(remarksMap.get(nsId)));
+            List<Link> links = new ArrayList<Link>(linksMap.get(nsId));
+            links.add(SelfLinkGenerator.generateSelfLink(ns));
+            ns.setLinks(links);
+            ns.setEvents(new ArrayList<Event>(eventsMap.get(nsId)));
         }
     }
 
@@ -43,8 +43,11 @@ import org.restfulwhois.rdap.common.dto.NameserverDto;
 import org.restfulwhois.rdap.common.dto.embedded.HandleDto;
 import org.restfulwhois.rdap.common.model.Nameserver;
 import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.util.DomainUtil;
+import org.restfulwhois.rdap.search.nameserver.dao.NameserverNameSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -65,19 +68,30 @@ public class NameserverUpdateDaoImpl extends
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(NameserverUpdateDaoImpl.class);
+    /**
+     * nameserver name index, changed nameservers are reported to it.
+     */
+    @Autowired
+    private NameserverNameSearchIndex nameserverNameSearchIndex;
+    /**
+     * existence filter, saved nameserver names are reported to it.
+     */
+    @Autowired
+    private NameserverExistenceFilter nameserverExistenceFilter;
     /**
      * SQL save nameserver.
      */
     private static final String SQL_SAVE_NAMESERVER =
             "INSERT INTO RDAP_NAMESERVER"
-                    + " (HANDLE,LDH_NAME,UNICODE_NAME,PORT43,LANG,CUSTOM_PROPERTIES)"
-                    + " values(?,?,?,?,?,?)";
+                    + " (HANDLE,LDH_NAME,UNICODE_NAME,PORT43,LANG,CUSTOM_PROPERTIES"
+                    + ",REVERSED_LDH_NAME)"
+                    + " values(?,?,?,?,?,?,?)";
     /**
      * SQL update nameserver by ID.
      */
     private static final String SQL_UPDATE_NAMESERVER = "UPDATE RDAP_NAMESERVER"
             + " SET LDH_NAME=?,UNICODE_NAME=?,PORT43=?,LANG=?"
-            + " ,CUSTOM_PROPERTIES=? where NAMESERVER_ID=?";
+            + " ,CUSTOM_PROPERTIES=?,REVERSED_LDH_NAME=? where NAMESERVER_ID=?";
     /**
      * SQL delete nameserver by ID.
      */
@@ -99,10 +113,13 @@ public class NameserverUpdateDaoImpl extends
                 ps.setString(4, model.getPort43());
                 ps.setString(5, model.getLang());               
                 ps.setString(6, model.getCustomPropertiesJsonVal());
+                ps.setString(7, DomainUtil.reverseLabels(model.getLdhName()));
                 return ps;
             }
         }, keyHolder);
         model.setId(keyHolder.getKey().longValue());
+        nameserverNameSearchIndex.onChanged(model.getId());
+        nameserverExistenceFilter.onSaved(model.getLdhName());
         return model;
     
     }
@@ -121,9 +138,12 @@ public class NameserverUpdateDaoImpl extends
                 ps.setString(3, model.getPort43());
                 ps.setString(4, model.getLang());               
                 ps.setString(5, model.getCustomPropertiesJsonVal());
-                ps.setLong(6, model.getId());
+                ps.setString(6, DomainUtil.reverseLabels(model.getLdhName()));
+                ps.setLong(7, model.getId());
             }
         });
+        nameserverNameSearchIndex.onChanged(model.getId());
+        nameserverExistenceFilter.onSaved(model.getLdhName());
     }
     
     @Override
@@ -138,6 +158,7 @@ public class NameserverUpdateDaoImpl extends
                 ps.setLong(1, model.getId());
             }
         });
+        nameserverNameSearchIndex.onChanged(model.getId());
     }
     
     @Override
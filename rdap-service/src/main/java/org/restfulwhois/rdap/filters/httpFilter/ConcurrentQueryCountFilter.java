@@ -21,6 +21,9 @@ import org.springframework.http.ResponseEntity;
  * and MUST　decrease concurrent connection count before query service.
  * <p>
  * If exceed max concurrent connection count, it will return HTTP 509 error.
+ * <p>
+ * Query URIs are not filtered if async query is enabled, for they are limited
+ * by admission queue in FilterChainProxy.
  * 
  * @author jiashuo
  * 
@@ -112,6 +115,10 @@ public class ConcurrentQueryCountFilter implements HttpFilter {
         if (FilterHelper.isUpdateUri(req)) {
             return false;
         }
+        if (ConnectionControlService.isAsyncQueryEnabled()
+                && FilterHelper.isQueryUri(req)) {
+            return false;
+        }
         return true;
     }
 }
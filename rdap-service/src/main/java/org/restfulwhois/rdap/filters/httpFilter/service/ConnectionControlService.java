@@ -30,11 +30,7 @@
  */
 package org.restfulwhois.rdap.filters.httpFilter.service;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
@@ -49,7 +45,9 @@ import org.slf4j.LoggerFactory;
  * Requirement from
  * http://tools.ietf.org/html/draft-ietf-weirds-rdap-sec-06#section-3.3
  * 
- * limit the number of connections.
+ * limit the number of connections, and limit the request rate using
+ * RateLimiter. If async query is enabled, query requests are limited by
+ * QueryAdmissionQueue instead of concurrent query count.
  * 
  * @author jiashuo
  * 
@@ -74,12 +72,66 @@ public final class ConnectionControlService {
     private static final List<String> IP_WHITE_LIST_FOR_ACCESS_INTERVAL =
             RdapProperties.getIpWhiteListArrayForAccessInterval();
 
+    /**
+     * default burst of rate limit.
+     */
+    private static final int DEFAULT_RATE_LIMIT_BURST = 1;
+
+    /**
+     * default IPv4 prefix length of rate limit.
+     */
+    private static final int DEFAULT_RATE_LIMIT_IPV4_PREFIX_LENGTH = 24;
+
+    /**
+     * default IPv6 prefix length of rate limit.
+     */
+    private static final int DEFAULT_RATE_LIMIT_IPV6_PREFIX_LENGTH = 64;
+
     /**
      * logger.
      */
     private static final Logger LOGGER = LoggerFactory
             .getLogger(ConnectionControlService.class);
 
+    /**
+     * rate limiter for anonymous client and logined user.
+     */
+    private static final RateLimiter RATE_LIMITER = new RateLimiter(
+            MIN_SECONDS_ACCESS_INTERVAL_FOR_ANONYMOUS,
+            MIN_SECONDS_ACCESS_INTERVAL_AUTHED, getIntValue(
+                    RdapProperties.getRateLimitBurst(),
+                    DEFAULT_RATE_LIMIT_BURST), getIntValue(
+                    RdapProperties.getRateLimitIpv4PrefixLength(),
+                    DEFAULT_RATE_LIMIT_IPV4_PREFIX_LENGTH), getIntValue(
+                    RdapProperties.getRateLimitIpv6PrefixLength(),
+                    DEFAULT_RATE_LIMIT_IPV6_PREFIX_LENGTH));
+
+    /**
+     * default max query count processed at the same time.
+     */
+    private static final int DEFAULT_ASYNC_QUERY_MAX_RUNNING = 50;
+
+    /**
+     * default max waiting query count.
+     */
+    private static final int DEFAULT_ASYNC_QUERY_MAX_QUEUED = 1000;
+
+    /**
+     * default max waiting time of query in milliseconds.
+     */
+    private static final long DEFAULT_ASYNC_QUERY_QUEUE_TIMEOUT_MILLIS = 3000L;
+
+    /**
+     * admission queue of query requests processed asynchronously.
+     */
+    private static final QueryAdmissionQueue QUERY_ADMISSION_QUEUE =
+            new QueryAdmissionQueue(getIntValue(
+                    RdapProperties.getAsyncQueryMaxRunning(),
+                    DEFAULT_ASYNC_QUERY_MAX_RUNNING), getIntValue(
+                    RdapProperties.getAsyncQueryMaxQueued(),
+                    DEFAULT_ASYNC_QUERY_MAX_QUEUED),
+                    getAsyncQueryQueueTimeoutMillis());
+
     /**
      * constructor.
      */
@@ -87,13 +139,6 @@ public final class ConnectionControlService {
         super();
     }
 
-    /**
-     * client last access time map:<ip:lastAccessTime>. It will be updated for
-     * every access.
-     */
-    public static final Map<String, Long> CLIENT_IP2LAST_ACCESS_TIME_MAP =
-            Collections.synchronizedMap(new HashMap<String, Long>());
-
     /**
      * concurrent query count.
      */
@@ -107,39 +152,87 @@ public final class ConnectionControlService {
      * @return true if exceed rate limit,false if not.
      */
     public static boolean exceedRateLimit(String ip) {
-        if (!hasLimit()) {
+        if (!RATE_LIMITER.hasLimit()) {
             return false;
         }
         LOGGER.debug("check exceedRateLimit, ip:{}", ip);
         if (isInIpWhiteList(ip)) {
             return false;
         }
-        Long lastAccessTime = CLIENT_IP2LAST_ACCESS_TIME_MAP.get(ip);
-        long currentTimeMillis = System.currentTimeMillis();
-        if (hasLimit()) {
-            CLIENT_IP2LAST_ACCESS_TIME_MAP.put(ip, currentTimeMillis);
-        }
-        if (null == lastAccessTime) {
-            return false;
+        return !RATE_LIMITER.tryAcquire(ip, PrincipalHolder.getPrincipal());
+    }
+
+    /**
+     * get int value.
+     * 
+     * @param value
+     *            value.
+     * @param defaultValue
+     *            value returned if value is null.
+     * @return int value.
+     */
+    private static int getIntValue(Integer value, int defaultValue) {
+        if (null == value) {
+            return defaultValue;
         }
-        long accessTimeInterval = currentTimeMillis - lastAccessTime;
-        if (PrincipalHolder.getPrincipal().isAnonymous()) {
-            LOGGER.debug("check exceedRateLimit, is anonymous.");
-            return accessTimeInterval <= MIN_SECONDS_ACCESS_INTERVAL_FOR_ANONYMOUS;
-        } else {
-            LOGGER.debug("check exceedRateLimit, is logined user.");
-            return accessTimeInterval <= MIN_SECONDS_ACCESS_INTERVAL_AUTHED;
+        return value;
+    }
+
+    /**
+     * check if query requests are queued in admission queue and processed
+     * asynchronously, instead of being limited by concurrent query count.
+     * 
+     * @return true if enabled, false if not.
+     */
+    public static boolean isAsyncQueryEnabled() {
+        return Boolean.TRUE.equals(RdapProperties.getAsyncQueryEnabled());
+    }
+
+    /**
+     * get max waiting time of query in admission queue.
+     * 
+     * @return milliseconds.
+     */
+    public static long getAsyncQueryQueueTimeoutMillis() {
+        Long timeout = RdapProperties.getAsyncQueryQueueTimeoutMillis();
+        if (null == timeout) {
+            return DEFAULT_ASYNC_QUERY_QUEUE_TIMEOUT_MILLIS;
         }
+        return timeout;
+    }
+
+    /**
+     * admit query of current principal. MUST call releaseQuery after query
+     * if RUN is returned, or after admitted query if QUEUED is returned.
+     * 
+     * @param waiter
+     *            waiter called when query is admitted or expired, if query
+     *            is queued.
+     * @return admission.
+     */
+    public static QueryAdmissionQueue.Admission admitQuery(
+            QueryAdmissionQueue.Waiter waiter) {
+        return QUERY_ADMISSION_QUEUE.admit(!PrincipalHolder.getPrincipal()
+                .isAnonymous(), waiter);
+    }
+
+    /**
+     * release slot of admitted query.
+     */
+    public static void releaseQuery() {
+        QUERY_ADMISSION_QUEUE.release();
     }
 
     /**
-     * check if has limit.
+     * remove waiting query from admission queue.
      * 
-     * @return true if one or more intervals > 0, false if all intervals <= 0.
+     * @param waiter
+     *            waiter.
+     * @return true if removed, false if it is not waiting.
      */
-    private static boolean hasLimit() {
-        return MIN_SECONDS_ACCESS_INTERVAL_FOR_ANONYMOUS > 0
-                || MIN_SECONDS_ACCESS_INTERVAL_AUTHED > 0;
+    public static boolean removeWaitingQuery(
+            QueryAdmissionQueue.Waiter waiter) {
+        return QUERY_ADMISSION_QUEUE.remove(waiter);
     }
 
     /**
@@ -162,28 +255,6 @@ public final class ConnectionControlService {
         return false;
     }
 
-    /**
-     * clear ip map.
-     */
-    public static void clearIpMap() {
-        LOGGER.trace("clearIpMap begin...");
-        if (null == CLIENT_IP2LAST_ACCESS_TIME_MAP) {
-            return;
-        }
-        long maxSecondsInterval =
-                Math.max(MIN_SECONDS_ACCESS_INTERVAL_FOR_ANONYMOUS,
-                        MIN_SECONDS_ACCESS_INTERVAL_AUTHED);
-        Set<String> keys = CLIENT_IP2LAST_ACCESS_TIME_MAP.keySet();
-        for (String key : keys) {
-            if ((System.currentTimeMillis() - CLIENT_IP2LAST_ACCESS_TIME_MAP
-                    .get(key)) >= maxSecondsInterval) {
-                LOGGER.trace("remove ip:{}", key);
-                CLIENT_IP2LAST_ACCESS_TIME_MAP.remove(key);
-            }
-        }
-        LOGGER.trace("clearIpMap end.");
-    }
-
     /**
      * increment concurrent query count, and check if exceed max count.MUST call
      * decrementAndGetCurrentQueryCount after query.
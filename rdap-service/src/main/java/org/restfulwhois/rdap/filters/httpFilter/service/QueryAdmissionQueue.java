@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.filters.httpFilter.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <pre>
+ * bounded admission queue of query requests.
+ * 
+ * At most maxRunning queries are processed at the same time. A query
+ * arriving when all slots are taken waits in the queue, instead of being
+ * rejected, and is rejected only if maxQueued queries are already waiting.
+ * Anonymous and authenticated queries wait in separate lanes, and a released
+ * slot is given to the two lanes in turn, so neither lane can starve the
+ * other. A waiting query expires if it is not admitted in queueTimeoutMillis.
+ * 
+ * Waiter callbacks are called out of lock.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class QueryAdmissionQueue {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(QueryAdmissionQueue.class);
+
+    /**
+     * result of admission.
+     */
+    public enum Admission {
+        /**
+         * slot is acquired, query can be processed now.
+         */
+        RUN,
+        /**
+         * query is queued, waiter is called when admitted or expired.
+         */
+        QUEUED,
+        /**
+         * queue is full, query is rejected.
+         */
+        REJECTED
+    }
+
+    /**
+     * waiting query.
+     */
+    public interface Waiter {
+        /**
+         * called when slot is given to query, which must release the slot
+         * after processed.
+         */
+        void admit();
+
+        /**
+         * called when query is not admitted before deadline.
+         */
+        void expire();
+    }
+
+    /**
+     * max queries processed at the same time.
+     */
+    private final int maxRunning;
+    /**
+     * max waiting queries.
+     */
+    private final int maxQueued;
+    /**
+     * max waiting time in milliseconds.
+     */
+    private final long queueTimeoutMillis;
+    /**
+     * waiting anonymous queries.
+     */
+    private final LinkedList<Entry> anonymousLane = new LinkedList<Entry>();
+    /**
+     * waiting authenticated queries.
+     */
+    private final LinkedList<Entry> authenticatedLane =
+            new LinkedList<Entry>();
+    /**
+     * processing query count.
+     */
+    private int running;
+    /**
+     * true if next released slot is given to authenticated lane first.
+     */
+    private boolean authenticatedFirst;
+
+    /**
+     * constructor.
+     * 
+     * @param maxRunning
+     *            max queries processed at the same time.
+     * @param maxQueued
+     *            max waiting queries.
+     * @param queueTimeoutMillis
+     *            max waiting time in milliseconds.
+     */
+    public QueryAdmissionQueue(int maxRunning, int maxQueued,
+            long queueTimeoutMillis) {
+        this.maxRunning = maxRunning;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    /**
+     * admit query.
+     * 
+     * @param authenticated
+     *            true if principal of query is authenticated.
+     * @param waiter
+     *            waiter called when query is admitted or expired, if query
+     *            is queued.
+     * @return RUN if slot is acquired, QUEUED if queued, REJECTED if queue is
+     *         full.
+     */
+    public Admission admit(boolean authenticated, Waiter waiter) {
+        List<Entry> expired = new ArrayList<Entry>();
+        Admission admission;
+        synchronized (this) {
+            removeExpired(anonymousLane, expired);
+            removeExpired(authenticatedLane, expired);
+            if (running < maxRunning) {
+                running++;
+                admission = Admission.RUN;
+            } else if (getQueued() >= maxQueued) {
+                admission = Admission.REJECTED;
+            } else {
+                Entry entry =
+                        new Entry(waiter, System.currentTimeMillis()
+                                + queueTimeoutMillis);
+                if (authenticated) {
+                    authenticatedLane.add(entry);
+                } else {
+                    anonymousLane.add(entry);
+                }
+                admission = Admission.QUEUED;
+            }
+        }
+        expire(expired);
+        LOGGER.debug("admission:{}", admission);
+        return admission;
+    }
+
+    /**
+     * release slot, which is given to next waiting query if exists.
+     */
+    public void release() {
+        List<Entry> expired = new ArrayList<Entry>();
+        Entry next;
+        synchronized (this) {
+            removeExpired(anonymousLane, expired);
+            removeExpired(authenticatedLane, expired);
+            next = pollNext();
+            if (null == next) {
+                running--;
+            }
+        }
+        expire(expired);
+        if (null != next) {
+            next.waiter.admit();
+        }
+    }
+
+    /**
+     * remove waiter from queue, used when it is timeout by other means.
+     * 
+     * @param waiter
+     *            waiter.
+     * @return true if removed, false if it is not in queue.
+     */
+    public synchronized boolean remove(Waiter waiter) {
+        return remove(anonymousLane, waiter)
+                || remove(authenticatedLane, waiter);
+    }
+
+    /**
+     * get processing query count.
+     * 
+     * @return processing query count.
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * get waiting query count.
+     * 
+     * @return waiting query count.
+     */
+    public synchronized int getQueued() {
+        return anonymousLane.size() + authenticatedLane.size();
+    }
+
+    /**
+     * poll next waiting query, lanes in turn.
+     * 
+     * @return entry, null if no query is waiting.
+     */
+    private Entry pollNext() {
+        LinkedList<Entry> first =
+                authenticatedFirst ? authenticatedLane : anonymousLane;
+        LinkedList<Entry> second =
+                authenticatedFirst ? anonymousLane : authenticatedLane;
+        authenticatedFirst = !authenticatedFirst;
+        if (!first.isEmpty()) {
+            return first.poll();
+        }
+        return second.poll();
+    }
+
+    /**
+     * remove expired entries from lane.
+     * 
+     * @param lane
+     *            lane.
+     * @param expired
+     *            removed entries are added to it.
+     */
+    private void removeExpired(LinkedList<Entry> lane, List<Entry> expired) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = lane.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.deadline > now) {
+                return;
+            }
+            iterator.remove();
+            expired.add(entry);
+        }
+    }
+
+    /**
+     * remove waiter from lane.
+     * 
+     * @param lane
+     *            lane.
+     * @param waiter
+     *            waiter.
+     * @return true if removed.
+     */
+    private boolean remove(LinkedList<Entry> lane, Waiter waiter) {
+        Iterator<Entry> iterator = lane.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().waiter == waiter) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * call expire of waiters.
+     * 
+     * @param expired
+     *            expired entries.
+     */
+    private void expire(List<Entry> expired) {
+        for (Entry entry : expired) {
+            LOGGER.debug("waiting query expired.");
+            entry.waiter.expire();
+        }
+    }
+
+    /**
+     * waiting query with deadline.
+     */
+    private static class Entry {
+        /**
+         * waiter.
+         */
+        private final Waiter waiter;
+        /**
+         * deadline in milliseconds.
+         */
+        private final long deadline;
+
+        /**
+         * constructor.
+         * 
+         * @param waiter
+         *            waiter.
+         * @param deadline
+         *            deadline in milliseconds.
+         */
+        Entry(Waiter waiter, long deadline) {
+            this.waiter = waiter;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.filters.httpFilter.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.restfulwhois.rdap.acl.bean.Principal;
+import org.restfulwhois.rdap.common.util.IpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <pre>
+ * sharded, lock-free rate limiter.
+ * 
+ * Every client has a token bucket, implemented as a single theoretical
+ * arrival time (GCRA): one request is allowed per interval, and up to burst
+ * requests can be sent at once. Bucket is updated with CAS, without lock.
+ * 
+ * Client of anonymous user is the network prefix of its IP, /24 for IPv4 and
+ * /64 for IPv6 by default, so one host can not bypass limit by changing its
+ * address in the prefix. Client of logined user is the user id, with its own
+ * interval.
+ * 
+ * Buckets are distributed to shards by key. A shard removes its idle
+ * buckets when it is accessed after sweep interval, or when it has too many
+ * buckets, so there is no global sweep.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class RateLimiter {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(RateLimiter.class);
+    /**
+     * shard count, must be power of 2.
+     */
+    private static final int SHARD_COUNT = 16;
+    /**
+     * max bucket count in a shard before sweep.
+     */
+    private static final int MAX_BUCKETS_PER_SHARD = 1 << 14;
+    /**
+     * min sweep interval of a shard, in milliseconds.
+     */
+    private static final long MIN_SWEEP_INTERVAL = 1000L * 60;
+    /**
+     * min sweep interval of a full shard, in milliseconds.
+     */
+    private static final long MIN_FULL_SWEEP_INTERVAL = 1000L;
+    /**
+     * byte length of IPv4.
+     */
+    private static final int IPV4_BYTE_LENGTH = 4;
+    /**
+     * bits of a byte.
+     */
+    private static final int BITS_OF_BYTE = 8;
+    /**
+     * key prefix for user.
+     */
+    private static final String KEY_PREFIX_USER = "u:";
+    /**
+     * key prefix for ip.
+     */
+    private static final String KEY_PREFIX_IP = "ip:";
+    /**
+     * interval between two requests of anonymous client, 0 or negative means
+     * not limit.
+     */
+    private final long intervalAnonymous;
+    /**
+     * interval between two requests of logined user, 0 or negative means not
+     * limit.
+     */
+    private final long intervalAuthed;
+    /**
+     * max requests can be sent at once.
+     */
+    private final int burst;
+    /**
+     * IPv4 prefix length for anonymous client.
+     */
+    private final int ipv4PrefixLength;
+    /**
+     * IPv6 prefix length for anonymous client.
+     */
+    private final int ipv6PrefixLength;
+    /**
+     * sweep interval of a shard, in milliseconds.
+     */
+    private final long sweepInterval;
+    /**
+     * shards.
+     */
+    private final Shard[] shards;
+
+    /**
+     * constructor.
+     * 
+     * @param intervalAnonymous
+     *            interval between two requests of anonymous client, in the
+     *            same unit as System.currentTimeMillis.
+     * @param intervalAuthed
+     *            interval between two requests of logined user.
+     * @param burst
+     *            max requests can be sent at once, at least 1.
+     * @param ipv4PrefixLength
+     *            IPv4 prefix length, 32 means not aggregate.
+     * @param ipv6PrefixLength
+     *            IPv6 prefix length, 128 means not aggregate.
+     */
+    public RateLimiter(long intervalAnonymous, long intervalAuthed,
+            int burst, int ipv4PrefixLength, int ipv6PrefixLength) {
+        this.intervalAnonymous = intervalAnonymous;
+        this.intervalAuthed = intervalAuthed;
+        this.burst = Math.max(burst, 1);
+        this.ipv4PrefixLength = ipv4PrefixLength;
+        this.ipv6PrefixLength = ipv6PrefixLength;
+        this.sweepInterval =
+                Math.max(MIN_SWEEP_INTERVAL,
+                        Math.max(intervalAnonymous, intervalAuthed)
+                                * this.burst);
+        this.shards = new Shard[SHARD_COUNT];
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * check if has limit.
+     * 
+     * @return true if one or more intervals > 0, false if all intervals <= 0.
+     */
+    public boolean hasLimit() {
+        return intervalAnonymous > 0 || intervalAuthed > 0;
+    }
+
+    /**
+     * try to acquire a request permit for client.
+     * 
+     * @param ip
+     *            client ip.
+     * @param principal
+     *            principal of client.
+     * @return true if permitted, false if exceed rate limit.
+     */
+    public boolean tryAcquire(String ip, Principal principal) {
+        boolean isAnonymous = null == principal || principal.isAnonymous();
+        long interval = isAnonymous ? intervalAnonymous : intervalAuthed;
+        if (interval <= 0) {
+            return true;
+        }
+        String key;
+        if (isAnonymous) {
+            key = getIpKey(ip);
+        } else {
+            key = KEY_PREFIX_USER + principal.getId();
+        }
+        long now = System.currentTimeMillis();
+        Shard shard = shards[(key.hashCode() & Integer.MAX_VALUE)
+                & (SHARD_COUNT - 1)];
+        shard.sweepIfNeeded(now);
+        AtomicLong bucket = shard.getOrCreateBucket(key);
+        long maxDelay = interval * burst;
+        for (;;) {
+            long arrivalTime = bucket.get();
+            long newArrivalTime = Math.max(arrivalTime, now) + interval;
+            if (newArrivalTime - now > maxDelay) {
+                LOGGER.debug("exceed rate limit, key:{}", key);
+                return false;
+            }
+            if (bucket.compareAndSet(arrivalTime, newArrivalTime)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * get bucket count, for monitoring.
+     * 
+     * @return bucket count.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.buckets.size();
+        }
+        return size;
+    }
+
+    /**
+     * get bucket key of ip: the network prefix of ip, or ip itself if it is
+     * not valid ip.
+     * 
+     * @param ip
+     *            ip.
+     * @return key.
+     */
+    String getIpKey(String ip) {
+        if (StringUtils.isBlank(ip)) {
+            return KEY_PREFIX_IP;
+        }
+        byte[] bytes = null;
+        try {
+            bytes = IpUtil.ipToByteArray(ip);
+        } catch (Exception e) {
+            LOGGER.debug("invalid ip:{}", ip);
+        }
+        if (null == bytes) {
+            return KEY_PREFIX_IP + ip;
+        }
+        int prefixLength = ipv6PrefixLength;
+        if (bytes.length == IPV4_BYTE_LENGTH) {
+            prefixLength = ipv4PrefixLength;
+        }
+        StringBuilder key = new StringBuilder(KEY_PREFIX_IP);
+        int remainBits = prefixLength;
+        for (int i = 0; i < bytes.length && remainBits > 0; i++) {
+            int value = bytes[i] & 0xFF;
+            if (remainBits < BITS_OF_BYTE) {
+                value &= (0xFF << (BITS_OF_BYTE - remainBits)) & 0xFF;
+            }
+            key.append(Character.forDigit(value >> 4, 16));
+            key.append(Character.forDigit(value & 0xF, 16));
+            remainBits -= BITS_OF_BYTE;
+        }
+        key.append('/').append(prefixLength);
+        return key.toString();
+    }
+
+    /**
+     * a shard of buckets.
+     * 
+     * @author jiashuo
+     * 
+     */
+    private class Shard {
+        /**
+         * buckets: key to theoretical arrival time of next request.
+         */
+        private final ConcurrentMap<String, AtomicLong> buckets =
+                new ConcurrentHashMap<String, AtomicLong>();
+        /**
+         * last sweep time.
+         */
+        private final AtomicLong lastSweepTime = new AtomicLong(0);
+
+        /**
+         * get bucket, create it if not exist.
+         * 
+         * @param key
+         *            key.
+         * @return bucket.
+         */
+        AtomicLong getOrCreateBucket(String key) {
+            AtomicLong bucket = buckets.get(key);
+            if (null != bucket) {
+                return bucket;
+            }
+            bucket = new AtomicLong(0);
+            AtomicLong existBucket = buckets.putIfAbsent(key, bucket);
+            return null == existBucket ? bucket : existBucket;
+        }
+
+        /**
+         * remove idle buckets if sweep interval is reached, or shard is full.
+         * Only one thread sweeps a shard at the same time.
+         * 
+         * @param now
+         *            current time.
+         */
+        void sweepIfNeeded(long now) {
+            long sweepTime = lastSweepTime.get();
+            long elapsed = now - sweepTime;
+            boolean needSweep =
+                    elapsed >= sweepInterval
+                            || (elapsed >= MIN_FULL_SWEEP_INTERVAL && buckets
+                                    .size() >= MAX_BUCKETS_PER_SHARD);
+            if (!needSweep || !lastSweepTime.compareAndSet(sweepTime, now)) {
+                return;
+            }
+            Iterator<Map.Entry<String, AtomicLong>> iterator =
+                    buckets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, AtomicLong> entry = iterator.next();
+                if (entry.getValue().get() <= now) {
+                    buckets.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.filters.queryFilter.service;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.model.base.BaseSearchModel;
+import org.restfulwhois.rdap.common.model.base.ModelType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <pre>
+ * compiled custom column policy.
+ * 
+ * Policy is compiled to a plan for each model class, when the class is first
+ * applied:
+ *   setters of hidden columns, which are called with null;
+ *   getters of properties which may contain hidden columns, which are
+ *   applied recursively.
+ * Property which can not reach any hidden column, eg: String property, or
+ * model which has no policy and no such property, is not walked at all.
+ * 
+ * Same as before, only model whose super class is BaseModel or
+ * BaseSearchModel is applied, and property of List is applied to each
+ * element.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public class CustomColumnPolicyPlan {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(CustomColumnPolicyPlan.class);
+    /**
+     * plan of class which is not applied.
+     */
+    private static final ClassPlan EMPTY_PLAN = new ClassPlan(
+            Collections.<Method>emptyList(),
+            Collections.<ChildProperty>emptyList());
+    /**
+     * hidden columns, key is model type name.
+     */
+    private final Map<String, Set<String>> hiddenColumns;
+    /**
+     * compiled plans.
+     */
+    private final Map<Class<?>, ClassPlan> plans =
+            new ConcurrentHashMap<Class<?>, ClassPlan>();
+
+    /**
+     * constructor.
+     * 
+     * @param hiddenColumns
+     *            hidden columns, key is model type name.
+     */
+    public CustomColumnPolicyPlan(Map<String, Set<String>> hiddenColumns) {
+        this.hiddenColumns = hiddenColumns;
+    }
+
+    /**
+     * apply policy to object and its properties.
+     * 
+     * @param object
+     *            object.
+     */
+    public void apply(Object object) {
+        if (null == object) {
+            return;
+        }
+        ClassPlan plan = getPlan(object);
+        if (plan.isEmpty()) {
+            return;
+        }
+        for (Method setter : plan.nullSetters) {
+            invoke(setter, object, (Object) null);
+        }
+        for (ChildProperty child : plan.children) {
+            Object value = invoke(child.getter, object);
+            if (null == value) {
+                continue;
+            }
+            if (child.isList) {
+                for (Object element : (List<?>) value) {
+                    apply(element);
+                }
+            } else {
+                apply(value);
+            }
+        }
+    }
+
+    /**
+     * get plan of object class, compile it if not exist.
+     * 
+     * @param object
+     *            object.
+     * @return plan.
+     */
+    private ClassPlan getPlan(Object object) {
+        ClassPlan plan = plans.get(object.getClass());
+        if (null != plan) {
+            return plan;
+        }
+        return compile(object);
+    }
+
+    /**
+     * compile plans of object class and all classes reachable from it.
+     * 
+     * @param object
+     *            object.
+     * @return plan of object class.
+     */
+    private synchronized ClassPlan compile(Object object) {
+        Class<?> rootClass = object.getClass();
+        if (plans.containsKey(rootClass)) {
+            return plans.get(rootClass);
+        }
+        Map<Class<?>, ClassNode> nodes = new HashMap<Class<?>, ClassNode>();
+        LinkedList<ClassNode> toVisit = new LinkedList<ClassNode>();
+        ClassNode root = createNode(rootClass, object);
+        nodes.put(rootClass, root);
+        toVisit.add(root);
+        while (!toVisit.isEmpty()) {
+            ClassNode node = toVisit.removeFirst();
+            for (ChildProperty child : node.children) {
+                Class<?> target = child.targetClass;
+                if (null == target || plans.containsKey(target)
+                        || nodes.containsKey(target)) {
+                    continue;
+                }
+                ClassNode targetNode = createNode(target, null);
+                if (null == targetNode) {
+                    child.targetClass = null;
+                    continue;
+                }
+                nodes.put(target, targetNode);
+                toVisit.add(targetNode);
+            }
+        }
+        markReachable(nodes);
+        for (ClassNode node : nodes.values()) {
+            plans.put(node.clazz, node.toPlan());
+        }
+        LOGGER.debug("compiled policy plans for {}", nodes.keySet());
+        return plans.get(rootClass);
+    }
+
+    /**
+     * mark nodes which can reach hidden columns, until nothing changes.
+     * 
+     * @param nodes
+     *            nodes.
+     */
+    private void markReachable(Map<Class<?>, ClassNode> nodes) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (ClassNode node : nodes.values()) {
+                if (node.reachable) {
+                    continue;
+                }
+                if (!node.nullSetters.isEmpty()) {
+                    node.reachable = true;
+                    changed = true;
+                    continue;
+                }
+                for (ChildProperty child : node.children) {
+                    if (isReachable(child.targetClass, nodes)) {
+                        node.reachable = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        for (ClassNode node : nodes.values()) {
+            List<ChildProperty> reachableChildren =
+                    new ArrayList<ChildProperty>();
+            for (ChildProperty child : node.children) {
+                if (isReachable(child.targetClass, nodes)) {
+                    reachableChildren.add(child);
+                }
+            }
+            node.children = reachableChildren;
+        }
+    }
+
+    /**
+     * check if target class can reach hidden columns.
+     * 
+     * @param target
+     *            target class, null if it is only known at runtime.
+     * @param nodes
+     *            nodes being compiled.
+     * @return true if can reach.
+     */
+    private boolean isReachable(Class<?> target,
+            Map<Class<?>, ClassNode> nodes) {
+        if (null == target) {
+            return true;
+        }
+        ClassPlan plan = plans.get(target);
+        if (null != plan) {
+            return !plan.isEmpty();
+        }
+        ClassNode node = nodes.get(target);
+        return null != node && node.reachable;
+    }
+
+    /**
+     * create node of class.
+     * 
+     * @param clazz
+     *            class.
+     * @param object
+     *            instance of class, null if not known.
+     * @return node, null if type name can not be got without instance.
+     */
+    private ClassNode createNode(Class<?> clazz, Object object) {
+        ClassNode node = new ClassNode(clazz);
+        if (!isPolicyModel(clazz)) {
+            return node;
+        }
+        String typeName = getTypeName(clazz, object);
+        if (null == typeName) {
+            return null;
+        }
+        if (ModelType.ERRORMESSAGE.getName().equals(typeName)) {
+            return node;
+        }
+        Set<String> columns = hiddenColumns.get(typeName);
+        PropertyDescriptor[] descriptors =
+                PropertyUtils.getPropertyDescriptors(clazz);
+        for (PropertyDescriptor descriptor : descriptors) {
+            Method setter = descriptor.getWriteMethod();
+            if (null != setter && isHidden(descriptor.getName(), columns)
+                    && !descriptor.getPropertyType().isPrimitive()) {
+                node.nullSetters.add(setter);
+                continue;
+            }
+            ChildProperty child = createChild(descriptor);
+            if (null != child) {
+                node.children.add(child);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * create child property which may contain models.
+     * 
+     * @param descriptor
+     *            property descriptor.
+     * @return child, null if property can not contain model.
+     */
+    private ChildProperty createChild(PropertyDescriptor descriptor) {
+        Method getter = descriptor.getReadMethod();
+        if (null == getter) {
+            return null;
+        }
+        Class<?> returnType = getter.getReturnType();
+        if (List.class == returnType) {
+            Type elementType = getListElementType(getter);
+            if (!(elementType instanceof Class)) {
+                return new ChildProperty(getter, true, null);
+            }
+            return createChild(getter, true, (Class<?>) elementType);
+        }
+        return createChild(getter, false, returnType);
+    }
+
+    /**
+     * create child property of declared type.
+     * 
+     * @param getter
+     *            getter.
+     * @param isList
+     *            true if property is list.
+     * @param declaredType
+     *            declared type of property or list element.
+     * @return child, null if declared type can not be model.
+     */
+    private ChildProperty createChild(Method getter, boolean isList,
+            Class<?> declaredType) {
+        if (isPolicyModel(declaredType)) {
+            return new ChildProperty(getter, isList, declaredType);
+        }
+        if (declaredType.isAssignableFrom(BaseModel.class)
+                || BaseModel.class.isAssignableFrom(declaredType)) {
+            return new ChildProperty(getter, isList, null);
+        }
+        return null;
+    }
+
+    /**
+     * get element type of list getter.
+     * 
+     * @param getter
+     *            getter.
+     * @return element type, null if unknown.
+     */
+    private Type getListElementType(Method getter) {
+        Type genericType = getter.getGenericReturnType();
+        if (!(genericType instanceof ParameterizedType)) {
+            return null;
+        }
+        return ((ParameterizedType) genericType).getActualTypeArguments()[0];
+    }
+
+    /**
+     * check if class is applied by policy.
+     * 
+     * @param clazz
+     *            class.
+     * @return true if super class is BaseModel or BaseSearchModel.
+     */
+    private boolean isPolicyModel(Class<?> clazz) {
+        Class<?> superClass = clazz.getSuperclass();
+        return superClass == BaseModel.class
+                || superClass == BaseSearchModel.class;
+    }
+
+    /**
+     * get model type name of class.
+     * 
+     * @param clazz
+     *            model class.
+     * @param object
+     *            instance of class, null if not known.
+     * @return type name, null if can not get.
+     */
+    private String getTypeName(Class<?> clazz, Object object) {
+        Object model = object;
+        if (null == model) {
+            try {
+                model = clazz.newInstance();
+            } catch (Exception e) {
+                LOGGER.debug("can not create {}, compile it at runtime.",
+                        clazz);
+                return null;
+            }
+        }
+        ModelType modelType = ((BaseModel) model).getObjectType();
+        return null == modelType ? null : modelType.getName();
+    }
+
+    /**
+     * check if property is hidden.
+     * 
+     * @param propertyName
+     *            property name.
+     * @param columns
+     *            hidden columns of model type.
+     * @return true if hidden.
+     */
+    private boolean isHidden(String propertyName, Set<String> columns) {
+        if (null == columns) {
+            return false;
+        }
+        for (String column : columns) {
+            if (propertyName.equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * invoke method.
+     * 
+     * @param method
+     *            method.
+     * @param object
+     *            object.
+     * @param args
+     *            arguments.
+     * @return return value, null if failed.
+     */
+    private Object invoke(Method method, Object object, Object... args) {
+        try {
+            return method.invoke(object, args);
+        } catch (Exception e) {
+            LOGGER.error("invoke {} error:{}", method.getName(),
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * property which may contain models.
+     */
+    private static class ChildProperty {
+        /**
+         * getter.
+         */
+        private final Method getter;
+        /**
+         * true if property is list.
+         */
+        private final boolean isList;
+        /**
+         * declared model class, null if it is only known at runtime.
+         */
+        private Class<?> targetClass;
+
+        /**
+         * constructor.
+         * 
+         * @param getter
+         *            getter.
+         * @param isList
+         *            true if property is list.
+         * @param targetClass
+         *            declared model class.
+         */
+        ChildProperty(Method getter, boolean isList, Class<?> targetClass) {
+            this.getter = getter;
+            this.isList = isList;
+            this.targetClass = targetClass;
+        }
+    }
+
+    /**
+     * class being compiled.
+     */
+    private static class ClassNode {
+        /**
+         * class.
+         */
+        private final Class<?> clazz;
+        /**
+         * setters of hidden columns.
+         */
+        private List<Method> nullSetters = new ArrayList<Method>();
+        /**
+         * properties which may contain models.
+         */
+        private List<ChildProperty> children = new ArrayList<ChildProperty>();
+        /**
+         * true if hidden columns can be reached.
+         */
+        private boolean reachable;
+
+        /**
+         * constructor.
+         * 
+         * @param clazz
+         *            class.
+         */
+        ClassNode(Class<?> clazz) {
+            this.clazz = clazz;
+        }
+
+        /**
+         * convert to plan.
+         * 
+         * @return plan.
+         */
+        ClassPlan toPlan() {
+            if (!reachable) {
+                return EMPTY_PLAN;
+            }
+            return new ClassPlan(nullSetters, children);
+        }
+    }
+
+    /**
+     * compiled plan of class.
+     */
+    private static class ClassPlan {
+        /**
+         * setters of hidden columns.
+         */
+        private final List<Method> nullSetters;
+        /**
+         * properties which can reach hidden columns.
+         */
+        private final List<ChildProperty> children;
+
+        /**
+         * constructor.
+         * 
+         * @param nullSetters
+         *            setters of hidden columns.
+         * @param children
+         *            properties which can reach hidden columns.
+         */
+        ClassPlan(List<Method> nullSetters, List<ChildProperty> children) {
+            this.nullSetters = nullSetters;
+            this.children = children;
+        }
+
+        /**
+         * check if nothing to apply.
+         * 
+         * @return true if empty.
+         */
+        boolean isEmpty() {
+            return nullSetters.isEmpty() && children.isEmpty();
+        }
+    }
+}
@@ -30,26 +30,17 @@
  */
 package org.restfulwhois.rdap.filters.queryFilter.service;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.PostConstruct;
 
-import org.apache.commons.beanutils.PropertyUtils;
-import org.apache.commons.lang.StringUtils;
-import org.restfulwhois.rdap.common.model.base.BaseModel;
-import org.restfulwhois.rdap.common.model.base.BaseSearchModel;
-import org.restfulwhois.rdap.common.model.base.ModelType;
+import org.restfulwhois.rdap.common.service.ResponseCache;
 import org.restfulwhois.rdap.filters.queryFilter.dao.CustomColumnPolicyDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ReflectionUtils;
 
 /**
  * registry policy control service implementation.
@@ -59,6 +50,10 @@ import org.springframework.util.ReflectionUtils;
  * 
  * registry rules for disclosure of certain object .
  * 
+ * Policy is compiled to {@link CustomColumnPolicyPlan} when it is loaded, so
+ * that applying policy does not parse method names or walk properties which
+ * can not contain hidden columns.
+ * 
  * @author weijunkai
  * 
  */
@@ -77,11 +72,22 @@ public class CustomColumnPolicyService {
     @Autowired
     private CustomColumnPolicyDao policyDao;
 
+    /**
+     * responseCache, cached responses are applied by old policy.
+     */
+    @Autowired
+    private ResponseCache responseCache;
+
     /**
      * the static map of policy.
      */
     private static Map<String, Set<String>> mapPolicy = null;
 
+    /**
+     * compiled policy, null if policy is not loaded.
+     */
+    private static volatile CustomColumnPolicyPlan policyPlan = null;
+
     /**
      * loadPolicyFieldsByMap.
      * @return map.
@@ -96,6 +102,11 @@ public class CustomColumnPolicyService {
     @PostConstruct
     public void init() {
         mapPolicy = policyDao.loadAllPolicyMap();
+        policyPlan =
+                null == mapPolicy ? null : new CustomColumnPolicyPlan(
+                        mapPolicy);
+        LOGGER.debug("policy loaded:{}", mapPolicy);
+        responseCache.clear();
         return;
     }
 
@@ -103,182 +114,27 @@ public class CustomColumnPolicyService {
      * clear policy.
      */
     public void clearPolicy() {
+        policyPlan = null;
         mapPolicy.clear();
         mapPolicy = null;
+        responseCache.clear();
     }
 
     /**
-     * get Model String.
-     * 
-     * @param objModel
-     *            the model of object.
-     * @return string of object type.
-     */
-    private String getModelString(final Object objModel) {
-        String strObjType = null;
-
-        ModelType modelType = ((BaseModel) objModel).getObjectType();
-        strObjType = modelType.getName();
-        if (strObjType == "errorMessage") {
-            LOGGER.debug("getModelString, objModel is errorMessage");
-            return null;
-        }
-        return strObjType;
-    }
-
-    /**
-     * trucate the string.
-     * 
-     * @param strMethod
-     *            set the method string trucated.
-     * @return string of method.
-     */
-    private String trucateStringFromMethod(String strMethod) {
-
-        final String strSet = "set";
-        final String strGet = "get";
-        final String strIs = "is";
-        if (!strMethod.startsWith(strSet) && !strMethod.startsWith(strGet)
-                && !strMethod.startsWith(strIs)) {
-            return null;
-        }
-
-        int posAfterSet = strSet.length();
-        if (strMethod.startsWith(strIs)) {
-            posAfterSet = strIs.length();
-        }
-
-        String strMethodField = strMethod.substring(posAfterSet);
-        String strFieldFirstLetter = strMethodField.substring(0, 1);
-        String strReplace = StringUtils.lowerCase(strFieldFirstLetter);
-        strMethodField =
-                strMethodField.replaceFirst(strFieldFirstLetter, strReplace);
-
-        return strMethodField;
-    }
-
-    /**
-     * set the property.
+     * apply policy to model, hidden columns of model and its inner models
+     * are set to null.
      * 
      * @param objModel
-     *            the object to set.
-     * @param strField
-     *            the field to set.
-     */
-    private void setPropertyNull(final Object objModel, final String strField) {
-        try {
-            PropertyUtils.setProperty(objModel, strField, null);
-        } catch (IllegalAccessException e) {
-            LOGGER.error("setPropertyNull ", e.getMessage());
-        } catch (InvocationTargetException e) {
-            LOGGER.error("setPropertyNull ", e.getMessage());
-        } catch (NoSuchMethodException e) {
-            LOGGER.error("setPropertyNull ", e.getMessage());
-        }
-    }
-
-    /**
-     * get the baseModel property value.
-     * 
-     * @param objModel
-     *            model of object.
-     * @param strMethodField
-     *            string of method field.
-     * @return the object of inner object.
-     */
-    private Object getPropertyValue(final Object objModel,
-            final String strMethodField) {
-        Object value = null;
-        try {
-            value = PropertyUtils.getProperty(objModel, strMethodField);
-        } catch (IllegalAccessException e) {
-            LOGGER.error("getPropertyValue ", e.getMessage());
-        } catch (InvocationTargetException e) {
-            LOGGER.error("getPropertyValue ", e.getMessage());
-        } catch (NoSuchMethodException e) {
-            LOGGER.error("getPropertyValue ", e.getMessage());
-        }
-        return value;
-    }
-
-    /**
-     * get the baseModel property value.
-     * 
-     * @param objModel
-     *            model of object.
+     *            model.
      */
     public void applyPolicy(final Object objModel) {
         if (objModel == null) {
             return;
         }
-        Map<String, Set<String>> mapObjFields = loadPolicyFieldsByMap();
-        if (null == mapObjFields) {
+        CustomColumnPolicyPlan plan = policyPlan;
+        if (null == plan) {
             return;
         }
-        String strObjType = null;
-        if (objModel.getClass().getSuperclass() == BaseModel.class
-                || objModel.getClass().getSuperclass() == BaseSearchModel.class) {
-            strObjType = getModelString(objModel);
-        }
-        if (strObjType == null) {
-            return;
-        }
-        Set<String> setFields = mapObjFields.get(strObjType);
-
-        Method[] allMethods =
-                ReflectionUtils.getUniqueDeclaredMethods(objModel.getClass());
-        for (Method mthd : allMethods) {
-            String strMethod = mthd.getName();
-            String strMethodField = trucateStringFromMethod(strMethod);
-            if (strMethodField == null) {
-                continue;
-            }
-            Object value = null;
-            final String strSetFirstWord = "s";
-            boolean isSetMethod = strMethod.startsWith(strSetFirstWord);
-            boolean isGetMethod = strMethod.startsWith("g");
-            String strIsBool = mthd.getReturnType().toString();
-            // just handle the specified method except boolean ones
-            if (!strIsBool.contains("Boolean") && isGetMethod) {
-                value = getPropertyValue(objModel, strMethodField);
-            }
-            if (setFields != null) {
-                Iterator<String> iter = setFields.iterator();
-                while (iter.hasNext()) {
-                    String strField = iter.next();
-                    // just handle the set method
-                    if (strMethodField.equalsIgnoreCase(strField)
-                            && isSetMethod) {
-                        setPropertyNull(objModel, strMethodField);
-                        break;
-                    }
-                }
-            }
-            if (value == null) {
-                continue;
-            }
-            if (mthd.getReturnType() == List.class) {
-                setInnerListPolicy(value);
-            } else {
-                applyPolicy(value);
-            }
-        }
-        return;
-    }
-
-    /**
-     * set the inner object policy.
-     * 
-     * @param object
-     *            object to set.
-     */
-    private void setInnerListPolicy(final Object object) {
-
-        List<?> listObjs = (List<?>) object;
-        if (listObjs != null) {
-            for (int iObj = 0; iObj < listObjs.size(); ++iObj) {
-                applyPolicy(listObjs.get(iObj));
-            }
-        }
+        plan.apply(objModel);
     }
 }
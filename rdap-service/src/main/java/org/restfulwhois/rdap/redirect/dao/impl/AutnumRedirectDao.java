@@ -30,8 +30,6 @@
  */
 package org.restfulwhois.rdap.redirect.dao.impl;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -39,21 +37,28 @@ import java.util.List;
 
 import org.restfulwhois.rdap.bootstrap.bean.AutnumRedirect;
 import org.restfulwhois.rdap.bootstrap.bean.Redirect;
+import org.restfulwhois.rdap.common.dao.ReplicaRoutingDataSource;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.util.AutnumUtil;
+import org.restfulwhois.rdap.common.util.LongRangeIndex;
 import org.restfulwhois.rdap.redirect.bean.RedirectResponse;
 import org.restfulwhois.rdap.redirect.dao.RedirectDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
  * <pre>
  * autnum redirect DAO maily select autnum object from RDAP_AUTNUM_REDIRECT.
  * overrite the query method in RedirectDao and return the RedirectResponse.
+ * 
+ * RDAP_AUTNUM_REDIRECT is only modified by bootstrap sync, so query is
+ * answered by in-memory LongRangeIndex, which finds the smallest autnum
+ * range. Index is loaded from database on first query, and reloaded after
+ * save.
  * </pre>
  * 
  * @author jiashuo
@@ -84,12 +89,23 @@ public class AutnumRedirectDao implements RedirectDao {
      */
     private static final String DELETE_SMALLER_THAN_ID =
             "delete from RDAP_AUTNUM_REDIRECT where AS_REDIRECT_ID<=?";
+    /**
+     * select all redirects, for building index.
+     */
+    private static final String SELECT_ALL =
+            "select START_AUTNUM,END_AUTNUM,REDIRECT_URL"
+                    + " from RDAP_AUTNUM_REDIRECT";
     /**
      * JDBC template.
      */
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * redirect index, value is redirect url. null if not loaded.
+     */
+    private volatile LongRangeIndex<String> index;
+
     /**
      * <pre>
      * redirect the autnum.
@@ -103,36 +119,68 @@ public class AutnumRedirectDao implements RedirectDao {
     @Override
     public RedirectResponse query(QueryParam queryParam) {
         LOGGER.debug("query, queryParam:" + queryParam);
-        final String autnumQ = queryParam.getQ();
-        final String sql =
-                "select *,end_autnum - start_autnum as asInterval "
-                        + " from RDAP_AUTNUM_REDIRECT "
-                        + " where START_AUTNUM <= ? and END_AUTNUM >= ?"
-                        + " order by asInterval limit 1";
-        List<String> result =
-                jdbcTemplate.query(new PreparedStatementCreator() {
-                    @Override
-                    public PreparedStatement createPreparedStatement(
-                            Connection conn) throws SQLException {
-                        PreparedStatement ps = conn.prepareStatement(sql);
-                        ps.setString(1, autnumQ);
-                        ps.setString(2, autnumQ);
-                        return ps;
-                    }
-                }, new RowMapper<String>() {
-                    @Override
-                    public String mapRow(ResultSet rs, int rowNum)
-                            throws SQLException {
-                        return rs.getString("REDIRECT_URL");
-                    }
-
-                });
-        if (null == result || result.size() == 0) {
+        Long autnum = AutnumUtil.parseAutnum(queryParam.getQ());
+        String result = null;
+        if (null != autnum) {
+            result = getIndex().find(autnum);
+        }
+        if (null == result) {
             LOGGER.debug("query, result is null");
             return null;
         }
-        LOGGER.debug("query, result:" + result.get(0));
-        return new RedirectResponse(result.get(0));
+        LOGGER.debug("query, result:" + result);
+        return new RedirectResponse(result);
+    }
+
+    /**
+     * get redirect index, load it if not loaded.
+     * 
+     * @return index.
+     */
+    private LongRangeIndex<String> getIndex() {
+        LongRangeIndex<String> currentIndex = index;
+        if (null != currentIndex) {
+            return currentIndex;
+        }
+        return loadIndex();
+    }
+
+    /**
+     * load index from database.
+     * 
+     * @return index.
+     */
+    private synchronized LongRangeIndex<String> loadIndex() {
+        if (null != index) {
+            return index;
+        }
+        LOGGER.info("load autnum redirect index begin...");
+        final LongRangeIndex<String> newIndex = new LongRangeIndex<String>();
+        // load from primary, not from a lagging replica.
+        boolean readOnly = ReplicaRoutingDataSource.setReadOnly(false);
+        try {
+            jdbcTemplate.query(SELECT_ALL, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    newIndex.add(rs.getLong("START_AUTNUM"),
+                            rs.getLong("END_AUTNUM"),
+                            rs.getString("REDIRECT_URL"));
+                }
+            });
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(readOnly);
+        }
+        newIndex.build();
+        index = newIndex;
+        LOGGER.info("load autnum redirect index end, size:{}", newIndex.size());
+        return newIndex;
+    }
+
+    /**
+     * clear index, index will be reloaded on next query.
+     */
+    public synchronized void clearIndex() {
+        index = null;
     }
 
     @Override
@@ -147,6 +195,7 @@ public class AutnumRedirectDao implements RedirectDao {
         saveNew(bootstraps);
         LOGGER.info("delete old bootstraps...");
         deleteOld(maxOldId);
+        clearIndex();
     }
 
     /**
@@ -35,11 +35,11 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.bootstrap.bean.DomainRedirect;
 import org.restfulwhois.rdap.bootstrap.bean.Redirect;
+import org.restfulwhois.rdap.common.dao.ReplicaRoutingDataSource;
 import org.restfulwhois.rdap.common.support.QueryParam;
-import org.restfulwhois.rdap.common.util.StringUtil;
+import org.restfulwhois.rdap.common.util.DomainSuffixTrie;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainQueryParam;
 import org.restfulwhois.rdap.redirect.bean.RedirectResponse;
 import org.restfulwhois.rdap.redirect.dao.RedirectDao;
@@ -47,13 +47,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
  * <pre>
  * domain redirect DAO mainly select domain object from database.
  * query method overwrite the counterpart in RedirectDao.
+ * 
+ * RDAP_DOMAIN_REDIRECT is only modified by bootstrap sync, so query is
+ * answered by in-memory DomainSuffixTrie, which finds the longest redirect
+ * tld. Trie is loaded from database on first query, and reloaded after save.
  * </pre>
  * 
  * @author jiashuo
@@ -75,6 +79,13 @@ public class DomainRedirectDao implements RedirectDao {
     private static final String SELECT_MAX_ID =
             "select max(RDAP_DOMAIN_REDIRECT_ID) from RDAP_DOMAIN_REDIRECT";
 
+    /**
+     * select all redirects, for building trie.
+     */
+    private static final String SELECT_ALL =
+            "select REDIRECT_TLD,REDIRECT_URL from RDAP_DOMAIN_REDIRECT"
+                    + " order by RDAP_DOMAIN_REDIRECT_ID";
+
     /**
      * delete rows <= id.
      */
@@ -92,6 +103,12 @@ public class DomainRedirectDao implements RedirectDao {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * redirect trie, key is redirect tld, value is redirect url. null if not
+     * loaded.
+     */
+    private volatile DomainSuffixTrie<String> trie;
+
     /**
      * redirect the domain by select object from RDAP_DOMAIN_REDIRECT.
      * 
@@ -104,52 +121,63 @@ public class DomainRedirectDao implements RedirectDao {
         LOGGER.debug("query, queryParam:" + queryParam);
         DomainQueryParam domainQueryParam = (DomainQueryParam) queryParam;
         String fullPunyTld = domainQueryParam.getFullPunyTld();
-        fullPunyTld = StringUtils.replace(fullPunyTld, "'", "''");
-        final String joinedTldQCond = getJoinedTldQCondition(fullPunyTld);
-        final String sql =
-                "select * from RDAP_DOMAIN_REDIRECT "
-                        + " where REDIRECT_TLD in (" + joinedTldQCond + ") "
-                        + " order by char_length(REDIRECT_TLD) desc limit 1";
-        List<String> result = jdbcTemplate.query(sql, new RowMapper<String>() {
-            @Override
-            public String mapRow(ResultSet rs, int rowNum) throws SQLException {
-                return rs.getString("REDIRECT_URL");
-            }
-
-        });
-        if (null == result || result.size() == 0) {
+        String result = getTrie().findLongest(fullPunyTld);
+        if (null == result) {
             LOGGER.debug("query, result is null");
             return null;
         }
-        LOGGER.debug("query, result:" + result.get(0));
-        return new RedirectResponse(result.get(0));
+        LOGGER.debug("query, result:" + result);
+        return new RedirectResponse(result);
     }
 
     /**
-     * get joined tld query string condition: 'cn','com.cn'.
+     * get redirect trie, load it if not loaded.
      * 
-     * @param fullTld
-     *            fullTld.
-     * @return joined query condition.
+     * @return trie.
      */
-    private String getJoinedTldQCondition(String fullTld) {
-        LOGGER.debug("getJoinedTldQCondition, fullTld:" + fullTld);
-        if (StringUtils.isBlank(fullTld)) {
-            return null;
+    private DomainSuffixTrie<String> getTrie() {
+        DomainSuffixTrie<String> currentTrie = trie;
+        if (null != currentTrie) {
+            return currentTrie;
+        }
+        return loadTrie();
+    }
+
+    /**
+     * load trie from database.
+     * 
+     * @return trie.
+     */
+    private synchronized DomainSuffixTrie<String> loadTrie() {
+        if (null != trie) {
+            return trie;
         }
-        List<String> tldList = new ArrayList<String>();
-        String currentTld = fullTld;
-        tldList.add(StringUtil.addQuotas(currentTld));
-        while (StringUtils.isNotBlank(currentTld)) {
-            String subTld =
-                    StringUtils.substringAfter(currentTld,
-                            StringUtil.TLD_SPLITOR);
-            if (StringUtils.isNotBlank(subTld)) {
-                tldList.add(StringUtil.addQuotas(subTld));
-            }
-            currentTld = subTld;
+        LOGGER.info("load domain redirect trie begin...");
+        final DomainSuffixTrie<String> newTrie =
+                new DomainSuffixTrie<String>();
+        // load from primary, not from a lagging replica.
+        boolean readOnly = ReplicaRoutingDataSource.setReadOnly(false);
+        try {
+            jdbcTemplate.query(SELECT_ALL, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    newTrie.put(rs.getString("REDIRECT_TLD"),
+                            rs.getString("REDIRECT_URL"));
+                }
+            });
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(readOnly);
         }
-        return StringUtils.join(tldList, ",");
+        trie = newTrie;
+        LOGGER.info("load domain redirect trie end, size:{}", newTrie.size());
+        return newTrie;
+    }
+
+    /**
+     * clear trie, trie will be reloaded on next query.
+     */
+    public synchronized void clearIndex() {
+        trie = null;
     }
 
     @Override
@@ -164,6 +192,7 @@ public class DomainRedirectDao implements RedirectDao {
         saveNew(bootstraps);
         LOGGER.info("delete old bootstraps...");
         deleteOld(maxOldId);
+        clearIndex();
     }
 
     /**
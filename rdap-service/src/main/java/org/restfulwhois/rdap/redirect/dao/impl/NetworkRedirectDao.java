@@ -37,10 +37,12 @@ import java.util.List;
 
 import org.restfulwhois.rdap.bootstrap.bean.NetworkRedirect;
 import org.restfulwhois.rdap.bootstrap.bean.Redirect;
+import org.restfulwhois.rdap.common.dao.ReplicaRoutingDataSource;
 import org.restfulwhois.rdap.common.model.IpVersion;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.util.IpRangeIndex;
+import org.restfulwhois.rdap.common.util.IpUtil;
 import org.restfulwhois.rdap.common.util.NetworkInBytes;
-import org.restfulwhois.rdap.core.ip.dao.impl.NetworkQueryDaoImpl;
 import org.restfulwhois.rdap.core.ip.queryparam.NetworkQueryParam;
 import org.restfulwhois.rdap.redirect.bean.RedirectResponse;
 import org.restfulwhois.rdap.redirect.dao.RedirectDao;
@@ -48,14 +50,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
  * <pre>
  * network redirect DAO mainly select network object from RDAP_IP_REDIRECT.
  * query method overwrite the counterpart in RedirectDao.
+ * 
+ * RDAP_IP_REDIRECT is only modified by bootstrap sync, so query is answered
+ * by in-memory IpRangeIndex, one for each IP version. Index is loaded from
+ * database on first query, and reloaded after save.
  * </pre>
  * 
  * @author jiashuo
@@ -87,12 +92,23 @@ public class NetworkRedirectDao implements RedirectDao {
     private static final String DELETE_SMALLER_THAN_ID =
             "delete from RDAP_IP_REDIRECT where RDAP_IP_REDIRECT_ID<=?"
                     + " and VERSION=?";
+    /**
+     * select all redirects, for building index.
+     */
+    private static final String SELECT_ALL =
+            "select STARTADDRESS,ENDADDRESS,REDIRECT_URL,VERSION"
+                    + " from RDAP_IP_REDIRECT";
     /**
      * JDBC template.
      */
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /**
+     * indexes of IPv4 and IPv6 redirects, null if not loaded.
+     */
+    private volatile RedirectIndexes indexes;
+
     /**
      * redirect the network by select object from RDAP_IP_REDIRECT.
      * 
@@ -103,24 +119,130 @@ public class NetworkRedirectDao implements RedirectDao {
     @Override
     public RedirectResponse query(QueryParam queryParam) {
         LOGGER.debug("query, queryParam:" + queryParam);
-        PreparedStatementCreator pstatCreator =
-                NetworkQueryDaoImpl.generatePStatCreator(queryParam,
-                        "RDAP_IP_REDIRECT");
-        List<String> result =
-                jdbcTemplate.query(pstatCreator, new RowMapper<String>() {
-                    @Override
-                    public String mapRow(ResultSet rs, int rowNum)
-                            throws SQLException {
-                        return rs.getString("REDIRECT_URL");
-                    }
-
-                });
-        if (null == result || result.size() == 0) {
+        NetworkInBytes network =
+                ((NetworkQueryParam) queryParam).getNetworkInBytes();
+        IpRangeIndex<String> index = getIndex(network.getIpVersion());
+        String result = null;
+        if (null != index) {
+            result =
+                    index.find(network.getStartAddress(),
+                            network.getEndAddress());
+        }
+        if (null == result) {
             LOGGER.debug("query, result is null");
             return null;
         }
-        LOGGER.debug("query, result:" + result.get(0));
-        return new RedirectResponse(result.get(0));
+        LOGGER.debug("query, result:" + result);
+        return new RedirectResponse(result);
+    }
+
+    /**
+     * get index of IP version, load index if not loaded.
+     * 
+     * @param ipVersion
+     *            IP version.
+     * @return index, null if IP version is not valid.
+     */
+    private IpRangeIndex<String> getIndex(IpVersion ipVersion) {
+        if (null == ipVersion || ipVersion.isNotValidIp()) {
+            return null;
+        }
+        RedirectIndexes currentIndexes = indexes;
+        if (null == currentIndexes) {
+            currentIndexes = loadIndex();
+        }
+        if (ipVersion.isV4()) {
+            return currentIndexes.v4Index;
+        }
+        return currentIndexes.v6Index;
+    }
+
+    /**
+     * load index from database.
+     * 
+     * @return indexes.
+     */
+    private synchronized RedirectIndexes loadIndex() {
+        if (null != indexes) {
+            return indexes;
+        }
+        LOGGER.info("load network redirect index begin...");
+        final IpRangeIndex<String> newV4Index =
+                new IpRangeIndex<String>(
+                        IpUtil.getHexCharSize(IpVersion.V4) / 2);
+        final IpRangeIndex<String> newV6Index =
+                new IpRangeIndex<String>(
+                        IpUtil.getHexCharSize(IpVersion.V6) / 2);
+        // load from primary, not from a lagging replica.
+        boolean readOnly = ReplicaRoutingDataSource.setReadOnly(false);
+        try {
+            jdbcTemplate.query(SELECT_ALL, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    IpVersion ipVersion =
+                            IpVersion.getIpVersion(rs.getString("VERSION"));
+                    if (null == ipVersion || ipVersion.isNotValidIp()) {
+                        return;
+                    }
+                    IpRangeIndex<String> index = newV6Index;
+                    if (ipVersion.isV4()) {
+                        index = newV4Index;
+                    }
+                    index.add(rs.getBytes("STARTADDRESS"),
+                            rs.getBytes("ENDADDRESS"),
+                            rs.getString("REDIRECT_URL"));
+                }
+            });
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(readOnly);
+        }
+        newV4Index.build();
+        newV6Index.build();
+        RedirectIndexes newIndexes =
+                new RedirectIndexes(newV4Index, newV6Index);
+        indexes = newIndexes;
+        LOGGER.info("load network redirect index end, v4 size:{}, v6 size:{}",
+                newV4Index.size(), newV6Index.size());
+        return newIndexes;
+    }
+
+    /**
+     * clear index, index will be reloaded on next query.
+     */
+    public synchronized void clearIndex() {
+        indexes = null;
+    }
+
+    /**
+     * indexes of IPv4 and IPv6 redirects, published together so that query
+     * never sees one version loaded and the other cleared.
+     * 
+     * @author jiashuo
+     * 
+     */
+    private static class RedirectIndexes {
+        /**
+         * index of IPv4 redirects.
+         */
+        private final IpRangeIndex<String> v4Index;
+        /**
+         * index of IPv6 redirects.
+         */
+        private final IpRangeIndex<String> v6Index;
+
+        /**
+         * constructor.
+         * 
+         * @param v4Index
+         *            index of IPv4 redirects.
+         * @param v6Index
+         *            index of IPv6 redirects.
+         */
+        RedirectIndexes(IpRangeIndex<String> v4Index,
+                IpRangeIndex<String> v6Index) {
+            this.v4Index = v4Index;
+            this.v6Index = v6Index;
+        }
     }
 
     @Override
@@ -135,6 +257,7 @@ public class NetworkRedirectDao implements RedirectDao {
         saveNew(bootstraps);
         LOGGER.info("delete old bootstraps...");
         deleteOld(maxOldId, bootstraps);
+        clearIndex();
     }
 
     /**
@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.search.common.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.TrigramIndex;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <pre>
+ * in-memory name index for wildcard search, eg: '*bank*', which can not be
+ * served by database index.
+ * 
+ * Index is a TrigramIndex of LDH name and unicode name, sorted by LDH name
+ * and id, and it is built in background from database when
+ * nameSearchIndexEnabled is true. Search returns null if index is not built
+ * yet or pattern can not be searched by index, and caller should search in
+ * database. Subclass whose index matches differently from database may use
+ * searchBuilt() and countBuilt() instead, which wait for index to be built
+ * and never fall back to database.
+ * 
+ * Changed rows are reported by update DAO with onChanged(), and are reloaded
+ * after transaction is completed into a small set of changed entries, which
+ * overrides the built index. Index is rebuilt when there are too many
+ * changed entries, or after nameSearchIndexTtlSeconds for changes made out
+ * of this application.
+ * Only one builder thread runs at a time. After build fails, next build is
+ * not started until backoff time, which doubles on each failure, from
+ * MIN_BUILD_BACKOFF_MILLIS up to MAX_BUILD_BACKOFF_MILLIS.
+ * 
+ * Subclass may index other columns by overriding extractEntry(), and other
+ * patterns by calling search(patterns, page).
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public abstract class AbstractNameSearchIndex {
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(AbstractNameSearchIndex.class);
+    /**
+     * index is rebuilt if changed entries are more than this count.
+     */
+    private static final int MAX_CHANGED_ENTRIES = 10000;
+    /**
+     * backoff time after first build failure, in milliseconds.
+     */
+    static final long MIN_BUILD_BACKOFF_MILLIS = 1000;
+    /**
+     * max backoff time after build failures, in milliseconds.
+     */
+    static final long MAX_BUILD_BACKOFF_MILLIS = 300000;
+    /**
+     * max time to wait for index to be built by searchBuilt(), in
+     * milliseconds.
+     */
+    static final long BUILD_WAIT_MILLIS = 60000;
+    /**
+     * JDBC template.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    /**
+     * built index, null if not built.
+     */
+    private volatile TrigramIndex index;
+    /**
+     * expire time of index, in milliseconds.
+     */
+    private volatile long indexExpireTime;
+    /**
+     * true if index is building.
+     */
+    private boolean building;
+    /**
+     * count of build failures since last successful build.
+     */
+    private int buildFailureCount;
+    /**
+     * time when next build can be started, in milliseconds.
+     */
+    private long nextBuildTime;
+    /**
+     * changed entries, by id. Entry with null sort key and fields is deleted.
+     */
+    private final Map<Long, ChangedEntry> changedEntries =
+            new ConcurrentHashMap<Long, ChangedEntry>();
+    /**
+     * sequence of changes.
+     */
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    /**
+     * get sql for loading all rows, selecting columns: ID, LDH_NAME,
+     * UNICODE_NAME, or columns used by extractEntry() of subclass.
+     * 
+     * @return sql.
+     */
+    protected abstract String getLoadSql();
+
+    /**
+     * get sql for loading a row by id, same columns as getLoadSql().
+     * 
+     * @return sql.
+     */
+    protected abstract String getLoadByIdSql();
+
+    /**
+     * search ids of names matching patterns, after seek position of page.
+     * 
+     * @param ldhNamePattern
+     *            pattern of LDH name, '*' is wildcard.
+     * @param unicodeNamePattern
+     *            pattern of unicode name, '*' is wildcard.
+     * @param page
+     *            page, max records is the limit.
+     * @return entries in order of LDH name and id, or null if can not be
+     *         searched by index.
+     */
+    public List<Entry> search(String ldhNamePattern,
+            String unicodeNamePattern, PageBean page) {
+        return search(new String[] { ldhNamePattern, unicodeNamePattern },
+                page);
+    }
+
+    /**
+     * search ids of entries matching patterns of fields, after seek position
+     * of page.
+     * 
+     * @param patterns
+     *            patterns of fields extracted by extractEntry(), '*' is
+     *            wildcard, null if field is not searched.
+     * @param page
+     *            page, max records is the limit.
+     * @return entries in order of sort key and id, or null if can not be
+     *         searched by index.
+     */
+    protected List<Entry> search(String[] patterns, PageBean page) {
+        TrigramIndex currentIndex = getIndex();
+        if (null == currentIndex) {
+            return null;
+        }
+        if (!TrigramIndex.isSearchable(patterns)) {
+            return null;
+        }
+        return search(currentIndex, patterns, getAfter(page),
+                page.getMaxRecords());
+    }
+
+    /**
+     * search entries matching patterns of fields, after seek position of
+     * page, only in index. It waits for index to be built, and scans all
+     * entries if patterns can not be searched by trigrams, so result does not
+     * depend on whether index is built or on database search.
+     * 
+     * @param patterns
+     *            patterns of fields extracted by extractEntry(), '*' is
+     *            wildcard, null if field is not searched.
+     * @param page
+     *            page, max records is the limit.
+     * @return entries in order of sort key and id, or null if index is not
+     *         enabled.
+     * @throws DataAccessResourceFailureException
+     *             if index is not built in BUILD_WAIT_MILLIS, or build
+     *             failed.
+     */
+    protected List<Entry> searchBuilt(String[] patterns, PageBean page) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return search(awaitIndex(), patterns, getAfter(page),
+                page.getMaxRecords());
+    }
+
+    /**
+     * count entries matching patterns of fields only in index, the same as
+     * searchBuilt().
+     * 
+     * @param patterns
+     *            patterns of fields, '*' is wildcard, null if field is not
+     *            searched.
+     * @param limit
+     *            max count.
+     * @return count, not more than limit, or null if index is not enabled.
+     * @throws DataAccessResourceFailureException
+     *             if index is not built in BUILD_WAIT_MILLIS, or build
+     *             failed.
+     */
+    protected Long countBuilt(String[] patterns, long limit) {
+        if (!isEnabled()) {
+            return null;
+        }
+        int intLimit = (int) Math.min(limit, Integer.MAX_VALUE);
+        return (long) search(awaitIndex(), patterns, null, intLimit).size();
+    }
+
+    /**
+     * search entries matching patterns in index and changed entries.
+     * 
+     * @param currentIndex
+     *            built index.
+     * @param patterns
+     *            patterns of fields.
+     * @param after
+     *            only entries after it are returned, null for all.
+     * @param limit
+     *            max count.
+     * @return entries in order of sort key and id.
+     */
+    private List<Entry> search(TrigramIndex currentIndex, String[] patterns,
+            Entry after, int limit) {
+        List<Entry> result =
+                currentIndex.search(patterns, after, limit,
+                        changedEntries.keySet());
+        if (null == result) {
+            result =
+                    currentIndex.scan(patterns, after, limit,
+                            changedEntries.keySet());
+        }
+        if (changedEntries.isEmpty()) {
+            return result;
+        }
+        for (ChangedEntry changed : changedEntries.values()) {
+            Entry entry = changed.entry;
+            if (null != entry
+                    && (null == after || TrigramIndex.ORDER.compare(entry,
+                            after) > 0)
+                    && TrigramIndex.matches(entry, patterns)) {
+                result.add(entry);
+            }
+        }
+        Collections.sort(result, TrigramIndex.ORDER);
+        return result.size() > limit ? new ArrayList<Entry>(result.subList(
+                0, limit)) : result;
+    }
+
+    /**
+     * get seek position of page as entry.
+     * 
+     * @param page
+     *            page.
+     * @return entry, null if page has no seek position.
+     */
+    private static Entry getAfter(PageBean page) {
+        if (!page.hasSeekPosition()) {
+            return null;
+        }
+        return new Entry(page.getLastId(), page.getLastSortKey());
+    }
+
+    /**
+     * report changed row, row is reloaded after transaction is completed.
+     * 
+     * @param id
+     *            id of row.
+     */
+    public void onChanged(final Long id) {
+        if (null == id || !isEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        reload(id);
+                    }
+                });
+    }
+
+    /**
+     * clear index, index will be rebuilt on next search.
+     */
+    public synchronized void clearIndex() {
+        index = null;
+        changedEntries.clear();
+    }
+
+    /**
+     * check if index is enabled.
+     * 
+     * @return true if enabled, false if not.
+     */
+    protected boolean isEnabled() {
+        return Boolean.TRUE.equals(RdapProperties.getNameSearchIndexEnabled());
+    }
+
+    /**
+     * get index, start building it if not built or expired.
+     * 
+     * @return index, null if not built.
+     */
+    private TrigramIndex getIndex() {
+        if (!isEnabled()) {
+            return null;
+        }
+        TrigramIndex currentIndex = index;
+        if (null == currentIndex
+                || System.currentTimeMillis() >= indexExpireTime
+                || changedEntries.size() > MAX_CHANGED_ENTRIES) {
+            startBuilding();
+        }
+        return currentIndex;
+    }
+
+    /**
+     * get built index, wait for it if it is building.
+     * 
+     * @return index.
+     * @throws DataAccessResourceFailureException
+     *             if index is not built in BUILD_WAIT_MILLIS, or build
+     *             failed.
+     */
+    private TrigramIndex awaitIndex() {
+        TrigramIndex currentIndex = getIndex();
+        if (null != currentIndex) {
+            return currentIndex;
+        }
+        long deadline = System.currentTimeMillis() + BUILD_WAIT_MILLIS;
+        synchronized (this) {
+            while (null == index) {
+                if (!building) {
+                    startBuilding();
+                }
+                long waitMillis = deadline - System.currentTimeMillis();
+                if (!building || waitMillis <= 0) {
+                    throw new DataAccessResourceFailureException(getClass()
+                            .getSimpleName() + " is not built");
+                }
+                try {
+                    wait(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataAccessResourceFailureException(getClass()
+                            .getSimpleName() + " wait is interrupted", e);
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * start building index in background, if not building and not backing
+     * off after build failure.
+     */
+    private synchronized void startBuilding() {
+        if (building || System.currentTimeMillis() < nextBuildTime) {
+            return;
+        }
+        building = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean success = false;
+                try {
+                    build();
+                    success = true;
+                } catch (Exception e) {
+                    LOGGER.error("build name search index error", e);
+                } finally {
+                    onBuildCompleted(success);
+                }
+            }
+        }, getClass().getSimpleName() + "-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * reset building state after build, and set backoff time if failed.
+     * 
+     * @param success
+     *            true if build is successful.
+     */
+    synchronized void onBuildCompleted(boolean success) {
+        building = false;
+        notifyAll();
+        if (success) {
+            buildFailureCount = 0;
+            nextBuildTime = 0;
+            return;
+        }
+        buildFailureCount++;
+        long backoff = getBuildBackoffMillis(buildFailureCount);
+        nextBuildTime = System.currentTimeMillis() + backoff;
+        LOGGER.warn("{} build failed {} times, retry after {}ms",
+                new Object[] { getClass().getSimpleName(), buildFailureCount,
+                        backoff });
+    }
+
+    /**
+     * get backoff time after build failures.
+     * 
+     * @param failureCount
+     *            count of build failures.
+     * @return backoff time in milliseconds.
+     */
+    static long getBuildBackoffMillis(int failureCount) {
+        if (failureCount <= 0) {
+            return 0;
+        }
+        int shift = Math.min(failureCount - 1, 20);
+        return Math.min(MAX_BUILD_BACKOFF_MILLIS,
+                MIN_BUILD_BACKOFF_MILLIS << shift);
+    }
+
+    /**
+     * build index from database.
+     */
+    private void build() {
+        long startSequence = changeSequence.get();
+        long startTime = System.currentTimeMillis();
+        final TrigramIndex newIndex = new TrigramIndex();
+        jdbcTemplate.query(getLoadSql(), new RowCallbackHandler() {
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                newIndex.add(extractEntry(rs));
+            }
+        });
+        newIndex.build();
+        synchronized (this) {
+            // changes after loading started are kept.
+            for (Map.Entry<Long, ChangedEntry> changed : changedEntries
+                    .entrySet()) {
+                if (changed.getValue().sequence <= startSequence) {
+                    changedEntries.remove(changed.getKey());
+                }
+            }
+            indexExpireTime = startTime + getIndexTtlMillis();
+            index = newIndex;
+        }
+        LOGGER.info("build {}, size:{}, cost {}ms", new Object[] {
+                getClass().getSimpleName(), newIndex.size(),
+                System.currentTimeMillis() - startTime });
+    }
+
+    /**
+     * reload changed row.
+     * 
+     * @param id
+     *            id of row.
+     */
+    private void reload(Long id) {
+        final List<Entry> loaded = new ArrayList<Entry>();
+        jdbcTemplate.query(getLoadByIdSql(), new Object[] { id },
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        loaded.add(extractEntry(rs));
+                    }
+                });
+        Entry entry = loaded.isEmpty() ? null : loaded.get(0);
+        changedEntries.put(id,
+                new ChangedEntry(entry, changeSequence.incrementAndGet()));
+    }
+
+    /**
+     * extract entry from result set, sorted by LDH name, with fields LDH name
+     * and unicode name.
+     * 
+     * @param rs
+     *            result set.
+     * @return entry.
+     * @throws SQLException
+     *             SQLException.
+     */
+    protected Entry extractEntry(ResultSet rs) throws SQLException {
+        String ldhName = rs.getString("LDH_NAME");
+        return new Entry(rs.getLong("ID"), ldhName, ldhName,
+                rs.getString("UNICODE_NAME"));
+    }
+
+    /**
+     * get index ttl from properties.
+     * 
+     * @return ttl in milliseconds, Long.MAX_VALUE if not configured.
+     */
+    private long getIndexTtlMillis() {
+        Long ttlSeconds = RdapProperties.getNameSearchIndexTtlSeconds();
+        if (null == ttlSeconds || ttlSeconds <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        return TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * changed entry.
+     */
+    private static class ChangedEntry {
+        /**
+         * entry, null if deleted.
+         */
+        private final Entry entry;
+        /**
+         * change sequence.
+         */
+        private final long sequence;
+
+        /**
+         * constructor.
+         * 
+         * @param entry
+         *            entry, null if deleted.
+         * @param sequence
+         *            change sequence.
+         */
+        ChangedEntry(Entry entry, long sequence) {
+            this.entry = entry;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.search.common.dao;
+
+import org.restfulwhois.rdap.common.support.RdapProperties;
+
+/**
+ * capped count for search strategies.
+ * 
+ * <pre>
+ * Search only needs to know if there are more than maxsizeSearch objects,
+ * so count is searched by a bounded subquery, which stops scanning after
+ * maxsizeSearch + 1 rows:
+ *  select count(1) as COUNT from (select 1 from ... limit ?) capped
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public final class CappedCount {
+
+    /**
+     * private constructor.
+     */
+    private CappedCount() {
+        super();
+    }
+
+    /**
+     * generate capped count sql.
+     * 
+     * @param fromAndWhereClause
+     *            from and where clause of search, starting with 'from'.
+     * @return count sql, with limit parameter at last.
+     */
+    public static String countSql(String fromAndWhereClause) {
+        return "select count(1) as COUNT from (select 1 "
+                + fromAndWhereClause + " limit ?) capped";
+    }
+
+    /**
+     * get max count.
+     * 
+     * @return maxsizeSearch + 1.
+     */
+    public static long getCountLimit() {
+        return RdapProperties.getMaxsizeSearch() + 1;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.search.common.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.restfulwhois.rdap.common.util.DomainUtil;
+
+/**
+ * reversed LDH name clause for suffix search.
+ * 
+ * <pre>
+ * Suffix pattern like '*.example.cn' becomes 'LDH_NAME like %.example.cn',
+ * which can not use index of LDH_NAME. REVERSED_LDH_NAME stores labels in
+ * reversed order, eg: 'cn.example.www', so the pattern is also searched by
+ * prefix 'cn.example.%' on REVERSED_LDH_NAME, which is an index range read.
+ * Original 'like' clause is kept, so results are not changed. Rows without
+ * REVERSED_LDH_NAME, eg: not updated by this application, are also included.
+ * Usage:
+ *  prefix = getPrefix(ldhNamePattern)
+ *  sql = select ... where LDH_NAME like ? ... + clause(column, prefix)
+ *  index = setParams(ps, index, prefix)
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public final class ReversedLdhNameClause {
+
+    /**
+     * private constructor.
+     */
+    private ReversedLdhNameClause() {
+        super();
+    }
+
+    /**
+     * get reversed prefix of LDH name pattern.
+     * 
+     * @param ldhNamePattern
+     *            LDH name pattern, '*' is wildcard.
+     * @return prefix, null if pattern is not suffix pattern.
+     */
+    public static String getPrefix(String ldhNamePattern) {
+        return DomainUtil.getReversedPrefixOfSuffixPattern(ldhNamePattern);
+    }
+
+    /**
+     * generate clause, starting with 'and'.
+     * 
+     * @param column
+     *            REVERSED_LDH_NAME column, with table alias.
+     * @param prefix
+     *            prefix.
+     * @return clause, empty string if prefix is null.
+     */
+    public static String clause(String column, String prefix) {
+        if (null == prefix) {
+            return "";
+        }
+        return " and (" + column + " like ? or " + column + " is null) ";
+    }
+
+    /**
+     * set parameter of clause.
+     * 
+     * @param ps
+     *            PreparedStatement.
+     * @param startIndex
+     *            index of parameter.
+     * @param prefix
+     *            prefix.
+     * @return index of next parameter.
+     * @throws SQLException
+     *             SQLException.
+     */
+    public static int setParams(PreparedStatement ps, int startIndex,
+            String prefix) throws SQLException {
+        if (null == prefix) {
+            return startIndex;
+        }
+        ps.setString(startIndex, prefix + "%");
+        return startIndex + 1;
+    }
+}
@@ -55,7 +55,7 @@ public interface SearchStrategy<T extends BaseModel> {
     boolean support(QueryParam queryParam);
 
     /**
-     * searchCount.
+     * searchCount, count is capped at maxsizeSearch + 1.
      * 
      * @param queryParam
      *            queryParam.
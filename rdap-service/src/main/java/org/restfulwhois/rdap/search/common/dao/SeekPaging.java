@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.search.common.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.restfulwhois.rdap.common.support.PageBean;
+
+/**
+ * seek paging for search strategies.
+ * 
+ * <pre>
+ * Search results are ordered by sort column and id column, and next batch
+ * is searched after last object of previous batch, instead of skipping
+ * rows by 'limit offset,count', which becomes slower for deeper batches.
+ * Usage:
+ *  sql = select ... where ... + seekClause(...) + orderAndLimitClause(...)
+ *  index = setSeekAndLimitParams(ps, index, page)
+ *  page.setSeekPosition(lastObject.sortKey, lastObject.id)
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+public final class SeekPaging {
+
+    /**
+     * private constructor.
+     */
+    private SeekPaging() {
+        super();
+    }
+
+    /**
+     * generate seek clause, starting with 'and'.
+     * 
+     * @param sortColumn
+     *            sort column.
+     * @param idColumn
+     *            id column.
+     * @param page
+     *            page.
+     * @return seek clause, empty string for first batch.
+     */
+    public static String seekClause(String sortColumn, String idColumn,
+            PageBean page) {
+        if (!page.hasSeekPosition()) {
+            return "";
+        }
+        if (null == page.getLastSortKey()) {
+            // null is sorted first.
+            return " and (" + sortColumn + " is not null or " + idColumn
+                    + " > ?) ";
+        }
+        return " and (" + sortColumn + " > ? or (" + sortColumn + " = ? and "
+                + idColumn + " > ?)) ";
+    }
+
+    /**
+     * generate order by and limit clause.
+     * 
+     * @param sortColumn
+     *            sort column.
+     * @param idColumn
+     *            id column.
+     * @return order by and limit clause.
+     */
+    public static String orderAndLimitClause(String sortColumn,
+            String idColumn) {
+        return " order by " + sortColumn + "," + idColumn + " limit ? ";
+    }
+
+    /**
+     * set parameters of seek clause and limit clause.
+     * 
+     * @param ps
+     *            PreparedStatement.
+     * @param startIndex
+     *            index of first parameter to set.
+     * @param page
+     *            page.
+     * @return index of next parameter.
+     * @throws SQLException
+     *             SQLException.
+     */
+    public static int setSeekAndLimitParams(PreparedStatement ps,
+            int startIndex, PageBean page) throws SQLException {
+        int index = startIndex;
+        if (page.hasSeekPosition()) {
+            if (null != page.getLastSortKey()) {
+                ps.setString(index++, page.getLastSortKey());
+                ps.setString(index++, page.getLastSortKey());
+            }
+            ps.setLong(index++, page.getLastId());
+        }
+        ps.setLong(index++, page.getMaxRecords());
+        return index;
+    }
+}
@@ -52,6 +52,15 @@ import org.springframework.stereotype.Service;
  * 
  * searching for domain/NS/entity.
  * 
+ * <pre>
+ * Objects are searched in batches by seek paging, each batch continues
+ * after last object of previous batch. Size of next batch is adjusted by
+ * ratio of permitted objects, so a search with most objects not permitted
+ * does not need many batches.
+ * Total count is not searched, results are truncated if one more object is
+ * found after maxsizeSearch permitted objects.
+ * </pre>
+ * 
  * @author jiashuo
  * 
  */
@@ -85,40 +94,58 @@ public abstract class AbstractSearchService {
         LOGGER.debug("search QueryParam:" + queryParam + ",QueryDao:"
                 + searchDao);
 
-        Long totalCount = searchDao.searchCount(queryParam);
-        LOGGER.debug("search count is " + totalCount);
-        if (totalCount == 0) {
-            return null;
-        }
         List<T> authedObjects = new ArrayList<T>();
+        int maxsize = RdapProperties.getMaxsizeSearch().intValue();
         PageBean page = new PageBean();
         page.setMaxRecords(RdapProperties.getBatchsizeSearch().intValue());
-        page.setRecordsCount(totalCount.intValue());
         queryParam.setPageBean(page);
         boolean gotEnoughResults = false;
+        boolean noMoreResults = false;
+        long searchedCount = 0;
+        long permittedCount = 0;
         TruncatedInfo truncatedInfo = new TruncatedInfo();
         do {
+            int batchSize = page.getMaxRecords();
+            page.setScannedCount(null);
             List<T> objects = searchDao.search(queryParam);
+            List<T> permittedObjects =
+                    accessControlManager.filterPermitted(objects);
+            int permittedIndex = 0;
             for (T object : objects) {
-                if (authedObjects.size() == RdapProperties.getMaxsizeSearch()) {
+                if (authedObjects.size() == maxsize) {
                     gotEnoughResults = true;
                     truncatedInfo
                             .addTruncate(TruncateReason.TRUNCATEREASON_EXLOAD);
                     break;
                 }
-                if (authedObjects.size() < RdapProperties.getMaxsizeSearch()
-                        && accessControlManager.hasPermission(object)) {
+                boolean permitted =
+                        permittedIndex < permittedObjects.size()
+                                && permittedObjects.get(permittedIndex) == object;
+                if (permitted) {
+                    permittedIndex++;
                     authedObjects.add(object);
-                }
-                if (!accessControlManager.hasPermission(object)) {
+                } else {
                     truncatedInfo
                             .addTruncate(TruncateReason.TRUNCATEREASON_AUTH);
                 }
             }
+            searchedCount += objects.size();
+            permittedCount += permittedObjects.size();
+            // objects found by index may be deleted from database, so the
+            // count of scanned ids is compared if it is set.
+            int scannedCount =
+                    null == page.getScannedCount() ? objects.size() : page
+                            .getScannedCount();
+            noMoreResults = scannedCount < batchSize;
             page.incrementCurrentPage();
-        } while (page.isNotLastPage() && !gotEnoughResults
-        // && authedDomains.size() < RdapProperties.getMaxsizeSearch()
-        );
+            page.setMaxRecords(getNextBatchSize(
+                    maxsize - authedObjects.size(), searchedCount,
+                    permittedCount));
+        } while (!noMoreResults && !gotEnoughResults);
+        LOGGER.debug("searched count is " + searchedCount);
+        if (searchedCount == 0) {
+            return null;
+        }
         BaseSearchModel<T> searchResult = new BaseSearchModel<T>();
         if (authedObjects.size() == 0) {
             truncatedInfo.setHasNoAuthForAllObjects(true);
@@ -130,4 +157,41 @@ public abstract class AbstractSearchService {
         return searchResult;
     }
 
+    /**
+     * get size of next batch by ratio of permitted objects, so that next batch
+     * is expected to contain enough permitted objects.
+     * 
+     * <pre>
+     * One more object is expected, to check if results are truncated.
+     * Size is between batchsizeSearch and maxBatchsizeSearch.
+     * </pre>
+     * 
+     * @param remainingCount
+     *            count of objects still needed.
+     * @param searchedCount
+     *            count of searched objects.
+     * @param permittedCount
+     *            count of permitted objects in searched objects.
+     * @return batch size.
+     */
+    static int getNextBatchSize(int remainingCount, long searchedCount,
+            long permittedCount) {
+        long minSize = RdapProperties.getBatchsizeSearch();
+        Long maxBatchsize = RdapProperties.getMaxBatchsizeSearch();
+        if (null == maxBatchsize || maxBatchsize < minSize) {
+            return (int) minSize;
+        }
+        long maxSize = maxBatchsize;
+        if (permittedCount <= 0) {
+            return (int) maxSize;
+        }
+        long expectedCount = remainingCount + 1L;
+        long size =
+                (expectedCount * searchedCount + permittedCount - 1)
+                        / permittedCount;
+        // over fetch a quarter, for uneven distribution of permitted objects.
+        size += size / 4;
+        return (int) Math.max(minSize, Math.min(maxSize, size));
+    }
+
 }
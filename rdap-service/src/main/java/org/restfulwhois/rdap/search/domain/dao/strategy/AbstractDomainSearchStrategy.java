@@ -32,9 +32,11 @@ package org.restfulwhois.rdap.search.domain.dao.strategy;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.Domain;
+import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.search.common.dao.SearchStrategy;
 import org.springframework.jdbc.core.ResultSetExtractor;
 
@@ -62,6 +64,32 @@ public abstract class AbstractDomainSearchStrategy implements
         }
     }
 
+    /**
+     * sort column of domain search.
+     */
+    protected static final String SORT_COLUMN = "domain.LDH_NAME";
+    /**
+     * id column of domain search.
+     */
+    protected static final String ID_COLUMN = "domain.DOMAIN_ID";
+
+    /**
+     * set seek position of page to last domain, next batch is searched after
+     * it.
+     * 
+     * @param page
+     *            page.
+     * @param domains
+     *            domains in this batch.
+     */
+    protected void updateSeekPosition(PageBean page, List<Domain> domains) {
+        if (null == domains || domains.isEmpty()) {
+            return;
+        }
+        Domain last = domains.get(domains.size() - 1);
+        page.setSeekPosition(last.getLdhName(), last.getId());
+    }
+
     /**
      * generateLikeClause.
      * 
@@ -33,16 +33,24 @@ package org.restfulwhois.rdap.search.domain.dao.strategy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.model.Domain;
 import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
 import org.restfulwhois.rdap.core.domain.dao.impl.DomainQueryDaoImpl;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchByDomainNameParam;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchParam;
+import org.restfulwhois.rdap.search.common.dao.CappedCount;
+import org.restfulwhois.rdap.search.common.dao.ReversedLdhNameClause;
+import org.restfulwhois.rdap.search.common.dao.SeekPaging;
+import org.restfulwhois.rdap.search.domain.dao.DomainNameSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.stereotype.Repository;
@@ -50,6 +58,11 @@ import org.springframework.stereotype.Repository;
 /**
  * search domain by name.
  * 
+ * <pre>
+ * Domains are searched by DomainNameSearchIndex if it is enabled and can
+ * serve the pattern, and then selected by id, or else searched in database.
+ * </pre>
+ * 
  * @author jiashuo
  * 
  */
@@ -60,6 +73,18 @@ public class DomainSearchByNameStrategy extends AbstractDomainSearchStrategy {
      */
     protected static final Logger LOGGER = LoggerFactory
             .getLogger(DomainSearchByNameStrategy.class);
+    /**
+     * select domains by id.
+     */
+    private static final String SQL_SEARCH_BY_IDS_TPL =
+            "select " + DomainQueryDaoImpl.SQL_DOMAIN_COLUMNS
+                    + " from RDAP_DOMAIN domain where DOMAIN_ID in (%s) "
+                    + " order by " + SORT_COLUMN + "," + ID_COLUMN;
+    /**
+     * domain name index.
+     */
+    @Autowired
+    private DomainNameSearchIndex domainNameSearchIndex;
 
     @Override
     public boolean support(QueryParam queryParam) {
@@ -73,9 +98,13 @@ public class DomainSearchByNameStrategy extends AbstractDomainSearchStrategy {
         final String punyName = domainSearchParam.getPunyName();
         final String domainNameLikeClause = generateLikeClause(domainName);
         final String punyNameLikeClause = generateLikeClause(punyName);
+        final String reversedPrefix =
+                ReversedLdhNameClause.getPrefix(punyName);
         final String sql =
-                "select count(1) as COUNT from RDAP_DOMAIN domain "
-                        + " where LDH_NAME like ? or UNICODE_NAME like ? ";
+                CappedCount.countSql("from RDAP_DOMAIN domain "
+                        + " where (LDH_NAME like ? or UNICODE_NAME like ?) "
+                        + ReversedLdhNameClause.clause(
+                                "domain.REVERSED_LDH_NAME", reversedPrefix));
         Long domainCount = jdbcTemplate.query(new PreparedStatementCreator() {
             @Override
             public PreparedStatement createPreparedStatement(
@@ -83,6 +112,9 @@ public class DomainSearchByNameStrategy extends AbstractDomainSearchStrategy {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setString(1, punyNameLikeClause);
                 ps.setString(2, domainNameLikeClause);
+                int index =
+                        ReversedLdhNameClause.setParams(ps, 3, reversedPrefix);
+                ps.setLong(index, CappedCount.getCountLimit());
                 return ps;
             }
         }, new CountResultSetExtractor());
@@ -97,15 +129,26 @@ public class DomainSearchByNameStrategy extends AbstractDomainSearchStrategy {
         final String punyName = domainSearchParam.getPunyName();
         final String domainNameLikeClause = generateLikeClause(domainName);
         final String punyNameLikeClause = generateLikeClause(punyName);
-        final String sql =
-                "select * from RDAP_DOMAIN domain "
-                        + " where LDH_NAME like ? or UNICODE_NAME like ? "
-                        + " order by domain.LDH_NAME limit ?,? ";
         final PageBean page = domainSearchParam.getPageBean();
-        int startPage = page.getCurrentPage() - 1;
-        startPage = startPage >= 0 ? startPage : 0;
-        final long startRow = startPage * page.getMaxRecords();
         DomainQueryDaoImpl domainDao = new DomainQueryDaoImpl();
+        List<Entry> entries = null;
+        if (null != domainNameSearchIndex) {
+            entries = domainNameSearchIndex.search(punyName, domainName, page);
+        }
+        if (null != entries) {
+            return searchByIndexEntries(entries, page, jdbcTemplate);
+        }
+        final String reversedPrefix =
+                ReversedLdhNameClause.getPrefix(punyName);
+        final String sql =
+                "select " + DomainQueryDaoImpl.SQL_DOMAIN_COLUMNS
+                        + " from RDAP_DOMAIN domain "
+                        + " where (LDH_NAME like ? or UNICODE_NAME like ?) "
+                        + ReversedLdhNameClause.clause(
+                                "domain.REVERSED_LDH_NAME", reversedPrefix)
+                        + SeekPaging.seekClause(SORT_COLUMN, ID_COLUMN, page)
+                        + SeekPaging.orderAndLimitClause(SORT_COLUMN,
+                                ID_COLUMN);
         List<Domain> result = null;
         result = jdbcTemplate.query(new PreparedStatementCreator() {
             @Override
@@ -114,14 +157,48 @@ public class DomainSearchByNameStrategy extends AbstractDomainSearchStrategy {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setString(1, punyNameLikeClause);
                 ps.setString(2, domainNameLikeClause);
-                ps.setLong(3, startRow);
-                ps.setLong(4, page.getMaxRecords());
+                int index =
+                        ReversedLdhNameClause.setParams(ps, 3, reversedPrefix);
+                SeekPaging.setSeekAndLimitParams(ps, index, page);
                 return ps;
             }
         }, domainDao.new DomainWithStatusResultSetExtractor());
-        for(Domain domain : result){
-            domainDao.queryDomainStatus(domain, jdbcTemplate);
+        updateSeekPosition(page, result);
+        domainDao.queryDomainStatus(result, jdbcTemplate);
+        return result;
+    }
+
+    /**
+     * select domains of index entries by id.
+     * 
+     * @param entries
+     *            index entries.
+     * @param page
+     *            page.
+     * @param jdbcTemplate
+     *            jdbcTemplate.
+     * @return domain list.
+     */
+    private List<Domain> searchByIndexEntries(List<Entry> entries,
+            PageBean page, JdbcTemplate jdbcTemplate) {
+        page.setScannedCount(entries.size());
+        if (entries.isEmpty()) {
+            return new ArrayList<Domain>();
+        }
+        List<Long> ids = new ArrayList<Long>();
+        for (Entry entry : entries) {
+            ids.add(entry.getId());
         }
+        final String sql =
+                String.format(SQL_SEARCH_BY_IDS_TPL,
+                        StringUtils.join(ids, ","));
+        DomainQueryDaoImpl domainDao = new DomainQueryDaoImpl();
+        List<Domain> result =
+                jdbcTemplate.query(sql,
+                        domainDao.new DomainWithStatusResultSetExtractor());
+        Entry last = entries.get(entries.size() - 1);
+        page.setSeekPosition(last.getSortKey(), last.getId());
+        domainDao.queryDomainStatus(result, jdbcTemplate);
         return result;
     }
 
@@ -43,6 +43,8 @@ import org.restfulwhois.rdap.common.util.IpUtil;
 import org.restfulwhois.rdap.core.domain.dao.impl.DomainQueryDaoImpl;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchByNsIpParam;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchParam;
+import org.restfulwhois.rdap.search.common.dao.CappedCount;
+import org.restfulwhois.rdap.search.common.dao.SeekPaging;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -74,17 +76,18 @@ public class DomainSearchByNsIpStrategy extends AbstractDomainSearchStrategy {
         final DomainSearchByNsIpParam searchByNsIpParam =
                 (DomainSearchByNsIpParam) queryParam;
         final String sql =
-                "select COUNT(*) as COUNT" + " from RDAP_DOMAIN t1 "
+                CappedCount.countSql("from RDAP_DOMAIN t1 "
                         + " inner join REL_DOMAIN_NAMESERVER t2"
                         + " on t1.DOMAIN_ID = t2.DOMAIN_ID "
                         + " inner join RDAP_NAMESERVER_IP t3 on "
                         + " t2.NAMESERVER_ID = t3.NAMESERVER_ID"
-                        + " where t3.IP = ?";
+                        + " where t3.IP = ?");
         Long recordsCount = jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setBytes(1, searchByNsIpParam.getIpInBytes().getBytes());
+                ps.setLong(2, CappedCount.getCountLimit());
                 return ps;
             }
         }, new CountResultSetExtractor());
@@ -97,33 +100,32 @@ public class DomainSearchByNsIpStrategy extends AbstractDomainSearchStrategy {
         DomainSearchParam domainQueryParam = (DomainSearchParam) queryParam;
         List<Domain> result = null;
         final PageBean page = domainQueryParam.getPageBean();
-        int startPage = page.getCurrentPage() - 1;
-        startPage = startPage >= 0 ? startPage : 0;
-        final long startRow = startPage * page.getMaxRecords();
         String ipPrefix = domainQueryParam.getQ();
         IpVersion ipVersion = IpUtil.getIpVersionOfIp(ipPrefix);
         final byte[] ipBytes = IpUtil.ipToByteArray(ipPrefix, ipVersion);
         DomainQueryDaoImpl domainDao = new DomainQueryDaoImpl();
         final String sql =
-                "SELECT distinct domain.* FROM  RDAP_DOMAIN domain "
+                "SELECT distinct " + DomainQueryDaoImpl.SQL_DOMAIN_COLUMNS
+                        + " FROM  RDAP_DOMAIN domain "
                         + " INNER JOIN REL_DOMAIN_NAMESERVER rel "
                         + " ON domain.DOMAIN_ID = rel.DOMAIN_ID "
                         + " INNER JOIN RDAP_NAMESERVER_IP nsip "
                         + " ON rel.NAMESERVER_ID = nsip.NAMESERVER_ID "
-                        + " where nsip.IP = ? order by domain.LDH_NAME limit ?,?";
+                        + " where nsip.IP = ? "
+                        + SeekPaging.seekClause(SORT_COLUMN, ID_COLUMN, page)
+                        + SeekPaging.orderAndLimitClause(SORT_COLUMN,
+                                ID_COLUMN);
         result = jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setBytes(1, ipBytes);
-                ps.setLong(2, startRow);
-                ps.setLong(3, page.getMaxRecords());
+                SeekPaging.setSeekAndLimitParams(ps, 2, page);
                 return ps;
             }
         }, domainDao.new DomainWithStatusResultSetExtractor());
-        for(Domain domain : result){
-             domainDao.queryDomainStatus(domain, jdbcTemplate);
-        }
+        updateSeekPosition(page, result);
+        domainDao.queryDomainStatus(result, jdbcTemplate);
         return result;
     }
 
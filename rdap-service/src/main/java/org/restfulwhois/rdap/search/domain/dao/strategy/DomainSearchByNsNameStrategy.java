@@ -41,6 +41,9 @@ import org.restfulwhois.rdap.common.support.QueryParam;
 import org.restfulwhois.rdap.core.domain.dao.impl.DomainQueryDaoImpl;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchByNsLdhNameParam;
 import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchParam;
+import org.restfulwhois.rdap.search.common.dao.CappedCount;
+import org.restfulwhois.rdap.search.common.dao.ReversedLdhNameClause;
+import org.restfulwhois.rdap.search.common.dao.SeekPaging;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -72,18 +75,25 @@ public class DomainSearchByNsNameStrategy extends AbstractDomainSearchStrategy {
         DomainSearchParam domainSearchParam = (DomainSearchParam) queryParam;
         final String punyName = domainSearchParam.getPunyName();
         final String punyNameLikeClause = super.generateLikeClause(punyName);
+        final String reversedPrefix =
+                ReversedLdhNameClause.getPrefix(punyName);
         final String sql =
-                "SELECT COUNT(*) as COUNT from "
+                CappedCount.countSql("from "
                         + "RDAP_DOMAIN t1 inner join REL_DOMAIN_NAMESERVER t2 "
                         + "on t1.DOMAIN_ID = t2.DOMAIN_ID inner join RDAP_NAMESERVER t3 "
                         + "on t2.NAMESERVER_ID = t3.NAMESERVER_ID "
-                        + "where t3.LDH_NAME like ? ";
+                        + "where t3.LDH_NAME like ? "
+                        + ReversedLdhNameClause.clause("t3.REVERSED_LDH_NAME",
+                                reversedPrefix));
         Long domainCount = jdbcTemplate.query(new PreparedStatementCreator() {
             @Override
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setString(1, punyNameLikeClause);
+                int index =
+                        ReversedLdhNameClause.setParams(ps, 2, reversedPrefix);
+                ps.setLong(index, CappedCount.getCountLimit());
                 return ps;
             }
         }, new CountResultSetExtractor());
@@ -97,17 +107,21 @@ public class DomainSearchByNsNameStrategy extends AbstractDomainSearchStrategy {
         DomainSearchParam domainQueryParam = (DomainSearchParam) queryParam;
         final String punyName = domainQueryParam.getPunyName();
         final String punyNameLikeClause = generateLikeClause(punyName);
+        final PageBean page = queryParam.getPageBean();
+        final String reversedPrefix =
+                ReversedLdhNameClause.getPrefix(punyName);
         final String sql =
-                "select distinct domain.* from  RDAP_DOMAIN domain inner join "
+                "select distinct " + DomainQueryDaoImpl.SQL_DOMAIN_COLUMNS
+                        + " from  RDAP_DOMAIN domain inner join "
                         + " REL_DOMAIN_NAMESERVER rel on domain.DOMAIN_ID = rel.DOMAIN_ID "
                         + " inner join RDAP_NAMESERVER ns "
                         + " on rel.NAMESERVER_ID = ns.NAMESERVER_ID "
                         + " where ns.LDH_NAME LIKE ? "
-                        + " order by domain.LDH_NAME limit ?,? ";
-        final PageBean page = queryParam.getPageBean();
-        int startPage = page.getCurrentPage() - 1;
-        startPage = startPage >= 0 ? startPage : 0;
-        final long startRow = startPage * page.getMaxRecords();
+                        + ReversedLdhNameClause.clause("ns.REVERSED_LDH_NAME",
+                                reversedPrefix)
+                        + SeekPaging.seekClause(SORT_COLUMN, ID_COLUMN, page)
+                        + SeekPaging.orderAndLimitClause(SORT_COLUMN,
+                                ID_COLUMN);
         DomainQueryDaoImpl domainDao = new DomainQueryDaoImpl();
         List<Domain> result =
                 jdbcTemplate.query(new PreparedStatementCreator() {
@@ -116,14 +130,15 @@ public class DomainSearchByNsNameStrategy extends AbstractDomainSearchStrategy {
                             Connection connection) throws SQLException {
                         PreparedStatement ps = connection.prepareStatement(sql);
                         ps.setString(1, punyNameLikeClause);
-                        ps.setLong(2, startRow);
-                        ps.setLong(3, page.getMaxRecords());
+                        int index =
+                                ReversedLdhNameClause.setParams(ps, 2,
+                                        reversedPrefix);
+                        SeekPaging.setSeekAndLimitParams(ps, index, page);
                         return ps;
                     }
                 }, domainDao.new DomainWithStatusResultSetExtractor());
-        for(Domain domain : result){
-            domainDao.queryDomainStatus(domain, jdbcTemplate);
-        }
+        updateSeekPosition(page, result);
+        domainDao.queryDomainStatus(result, jdbcTemplate);
         return result;
     }
 
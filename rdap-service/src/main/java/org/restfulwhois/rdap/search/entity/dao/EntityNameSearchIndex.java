@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.search.entity.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.StringUtil;
+import org.restfulwhois.rdap.common.util.TrigramIndex;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+import org.restfulwhois.rdap.search.common.dao.AbstractNameSearchIndex;
+import org.springframework.stereotype.Repository;
+
+/**
+ * <pre>
+ * entity index for search by fn and handle, sorted by handle.
+ * 
+ * Fn and handle are indexed as words: case folded and NFKC normalized, split
+ * by characters other than letter and digit, and joined by a space, with a
+ * space at both ends, eg: 'John SMITH-Ltd' is indexed as ' john smith ltd '.
+ * Patterns are folded the same way, and must match from the start of a word
+ * to the end of a word, so:
+ *   'john' matches word 'john', and 'john smith' matches the two words;
+ *   'smith*' matches words starting with 'smith', eg: 'John Smithson';
+ *   '*mit*' matches any part of any word.
+ * 
+ * This is not the same as database search 'like', which is case sensitive
+ * and matches the whole value, so search and count are answered only by the
+ * index when entitySearchIndexEnabled is true, waiting for it to be built,
+ * and never by database. Database is searched only if index is disabled.
+ * </pre>
+ * 
+ * @author jiashuo
+ * 
+ */
+@Repository
+public class EntityNameSearchIndex extends AbstractNameSearchIndex {
+    /**
+     * field index of fn.
+     */
+    private static final int FIELD_FN = 0;
+    /**
+     * field index of handle.
+     */
+    private static final int FIELD_HANDLE = 1;
+    /**
+     * separator of words.
+     */
+    private static final char WORD_SEPARATOR = ' ';
+    /**
+     * select all entities.
+     */
+    private static final String SQL_LOAD =
+            "select ENTITY_ID as ID,HANDLE,FN from RDAP_ENTITY";
+    /**
+     * select entity by id.
+     */
+    private static final String SQL_LOAD_BY_ID = SQL_LOAD
+            + " where ENTITY_ID = ?";
+
+    /**
+     * search entities by fn.
+     * 
+     * @param fnPattern
+     *            fn pattern, '*' is wildcard.
+     * @param page
+     *            page.
+     * @return entries in order of handle and id, or null if index is not
+     *         enabled.
+     */
+    public List<Entry> searchByFn(String fnPattern, PageBean page) {
+        return searchBuilt(toPatterns(FIELD_FN, fnPattern), page);
+    }
+
+    /**
+     * search entities by handle.
+     * 
+     * @param handlePattern
+     *            handle pattern, '*' is wildcard.
+     * @param page
+     *            page.
+     * @return entries in order of handle and id, or null if index is not
+     *         enabled.
+     */
+    public List<Entry> searchByHandle(String handlePattern, PageBean page) {
+        return searchBuilt(toPatterns(FIELD_HANDLE, handlePattern), page);
+    }
+
+    /**
+     * count entities by fn.
+     * 
+     * @param fnPattern
+     *            fn pattern, '*' is wildcard.
+     * @param limit
+     *            max count.
+     * @return count, not more than limit, or null if index is not enabled.
+     */
+    public Long countByFn(String fnPattern, long limit) {
+        return countBuilt(toPatterns(FIELD_FN, fnPattern), limit);
+    }
+
+    /**
+     * count entities by handle.
+     * 
+     * @param handlePattern
+     *            handle pattern, '*' is wildcard.
+     * @param limit
+     *            max count.
+     * @return count, not more than limit, or null if index is not enabled.
+     */
+    public Long countByHandle(String handlePattern, long limit) {
+        return countBuilt(toPatterns(FIELD_HANDLE, handlePattern), limit);
+    }
+
+    @Override
+    protected String getLoadSql() {
+        return SQL_LOAD;
+    }
+
+    @Override
+    protected String getLoadByIdSql() {
+        return SQL_LOAD_BY_ID;
+    }
+
+    @Override
+    protected boolean isEnabled() {
+        return Boolean.TRUE.equals(RdapProperties
+                .getEntitySearchIndexEnabled());
+    }
+
+    @Override
+    protected Entry extractEntry(ResultSet rs) throws SQLException {
+        String handle = rs.getString("HANDLE");
+        return new Entry(rs.getLong("ID"), handle,
+                foldWords(rs.getString("FN"), false), foldWords(handle,
+                        false));
+    }
+
+    /**
+     * generate patterns of fields, matching words of one field.
+     * 
+     * @param field
+     *            field index.
+     * @param pattern
+     *            pattern, '*' is wildcard.
+     * @return patterns.
+     */
+    private static String[] toPatterns(int field, String pattern) {
+        String[] patterns = new String[2];
+        String words = foldWords(pattern, true);
+        if (null != words) {
+            patterns[field] =
+                    TrigramIndex.WILDCARD + words + TrigramIndex.WILDCARD;
+        }
+        return patterns;
+    }
+
+    /**
+     * fold value to words, separated by a space, with a space at both ends.
+     * 
+     * @param value
+     *            fn, handle or pattern.
+     * @param keepWildcard
+     *            true if '*' is kept as part of word, for pattern.
+     * @return folded words, null if value has no word.
+     */
+    static String foldWords(String value, boolean keepWildcard) {
+        if (null == value) {
+            return null;
+        }
+        String folded = StringUtil.foldCaseAndNormalization(value);
+        StringBuilder words = new StringBuilder(folded.length() + 2);
+        words.append(WORD_SEPARATOR);
+        boolean hasWord = false;
+        for (int i = 0; i < folded.length();) {
+            int codePoint = folded.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)
+                    || (keepWildcard && TrigramIndex.WILDCARD.charAt(0)
+                            == codePoint)) {
+                words.appendCodePoint(codePoint);
+                hasWord = true;
+            } else if (words.charAt(words.length() - 1) != WORD_SEPARATOR) {
+                words.append(WORD_SEPARATOR);
+            }
+        }
+        if (!hasWord) {
+            return null;
+        }
+        if (words.charAt(words.length() - 1) != WORD_SEPARATOR) {
+            words.append(WORD_SEPARATOR);
+        }
+        return words.toString();
+    }
+}
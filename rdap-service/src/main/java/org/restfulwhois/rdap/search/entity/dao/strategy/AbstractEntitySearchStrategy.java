@@ -37,24 +37,49 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.Entity;
 import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
 import org.restfulwhois.rdap.core.entity.dao.impl.EntityQueryDaoImpl;
+import org.restfulwhois.rdap.search.common.dao.CappedCount;
 import org.restfulwhois.rdap.search.common.dao.SearchStrategy;
+import org.restfulwhois.rdap.search.common.dao.SeekPaging;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.ResultSetExtractor;
 
 /**
+ * <pre>
  * abstract entity search strategy.
  * 
+ * Entities are searched by index if subclass returns entries in
+ * searchIndex(), and then selected by id, or else searched in database.
+ * Likewise, count is from searchIndexCount() if it is not null.
+ * </pre>
+ * 
  * @author jiashuo
  * 
  */
 public abstract class AbstractEntitySearchStrategy implements
         SearchStrategy<Entity> {
+    /**
+     * sort column of entity search.
+     */
+    private static final String SORT_COLUMN = "entity.HANDLE";
+    /**
+     * id column of entity search.
+     */
+    private static final String ID_COLUMN = "entity.ENTITY_ID";
+    /**
+     * select entities by ids template.
+     */
+    private static final String SQL_SEARCH_BY_IDS_TPL =
+            "select " + EntityQueryDaoImpl.SQL_ENTITY_COLUMNS
+                    + " from RDAP_ENTITY entity where ENTITY_ID in (%s) "
+                    + " order by " + SORT_COLUMN + "," + ID_COLUMN;
 
     /**
      * searchCount.
@@ -70,16 +95,21 @@ public abstract class AbstractEntitySearchStrategy implements
     protected Long searchCount(QueryParam queryParam,
             JdbcTemplate jdbcTemplate, final String searchColumnName) {
         final String q = queryParam.getQ();
+        Long indexCount = searchIndexCount(q, CappedCount.getCountLimit());
+        if (null != indexCount) {
+            return indexCount;
+        }
         final String qLikeClause = generateLikeClause(q);
         final String sql =
-                "select count(1) as COUNT from RDAP_ENTITY " + " where "
-                        + searchColumnName + " like ? ";
+                CappedCount.countSql("from RDAP_ENTITY " + " where "
+                        + searchColumnName + " like ? ");
         Long entityCount = jdbcTemplate.query(new PreparedStatementCreator() {
             @Override
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setString(1, qLikeClause);
+                ps.setLong(2, CappedCount.getCountLimit());
                 return ps;
             }
         }, new CountResultSetExtractor());
@@ -101,13 +131,18 @@ public abstract class AbstractEntitySearchStrategy implements
             JdbcTemplate jdbcTemplate, String searchColumnName) {
         final String q = queryParam.getQ();
         final String qLikeClause = generateLikeClause(q);
-        final String sql =
-                "select * from RDAP_ENTITY entity where " + searchColumnName
-                        + " like ? " + " order by entity.HANDLE limit ?,? ";
         final PageBean page = queryParam.getPageBean();
-        int startPage = page.getCurrentPage() - 1;
-        startPage = startPage >= 0 ? startPage : 0;
-        final long startRow = startPage * page.getMaxRecords();
+        List<Entry> entries = searchIndex(q, page);
+        if (null != entries) {
+            return searchByIndexEntries(entries, page, jdbcTemplate);
+        }
+        final String sql =
+                "select " + EntityQueryDaoImpl.SQL_ENTITY_COLUMNS
+                        + " from RDAP_ENTITY entity where " + searchColumnName
+                        + " like ? "
+                        + SeekPaging.seekClause(SORT_COLUMN, ID_COLUMN, page)
+                        + SeekPaging.orderAndLimitClause(SORT_COLUMN,
+                                ID_COLUMN);
         List<Entity> result =
                 jdbcTemplate.query(new PreparedStatementCreator() {
                     @Override
@@ -115,11 +150,73 @@ public abstract class AbstractEntitySearchStrategy implements
                             Connection connection) throws SQLException {
                         PreparedStatement ps = connection.prepareStatement(sql);
                         ps.setString(1, qLikeClause);
-                        ps.setLong(2, startRow);
-                        ps.setLong(3, page.getMaxRecords());
+                        SeekPaging.setSeekAndLimitParams(ps, 2, page);
                         return ps;
                     }
                 }, new EntityResultSetExtractor());
+        if (!result.isEmpty()) {
+            Entity last = result.get(result.size() - 1);
+            page.setSeekPosition(last.getHandle(), last.getId());
+        }
+        return result;
+    }
+
+    /**
+     * search entities in index.
+     * 
+     * @param q
+     *            search pattern.
+     * @param page
+     *            page.
+     * @return entries in order of handle and id, or null if can not be
+     *         searched by index.
+     */
+    protected List<Entry> searchIndex(String q, PageBean page) {
+        return null;
+    }
+
+    /**
+     * count entities in index.
+     * 
+     * @param q
+     *            search pattern.
+     * @param limit
+     *            max count.
+     * @return count, not more than limit, or null if can not be counted by
+     *         index.
+     */
+    protected Long searchIndexCount(String q, long limit) {
+        return null;
+    }
+
+    /**
+     * select entities of index entries by id.
+     * 
+     * @param entries
+     *            index entries.
+     * @param page
+     *            page.
+     * @param jdbcTemplate
+     *            jdbcTemplate.
+     * @return entity list.
+     */
+    private List<Entity> searchByIndexEntries(List<Entry> entries,
+            PageBean page, JdbcTemplate jdbcTemplate) {
+        page.setScannedCount(entries.size());
+        if (entries.isEmpty()) {
+            return new ArrayList<Entity>();
+        }
+        List<Long> ids = new ArrayList<Long>();
+        for (Entry entry : entries) {
+            ids.add(entry.getId());
+        }
+        final String sql =
+                String.format(SQL_SEARCH_BY_IDS_TPL,
+                        StringUtils.join(ids, ","));
+        List<Entity> result =
+                jdbcTemplate.query(sql, new EntityResultSetExtractor());
+        Entry last = entries.get(entries.size() - 1);
+        page.setSeekPosition(last.getSortKey(), last.getId());
         return result;
     }
 
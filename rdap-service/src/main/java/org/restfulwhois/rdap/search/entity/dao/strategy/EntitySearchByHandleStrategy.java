@@ -33,10 +33,14 @@ package org.restfulwhois.rdap.search.entity.dao.strategy;
 import java.util.List;
 
 import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
 import org.restfulwhois.rdap.core.entity.queryparam.EntitySearchByHandleParam;
+import org.restfulwhois.rdap.search.entity.dao.EntityNameSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -60,6 +64,12 @@ public class EntitySearchByHandleStrategy extends AbstractEntitySearchStrategy {
      */
     private static final String SEARCH_COLUMN_NAME = "HANDLE";
 
+    /**
+     * entity index.
+     */
+    @Autowired
+    private EntityNameSearchIndex entityNameSearchIndex;
+
     @Override
     public boolean support(QueryParam queryParam) {
         return queryParam instanceof EntitySearchByHandleParam;
@@ -77,4 +87,20 @@ public class EntitySearchByHandleStrategy extends AbstractEntitySearchStrategy {
         return search(queryParam, jdbcTemplate, SEARCH_COLUMN_NAME);
     }
 
+    @Override
+    protected List<Entry> searchIndex(String q, PageBean page) {
+        if (null == entityNameSearchIndex) {
+            return null;
+        }
+        return entityNameSearchIndex.searchByHandle(q, page);
+    }
+
+    @Override
+    protected Long searchIndexCount(String q, long limit) {
+        if (null == entityNameSearchIndex) {
+            return null;
+        }
+        return entityNameSearchIndex.countByHandle(q, limit);
+    }
+
 }
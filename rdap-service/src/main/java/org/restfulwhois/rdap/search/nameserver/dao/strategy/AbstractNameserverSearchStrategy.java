@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.restfulwhois.rdap.common.model.Nameserver;
+import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.core.nameserver.dao.impl.NameserverQueryDaoImpl;
 import org.restfulwhois.rdap.search.common.dao.SearchStrategy;
 import org.springframework.jdbc.core.ResultSetExtractor;
@@ -48,6 +49,32 @@ import org.springframework.jdbc.core.ResultSetExtractor;
  */
 public abstract class AbstractNameserverSearchStrategy implements
         SearchStrategy<Nameserver> {
+    /**
+     * sort column of nameserver search.
+     */
+    protected static final String SORT_COLUMN = "ns.LDH_NAME";
+    /**
+     * id column of nameserver search.
+     */
+    protected static final String ID_COLUMN = "ns.NAMESERVER_ID";
+
+    /**
+     * set seek position of page to last nameserver, next batch is searched
+     * after it.
+     * 
+     * @param page
+     *            page.
+     * @param nameservers
+     *            nameservers in this batch.
+     */
+    protected void updateSeekPosition(PageBean page,
+            List<Nameserver> nameservers) {
+        if (null == nameservers || nameservers.isEmpty()) {
+            return;
+        }
+        Nameserver last = nameservers.get(nameservers.size() - 1);
+        page.setSeekPosition(last.getLdhName(), last.getId());
+    }
 
     /**
      * count the number of resultSet.
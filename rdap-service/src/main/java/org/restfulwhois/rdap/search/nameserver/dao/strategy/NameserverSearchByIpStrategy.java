@@ -40,7 +40,10 @@ import org.restfulwhois.rdap.common.model.Nameserver;
 import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.common.support.QueryParam;
 import org.restfulwhois.rdap.common.util.IpUtil;
+import org.restfulwhois.rdap.core.nameserver.dao.impl.NameserverQueryDaoImpl;
 import org.restfulwhois.rdap.core.nameserver.queryparam.NameserverSearchByIpParam;
+import org.restfulwhois.rdap.search.common.dao.CappedCount;
+import org.restfulwhois.rdap.search.common.dao.SeekPaging;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.stereotype.Repository;
@@ -65,13 +68,14 @@ public class NameserverSearchByIpStrategy extends
         final NameserverSearchByIpParam searchByIpParam =
                 (NameserverSearchByIpParam) queryParam;
         final String sql =
-                "select count(1) as COUNT from RDAP_NAMESERVER_IP "
-                        + " where IP = ? ";
+                CappedCount.countSql("from RDAP_NAMESERVER_IP "
+                        + " where IP = ? ");
         Long recordsCount = jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setBytes(1, searchByIpParam.getIpInBytes().getBytes());
+                ps.setLong(2, CappedCount.getCountLimit());
                 return ps;
             }
         }, new CountResultSetExtractor());
@@ -87,25 +91,26 @@ public class NameserverSearchByIpStrategy extends
             return result;
         }
         final PageBean page = queryParam.getPageBean();
-        int startPage = page.getCurrentPage() - 1;
-        startPage = startPage >= 0 ? startPage : 0;
-        final long startRow = startPage * page.getMaxRecords();
         final byte[] ipInBytes =
                 IpUtil.ipToByteArray(queryParam.getQ(), ipVersion);
         final String sql =
-                "select * from RDAP_NAMESERVER ns,RDAP_NAMESERVER_IP ip"
+                "select " + NameserverQueryDaoImpl.SQL_NAMESERVER_COLUMNS
+                        + " from RDAP_NAMESERVER ns,RDAP_NAMESERVER_IP ip"
                         + " where ns.NAMESERVER_ID=ip.NAMESERVER_ID and "
-                        + " IP = ? order by ns.LDH_NAME limit ?,? ";
+                        + " IP = ? "
+                        + SeekPaging.seekClause(SORT_COLUMN, ID_COLUMN, page)
+                        + SeekPaging.orderAndLimitClause(SORT_COLUMN,
+                                ID_COLUMN);
         result = jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setBytes(1, ipInBytes);
-                ps.setLong(2, startRow);
-                ps.setLong(3, page.getMaxRecords());
+                SeekPaging.setSeekAndLimitParams(ps, 2, page);
                 return ps;
             }
         }, new NameserverResultSetExtractor());
+        updateSeekPosition(page, result);
         return result;
     }
 
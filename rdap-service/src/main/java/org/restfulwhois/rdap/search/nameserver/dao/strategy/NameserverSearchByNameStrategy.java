@@ -33,14 +33,23 @@ package org.restfulwhois.rdap.search.nameserver.dao.strategy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.restfulwhois.rdap.common.dao.AbstractQueryDao;
 import org.restfulwhois.rdap.common.model.Nameserver;
 import org.restfulwhois.rdap.common.support.PageBean;
 import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+import org.restfulwhois.rdap.core.nameserver.dao.impl.NameserverQueryDaoImpl;
 import org.restfulwhois.rdap.core.nameserver.queryparam.NameserverSearchByNameParam;
 import org.restfulwhois.rdap.core.nameserver.queryparam.NameserverSearchParam;
+import org.restfulwhois.rdap.search.common.dao.CappedCount;
+import org.restfulwhois.rdap.search.common.dao.ReversedLdhNameClause;
+import org.restfulwhois.rdap.search.common.dao.SeekPaging;
+import org.restfulwhois.rdap.search.nameserver.dao.NameserverNameSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.stereotype.Repository;
@@ -48,12 +57,30 @@ import org.springframework.stereotype.Repository;
 /**
  * search nameserver by name.
  * 
+ * <pre>
+ * Nameservers are searched by NameserverNameSearchIndex if it is enabled and
+ * can serve the pattern, and then selected by id, or else searched in
+ * database.
+ * </pre>
+ * 
  * @author jiashuo
  * 
  */
 @Repository
 public class NameserverSearchByNameStrategy extends
         AbstractNameserverSearchStrategy {
+    /**
+     * select nameservers by id.
+     */
+    private static final String SQL_SEARCH_BY_IDS_TPL =
+            "select " + NameserverQueryDaoImpl.SQL_NAMESERVER_COLUMNS
+                    + " from RDAP_NAMESERVER ns where NAMESERVER_ID in (%s) "
+                    + " order by " + SORT_COLUMN + "," + ID_COLUMN;
+    /**
+     * nameserver name index.
+     */
+    @Autowired
+    private NameserverNameSearchIndex nameserverNameSearchIndex;
 
     @Override
     public boolean support(QueryParam queryParam) {
@@ -68,15 +95,22 @@ public class NameserverSearchByNameStrategy extends
         final String punyName = nsSearchParam.getPunyName();
         final String nameserverLikeClause = generateLikeClause(nameserver);
         final String punyNameLikeClause = generateLikeClause(punyName);
+        final String reversedPrefix =
+                ReversedLdhNameClause.getPrefix(punyName);
         final String sql =
-                "select count(1) as COUNT from RDAP_NAMESERVER "
-                        + " where LDH_NAME like ? or UNICODE_NAME like ? ";
+                CappedCount.countSql("from RDAP_NAMESERVER ns "
+                        + " where (LDH_NAME like ? or UNICODE_NAME like ?) "
+                        + ReversedLdhNameClause.clause(
+                                "ns.REVERSED_LDH_NAME", reversedPrefix));
         Long recordsCount = jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setString(1, punyNameLikeClause);
                 ps.setString(2, nameserverLikeClause);
+                int index =
+                        ReversedLdhNameClause.setParams(ps, 3, reversedPrefix);
+                ps.setLong(index, CappedCount.getCountLimit());
                 return ps;
             }
         }, new CountResultSetExtractor());
@@ -88,30 +122,74 @@ public class NameserverSearchByNameStrategy extends
             JdbcTemplate jdbcTemplate) {
         List<Nameserver> result = null;
         final PageBean page = queryParam.getPageBean();
-        int startPage = page.getCurrentPage() - 1;
-        startPage = startPage >= 0 ? startPage : 0;
-        final long startRow = startPage * page.getMaxRecords();
         NameserverSearchParam nsSearchParam =
                 (NameserverSearchParam) queryParam;
         final String nsName = nsSearchParam.getQ();
         final String punyName = nsSearchParam.getPunyName();
         final String nsNameLikeClause = generateLikeClause(nsName);
         final String punyNameLikeClause = generateLikeClause(punyName);
+        List<Entry> entries = null;
+        if (null != nameserverNameSearchIndex) {
+            entries = nameserverNameSearchIndex.search(punyName, nsName, page);
+        }
+        if (null != entries) {
+            return searchByIndexEntries(entries, page, jdbcTemplate);
+        }
+        final String reversedPrefix =
+                ReversedLdhNameClause.getPrefix(punyName);
         final String sql =
-                "select * from RDAP_NAMESERVER ns "
-                        + " where LDH_NAME like ? or UNICODE_NAME like ?"
-                        + " order by ns.LDH_NAME limit ?,? ";
+                "select " + NameserverQueryDaoImpl.SQL_NAMESERVER_COLUMNS
+                        + " from RDAP_NAMESERVER ns "
+                        + " where (LDH_NAME like ? or UNICODE_NAME like ?) "
+                        + ReversedLdhNameClause.clause(
+                                "ns.REVERSED_LDH_NAME", reversedPrefix)
+                        + SeekPaging.seekClause(SORT_COLUMN, ID_COLUMN, page)
+                        + SeekPaging.orderAndLimitClause(SORT_COLUMN,
+                                ID_COLUMN);
         result = jdbcTemplate.query(new PreparedStatementCreator() {
             public PreparedStatement createPreparedStatement(
                     Connection connection) throws SQLException {
                 PreparedStatement ps = connection.prepareStatement(sql);
                 ps.setString(1, punyNameLikeClause);
                 ps.setString(2, nsNameLikeClause);
-                ps.setLong(3, startRow);
-                ps.setLong(4, page.getMaxRecords());
+                int index =
+                        ReversedLdhNameClause.setParams(ps, 3, reversedPrefix);
+                SeekPaging.setSeekAndLimitParams(ps, index, page);
                 return ps;
             }
         }, new NameserverResultSetExtractor());
+        updateSeekPosition(page, result);
+        return result;
+    }
+
+    /**
+     * select nameservers of index entries by id.
+     * 
+     * @param entries
+     *            index entries.
+     * @param page
+     *            page.
+     * @param jdbcTemplate
+     *            jdbcTemplate.
+     * @return nameserver list.
+     */
+    private List<Nameserver> searchByIndexEntries(List<Entry> entries,
+            PageBean page, JdbcTemplate jdbcTemplate) {
+        page.setScannedCount(entries.size());
+        if (entries.isEmpty()) {
+            return new ArrayList<Nameserver>();
+        }
+        List<Long> ids = new ArrayList<Long>();
+        for (Entry entry : entries) {
+            ids.add(entry.getId());
+        }
+        final String sql =
+                String.format(SQL_SEARCH_BY_IDS_TPL,
+                        StringUtils.join(ids, ","));
+        List<Nameserver> result =
+                jdbcTemplate.query(sql, new NameserverResultSetExtractor());
+        Entry last = entries.get(entries.size() - 1);
+        page.setSeekPosition(last.getSortKey(), last.getId());
         return result;
     }
 
@@ -70,10 +70,12 @@ CREATE TABLE `RDAP_DOMAIN` (
   `TYPE` varchar(10) COLLATE utf8_bin DEFAULT 'dnr',
   `NETWORK_ID` int(10) DEFAULT NULL,
   `CUSTOM_PROPERTIES` mediumtext COLLATE utf8_bin,
+  `REVERSED_LDH_NAME` varchar(255) COLLATE utf8_bin DEFAULT NULL,
   PRIMARY KEY (`DOMAIN_ID`),
   UNIQUE KEY `UK_DOMAIN_HANDLE` (`HANDLE`) USING BTREE,
   KEY `IDX_DOMAIN_LDH_NAME` (`LDH_NAME`) USING BTREE,
-  KEY `IDX_DOMAIN_UNICODE_NAME` (`UNICODE_NAME`(255)) USING BTREE
+  KEY `IDX_DOMAIN_UNICODE_NAME` (`UNICODE_NAME`(255)) USING BTREE,
+  KEY `IDX_DOMAIN_REVERSED_LDH_NAME` (`REVERSED_LDH_NAME`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT='The domain object class represents a DNS name and point of delegation.  For RIRs these delegation points are in the reverse DNS tree, whereas for DNRs these delegation points are in the forward DNS tree. In both cases, the high level structure of the domain object class consists of information about the domain registration, nameserver information related to the domain name, and entities related to the domain name (e.g. registrant information, contacts, etc.). Reference to <a href="http://tools.ietf.org/ht';
 
 #
@@ -250,7 +252,8 @@ CREATE TABLE `RDAP_IP` (
   `CIDR` varchar(255) COLLATE utf8_bin DEFAULT NULL,
   `CUSTOM_PROPERTIES` mediumtext COLLATE utf8_bin,
   PRIMARY KEY (`IP_ID`),
-  UNIQUE KEY `UK_IP_HANDLE` (`HANDLE`) USING BTREE
+  UNIQUE KEY `UK_IP_HANDLE` (`HANDLE`) USING BTREE,
+  KEY `IDX_IP_VERSION_ADDRESS` (`VERSION`,`STARTADDRESS`,`ENDADDRESS`)
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT=' The IP Network object class models IP network registrations found in RIRs and is the expected response for the "/ip" query as defined by [I-D.ietf-weirds-rdap-query].  There is no equivalent object class for DNRs.  The high level structure of the IP network object class consists of information about the network registration and entities related to the IP network (e.g. registrant information, contacts, etc...). Reference to <a href="http://tools.ietf.org/html/draft-ietf-weirds-json-response-06#page-37">IP';
 
 #
@@ -336,10 +339,12 @@ CREATE TABLE `RDAP_NAMESERVER` (
   `PORT43` varchar(4096) COLLATE utf8_bin DEFAULT NULL,
   `LANG` varchar(64) COLLATE utf8_bin DEFAULT NULL,
   `CUSTOM_PROPERTIES` mediumtext COLLATE utf8_bin,
+  `REVERSED_LDH_NAME` varchar(255) COLLATE utf8_bin DEFAULT NULL,
   PRIMARY KEY (`NAMESERVER_ID`),
   UNIQUE KEY `UK_NAMESERVER_HANDLE` (`HANDLE`) USING BTREE,
   KEY `IDX_NAMESERVER_LDH_NAME` (`LDH_NAME`) USING BTREE,
-  KEY `IDX_NAMESERVER_UNICODE_NAME` (`UNICODE_NAME`(255)) USING BTREE
+  KEY `IDX_NAMESERVER_UNICODE_NAME` (`UNICODE_NAME`(255)) USING BTREE,
+  KEY `IDX_NAMESERVER_REVERSED_LDH_NAME` (`REVERSED_LDH_NAME`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8 COLLATE=utf8_bin COMMENT=' The nameserver object class represents information regarding DNS name servers used in both forward and reverse DNS.  RIRs and some DNRs register or expose nameserver information as an attribute of a domain name, while other DNRs model nameservers as "first class objects". The nameserver object class accommodates both models and degrees of variation in between. Reference to <a href="http://tools.ietf.org/html/draft-ietf-weirds-json-response-06#section-6.2">Nameserver</a>';
 
 #
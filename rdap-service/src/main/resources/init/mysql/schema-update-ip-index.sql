@@ -0,0 +1 @@
+create index IDX_IP_VERSION_ADDRESS on RDAP_IP(VERSION,STARTADDRESS,ENDADDRESS);
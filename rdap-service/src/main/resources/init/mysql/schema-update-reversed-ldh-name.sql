@@ -0,0 +1,27 @@
+alter table RDAP_DOMAIN  add column REVERSED_LDH_NAME  varchar(255) COLLATE utf8_bin DEFAULT NULL;
+alter table RDAP_NAMESERVER  add column REVERSED_LDH_NAME  varchar(255) COLLATE utf8_bin DEFAULT NULL;
+create index IDX_DOMAIN_REVERSED_LDH_NAME on RDAP_DOMAIN(REVERSED_LDH_NAME);
+create index IDX_NAMESERVER_REVERSED_LDH_NAME on RDAP_NAMESERVER(REVERSED_LDH_NAME);
+
+DROP FUNCTION IF EXISTS RDAP_REVERSE_LABELS;
+DELIMITER $$
+CREATE FUNCTION RDAP_REVERSE_LABELS(NAME varchar(255)) RETURNS varchar(255)
+    DETERMINISTIC
+BEGIN
+    DECLARE REST varchar(255) DEFAULT NAME;
+    DECLARE RESULT varchar(255) DEFAULT NULL;
+    IF NAME IS NULL THEN
+        RETURN NULL;
+    END IF;
+    WHILE LOCATE('.', REST) > 0 DO
+        SET RESULT = CONCAT_WS('.', RESULT, SUBSTRING_INDEX(REST, '.', -1));
+        SET REST = SUBSTRING(REST, 1, CHAR_LENGTH(REST)
+                - CHAR_LENGTH(SUBSTRING_INDEX(REST, '.', -1)) - 1);
+    END WHILE;
+    RETURN CONCAT_WS('.', RESULT, REST);
+END$$
+DELIMITER ;
+
+update RDAP_DOMAIN set REVERSED_LDH_NAME = RDAP_REVERSE_LABELS(LDH_NAME);
+update RDAP_NAMESERVER set REVERSED_LDH_NAME = RDAP_REVERSE_LABELS(LDH_NAME);
+DROP FUNCTION RDAP_REVERSE_LABELS;
@@ -58,16 +58,27 @@ import org.dbunit.dataset.filter.DefaultColumnFilter;
 import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
 import org.dbunit.operation.DatabaseOperation;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.restfulwhois.rdap.acl.bean.Principal;
+import org.restfulwhois.rdap.common.controller.BaseController;
+import org.restfulwhois.rdap.common.dao.RequestSqlCounter;
+import org.restfulwhois.rdap.common.service.AccessControlManager;
 import org.restfulwhois.rdap.common.service.NoticeService;
 import org.restfulwhois.rdap.common.service.RdapConformanceService;
 import org.restfulwhois.rdap.common.service.RemarkService;
+import org.restfulwhois.rdap.common.service.ResponseCache;
 import org.restfulwhois.rdap.common.support.PrincipalHolder;
 import org.restfulwhois.rdap.common.support.RdapProperties;
 import org.restfulwhois.rdap.common.support.RestResponse;
 import org.restfulwhois.rdap.common.util.StringUtil;
+import org.restfulwhois.rdap.core.autnum.dao.impl.AutnumQueryDaoImpl;
+import org.restfulwhois.rdap.redirect.dao.impl.AutnumRedirectDao;
+import org.restfulwhois.rdap.redirect.dao.impl.DomainRedirectDao;
+import org.restfulwhois.rdap.redirect.dao.impl.NetworkRedirectDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.test.context.ContextConfiguration;
@@ -75,6 +86,8 @@ import org.springframework.test.context.TestExecutionListeners;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -99,6 +112,12 @@ public abstract class BaseTest {
     
     protected static String rdapJson = RdapProperties.RESPONSE_CONTENT_TYPE;
 
+    /**
+     * logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(BaseTest.class);
+
     private static final String DEFAULT_RELATIVATE_DATAFILE_PATH =
             "org/restfulwhois/rdap/dao/impl/";
 
@@ -126,6 +145,24 @@ public abstract class BaseTest {
     @Autowired
     private RemarkService remarkService;
 
+    @Autowired
+    private AccessControlManager accessControlManager;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private NetworkRedirectDao networkRedirectDao;
+
+    @Autowired
+    private DomainRedirectDao domainRedirectDao;
+
+    @Autowired
+    private AutnumRedirectDao autnumRedirectDao;
+
+    @Autowired
+    private AutnumQueryDaoImpl autnumQueryDao;
+
     /**
      * or use BeforeClass.
      * 
@@ -162,13 +199,57 @@ public abstract class BaseTest {
         rdapConformanceService.initRdapConformance();
         RestResponse.initErrorMessages();
         remarkService.init();
+        accessControlManager.clearCache();
+        responseCache.clear();
+        networkRedirectDao.clearIndex();
+        domainRedirectDao.clearIndex();
+        autnumRedirectDao.clearIndex();
+        autnumQueryDao.clearIndex();
+        RequestSqlCounter.start();
     }
 
     @After
     public void after() throws Exception {
+        RequestSqlCounter.stop();
         connection.close();
     }
 
+    /**
+     * restart SQL counter, so that SQL count header of next request only
+     * counts statements of that request. Counter is started in before().
+     */
+    protected static void restartSqlCounter() {
+        RequestSqlCounter.start();
+    }
+
+    /**
+     * assert SQL statement count of request not more than budget, by SQL
+     * count header of response. Call restartSqlCounter() before the request
+     * if it is not the first request of the test. The measured count is
+     * logged, so that budget can be set from it.
+     * 
+     * @param budget
+     *            max SQL statement count.
+     * @return ResultMatcher.
+     */
+    protected static ResultMatcher sqlStatementsNotMoreThan(final int budget) {
+        return new ResultMatcher() {
+            @Override
+            public void match(MvcResult result) throws Exception {
+                String count =
+                        result.getResponse().getHeader(
+                                BaseController.SQL_COUNT_HEADER);
+                Assert.assertNotNull("no SQL count header", count);
+                LOGGER.info("SQL statements {} of {}, budget {}",
+                        new Object[] { count,
+                                result.getRequest().getRequestURI(), budget });
+                Assert.assertTrue("SQL statements " + count
+                        + " exceed budget " + budget,
+                        Integer.parseInt(count) <= budget);
+            }
+        };
+    }
+
     /**
      * set default max size search.
      */
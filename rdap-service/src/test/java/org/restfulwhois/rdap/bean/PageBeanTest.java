@@ -32,6 +32,7 @@ package org.restfulwhois.rdap.bean;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -63,4 +64,20 @@ public class PageBeanTest {
         }
         assertFalse(page.isNotLastPage());
     }
+
+    /**
+     * test seek position.
+     */
+    @Test
+    public void testSeekPosition() {
+        PageBean page = new PageBean();
+        assertFalse(page.hasSeekPosition());
+        page.setSeekPosition("cnnic.cn", 10L);
+        assertTrue(page.hasSeekPosition());
+        assertEquals("cnnic.cn", page.getLastSortKey());
+        assertEquals(10L, page.getLastId().longValue());
+        page.setSeekPosition(null, 11L);
+        assertTrue(page.hasSeekPosition());
+        assertNull(page.getLastSortKey());
+    }
 }
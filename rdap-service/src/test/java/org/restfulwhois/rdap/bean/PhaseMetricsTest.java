@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.bean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.filter.FilterHelper;
+import org.restfulwhois.rdap.common.support.LatencyHistogram;
+import org.restfulwhois.rdap.common.support.PhaseMetrics;
+import org.restfulwhois.rdap.common.support.PhaseStat;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Test for PhaseMetrics.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class PhaseMetricsTest {
+
+    @After
+    public void after() {
+        PhaseMetrics.getInstance().reset();
+    }
+
+    /**
+     * test histogram buckets in microseconds.
+     */
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMicros(50));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(8000L);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1500000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(10, histogram.getPercentileMicros(50));
+        assertEquals(2000, histogram.getPercentileMicros(95));
+        assertEquals(1500, histogram.getMaxNanos() / 1000);
+        assertTrue(histogram.toString().startsWith("<=10us:90,<=20us:0"));
+        assertTrue(histogram.toString().endsWith(">2000ms:0"));
+    }
+
+    /**
+     * test phases are recorded by endpoint and status.
+     */
+    @Test
+    public void testRecordRequest() {
+        PhaseMetrics metrics = PhaseMetrics.getInstance();
+        PhaseMetrics.recordPhase("ignored", System.nanoTime());
+        metrics.endRequest("domain", 200);
+        assertEquals(0, metrics.getRequestCount());
+
+        PhaseMetrics.startRequest();
+        PhaseMetrics.recordPhase("doQuery", System.nanoTime());
+        PhaseMetrics.recordPhaseSinceResponseReady("responseWrite");
+        PhaseMetrics.markResponseReady();
+        PhaseMetrics.recordPhaseSinceResponseReady("responseWrite");
+        metrics.endRequest("domain", 200);
+        PhaseMetrics.startRequest();
+        PhaseMetrics.recordPhase("doQuery", System.nanoTime());
+        metrics.endRequest("domain", 404);
+
+        assertEquals(2, metrics.getRequestCount());
+        Map<String, Long> counts = new HashMap<String, Long>();
+        List<PhaseStat> stats = metrics.getStats();
+        for (PhaseStat stat : stats) {
+            counts.put(stat.getStatus() + " " + stat.getPhase(),
+                    stat.getCount());
+        }
+        assertEquals(5, stats.size());
+        assertEquals(Long.valueOf(1), counts.get("200 doQuery"));
+        assertEquals(Long.valueOf(1), counts.get("200 responseWrite"));
+        assertEquals(Long.valueOf(1), counts.get("200 total"));
+        assertEquals(Long.valueOf(1), counts.get("404 doQuery"));
+        assertEquals(Long.valueOf(1), counts.get("404 total"));
+        assertEquals(200, stats.get(0).getStatus());
+        assertEquals(5, metrics.getStatistics().length);
+    }
+
+    /**
+     * test endpoint of URI.
+     */
+    @Test
+    public void testGetEndpoint() {
+        assertEquals("domain", FilterHelper.getEndpoint(request("GET",
+                "/rdap/domain/cnnic.cn")));
+        assertEquals("ip", FilterHelper.getEndpoint(request("GET",
+                "/rdap/ip/1.0.0.0/8")));
+        assertEquals("u/domain PUT", FilterHelper.getEndpoint(request("PUT",
+                "/rdap/u/domain")));
+        assertEquals(FilterHelper.OTHER_ENDPOINT,
+                FilterHelper.getEndpoint(request("GET", "/rdap/foo/bar")));
+        assertEquals(FilterHelper.OTHER_ENDPOINT,
+                FilterHelper.getEndpoint(request("GET", "/rdap/")));
+    }
+
+    private MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request =
+                new MockHttpServletRequest(method, uri);
+        request.setContextPath("/rdap");
+        return request;
+    }
+}
@@ -0,0 +1,256 @@
+package org.restfulwhois.rdap.common.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.ErrorMessage;
+import org.restfulwhois.rdap.common.support.PrincipalHolder;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.support.RestResponse;
+import org.restfulwhois.rdap.filters.httpFilter.service.ConnectionControlService;
+import org.restfulwhois.rdap.filters.httpFilter.service.QueryAdmissionQueue;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test for async query of FilterChainProxy: query is run at once if
+ * admitted, suspended if queued, and processed or rejected with 509 in the
+ * ASYNC dispatch when admitted or expired.
+ *
+ * @author jiashuo
+ *
+ */
+public class FilterChainProxyAsyncTest {
+
+    private static final String QUERY_URI = "/domain/cnnic.cn";
+
+    private Boolean asyncQueryEnabled;
+
+    private Map<String, Object> restResponseFields =
+            new HashMap<String, Object>();
+
+    private QueryAdmissionQueue queue;
+
+    private int takenSlots;
+
+    private FilterChainProxy filter;
+
+    private CountingServlet servlet;
+
+    /**
+     * rate limit of ConnectionControlService is initialized by properties,
+     * which are not loaded without spring context.
+     */
+    @BeforeClass
+    public static void beforeClass() {
+        if (null == RdapProperties.getMinSecondsAccessIntervalAnonymous()) {
+            new RdapProperties().setMinSecondsAccessIntervalAnonymous(-1L);
+        }
+        if (null == RdapProperties.getMinSecondsAccessIntervalAuthed()) {
+            new RdapProperties().setMinSecondsAccessIntervalAuthed(-1L);
+        }
+    }
+
+    @Before
+    public void before() throws Exception {
+        asyncQueryEnabled = RdapProperties.getAsyncQueryEnabled();
+        new RdapProperties().setAsyncQueryEnabled(true);
+        Map<Long, ErrorMessage> errorMessages =
+                new HashMap<Long, ErrorMessage>();
+        errorMessages.put(509L, new ErrorMessage());
+        setRestResponseField("errorMessageMap", errorMessages);
+        setRestResponseField("queryFilterManager", new QueryFilterManager());
+        setRestResponseField("queryFilters", new ArrayList<Object>());
+        queue =
+                (QueryAdmissionQueue) getStaticField(
+                        ConnectionControlService.class,
+                        "QUERY_ADMISSION_QUEUE");
+        filter = new FilterChainProxy();
+        servlet = new CountingServlet();
+    }
+
+    @After
+    public void after() throws Exception {
+        for (; takenSlots > 0; takenSlots--) {
+            queue.release();
+        }
+        new RdapProperties().setAsyncQueryEnabled(asyncQueryEnabled);
+        for (Map.Entry<String, Object> entry : restResponseFields.entrySet()) {
+            setStaticField(RestResponse.class, entry.getKey(),
+                    entry.getValue());
+        }
+        PrincipalHolder.remove();
+    }
+
+    /**
+     * test query is run at once if slot is free.
+     */
+    @Test
+    public void testAdmitted() throws Exception {
+        int running = queue.getRunning();
+        MockHttpServletRequest request = newRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        assertFalse(request.isAsyncStarted());
+        assertEquals(1, servlet.count.get());
+        assertEquals(200, response.getStatus());
+        assertEquals(running, queue.getRunning());
+    }
+
+    /**
+     * test query is suspended when queued, and processed in ASYNC dispatch
+     * when admitted.
+     */
+    @Test
+    public void testQueuedAndDispatched() throws Exception {
+        takeAllSlots();
+        MockHttpServletRequest request = newRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        assertTrue(request.isAsyncStarted());
+        assertEquals(0, servlet.count.get());
+        assertEquals(1, queue.getQueued());
+        AtomicInteger dispatchCount = countDispatch(request);
+
+        releaseSlot();
+        assertEquals(1, dispatchCount.get());
+        assertEquals(0, queue.getQueued());
+        assertEquals(0, servlet.count.get());
+
+        asyncDispatch(request, response);
+        assertEquals(1, servlet.count.get());
+        assertEquals(200, response.getStatus());
+        assertEquals(takenSlots, queue.getRunning());
+    }
+
+    /**
+     * test query expired in queue is rejected with 509 in ASYNC dispatch,
+     * not in thread which expires it.
+     */
+    @Test
+    public void testExpired() throws Exception {
+        takeAllSlots();
+        MockHttpServletRequest request = newRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        assertTrue(request.isAsyncStarted());
+        AtomicInteger dispatchCount = countDispatch(request);
+
+        MockAsyncContext asyncContext =
+                (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        assertEquals(1, dispatchCount.get());
+        assertEquals(0, queue.getQueued());
+        assertEquals(200, response.getStatus());
+
+        asyncDispatch(request, response);
+        assertEquals(0, servlet.count.get());
+        assertEquals(509, response.getStatus());
+        assertEquals(takenSlots, queue.getRunning());
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request =
+                new MockHttpServletRequest("GET", QUERY_URI);
+        request.addHeader("Accept", "application/rdap+json");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    private AtomicInteger countDispatch(MockHttpServletRequest request) {
+        final AtomicInteger dispatchCount = new AtomicInteger();
+        ((MockAsyncContext) request.getAsyncContext())
+                .addDispatchHandler(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatchCount.incrementAndGet();
+                    }
+                });
+        return dispatchCount;
+    }
+
+    /**
+     * dispatch request again, as container does after
+     * AsyncContext.dispatch().
+     */
+    private void asyncDispatch(MockHttpServletRequest request,
+            MockHttpServletResponse response) throws Exception {
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+    }
+
+    private void takeAllSlots() {
+        int maxRunning = (Integer) ReflectionTestUtils.getField(queue,
+                "maxRunning");
+        while (queue.getRunning() < maxRunning) {
+            assertEquals(QueryAdmissionQueue.Admission.RUN,
+                    queue.admit(false, null));
+            takenSlots++;
+        }
+    }
+
+    private void releaseSlot() {
+        takenSlots--;
+        queue.release();
+    }
+
+    private void setRestResponseField(String name, Object value)
+            throws Exception {
+        restResponseFields.put(name, getStaticField(RestResponse.class, name));
+        setStaticField(RestResponse.class, name, value);
+    }
+
+    private static Object getStaticField(Class<?> clazz, String name)
+            throws Exception {
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    private static void setStaticField(Class<?> clazz, String name,
+            Object value) throws Exception {
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(null, value);
+    }
+
+    /**
+     * servlet counting processed queries.
+     */
+    private static class CountingServlet extends HttpServlet {
+        private static final long serialVersionUID = 1L;
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void service(ServletRequest req, ServletResponse res)
+                throws ServletException, IOException {
+            count.incrementAndGet();
+        }
+    }
+}
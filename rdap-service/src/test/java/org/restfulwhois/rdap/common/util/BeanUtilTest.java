@@ -0,0 +1,58 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.Domain;
+import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.model.base.ObjectClassNameEnum;
+
+public class BeanUtilTest {
+    @Test
+    public void test_deep_copy() {
+        Entity entity = new Entity();
+        entity.setId(2L);
+        entity.setFn("registrar");
+        List<String> roles = new ArrayList<String>();
+        roles.add("registrar");
+        entity.setRoles(roles);
+        List<Entity> entities = new ArrayList<Entity>();
+        entities.add(entity);
+        entities.add(entity);
+        Domain domain = new Domain();
+        domain.setId(1L);
+        domain.setLdhName("cnnic.cn");
+        domain.setEntities(entities);
+        domain.getCustomProperties().put("key", "value");
+
+        Domain copy = BeanUtil.deepCopy(domain);
+        assertNotSame(domain, copy);
+        assertEquals(Long.valueOf(1L), copy.getId());
+        assertSame(domain.getLdhName(), copy.getLdhName());
+        assertSame(ObjectClassNameEnum.DOMAIN, copy.getObjectClassName());
+        assertNotSame(domain.getEntities(), copy.getEntities());
+        Entity entityCopy = copy.getEntities().get(0);
+        assertNotSame(entity, entityCopy);
+        assertSame(entityCopy, copy.getEntities().get(1));
+        assertNotSame(entity.getRoles(), entityCopy.getRoles());
+        assertEquals("value", copy.getCustomProperties().get("key"));
+
+        entityCopy.setFn(null);
+        entityCopy.getRoles().clear();
+        copy.getCustomProperties().clear();
+        assertEquals("registrar", entity.getFn());
+        assertEquals(1, entity.getRoles().size());
+        assertEquals("value", domain.getCustomProperties().get("key"));
+    }
+
+    @Test
+    public void test_deep_copy_null() {
+        assertNull(BeanUtil.deepCopy(null));
+    }
+}
@@ -0,0 +1,62 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test for BloomFilter.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class BloomFilterTest {
+
+    /**
+     * test put keys are always found, and false positive rate is near
+     * expected.
+     */
+    @Test
+    public void testMightContain() {
+        BloomFilter filter = new BloomFilter(10000, 0.01, 0);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("domain" + i + ".cn");
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("domain" + i + ".cn"));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("other" + i + ".cn")) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives:" + falsePositives, falsePositives < 300);
+        assertTrue(filter.getFalsePositiveRate() < 0.03);
+        assertEquals(7, filter.getHashCount());
+        assertFalse(filter.mightContain(null));
+    }
+
+    /**
+     * test bit count is limited by max bits.
+     */
+    @Test
+    public void testMaxBits() {
+        BloomFilter filter = new BloomFilter(1000000, 0.01, 8 * 1024);
+        assertEquals(8 * 1024, filter.getBitSize());
+        assertEquals(1024, filter.getMemoryBytes());
+        assertEquals(1, filter.getHashCount());
+        filter.put("cnnic.cn");
+        assertTrue(filter.mightContain("cnnic.cn"));
+    }
+
+    /**
+     * test invalid false positive rate.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new BloomFilter(100, 1, 0);
+    }
+}
@@ -0,0 +1,53 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DomainSuffixTrieTest {
+    @Test
+    public void test_findLongest() {
+        DomainSuffixTrie<String> trie = new DomainSuffixTrie<String>();
+        trie.put("cn", "url-cn");
+        trie.put("edu.cn", "url-edu-cn");
+        trie.put("xn--fiqs8s", "url-fiqs8s");
+        assertEquals(3, trie.size());
+        assertEquals("url-cn", trie.findLongest("cn"));
+        assertEquals("url-cn", trie.findLongest("com.cn"));
+        assertEquals("url-edu-cn", trie.findLongest("edu.cn"));
+        assertEquals("url-edu-cn", trie.findLongest("cnnic.edu.cn"));
+        assertEquals("url-fiqs8s", trie.findLongest("xn--fiqs8s"));
+        assertNull(trie.findLongest("com"));
+        assertNull(trie.findLongest("ecn"));
+        assertNull(trie.findLongest("."));
+        assertNull(trie.findLongest(null));
+        assertNull(trie.findLongest(""));
+    }
+
+    @Test
+    public void test_findAll() {
+        DomainSuffixTrie<Boolean> trie = new DomainSuffixTrie<Boolean>();
+        trie.put("cn", Boolean.TRUE);
+        trie.put("edu.cn", Boolean.FALSE);
+        assertEquals(Arrays.asList(Boolean.TRUE, Boolean.FALSE),
+                trie.findAll("cnnic.edu.cn"));
+        assertEquals(Arrays.asList(Boolean.TRUE), trie.findAll("com.cn"));
+        assertTrue(trie.findAll("com").isEmpty());
+        assertTrue(trie.findAll(null).isEmpty());
+    }
+
+    @Test
+    public void test_put_replace_and_root() {
+        DomainSuffixTrie<String> trie = new DomainSuffixTrie<String>();
+        trie.put("cn", "old");
+        trie.put("cn", "new");
+        trie.put(".", "root");
+        assertEquals(2, trie.size());
+        assertEquals("new", trie.findLongest("cn"));
+        assertEquals("root", trie.findLongest("."));
+    }
+}
@@ -32,6 +32,7 @@ package org.restfulwhois.rdap.common.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -531,4 +532,36 @@ public class DomainUtilTest {
         boolean result = DomainUtil.isLdh("ns.ddomain.cn");
         assertEquals(true, result);
     }
+
+    /**
+     * test reverse labels.
+     * 
+     */
+    @Test
+    public void testReverseLabels() {
+        assertEquals("cn.example.www", DomainUtil.reverseLabels("www.example.cn"));
+        assertEquals("cn", DomainUtil.reverseLabels("cn"));
+        assertEquals(".cn.example", DomainUtil.reverseLabels("example.cn."));
+        assertNull(DomainUtil.reverseLabels(null));
+    }
+
+    /**
+     * test get reversed prefix of suffix pattern.
+     * 
+     */
+    @Test
+    public void testGetReversedPrefixOfSuffixPattern() {
+        assertEquals("cn.example.",
+                DomainUtil.getReversedPrefixOfSuffixPattern("*.example.cn"));
+        assertEquals("cn.example.",
+                DomainUtil.getReversedPrefixOfSuffixPattern("*ple.example.cn"));
+        assertEquals("cn.",
+                DomainUtil.getReversedPrefixOfSuffixPattern("*example.cn"));
+        assertNull(DomainUtil.getReversedPrefixOfSuffixPattern("*cn"));
+        assertNull(DomainUtil.getReversedPrefixOfSuffixPattern("*.example."));
+        assertNull(DomainUtil.getReversedPrefixOfSuffixPattern("exa*.cn"));
+        assertNull(DomainUtil.getReversedPrefixOfSuffixPattern("*.exa*.cn"));
+        assertNull(DomainUtil.getReversedPrefixOfSuffixPattern("*.ex_a.cn"));
+        assertNull(DomainUtil.getReversedPrefixOfSuffixPattern(null));
+    }
 }
@@ -0,0 +1,35 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+    @Test
+    public void test_frequency() {
+        FrequencySketch sketch = new FrequencySketch(100);
+        assertEquals(0, sketch.frequency("a"));
+        sketch.increment("a");
+        sketch.increment("a");
+        sketch.increment("b");
+        assertEquals(2, sketch.frequency("a"));
+        assertEquals(1, sketch.frequency("b"));
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("a");
+        }
+        assertEquals(15, sketch.frequency("a"));
+    }
+
+    @Test
+    public void test_reset() {
+        FrequencySketch sketch = new FrequencySketch(4);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("a");
+        }
+        for (int i = 0; i < 200; i++) {
+            sketch.increment("key" + i);
+        }
+        assertTrue(sketch.frequency("a") < 10);
+    }
+}
@@ -0,0 +1,100 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IpRangeIndexTest {
+    @Test
+    public void test_find_most_specific_v4() {
+        IpRangeIndex<String> index = new IpRangeIndex<String>(4);
+        add(index, "10.0.0.0", "10.255.255.255", "10/8");
+        add(index, "10.0.0.0", "10.0.255.255", "10.0/16");
+        add(index, "10.0.1.0", "10.0.1.255", "10.0.1/24");
+        add(index, "10.0.3.0", "10.0.3.255", "10.0.3/24");
+        add(index, "192.168.0.0", "192.168.255.255", "192.168/16");
+        index.build();
+        assertEquals("10.0.1/24", find(index, "10.0.1.1", "10.0.1.1"));
+        assertEquals("10.0/16", find(index, "10.0.2.1", "10.0.2.1"));
+        assertEquals("10.0/16", find(index, "10.0.0.0", "10.0.0.0"));
+        assertEquals("10.0/16", find(index, "10.0.1.0", "10.0.2.255"));
+        assertEquals("10/8", find(index, "10.1.0.0", "10.1.0.0"));
+        assertEquals("10.0/16", find(index, "10.0.4.0", "10.0.4.255"));
+        assertEquals("192.168/16", find(index, "192.168.1.1", "192.168.1.1"));
+        assertNull(find(index, "9.255.255.255", "9.255.255.255"));
+        assertNull(find(index, "11.0.0.0", "11.0.0.0"));
+        assertNull(index.find(new byte[16], new byte[16]));
+    }
+
+    @Test
+    public void test_find_most_specific_v6() {
+        IpRangeIndex<String> index = new IpRangeIndex<String>(16);
+        add(index, "2001:db8::", "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff",
+                "2001:db8::/32");
+        add(index, "2001:db8::", "2001:db8::ffff:ffff:ffff:ffff",
+                "2001:db8::/64");
+        add(index, "8000::", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                "8000::/1");
+        index.build();
+        assertEquals("2001:db8::/64", find(index, "2001:db8::1", "2001:db8::1"));
+        assertEquals("2001:db8::/32",
+                find(index, "2001:db8:0:1::1", "2001:db8:0:1::1"));
+        assertEquals("8000::/1", find(index, "ffff::1", "ffff::1"));
+        assertNull(find(index, "2001:db9::1", "2001:db9::1"));
+    }
+
+    @Test
+    public void test_find_same_as_linear_scan() {
+        Random random = new Random(1);
+        IpRangeIndex<Integer> index = new IpRangeIndex<Integer>(4);
+        long[][] ranges = new long[2000][];
+        for (int i = 0; i < ranges.length; i++) {
+            long start = random.nextInt(1 << 20);
+            long end = start + random.nextInt(1 << 12);
+            ranges[i] = new long[] { start, end };
+            index.add(toBytes(start), toBytes(end), i);
+        }
+        index.build();
+        for (int i = 0; i < 2000; i++) {
+            long ip = random.nextInt(1 << 20);
+            int expected = -1;
+            for (int j = 0; j < ranges.length; j++) {
+                if (ranges[j][0] > ip || ranges[j][1] < ip) {
+                    continue;
+                }
+                if (expected < 0 || ranges[j][0] > ranges[expected][0]
+                        || (ranges[j][0] == ranges[expected][0]
+                        && ranges[j][1] < ranges[expected][1])) {
+                    expected = j;
+                }
+            }
+            Integer found = index.find(toBytes(ip), toBytes(ip));
+            if (expected < 0) {
+                assertNull(found);
+            } else {
+                assertEquals(ranges[expected][0], ranges[found][0]);
+                assertEquals(ranges[expected][1], ranges[found][1]);
+            }
+        }
+    }
+
+    private static void add(IpRangeIndex<String> index, String start,
+            String end, String value) {
+        index.add(IpUtil.ipToByteArray(start), IpUtil.ipToByteArray(end),
+                value);
+    }
+
+    private static String find(IpRangeIndex<String> index, String start,
+            String end) {
+        return index.find(IpUtil.ipToByteArray(start),
+                IpUtil.ipToByteArray(end));
+    }
+
+    private static byte[] toBytes(long ip) {
+        return new byte[] { (byte) (ip >>> 24), (byte) (ip >>> 16),
+                (byte) (ip >>> 8), (byte) ip };
+    }
+}
@@ -30,7 +30,9 @@
  */
 package org.restfulwhois.rdap.common.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import java.util.ArrayList;
@@ -133,4 +135,101 @@ public class JcardTest {
         assertThat(jcardString, new IsNot(new StringContains("@#-().")));
         assertThat(jcardString, new IsNot(new StringContains(" +9981-().")));
     }
+
+    /**
+     * test JSON is the same as ezvcard output.
+     */
+    @Test
+    public void testToJcardStringSameAsEzvcard() {
+        Entity entity = new Entity();
+        entity.setFn("Jonathan Doe");
+        entity.setKind(Kind.INDIVIDUAL);
+        List<EntityAddress> addresses = new ArrayList<EntityAddress>();
+        EntityAddress address = new EntityAddress();
+        addresses.add(address);
+        address.setPref(1);
+        address.setTypes("home");
+        address.setPoBox("post office Box");
+        address.setExtendedAddress("apartment addr");
+        address.setStreetAddress("123 Wall St.");
+        address.setLocality("New York");
+        address.setRegion("NY");
+        address.setPostalCode("12345");
+        address.setCountry("USA");
+        entity.setAddresses(addresses);
+        List<EntityTelephone> telephones = new ArrayList<EntityTelephone>();
+        telephones.add(EntityTelephone.buildTextTel("+9981-().", "998-()"));
+        entity.setTelephones(telephones);
+        entity.setEmail("johndoe@hotmail.com");
+        entity.setTitle("CEO");
+        entity.setOrg("org");
+        entity.setUrl("http://www.acme-co.com");
+        entity.setLang("zh_CN");
+        assertEquals("[\"vcard\",[[\"version\",{},\"text\",\"4.0\"],"
+                + "[\"kind\",{},\"text\",\"individual\"],"
+                + "[\"fn\",{},\"text\",\"Jonathan Doe\"],"
+                + "[\"adr\",{\"type\":\"home\",\"pref\":\"1\"},\"text\","
+                + "[\"post office Box\",\"apartment addr\",\"123 Wall St.\","
+                + "\"New York\",\"NY\",\"12345\",\"USA\"]],"
+                + "[\"tel\",{},\"uri\",\"tel:+9981-().;ext=998-()\"],"
+                + "[\"email\",{},\"text\",\"johndoe@hotmail.com\"],"
+                + "[\"title\",{},\"text\",\"CEO\"],"
+                + "[\"org\",{},\"text\",\"org\"],"
+                + "[\"url\",{},\"uri\",\"http://www.acme-co.com\"],"
+                + "[\"lang\",{},\"language-tag\",\"zh_CN\"]]]",
+                Jcard.build(entity).toJSON());
+    }
+
+    /**
+     * test parameters are the same as ezvcard output.
+     */
+    @Test
+    public void testParamsSameAsEzvcard() {
+        Entity entity = new Entity();
+        List<EntityAddress> addresses = new ArrayList<EntityAddress>();
+        EntityAddress address = new EntityAddress();
+        addresses.add(address);
+        address.setStreetAddress("s");
+        address.setTypes("HOME;work;pref;custom;Custom2");
+        address.setPref(0);
+        entity.setAddresses(addresses);
+        List<EntityTelephone> telephones = new ArrayList<EntityTelephone>();
+        EntityTelephone tel = new EntityTelephone();
+        tel.setNumber("+1");
+        tel.setTypes("home;HOME;pref;PREF;work;bogus");
+        tel.setPref(101);
+        telephones.add(tel);
+        entity.setTelephones(telephones);
+        assertEquals("[\"vcard\",[[\"version\",{},\"text\",\"4.0\"],"
+                + "[\"adr\",{\"type\":[\"home\",\"work\",\"custom\","
+                + "\"custom2\"],\"pref\":\"1\"},\"text\","
+                + "[\"\",\"\",\"s\",\"\",\"\",\"\",\"\"]],"
+                + "[\"tel\",{\"type\":[\"home\",\"home\",\"pref\","
+                + "\"work\"],\"pref\":\"1\"},\"uri\",\"tel:+1\"]]]",
+                Jcard.build(entity).toJSON());
+        address.setTypes(null);
+        address.setPref(100);
+        tel.setTypes(null);
+        tel.setPref(0);
+        assertEquals("[\"vcard\",[[\"version\",{},\"text\",\"4.0\"],"
+                + "[\"adr\",{\"pref\":\"100\"},\"text\","
+                + "[\"\",\"\",\"s\",\"\",\"\",\"\",\"\"]],"
+                + "[\"tel\",{},\"uri\",\"tel:+1\"]]]",
+                Jcard.build(entity).toJSON());
+    }
+
+    /**
+     * test text is escaped, and null if no property.
+     */
+    @Test
+    public void testEscapeAndEmpty() {
+        Entity entity = new Entity();
+        entity.setHandle("h");
+        entity.setFn(" ");
+        assertNull(Jcard.build(entity).toJSON());
+        entity.setFn("a,b;c\\d \"q\"\n/x");
+        assertEquals("[\"vcard\",[[\"version\",{},\"text\",\"4.0\"],"
+                + "[\"fn\",{},\"text\",\"a,b;c\\\\d \\\"q\\\"\\n/x\"]]]",
+                Jcard.build(entity).toJSON());
+    }
 }
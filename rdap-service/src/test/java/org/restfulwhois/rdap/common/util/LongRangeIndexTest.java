@@ -0,0 +1,54 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class LongRangeIndexTest {
+    @Test
+    public void test_find_nested() {
+        LongRangeIndex<String> index = new LongRangeIndex<String>();
+        index.add(1L, 4294967295L, "all");
+        index.add(1L, 100L, "1-100");
+        index.add(10L, 20L, "10-20");
+        index.add(15L, 15L, "15");
+        index.add(200L, 300L, "200-300");
+        assertFalse(index.add(5L, 4L, "invalid"));
+        index.build();
+        assertEquals(5, index.size());
+        assertNull(index.find(0L));
+        assertEquals("1-100", index.find(1L));
+        assertEquals("10-20", index.find(10L));
+        assertEquals("15", index.find(15L));
+        assertEquals("10-20", index.find(16L));
+        assertEquals("1-100", index.find(21L));
+        assertEquals("all", index.find(150L));
+        assertEquals("200-300", index.find(300L));
+        assertEquals("all", index.find(4294967295L));
+        assertNull(index.find(4294967296L));
+    }
+
+    @Test
+    public void test_find_partially_overlapped() {
+        LongRangeIndex<String> index = new LongRangeIndex<String>();
+        index.add(1L, 100L, "1-100");
+        index.add(50L, 200L, "50-200");
+        index.add(60L, 70L, "60-70");
+        index.build();
+        assertEquals("1-100", index.find(10L));
+        assertEquals("1-100", index.find(100L));
+        assertEquals("60-70", index.find(65L));
+        assertEquals("50-200", index.find(150L));
+        assertNull(index.find(201L));
+    }
+
+    @Test
+    public void test_find_empty() {
+        LongRangeIndex<String> index = new LongRangeIndex<String>();
+        index.build();
+        assertEquals(0, index.size());
+        assertNull(index.find(1L));
+    }
+}
@@ -0,0 +1,137 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LruCacheTest {
+    @Test
+    public void test_get_and_put() {
+        LruCache<String, String> cache = new LruCache<String, String>(2, 0);
+        assertNull(cache.get("a"));
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void test_evict_least_recently_used() {
+        LruCache<String, String> cache = new LruCache<String, String>(2, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void test_expire() throws InterruptedException {
+        LruCache<String, String> cache = new LruCache<String, String>(2, 1);
+        cache.put("a", "1");
+        Thread.sleep(10);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_disabled() {
+        LruCache<String, String> cache = new LruCache<String, String>(0, 0);
+        cache.put("a", "1");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_remove_and_clear() {
+        LruCache<String, String> cache = new LruCache<String, String>(3, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_frequency_admission() {
+        LruCache<String, String> cache =
+                new LruCache<String, String>(2, 0, true);
+        cache.get("a");
+        cache.put("a", "1");
+        cache.get("b");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.get("b");
+        cache.put("c", "3");
+        assertNull(cache.get("c"));
+        assertEquals(2, cache.size());
+        cache.get("c");
+        cache.get("c");
+        cache.put("c", "3");
+        assertEquals("3", cache.get("c"));
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+    }
+
+    @Test
+    public void test_segment_count() {
+        assertEquals(1, LruCache.getSegmentCount(0));
+        assertEquals(1, LruCache.getSegmentCount(127));
+        assertEquals(2, LruCache.getSegmentCount(128));
+        assertEquals(16, LruCache.getSegmentCount(10000));
+    }
+
+    @Test
+    public void test_segmented_max_size() {
+        LruCache<Integer, Integer> cache =
+                new LruCache<Integer, Integer>(1000, 0);
+        for (int i = 0; i < 5000; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(1000, cache.size());
+        assertEquals(Integer.valueOf(4999), cache.get(4999));
+        assertNull(cache.get(0));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_concurrent_get_and_put() throws InterruptedException {
+        final LruCache<Integer, Integer> cache =
+                new LruCache<Integer, Integer>(1000, 0, true);
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger wrongValues = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        int key = (i * 31 + seed) % 3000;
+                        Integer value = cache.get(key);
+                        if (null != value && value.intValue() != key) {
+                            wrongValues.incrementAndGet();
+                        }
+                        cache.put(key, key);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(0, wrongValues.get());
+        assertTrue(cache.size() <= 1000);
+        assertEquals(threads * 20000,
+                cache.getHitCount() + cache.getMissCount());
+    }
+}
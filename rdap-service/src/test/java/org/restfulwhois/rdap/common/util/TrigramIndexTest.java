@@ -0,0 +1,104 @@
+package org.restfulwhois.rdap.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+
+public class TrigramIndexTest {
+    private TrigramIndex buildIndex() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(new Entry(1, "bank.cn", "bank.cn", "bank.cn"));
+        index.add(new Entry(2, "mybank.cn", "mybank.cn", "mybank.cn"));
+        index.add(new Entry(3, "banking.com", "banking.com", "banking.com"));
+        index.add(new Entry(4, "cnnic.cn", "cnnic.cn", "cnnic.cn"));
+        index.add(new Entry(5, "xn--fiqs8s.cn", "xn--fiqs8s.cn",
+                "中国银行.cn"));
+        index.add(new Entry(6, "abank.cn", "abank.cn", null));
+        index.build();
+        return index;
+    }
+
+    @Test
+    public void test_search_infix() {
+        TrigramIndex index = buildIndex();
+        assertEquals(6, index.size());
+        List<Entry> result =
+                index.search(new String[] { "*bank*", null }, null, 10, null);
+        assertEquals(4, result.size());
+        assertEquals(6L, result.get(0).getId());
+        assertEquals(1L, result.get(1).getId());
+        assertEquals(3L, result.get(2).getId());
+        assertEquals(2L, result.get(3).getId());
+    }
+
+    @Test
+    public void test_search_prefix_and_suffix() {
+        TrigramIndex index = buildIndex();
+        List<Entry> result =
+                index.search(new String[] { "bank*", null }, null, 10, null);
+        assertEquals(2, result.size());
+        result = index.search(new String[] { "*bank.cn", null }, null, 10,
+                        null);
+        assertEquals(3, result.size());
+        result = index.search(new String[] { "bank*.cn", null }, null, 10,
+                        null);
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        result = index.search(new String[] { "cnnic.cn", null }, null, 10,
+                        null);
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void test_search_any_field() {
+        TrigramIndex index = buildIndex();
+        List<Entry> result =
+                index.search(new String[] { "nothing*", "*国银行*" }, null, 10,
+                        null);
+        assertEquals(1, result.size());
+        assertEquals(5L, result.get(0).getId());
+        result = index.search(new String[] { "Bank*", null }, null, 10, null);
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void test_search_after_and_limit() {
+        TrigramIndex index = buildIndex();
+        String[] patterns = new String[] { "*bank*", null };
+        List<Entry> result = index.search(patterns, null, 2, null);
+        assertEquals(2, result.size());
+        result = index.search(patterns, result.get(1), 2, null);
+        assertEquals(2, result.size());
+        assertEquals(3L, result.get(0).getId());
+        assertEquals(2L, result.get(1).getId());
+        result =
+                index.search(patterns, null, 10, Collections.singleton(1L));
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void test_not_searchable() {
+        TrigramIndex index = buildIndex();
+        assertNull(index.search(new String[] { "*ba*", null }, null, 10, null));
+        assertNull(index.search(new String[] { "ban_*", null }, null, 10,
+                null));
+        assertNull(index.search(new String[] { null, null }, null, 10, null));
+        assertFalse(TrigramIndex.isSearchable(new String[] { "bank*", "*b" }));
+    }
+
+    @Test
+    public void test_glob_matches() {
+        assertTrue(TrigramIndex.globMatches("abcabc", "abc*abc"));
+        assertFalse(TrigramIndex.globMatches("abc", "abc*abc"));
+        assertTrue(TrigramIndex.globMatches("a.b.c", "*.b.*"));
+        assertTrue(TrigramIndex.globMatches("abc", "abc"));
+        assertFalse(TrigramIndex.globMatches("abcd", "abc"));
+    }
+}
@@ -68,6 +68,14 @@ public class RdapControllerDomainSearchTest extends BaseTest {
      */
     private static final String DOMAIN_SEARCH_URI = "/domains";
 
+    /**
+     * max SQL statements of domain search, inner objects of all found domains
+     * are queried together. Search of cnnic* in domain-search.xml is traced
+     * to 26 statements in DAO code, set it from the measured count logged by
+     * sqlStatementsNotMoreThan().
+     */
+    private static final int DOMAIN_SEARCH_SQL_BUDGET = 32;
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -208,10 +216,12 @@ public class RdapControllerDomainSearchTest extends BaseTest {
     /** search domain */
     private void searchDomain(String strObject, String domainName)
             throws Exception {
+        restartSqlCounter();
         mockMvc.perform(
                 get(DOMAIN_SEARCH_URI + strObject).accept(
                         MediaType.parseMediaType(rdapJson)))
                 .andExpect(status().isOk())
+                .andExpect(sqlStatementsNotMoreThan(DOMAIN_SEARCH_SQL_BUDGET))
                 .andExpect(content().contentType(rdapJson))
                 .andExpect(jsonPath("$.domainSearchResults").exists())
                 .andExpect(jsonPath("$.domainSearchResults").isArray())
@@ -64,6 +64,14 @@ public class RdapControllerDomainTest extends BaseTest {
      */
     public static final String URI_DOMAIN_Q = "/domain/";
 
+    /**
+     * max SQL statements of domain query, inner objects are queried in batch, so it
+     * does not grow with count of inner objects. Query of cnnic.cn in
+     * domain.xml is traced to 24 statements in DAO code, set it from the
+     * measured count logged by sqlStatementsNotMoreThan().
+     */
+    private static final int DOMAIN_QUERY_SQL_BUDGET = 30;
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -166,10 +174,12 @@ public class RdapControllerDomainTest extends BaseTest {
     private void commonQueryExistDomain(String queryDomainName,
             String expectedLdhName, String expectedUnicodeName)
             throws Exception {
+        restartSqlCounter();
         mockMvc.perform(
                 get(URI_DOMAIN_Q + StringUtil.urlEncode(queryDomainName))
                         .accept(MediaType.parseMediaType(rdapJson)))
                 .andExpect(status().isOk())
+                .andExpect(sqlStatementsNotMoreThan(DOMAIN_QUERY_SQL_BUDGET))
                 .andExpect(content().contentType(rdapJson))
                 .andExpect(jsonPath("$.lang").value("zh"))
                 .andExpect(jsonPath("$.handle").value("1"))
@@ -62,6 +62,14 @@ public class RdapControllerEntityTest extends BaseTest {
      */
     private static final String URI_ENTITY_Q = "/entity/";
 
+    /**
+     * max SQL statements of entity query. Query of h1 in entity.xml is traced
+     * to 48 statements in DAO code, inner objects of its 3 networks and 4
+     * autnums are queried one by one. Set it from the measured count logged
+     * by sqlStatementsNotMoreThan().
+     */
+    private static final int ENTITY_QUERY_SQL_BUDGET = 56;
+
     @Autowired
     private WebApplicationContext wac;
 
@@ -81,6 +89,7 @@ public class RdapControllerEntityTest extends BaseTest {
                 get(URI_ENTITY_Q + entityHandle).accept(
                         MediaType.parseMediaType(rdapJson)))
                 .andExpect(status().isOk())
+                .andExpect(sqlStatementsNotMoreThan(ENTITY_QUERY_SQL_BUDGET))
                 .andExpect(content().contentType(rdapJson))
                 .andExpect(jsonPath("$.handle").value("h1"))
                 .andExpect(jsonPath("$.cnnic_customKey1").value("customValue1"))
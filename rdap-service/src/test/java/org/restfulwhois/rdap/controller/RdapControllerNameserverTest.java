@@ -69,6 +69,13 @@ public class RdapControllerNameserverTest extends BaseTest {
      */
     final private String URI_NS_Q = "/nameserver/";
 
+    /**
+     * max SQL statements of nameserver query. Query of ns.cnnic.cn in
+     * nameserverTest.xml is traced to 10 statements in DAO code, set it from
+     * the measured count logged by sqlStatementsNotMoreThan().
+     */
+    private static final int NAMESERVER_QUERY_SQL_BUDGET = 14;
+
     @Before
     public void setup() {
         this.mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
@@ -84,6 +91,8 @@ public class RdapControllerNameserverTest extends BaseTest {
                         URI_NS_Q + StringUtil.urlEncode(nsName)).accept(
                         MediaType.parseMediaType(rdapJson)))
                 .andExpect(status().isOk())
+                .andExpect(
+                        sqlStatementsNotMoreThan(NAMESERVER_QUERY_SQL_BUDGET))
                 .andExpect(content().contentType(rdapJson))
                 .andExpect(jsonPath("$.cnnic_customKey1").value("customValue1"))
                 .andExpect(jsonPath("$.cnnic_customKey2").value("customValue2"));
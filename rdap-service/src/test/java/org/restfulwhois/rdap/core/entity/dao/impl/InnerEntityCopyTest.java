@@ -0,0 +1,114 @@
+package org.restfulwhois.rdap.core.entity.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.model.Event;
+import org.restfulwhois.rdap.common.model.Link;
+import org.restfulwhois.rdap.common.model.base.ModelType;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.core.entity.service.impl.InnerEntityCacheImpl;
+import org.restfulwhois.rdap.filters.queryFilter.service.CustomColumnPolicyPlan;
+
+/**
+ * Test for copying inner objects of inner entity from and to
+ * InnerEntityCache.
+ *
+ * @author jiashuo
+ *
+ */
+public class InnerEntityCopyTest {
+
+    @After
+    public void after() {
+        new RdapProperties().setInnerEntityCacheMaxSize(null);
+    }
+
+    /**
+     * test policy applied to response does not change cached entity.
+     */
+    @Test
+    public void testPolicyNotAppliedToCache() {
+        new RdapProperties().setInnerEntityCacheMaxSize(100);
+        InnerEntityCacheImpl cache = new InnerEntityCacheImpl();
+        Entity queried = new Entity();
+        queried.setStatus(newList("active"));
+        queried.setLinks(newList(newLink("http://a.cn/entity/h1")));
+        Event event = new Event();
+        event.setEventAction("registration");
+        event.setEventActor("h1");
+        event.setLinks(newList(newLink("http://a.cn/event")));
+        queried.setEvents(newList(event));
+        queried.setAsEventActor(newList(event));
+        Entity assembled = new Entity();
+        EntityQueryDaoImpl.copyInnerObjectsWithoutEntities(queried, assembled);
+        cache.put(1L, assembled, cache.getVersion());
+
+        Map<String, Set<String>> hiddenColumns =
+                new HashMap<String, Set<String>>();
+        addHiddenColumn(hiddenColumns, ModelType.ENTITY, "status");
+        addHiddenColumn(hiddenColumns, ModelType.EVENT, "eventActor");
+        addHiddenColumn(hiddenColumns, ModelType.LINK, "href");
+        CustomColumnPolicyPlan plan = new CustomColumnPolicyPlan(hiddenColumns);
+        Entity response = new Entity();
+        EntityQueryDaoImpl.copyInnerObjectsWithoutEntities(cache.get(1L),
+                response);
+        plan.apply(response);
+        assertNull(response.getStatus());
+        assertNull(response.getLinks().get(0).getHref());
+        assertNull(response.getEvents().get(0).getEventActor());
+        assertNull(response.getEvents().get(0).getLinks().get(0).getHref());
+        response.getEvents().clear();
+
+        Entity another = new Entity();
+        EntityQueryDaoImpl.copyInnerObjectsWithoutEntities(cache.get(1L),
+                another);
+        assertEquals(newList("active"), another.getStatus());
+        assertEquals("http://a.cn/entity/h1", another.getLinks().get(0)
+                .getHref());
+        assertEquals(1, another.getEvents().size());
+        Event cachedEvent = another.getEvents().get(0);
+        assertNotSame(event, cachedEvent);
+        assertEquals("h1", cachedEvent.getEventActor());
+        assertEquals("http://a.cn/event", cachedEvent.getLinks().get(0)
+                .getHref());
+        assertEquals("h1", another.getAsEventActor().get(0).getEventActor());
+
+        event.setEventActor("changed");
+        assertEquals("h1", cache.get(1L).getEvents().get(0).getEventActor());
+    }
+
+    private static Link newLink(String href) {
+        Link link = new Link();
+        link.setHref(href);
+        return link;
+    }
+
+    private static <T> List<T> newList(T element) {
+        List<T> list = new ArrayList<T>();
+        list.add(element);
+        return list;
+    }
+
+    private static void addHiddenColumn(
+            Map<String, Set<String>> hiddenColumns, ModelType type,
+            String column) {
+        Set<String> columns = hiddenColumns.get(type.getName());
+        if (null == columns) {
+            columns = new HashSet<String>();
+            hiddenColumns.put(type.getName(), columns);
+        }
+        columns.add(column);
+    }
+}
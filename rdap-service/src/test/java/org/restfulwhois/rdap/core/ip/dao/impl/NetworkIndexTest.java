@@ -0,0 +1,212 @@
+package org.restfulwhois.rdap.core.ip.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.IpVersion;
+import org.restfulwhois.rdap.common.util.NetworkInBytes;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Test for IP_ID index of NetworkQueryDaoImpl: index is built in
+ * background, and changed networks override it until it is rebuilt.
+ *
+ * @author jiashuo
+ *
+ */
+public class NetworkIndexTest {
+
+    private NetworkQueryDaoImpl networkQueryDao;
+
+    private RangesJdbcTemplate jdbcTemplate;
+
+    @Before
+    public void before() {
+        jdbcTemplate = new RangesJdbcTemplate();
+        jdbcTemplate.put(1L, ip(10, 0, 0, 0), ip(10, 255, 255, 255));
+        jdbcTemplate.put(2L, ip(10, 1, 0, 0), ip(10, 1, 255, 255));
+        networkQueryDao = new NetworkQueryDaoImpl();
+        ReflectionTestUtils.setField(networkQueryDao, "jdbcTemplate",
+                jdbcTemplate);
+    }
+
+    @After
+    public void after() {
+        jdbcTemplate.building.countDown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * test lookup does not wait for index to be built.
+     */
+    @Test
+    public void testNotBlockedByBuild() throws InterruptedException {
+        jdbcTemplate.building = new CountDownLatch(1);
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 1, 2, 3)));
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 1, 2, 3)));
+        jdbcTemplate.building.countDown();
+        assertEquals(Long.valueOf(2L), awaitBuilt(find(10, 1, 2, 3)));
+        assertEquals(1, jdbcTemplate.loadCount);
+    }
+
+    /**
+     * test changed networks are looked up in database, without rebuilding
+     * index.
+     */
+    @Test
+    public void testChangedNetworks() throws InterruptedException {
+        assertEquals(Long.valueOf(2L), awaitBuilt(find(10, 1, 2, 3)));
+
+        // network 2 is moved.
+        jdbcTemplate.put(2L, ip(10, 2, 0, 0), ip(10, 2, 255, 255));
+        networkQueryDao.onChanged(2L);
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 1, 2, 3)));
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 2, 3, 4)));
+        assertEquals(Long.valueOf(1L),
+                networkQueryDao.findIpIdInIndex(find(10, 3, 0, 1)));
+
+        // network 3 is created.
+        jdbcTemplate.put(3L, ip(10, 3, 0, 0), ip(10, 3, 255, 255));
+        networkQueryDao.onChanged(3L);
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 3, 0, 1)));
+
+        // network 1 is deleted.
+        jdbcTemplate.ranges.remove(1L);
+        networkQueryDao.onChanged(1L);
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 5, 0, 1)));
+        assertEquals(1, jdbcTemplate.loadCount);
+
+        ReflectionTestUtils.invokeMethod(networkQueryDao, "buildIpIdIndex");
+        assertEquals(Long.valueOf(2L),
+                networkQueryDao.findIpIdInIndex(find(10, 2, 3, 4)));
+        assertEquals(Long.valueOf(3L),
+                networkQueryDao.findIpIdInIndex(find(10, 3, 0, 1)));
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 5, 0, 1)));
+    }
+
+    /**
+     * test network changed in transaction is reloaded after it is
+     * completed.
+     */
+    @Test
+    public void testReloadedAfterCompletion() throws InterruptedException {
+        assertEquals(Long.valueOf(2L), awaitBuilt(find(10, 1, 2, 3)));
+        TransactionSynchronizationManager.initSynchronization();
+        jdbcTemplate.ranges.remove(2L);
+        networkQueryDao.onChanged(2L);
+        assertEquals(Long.valueOf(2L),
+                networkQueryDao.findIpIdInIndex(find(10, 1, 2, 3)));
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).afterCompletion(
+                TransactionSynchronization.STATUS_COMMITTED);
+        assertNull(networkQueryDao.findIpIdInIndex(find(10, 1, 2, 3)));
+    }
+
+    private Long awaitBuilt(NetworkInBytes network)
+            throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Long ipId = networkQueryDao.findIpIdInIndex(network);
+            if (null != ipId) {
+                return ipId;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("index is not built");
+    }
+
+    private static NetworkInBytes find(int a, int b, int c, int d) {
+        return new NetworkInBytes(IpVersion.V4, ip(a, b, c, d),
+                ip(a, b, c, d));
+    }
+
+    private static byte[] ip(int a, int b, int c, int d) {
+        return new byte[] { (byte) a, (byte) b, (byte) c, (byte) d };
+    }
+
+    /**
+     * JdbcTemplate returning IPv4 ranges, all or by IP_ID.
+     */
+    private static class RangesJdbcTemplate extends JdbcTemplate {
+        private final Map<Long, byte[][]> ranges =
+                new ConcurrentHashMap<Long, byte[][]>();
+        private volatile CountDownLatch building = new CountDownLatch(0);
+        private volatile int loadCount;
+
+        void put(Long ipId, byte[] startAddress, byte[] endAddress) {
+            ranges.put(ipId, new byte[][] { startAddress, endAddress });
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            try {
+                building.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            loadCount++;
+            for (Map.Entry<Long, byte[][]> range : ranges.entrySet()) {
+                processRow(rch, range.getKey(), range.getValue());
+            }
+        }
+
+        @Override
+        public void query(String sql, Object[] args, RowCallbackHandler rch) {
+            byte[][] range = ranges.get(args[0]);
+            if (null != range) {
+                processRow(rch, (Long) args[0], range);
+            }
+        }
+
+        private void processRow(RowCallbackHandler rch, final Long ipId,
+                final byte[][] range) {
+            ResultSet rs =
+                    (ResultSet) Proxy.newProxyInstance(getClass()
+                            .getClassLoader(),
+                            new Class<?>[] { ResultSet.class },
+                            new InvocationHandler() {
+                                @Override
+                                public Object invoke(Object proxy,
+                                        Method method, Object[] args) {
+                                    String column = (String) args[0];
+                                    if ("IP_ID".equals(column)) {
+                                        return ipId;
+                                    }
+                                    if ("VERSION".equals(column)) {
+                                        return IpVersion.V4.getName();
+                                    }
+                                    if ("STARTADDRESS".equals(column)) {
+                                        return range[0];
+                                    }
+                                    return range[1];
+                                }
+                            });
+            try {
+                rch.processRow(rs);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.restfulwhois.rdap.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.dao.AbstractExistenceFilter;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.BloomFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * test for AbstractExistenceFilter.
+ *
+ * @author jiashuo
+ *
+ */
+public class ExistenceFilterTest {
+
+    private Boolean existenceFilterEnabled;
+
+    private Boolean existenceFilterConfirmMiss;
+
+    private TestExistenceFilter existenceFilter;
+
+    @Before
+    public void before() {
+        existenceFilterEnabled = RdapProperties.getExistenceFilterEnabled();
+        new RdapProperties().setExistenceFilterEnabled(true);
+        existenceFilterConfirmMiss =
+                RdapProperties.getExistenceFilterConfirmMiss();
+        new RdapProperties().setExistenceFilterConfirmMiss(false);
+        existenceFilter = new TestExistenceFilter();
+        ReflectionTestUtils.setField(existenceFilter, "jdbcTemplate",
+                new KeysJdbcTemplate("cnnic.cn", "Bank.CN"));
+    }
+
+    @After
+    public void after() {
+        new RdapProperties().setExistenceFilterEnabled(existenceFilterEnabled);
+        new RdapProperties().setExistenceFilterConfirmMiss(
+                existenceFilterConfirmMiss);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * test key missed by filter is skipped without database query.
+     */
+    @Test
+    public void testMissSkipped() throws InterruptedException {
+        awaitBuilt();
+        assertTrue(existenceFilter.mightExist("cnnic.cn"));
+        assertTrue(existenceFilter.mightExist("BANK.cn"));
+        assertFalse(existenceFilter.mightExist("none.cn"));
+        assertFalse(existenceFilter.mightExist("NONE.CN"));
+        assertEquals(2, existenceFilter.getMissCount());
+        existenceFilter.onSaved("none.cn");
+        assertTrue(existenceFilter.mightExist("none.cn"));
+    }
+
+    /**
+     * test key missed by filter is skipped only after database confirms it
+     * does not exist, if existenceFilterConfirmMiss is true.
+     */
+    @Test
+    public void testMissQueriedOnce() throws InterruptedException {
+        new RdapProperties().setExistenceFilterConfirmMiss(true);
+        awaitBuilt();
+        assertTrue(existenceFilter.mightExist("cnnic.cn"));
+        assertTrue(existenceFilter.mightExist("BANK.cn"));
+        assertTrue(existenceFilter.mightExist("none.cn"));
+        assertTrue(existenceFilter.mightExist("none.cn"));
+        assertEquals(0, existenceFilter.getMissCount());
+
+        existenceFilter.onQueried("none.cn", false);
+        assertFalse(existenceFilter.mightExist("none.cn"));
+        assertFalse(existenceFilter.mightExist("NONE.CN"));
+        assertEquals(2, existenceFilter.getMissCount());
+        assertTrue(existenceFilter.mightExist("other.cn"));
+    }
+
+    /**
+     * test key found in database is added to filter.
+     */
+    @Test
+    public void testFoundKeyAdded() throws InterruptedException {
+        new RdapProperties().setExistenceFilterConfirmMiss(true);
+        awaitBuilt();
+        existenceFilter.onQueried("outside.cn", true);
+        assertTrue(getFilter().mightContain("outside.cn"));
+        assertTrue(existenceFilter.mightExist("outside.cn"));
+    }
+
+    /**
+     * test saved key is added at once and again after commit.
+     */
+    @Test
+    public void testSavedKeyAddedAfterCommit() throws InterruptedException {
+        existenceFilter.mightExist("none.cn");
+        awaitBuilt();
+        assertFalse(existenceFilter.mightExist("new.cn"));
+        existenceFilter.onSaved("new.cn");
+        assertTrue(existenceFilter.mightExist("new.cn"));
+
+        // filter rebuilt during transaction does not load uncommitted key.
+        TransactionSynchronizationManager.initSynchronization();
+        existenceFilter.onSaved("later.cn");
+        existenceFilter.clear();
+        awaitBuilt();
+        assertFalse(getFilter().mightContain("later.cn"));
+        List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).afterCommit();
+        assertTrue(getFilter().mightContain("later.cn"));
+    }
+
+    /**
+     * test filter is not used when disabled.
+     */
+    @Test
+    public void testDisabled() {
+        new RdapProperties().setExistenceFilterEnabled(false);
+        existenceFilter.onQueried("none.cn", false);
+        assertTrue(existenceFilter.mightExist("none.cn"));
+        assertEquals(0, existenceFilter.getLookupCount());
+    }
+
+    private BloomFilter getFilter() {
+        return (BloomFilter) ReflectionTestUtils.getField(existenceFilter,
+                "filter");
+    }
+
+    private void awaitBuilt() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            existenceFilter.mightExist("cnnic.cn");
+            if (null != getFilter()) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("filter is not built");
+    }
+
+    /**
+     * filter of test keys.
+     */
+    private static class TestExistenceFilter extends AbstractExistenceFilter {
+        @Override
+        protected String getLoadSql() {
+            return "load";
+        }
+
+        @Override
+        protected String getCountSql() {
+            return "count";
+        }
+    }
+
+    /**
+     * JdbcTemplate returning count and rows of keys.
+     */
+    private static class KeysJdbcTemplate extends JdbcTemplate {
+        private final String[] keys;
+
+        KeysJdbcTemplate(String... keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            return (T) Long.valueOf(keys.length);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            for (final String key : keys) {
+                ResultSet rs =
+                        (ResultSet) Proxy.newProxyInstance(getClass()
+                                .getClassLoader(),
+                                new Class<?>[] { ResultSet.class },
+                                new InvocationHandler() {
+                                    @Override
+                                    public Object invoke(Object proxy,
+                                            Method method, Object[] args) {
+                                        return key;
+                                    }
+                                });
+                try {
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
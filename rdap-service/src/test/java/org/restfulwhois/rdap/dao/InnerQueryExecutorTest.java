@@ -0,0 +1,142 @@
+package org.restfulwhois.rdap.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.dao.InnerQueryExecutor;
+import org.restfulwhois.rdap.common.dao.InnerQueryExecutor.QueryBatch;
+import org.restfulwhois.rdap.common.dao.RequestSqlCounter;
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * Test for InnerQueryExecutor.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class InnerQueryExecutorTest {
+
+    /**
+     * executor.
+     */
+    private InnerQueryExecutor executor;
+
+    @After
+    public void after() {
+        RequestSqlCounter.stop();
+        if (null != executor) {
+            executor.destroy();
+        }
+    }
+
+    /**
+     * create executor.
+     * 
+     * @param threads
+     *            threads.
+     * @param connectionPoolSize
+     *            connectionPoolSize.
+     * @param timeoutMillis
+     *            timeoutMillis.
+     * @return executor.
+     */
+    private InnerQueryExecutor createExecutor(int threads,
+            int connectionPoolSize, long timeoutMillis) {
+        executor = new InnerQueryExecutor();
+        executor.setThreads(threads);
+        executor.setConnectionPoolSize(connectionPoolSize);
+        executor.setTimeoutMillis(timeoutMillis);
+        executor.afterPropertiesSet();
+        return executor;
+    }
+
+    /**
+     * test queries run in parallel, and SQL count is added to caller.
+     * 
+     * @throws InterruptedException
+     *             InterruptedException.
+     */
+    @Test
+    public void testParallel() throws InterruptedException {
+        createExecutor(4, 100, 5000);
+        assertTrue(executor.isEnabled());
+        RequestSqlCounter.start();
+        final CountDownLatch latch = new CountDownLatch(2);
+        QueryBatch batch = executor.newBatch();
+        Callable<String> query = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                RequestSqlCounter.increment();
+                latch.countDown();
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+                return Thread.currentThread().getName();
+            }
+        };
+        Future<String> first = batch.submit(query);
+        Future<String> second = batch.submit(query);
+        assertTrue(batch.get(first).startsWith("rdap-inner-query-"));
+        assertTrue(batch.get(second).startsWith("rdap-inner-query-"));
+        assertEquals(2, RequestSqlCounter.getCount());
+    }
+
+    /**
+     * test queries run in caller thread if pool is too small.
+     */
+    @Test
+    public void testRunInCallerIfDisabled() {
+        createExecutor(4, 1, 5000);
+        assertFalse(executor.isEnabled());
+        QueryBatch batch = executor.newBatch();
+        Future<String> future = batch.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        });
+        assertEquals(Thread.currentThread().getName(), batch.get(future));
+    }
+
+    /**
+     * test timeout and exception of query.
+     */
+    @Test
+    public void testTimeoutAndException() {
+        createExecutor(2, 100, 50);
+        QueryBatch batch = executor.newBatch();
+        Future<String> slow = batch.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                Thread.sleep(5000);
+                return "slow";
+            }
+        });
+        try {
+            batch.get(slow);
+            fail();
+        } catch (QueryTimeoutException e) {
+            assertTrue(slow.isCancelled());
+        }
+        batch = executor.newBatch();
+        Future<String> failed = batch.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalArgumentException("failed");
+            }
+        });
+        try {
+            batch.get(failed);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+}
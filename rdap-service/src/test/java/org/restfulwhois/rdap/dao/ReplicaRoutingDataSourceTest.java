@@ -0,0 +1,359 @@
+package org.restfulwhois.rdap.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.common.dao.ReadReplicaInterceptor;
+import org.restfulwhois.rdap.common.dao.ReplicaRoutingDataSource;
+import org.restfulwhois.rdap.core.autnum.queryparam.AsQueryParam;
+import org.restfulwhois.rdap.redirect.dao.impl.AutnumRedirectDao;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * test for ReplicaRoutingDataSource. Stub data sources stand in for primary
+ * and replica databases, connection catalog is data source name.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    /**
+     * test connection is from primary if thread is not read only.
+     * 
+     * @throws SQLException
+     *             SQLException.
+     */
+    @Test
+    public void testPrimaryIfNotReadOnly() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource();
+        dataSource.addReplica("replica1", new StubDataSource("replica1"));
+        assertEquals("primary", dataSource.getConnection().getCatalog());
+    }
+
+    /**
+     * test read only connections are from replicas in round-robin.
+     * 
+     * @throws SQLException
+     *             SQLException.
+     */
+    @Test
+    public void testRoundRobin() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource();
+        dataSource.addReplica("replica1", new StubDataSource("replica1"));
+        dataSource.addReplica("replica2", new StubDataSource("replica2"));
+        ReplicaRoutingDataSource.setReadOnly(true);
+        try {
+            String first = dataSource.getConnection().getCatalog();
+            String second = dataSource.getConnection().getCatalog();
+            assertTrue(first.startsWith("replica"));
+            assertTrue(second.startsWith("replica"));
+            assertFalse(first.equals(second));
+            assertEquals(first, dataSource.getConnection().getCatalog());
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(false);
+        }
+    }
+
+    /**
+     * test connection is from primary in transaction.
+     * 
+     * @throws SQLException
+     *             SQLException.
+     */
+    @Test
+    public void testPrimaryInTransaction() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource();
+        dataSource.addReplica("replica1", new StubDataSource("replica1"));
+        ReplicaRoutingDataSource.setReadOnly(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals("primary", dataSource.getConnection().getCatalog());
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            ReplicaRoutingDataSource.setReadOnly(false);
+        }
+    }
+
+    /**
+     * test fallback to other replica and primary if replica fails.
+     * 
+     * @throws SQLException
+     *             SQLException.
+     */
+    @Test
+    public void testFallback() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource();
+        StubDataSource replica1 = new StubDataSource("replica1");
+        StubDataSource replica2 = new StubDataSource("replica2");
+        dataSource.addReplica("replica1", replica1);
+        dataSource.addReplica("replica2", replica2);
+        replica1.down = true;
+        ReplicaRoutingDataSource.setReadOnly(true);
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("replica2", dataSource.getConnection()
+                        .getCatalog());
+            }
+            replica2.down = true;
+            assertEquals("primary", dataSource.getConnection().getCatalog());
+            replica1.down = false;
+            dataSource.checkReplicas();
+            assertEquals("replica1", dataSource.getConnection().getCatalog());
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(false);
+        }
+    }
+
+    /**
+     * test lagging replica is not used until it catches up.
+     * 
+     * @throws SQLException
+     *             SQLException.
+     */
+    @Test
+    public void testReplicaLag() throws SQLException {
+        ReplicaRoutingDataSource dataSource = createDataSource();
+        dataSource.setReplicaLagSql("select lag");
+        dataSource.setMaxLagSeconds(10);
+        StubDataSource replica1 = new StubDataSource("replica1");
+        dataSource.addReplica("replica1", replica1);
+        replica1.lag = 30L;
+        dataSource.checkReplicas();
+        ReplicaRoutingDataSource.setReadOnly(true);
+        try {
+            assertEquals("primary", dataSource.getConnection().getCatalog());
+            replica1.lag = null;
+            dataSource.checkReplicas();
+            assertEquals("primary", dataSource.getConnection().getCatalog());
+            replica1.lag = 2L;
+            dataSource.checkReplicas();
+            assertEquals("replica1", dataSource.getConnection().getCatalog());
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(false);
+        }
+    }
+
+    /**
+     * test interceptor marks thread read only during invocation, and
+     * restores previous flag.
+     * 
+     * @throws SQLException
+     *             SQLException.
+     */
+    @Test
+    public void testInterceptor() throws SQLException {
+        final ReplicaRoutingDataSource dataSource = createDataSource();
+        dataSource.addReplica("replica1", new StubDataSource("replica1"));
+        ProxyFactory factory = new ProxyFactory(new StubDao(dataSource));
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new ReadReplicaInterceptor());
+        StubDao dao = (StubDao) factory.getProxy();
+        assertEquals("replica1", dao.query());
+        assertFalse(ReplicaRoutingDataSource.isReadOnly());
+        assertEquals("primary", dataSource.getConnection().getCatalog());
+    }
+
+    /**
+     * test redirect index is loaded from primary in read only DAO.
+     */
+    @Test
+    public void testRedirectIndexLoadedFromPrimary() {
+        final ReplicaRoutingDataSource dataSource = createDataSource();
+        dataSource.addReplica("replica1", new StubDataSource("replica1"));
+        final List<String> loadedFrom = new ArrayList<String>();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch) {
+                try {
+                    loadedFrom.add(dataSource.getConnection().getCatalog());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        AutnumRedirectDao target = new AutnumRedirectDao();
+        ReflectionTestUtils.setField(target, "jdbcTemplate", jdbcTemplate);
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new ReadReplicaInterceptor());
+        AutnumRedirectDao dao = (AutnumRedirectDao) factory.getProxy();
+        AsQueryParam queryParam =
+                new AsQueryParam(new MockHttpServletRequest());
+        queryParam.setQ("1");
+        dao.query(queryParam);
+        assertEquals(Arrays.asList("primary"), loadedFrom);
+        assertFalse(ReplicaRoutingDataSource.isReadOnly());
+    }
+
+    /**
+     * create data source with stub primary and no replica.
+     * 
+     * @return data source.
+     */
+    private ReplicaRoutingDataSource createDataSource() {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource();
+        dataSource.setPrimaryDataSource(new StubDataSource("primary"));
+        return dataSource;
+    }
+
+    /**
+     * DAO getting connection.
+     */
+    public static class StubDao {
+        /**
+         * data source.
+         */
+        private ReplicaRoutingDataSource dataSource;
+
+        /**
+         * default constructor for proxy.
+         */
+        public StubDao() {
+        }
+
+        /**
+         * constructor.
+         * 
+         * @param dataSource
+         *            dataSource.
+         */
+        public StubDao(ReplicaRoutingDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * query.
+         * 
+         * @return name of data source.
+         * @throws SQLException
+         *             SQLException.
+         */
+        public String query() throws SQLException {
+            return dataSource.getConnection().getCatalog();
+        }
+    }
+
+    /**
+     * stub data source, whose connection returns name as catalog and lag
+     * for any query.
+     */
+    private static class StubDataSource extends AbstractDataSource {
+        /**
+         * name.
+         */
+        private final String name;
+        /**
+         * getConnection fails if down.
+         */
+        private volatile boolean down;
+        /**
+         * lag returned by query.
+         */
+        private volatile Long lag = 0L;
+
+        /**
+         * constructor.
+         * 
+         * @param name
+         *            name.
+         */
+        StubDataSource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException(name + " is down");
+            }
+            return (Connection) Proxy.newProxyInstance(getClass()
+                    .getClassLoader(), new Class<?>[] {Connection.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method,
+                                Object[] args) {
+                            if ("getCatalog".equals(method.getName())) {
+                                return name;
+                            }
+                            if ("createStatement".equals(method.getName())) {
+                                return createStatement();
+                            }
+                            return null;
+                        }
+                    });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password)
+                throws SQLException {
+            return getConnection();
+        }
+
+        /**
+         * create statement returning lag.
+         * 
+         * @return statement.
+         */
+        private Statement createStatement() {
+            final Long currentLag = lag;
+            final ResultSet rs =
+                    (ResultSet) Proxy.newProxyInstance(getClass()
+                            .getClassLoader(),
+                            new Class<?>[] {ResultSet.class },
+                            new InvocationHandler() {
+                                private boolean read;
+
+                                @Override
+                                public Object invoke(Object proxy,
+                                        Method method, Object[] args) {
+                                    String methodName = method.getName();
+                                    if ("next".equals(methodName)) {
+                                        boolean hasNext = !read;
+                                        read = true;
+                                        return hasNext;
+                                    }
+                                    if ("getLong".equals(methodName)) {
+                                        return null == currentLag ? 0L
+                                                : currentLag;
+                                    }
+                                    if ("wasNull".equals(methodName)) {
+                                        return null == currentLag;
+                                    }
+                                    return null;
+                                }
+                            });
+            return (Statement) Proxy.newProxyInstance(getClass()
+                    .getClassLoader(), new Class<?>[] {Statement.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method,
+                                Object[] args) {
+                            if ("executeQuery".equals(method.getName())) {
+                                return rs;
+                            }
+                            return null;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.restfulwhois.rdap.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.common.dao.InstrumentedJdbcTemplate;
+import org.restfulwhois.rdap.common.dao.RequestSqlCounter;
+import org.restfulwhois.rdap.common.dao.SqlMetrics;
+import org.restfulwhois.rdap.common.dao.SqlStat;
+import org.restfulwhois.rdap.common.dao.SqlTagInterceptor;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * test for SqlMetrics, SqlStat and InstrumentedJdbcTemplate.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class SqlMetricsTest {
+
+    /**
+     * test latency histogram and percentile.
+     */
+    @Test
+    public void testPercentile() {
+        SqlStat stat = new SqlStat("test");
+        assertEquals(0, stat.getP50Millis());
+        for (int i = 0; i < 90; i++) {
+            stat.record(500000L, 1, false);
+        }
+        for (int i = 0; i < 9; i++) {
+            stat.record(15000000L, 2, false);
+        }
+        stat.record(3000000000L, 0, true);
+        assertEquals(100, stat.getCount());
+        assertEquals(1, stat.getErrorCount());
+        assertEquals(108, stat.getRows());
+        assertEquals(1, stat.getP50Millis());
+        assertEquals(20, stat.getP95Millis());
+        assertEquals(20, stat.getP99Millis());
+        assertEquals(-1, stat.getPercentileMillis(100));
+        assertEquals(3000000, stat.getMaxMicros());
+        assertTrue(stat.getHistogram().startsWith("<=1ms:90,<=2ms:0"));
+        assertTrue(stat.getHistogram().endsWith(">2000ms:1"));
+    }
+
+    /**
+     * test statements are recorded by tag, and slow ones are counted.
+     */
+    @Test
+    public void testRecordByTag() {
+        new RdapProperties().setSlowSqlThresholdMillis(100L);
+        try {
+            SqlMetrics metrics = new SqlMetrics();
+            metrics.record("select 1", 1000L, 1, false);
+            String previous = SqlMetrics.setTag("DomainQueryDaoImpl.query");
+            assertNull(previous);
+            metrics.record("select 2", 200000000L, 3, false);
+            metrics.recordPoolWait(4000L);
+            SqlMetrics.setTag(previous);
+            assertEquals(SqlMetrics.UNKNOWN_TAG, SqlMetrics.getTag());
+            List<SqlStat> stats = metrics.getStats();
+            assertEquals(2, stats.size());
+            assertEquals("DomainQueryDaoImpl.query", stats.get(0).getTag());
+            assertEquals(3, stats.get(0).getRows());
+            assertEquals(4, stats.get(0).getAvgPoolWaitMicros());
+            assertEquals(SqlMetrics.UNKNOWN_TAG, stats.get(1).getTag());
+            assertEquals(2, metrics.getStatementCount());
+            assertEquals(1, metrics.getSlowStatementCount());
+            assertEquals(2, metrics.getStatistics().length);
+            metrics.reset();
+            assertEquals(0, metrics.getStats().size());
+            assertEquals(0, metrics.getSlowStatementCount());
+        } finally {
+            new RdapProperties().setSlowSqlThresholdMillis(null);
+        }
+    }
+
+    /**
+     * test template records query rows and updated count with tag of DAO.
+     */
+    @Test
+    public void testInstrumentedJdbcTemplate() {
+        SqlMetrics metrics = new SqlMetrics();
+        InstrumentedJdbcTemplate template = new InstrumentedJdbcTemplate();
+        template.setDataSource(new StubDataSource(3, 2));
+        template.setSqlMetrics(metrics);
+        ProxyFactory factory = new ProxyFactory(new StubDao(template));
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new SqlTagInterceptor());
+        StubDao dao = (StubDao) factory.getProxy();
+        assertEquals(3, dao.query().size());
+        assertEquals(3, dao.queryByStatement().size());
+        assertEquals(2, dao.update());
+        List<SqlStat> stats = metrics.getStats();
+        assertEquals(3, stats.size());
+        for (SqlStat stat : stats) {
+            assertTrue(stat.getTag().startsWith("StubDao."));
+            assertEquals(1, stat.getCount());
+            if (stat.getTag().equals("StubDao.update")) {
+                assertEquals(2, stat.getRows());
+            } else {
+                assertEquals(3, stat.getRows());
+            }
+        }
+    }
+
+    /**
+     * test statements counted for request.
+     */
+    @Test
+    public void testRequestSqlCounter() {
+        InstrumentedJdbcTemplate template = new InstrumentedJdbcTemplate();
+        template.setDataSource(new StubDataSource(3, 2));
+        StubDao dao = new StubDao(template);
+        dao.query();
+        assertEquals(0, RequestSqlCounter.getCount());
+        RequestSqlCounter.start();
+        try {
+            dao.query();
+            dao.queryByStatement();
+            dao.update();
+            assertEquals(3, RequestSqlCounter.getCount());
+        } finally {
+            assertEquals(3, RequestSqlCounter.stop());
+        }
+        assertEquals(0, RequestSqlCounter.getCount());
+    }
+
+    /**
+     * DAO using template.
+     */
+    public static class StubDao {
+        /**
+         * template.
+         */
+        private InstrumentedJdbcTemplate template;
+
+        /**
+         * default constructor for proxy.
+         */
+        public StubDao() {
+        }
+
+        /**
+         * constructor.
+         * 
+         * @param template
+         *            template.
+         */
+        public StubDao(InstrumentedJdbcTemplate template) {
+            this.template = template;
+        }
+
+        /**
+         * query by prepared statement.
+         * 
+         * @return ids.
+         */
+        public List<Long> query() {
+            return template.query("select ID from T where ID > ?",
+                    new Object[] {0L }, new SingleColumnRowMapper<Long>(
+                            Long.class));
+        }
+
+        /**
+         * query by statement.
+         * 
+         * @return ids.
+         */
+        public List<Long> queryByStatement() {
+            return template.query("select ID from T",
+                    new SingleColumnRowMapper<Long>(Long.class));
+        }
+
+        /**
+         * update.
+         * 
+         * @return updated count.
+         */
+        public int update() {
+            return template.update("update T set A = ?", "a");
+        }
+    }
+
+    /**
+     * stub data source, whose statements return rows of id and update
+     * count.
+     */
+    private static class StubDataSource extends AbstractDataSource {
+        /**
+         * rows of query.
+         */
+        private final int rows;
+        /**
+         * update count.
+         */
+        private final int updateCount;
+
+        /**
+         * constructor.
+         * 
+         * @param rows
+         *            rows of query.
+         * @param updateCount
+         *            update count.
+         */
+        StubDataSource(int rows, int updateCount) {
+            this.rows = rows;
+            this.updateCount = updateCount;
+        }
+
+        @Override
+        public Connection getConnection() {
+            return stub(Connection.class);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return getConnection();
+        }
+
+        /**
+         * create stub JDBC object.
+         * 
+         * @param type
+         *            interface.
+         * @param <T>
+         *            type.
+         * @return stub.
+         */
+        private <T> T stub(Class<T> type) {
+            return type.cast(Proxy.newProxyInstance(getClass()
+                    .getClassLoader(), new Class<?>[] {type },
+                    new StubHandler()));
+        }
+
+        /**
+         * handler returning stub statements and result set, and default
+         * value for other methods.
+         */
+        private class StubHandler implements InvocationHandler {
+            /**
+             * current row of result set.
+             */
+            private int row;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws SQLException {
+                String name = method.getName();
+                Class<?> returnType = method.getReturnType();
+                if ("executeQuery".equals(name)) {
+                    return stub(ResultSet.class);
+                }
+                if ("executeUpdate".equals(name)) {
+                    return updateCount;
+                }
+                if ("next".equals(name)) {
+                    return ++row <= rows;
+                }
+                if ("getLong".equals(name) || "getObject".equals(name)) {
+                    return (long) row;
+                }
+                if (Statement.class.isAssignableFrom(returnType)
+                        || ResultSetMetaData.class.isAssignableFrom(returnType)) {
+                    return stub(returnType);
+                }
+                if ("getColumnCount".equals(name)) {
+                    return 1;
+                }
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                if (returnType == long.class) {
+                    return 0L;
+                }
+                return null;
+            }
+        }
+    }
+}
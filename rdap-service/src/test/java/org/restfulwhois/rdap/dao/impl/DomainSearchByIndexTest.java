@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ * 
+ * All rights reserved.
+ *  
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restfulwhois.rdap.BaseTest;
+import org.restfulwhois.rdap.common.model.Domain;
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.core.domain.model.DomainSearch;
+import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchByDomainNameParam;
+import org.restfulwhois.rdap.search.domain.dao.DomainNameSearchIndex;
+import org.restfulwhois.rdap.search.domain.dao.strategy.DomainSearchByNameStrategy;
+import org.restfulwhois.rdap.search.domain.service.DomainSearchServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.github.springtestdbunit.annotation.DatabaseTearDown;
+
+/**
+ * Test for domain search by DomainNameSearchIndex, with 7 domains
+ * 'truncated1.cn' to 'truncated7.cn'.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class DomainSearchByIndexTest extends BaseTest {
+    /**
+     * domain name index.
+     */
+    @Autowired
+    private DomainNameSearchIndex domainNameSearchIndex;
+    /**
+     * domain search strategy.
+     */
+    @Autowired
+    private DomainSearchByNameStrategy domainSearchByNameStrategy;
+    /**
+     * domain search service.
+     */
+    @Autowired
+    private DomainSearchServiceImpl domainSearchService;
+    /**
+     * JDBC template.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @After
+    public void disableIndex() {
+        new RdapProperties().setNameSearchIndexEnabled(false);
+        domainNameSearchIndex.clearIndex();
+    }
+
+    /**
+     * test strategy selects domains found by index, in order.
+     * 
+     * @throws InterruptedException
+     *             InterruptedException.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("domain-search-page.xml")
+    public void testSearchByIndex() throws InterruptedException {
+        buildIndex();
+        DomainSearchByDomainNameParam queryParam = createParam("*uncated*");
+        queryParam.setPageBean(new PageBean(3));
+        List<Domain> domains =
+                domainSearchByNameStrategy.search(queryParam, jdbcTemplate);
+        assertLdhNames(domains, "truncated1.cn", "truncated2.cn",
+                "truncated3.cn");
+        assertEquals(Integer.valueOf(3), queryParam.getPageBean()
+                .getScannedCount());
+    }
+
+    /**
+     * test domains found by index but deleted from database are scanned, so
+     * search does not stop at the batch containing them.
+     * 
+     * @throws InterruptedException
+     *             InterruptedException.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("domain-search-page.xml")
+    public void testSearchByIndexWithDeletedDomain()
+            throws InterruptedException {
+        buildIndex();
+        jdbcTemplate.update("delete from RDAP_DOMAIN where DOMAIN_ID = 12");
+        DomainSearchByDomainNameParam queryParam = createParam("*uncated*");
+        queryParam.setPageBean(new PageBean(3));
+        List<Domain> domains =
+                domainSearchByNameStrategy.search(queryParam, jdbcTemplate);
+        assertLdhNames(domains, "truncated1.cn", "truncated3.cn");
+        assertEquals(Integer.valueOf(3), queryParam.getPageBean()
+                .getScannedCount());
+
+        new RdapProperties().setBatchsizeSearch(3L);
+        new RdapProperties().setMaxBatchsizeSearch(3L);
+        try {
+            DomainSearch result =
+                    domainSearchService.searchDomain(createParam("*uncated*"));
+            assertLdhNames(result.getDomainSearchResults(), "truncated1.cn",
+                    "truncated3.cn", "truncated4.cn", "truncated5.cn",
+                    "truncated6.cn");
+            assertTrue(result.getTruncatedInfo().getResultsTruncated());
+        } finally {
+            new RdapProperties().setBatchsizeSearch(100L);
+            new RdapProperties().setMaxBatchsizeSearch(1000L);
+        }
+    }
+
+    private void buildIndex() throws InterruptedException {
+        new RdapProperties().setNameSearchIndexEnabled(true);
+        domainNameSearchIndex.clearIndex();
+        for (int i = 0; i < 500; i++) {
+            if (null != domainNameSearchIndex.search("*uncated*",
+                    "*uncated*", new PageBean(1))) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("index is not built");
+    }
+
+    private DomainSearchByDomainNameParam createParam(String name) {
+        DomainSearchByDomainNameParam queryParam =
+                new DomainSearchByDomainNameParam();
+        queryParam.setQ(name);
+        queryParam.setPunyName(name);
+        return queryParam;
+    }
+
+    private void assertLdhNames(List<Domain> domains, String... ldhNames) {
+        assertEquals(ldhNames.length, domains.size());
+        for (int i = 0; i < ldhNames.length; i++) {
+            assertEquals(ldhNames[i], domains.get(i).getLdhName());
+        }
+    }
+}
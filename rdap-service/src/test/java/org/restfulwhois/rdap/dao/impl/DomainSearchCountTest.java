@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ * 
+ * All rights reserved.
+ *  
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *  
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *  
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.BaseTest;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.core.domain.queryparam.DomainSearchByDomainNameParam;
+import org.restfulwhois.rdap.search.domain.dao.strategy.DomainSearchByNameStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+import com.github.springtestdbunit.annotation.DatabaseTearDown;
+
+/**
+ * Test for capped search count, with 7 domains 'truncated1.cn' to
+ * 'truncated7.cn'.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class DomainSearchCountTest extends BaseTest {
+    /**
+     * domain search strategy.
+     */
+    @Autowired
+    private DomainSearchByNameStrategy domainSearchByNameStrategy;
+    /**
+     * JDBC template.
+     */
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * test count below cap is exact.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("domain-search-page.xml")
+    public void testCountBelowCap() {
+        new RdapProperties().setMaxsizeSearch(10L);
+        assertEquals(Long.valueOf(7), searchCount("truncated*"));
+        assertEquals(Long.valueOf(1), searchCount("truncated1*"));
+    }
+
+    /**
+     * test count at cap is exact.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("domain-search-page.xml")
+    public void testCountAtCap() {
+        new RdapProperties().setMaxsizeSearch(6L);
+        assertEquals(Long.valueOf(7), searchCount("truncated*"));
+    }
+
+    /**
+     * test count above cap is capped at maxsizeSearch + 1.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("domain-search-page.xml")
+    public void testCountAboveCap() {
+        new RdapProperties().setMaxsizeSearch(5L);
+        assertEquals(Long.valueOf(6), searchCount("truncated*"));
+        new RdapProperties().setMaxsizeSearch(1L);
+        assertEquals(Long.valueOf(2), searchCount("truncated*"));
+    }
+
+    /**
+     * test count of nothing is 0.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("domain-search-page.xml")
+    public void testCountNothing() {
+        assertEquals(Long.valueOf(0), searchCount("nonexist*"));
+    }
+
+    private Long searchCount(String name) {
+        DomainSearchByDomainNameParam queryParam =
+                new DomainSearchByDomainNameParam();
+        queryParam.setQ(name);
+        queryParam.setPunyName(name);
+        return domainSearchByNameStrategy.searchCount(queryParam,
+                jdbcTemplate);
+    }
+}
@@ -34,7 +34,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
@@ -96,4 +98,29 @@ public class LinkQueryDaoTest extends BaseTest {
         assertEquals(links.size(), 0);
     }
 
+    /**
+     * test batch query, every outer object id has a link list.
+     */
+    @Test
+    @DatabaseTearDown("teardown.xml")
+    @DatabaseSetup("link.xml")
+    public void testQueryLinksForBatchOuterObjects() {
+        final Long autnumId = 1L;
+        final Long nonExistAutnumId = 10000L;
+        List<Long> autnumIds = new ArrayList<Long>();
+        autnumIds.add(autnumId);
+        autnumIds.add(nonExistAutnumId);
+        Map<Long, List<Link>> linksMap =
+                linkQueryDao.queryAsInnerObjects(autnumIds, ModelType.AUTNUM);
+        assertNotNull(linksMap);
+        assertEquals(linksMap.size(), 2);
+        List<Link> links = linksMap.get(autnumId);
+        assertEquals(links.size(), 1);
+        Link link = links.get(0);
+        assertEquals(link.getValue(), "http://example.com/context_uri");
+        assertThat(link.getHreflang(), CoreMatchers.hasItems("en", "zh"));
+        assertNotNull(linksMap.get(nonExistAutnumId));
+        assertEquals(linksMap.get(nonExistAutnumId).size(), 0);
+    }
+
 }
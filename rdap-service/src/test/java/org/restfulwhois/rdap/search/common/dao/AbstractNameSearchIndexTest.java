@@ -0,0 +1,249 @@
+package org.restfulwhois.rdap.search.common.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test for AbstractNameSearchIndex.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class AbstractNameSearchIndexTest {
+
+    private Boolean nameSearchIndexEnabled;
+
+    private RowsJdbcTemplate jdbcTemplate;
+
+    private TestNameSearchIndex index;
+
+    @Before
+    public void before() {
+        nameSearchIndexEnabled = RdapProperties.getNameSearchIndexEnabled();
+        new RdapProperties().setNameSearchIndexEnabled(true);
+        jdbcTemplate = new RowsJdbcTemplate();
+        jdbcTemplate.addRow(1L, "bank.cn", "bank.cn");
+        jdbcTemplate.addRow(2L, "mybank.cn", "mybank.cn");
+        jdbcTemplate.addRow(3L, "cnnic.cn", "cnnic.cn");
+        jdbcTemplate.addRow(4L, "yourbank.cn", "yourbank.cn");
+        index = new TestNameSearchIndex();
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @After
+    public void after() {
+        new RdapProperties().setNameSearchIndexEnabled(nameSearchIndexEnabled);
+    }
+
+    @Test
+    public void test_search_after_build() throws InterruptedException {
+        List<Entry> entries = awaitSearch("*bank*", new PageBean(10));
+        assertIds(entries, 1, 2, 4);
+        PageBean page = new PageBean(2);
+        assertIds(index.search("*bank*", "*bank*", page), 1, 2);
+        page.setSeekPosition("mybank.cn", 2L);
+        assertIds(index.search("*bank*", "*bank*", page), 4);
+        assertNull(index.search("b*", "b*", new PageBean(10)));
+    }
+
+    @Test
+    public void test_search_disabled() {
+        new RdapProperties().setNameSearchIndexEnabled(false);
+        assertNull(index.search("*bank*", "*bank*", new PageBean(10)));
+        assertEquals(0, jdbcTemplate.loadCount.get());
+    }
+
+    @Test
+    public void test_changed_rows_override_index() throws InterruptedException {
+        awaitSearch("*bank*", new PageBean(10));
+        jdbcTemplate.removeRow(2L);
+        index.onChanged(2L);
+        jdbcTemplate.addRow(5L, "newbank.cn", "newbank.cn");
+        index.onChanged(5L);
+        assertIds(index.search("*bank*", "*bank*", new PageBean(10)), 1, 5,
+                4);
+    }
+
+    @Test
+    public void test_build_failure_backs_off() throws InterruptedException {
+        jdbcTemplate.failing = true;
+        assertNull(index.search("*bank*", "*bank*", new PageBean(10)));
+        awaitBuildCompleted(1);
+        for (int i = 0; i < 10; i++) {
+            assertNull(index.search("*bank*", "*bank*", new PageBean(10)));
+        }
+        assertEquals(1, jdbcTemplate.loadCount.get());
+        assertEquals(1, ReflectionTestUtils.getField(index,
+                "buildFailureCount"));
+
+        ReflectionTestUtils.setField(index, "nextBuildTime", 0L);
+        assertNull(index.search("*bank*", "*bank*", new PageBean(10)));
+        awaitBuildCompleted(2);
+        assertEquals(2, ReflectionTestUtils.getField(index,
+                "buildFailureCount"));
+
+        jdbcTemplate.failing = false;
+        ReflectionTestUtils.setField(index, "nextBuildTime", 0L);
+        assertIds(awaitSearch("*bank*", new PageBean(10)), 1, 2, 4);
+        assertEquals(0, ReflectionTestUtils.getField(index,
+                "buildFailureCount"));
+    }
+
+    @Test
+    public void test_getBuildBackoffMillis() {
+        assertEquals(0, AbstractNameSearchIndex.getBuildBackoffMillis(0));
+        assertEquals(1000, AbstractNameSearchIndex.getBuildBackoffMillis(1));
+        assertEquals(2000, AbstractNameSearchIndex.getBuildBackoffMillis(2));
+        assertEquals(4000, AbstractNameSearchIndex.getBuildBackoffMillis(3));
+        assertEquals(AbstractNameSearchIndex.MAX_BUILD_BACKOFF_MILLIS,
+                AbstractNameSearchIndex.getBuildBackoffMillis(10));
+        assertEquals(AbstractNameSearchIndex.MAX_BUILD_BACKOFF_MILLIS,
+                AbstractNameSearchIndex.getBuildBackoffMillis(100));
+    }
+
+    private List<Entry> awaitSearch(String pattern, PageBean page)
+            throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            List<Entry> entries = index.search(pattern, pattern, page);
+            if (null != entries) {
+                return entries;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("index is not built");
+    }
+
+    private void awaitBuildCompleted(int loadCount)
+            throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (jdbcTemplate.loadCount.get() >= loadCount
+                    && !isBuilding()) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("build is not completed");
+    }
+
+    private boolean isBuilding() {
+        synchronized (index) {
+            return (Boolean) ReflectionTestUtils.getField(index, "building");
+        }
+    }
+
+    private void assertIds(List<Entry> entries, long... ids) {
+        assertNotNull(entries);
+        assertEquals(ids.length, entries.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], entries.get(i).getId());
+        }
+    }
+
+    /**
+     * index of test rows.
+     */
+    private static class TestNameSearchIndex extends AbstractNameSearchIndex {
+        @Override
+        protected String getLoadSql() {
+            return "load";
+        }
+
+        @Override
+        protected String getLoadByIdSql() {
+            return "loadById";
+        }
+    }
+
+    /**
+     * JdbcTemplate returning rows of ID, LDH_NAME and UNICODE_NAME.
+     */
+    private static class RowsJdbcTemplate extends JdbcTemplate {
+        private final List<Object[]> rows = new ArrayList<Object[]>();
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private volatile boolean failing;
+
+        synchronized void addRow(Long id, String ldhName, String unicodeName) {
+            rows.add(new Object[] { id, ldhName, unicodeName });
+        }
+
+        synchronized void removeRow(Long id) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (id.equals(rows.get(i)[0])) {
+                    rows.remove(i);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            loadCount.incrementAndGet();
+            if (failing) {
+                throw new DataAccessResourceFailureException("failing");
+            }
+            for (Object[] row : copyRows()) {
+                processRow(rch, row);
+            }
+        }
+
+        @Override
+        public void query(String sql, Object[] args, RowCallbackHandler rch) {
+            for (Object[] row : copyRows()) {
+                if (row[0].equals(args[0])) {
+                    processRow(rch, row);
+                }
+            }
+        }
+
+        private synchronized List<Object[]> copyRows() {
+            return new ArrayList<Object[]>(rows);
+        }
+
+        private void processRow(RowCallbackHandler rch, final Object[] row) {
+            ResultSet rs =
+                    (ResultSet) Proxy.newProxyInstance(getClass()
+                            .getClassLoader(),
+                            new Class<?>[] { ResultSet.class },
+                            new InvocationHandler() {
+                                @Override
+                                public Object invoke(Object proxy,
+                                        Method method, Object[] args) {
+                                    String column = (String) args[0];
+                                    if ("ID".equals(column)) {
+                                        return row[0];
+                                    }
+                                    if ("LDH_NAME".equals(column)) {
+                                        return row[1];
+                                    }
+                                    return row[2];
+                                }
+                            });
+            try {
+                rch.processRow(rs);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
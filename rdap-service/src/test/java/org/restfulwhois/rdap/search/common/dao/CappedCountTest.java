@@ -0,0 +1,42 @@
+package org.restfulwhois.rdap.search.common.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+
+/**
+ * Test for CappedCount.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class CappedCountTest {
+
+    private Long maxsizeSearch;
+
+    @Before
+    public void before() {
+        maxsizeSearch = RdapProperties.getMaxsizeSearch();
+    }
+
+    @After
+    public void after() {
+        new RdapProperties().setMaxsizeSearch(maxsizeSearch);
+    }
+
+    @Test
+    public void test_countSql() {
+        assertEquals("select count(1) as COUNT from (select 1 "
+                + "from RDAP_DOMAIN where LDH_NAME like ? limit ?) capped",
+                CappedCount.countSql("from RDAP_DOMAIN where LDH_NAME like ?"));
+    }
+
+    @Test
+    public void test_getCountLimit() {
+        new RdapProperties().setMaxsizeSearch(5L);
+        assertEquals(6L, CappedCount.getCountLimit());
+    }
+}
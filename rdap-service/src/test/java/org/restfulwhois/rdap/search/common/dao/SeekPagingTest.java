@@ -0,0 +1,89 @@
+package org.restfulwhois.rdap.search.common.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.common.support.PageBean;
+
+/**
+ * Test for SeekPaging.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class SeekPagingTest {
+
+    @Test
+    public void test_seekClause_first_batch() {
+        PageBean page = new PageBean(100);
+        assertEquals("", SeekPaging.seekClause("LDH_NAME", "DOMAIN_ID", page));
+    }
+
+    @Test
+    public void test_seekClause() {
+        PageBean page = new PageBean(100);
+        page.setSeekPosition("b.cn", 3L);
+        assertEquals(" and (LDH_NAME > ? or (LDH_NAME = ? and DOMAIN_ID > ?)) ",
+                SeekPaging.seekClause("LDH_NAME", "DOMAIN_ID", page));
+    }
+
+    @Test
+    public void test_seekClause_null_sort_key() {
+        PageBean page = new PageBean(100);
+        page.setSeekPosition(null, 3L);
+        assertEquals(" and (FN is not null or ENTITY_ID > ?) ",
+                SeekPaging.seekClause("FN", "ENTITY_ID", page));
+    }
+
+    @Test
+    public void test_orderAndLimitClause() {
+        assertEquals(" order by LDH_NAME,DOMAIN_ID limit ? ",
+                SeekPaging.orderAndLimitClause("LDH_NAME", "DOMAIN_ID"));
+    }
+
+    @Test
+    public void test_setSeekAndLimitParams() throws Exception {
+        PageBean page = new PageBean(100);
+        List<String> params = new ArrayList<String>();
+        assertEquals(3, SeekPaging.setSeekAndLimitParams(
+                createRecordingStatement(params), 2, page));
+        assertEquals("[2=100]", params.toString());
+
+        page.setSeekPosition("b.cn", 3L);
+        params.clear();
+        assertEquals(6, SeekPaging.setSeekAndLimitParams(
+                createRecordingStatement(params), 2, page));
+        assertEquals("[2=b.cn, 3=b.cn, 4=3, 5=100]", params.toString());
+
+        page.setSeekPosition(null, 3L);
+        params.clear();
+        assertEquals(4, SeekPaging.setSeekAndLimitParams(
+                createRecordingStatement(params), 2, page));
+        assertEquals("[2=3, 3=100]", params.toString());
+    }
+
+    /**
+     * create PreparedStatement recording parameters set by setString and
+     * setLong as 'index=value'.
+     */
+    private PreparedStatement createRecordingStatement(
+            final List<String> params) {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass()
+                .getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        params.add(args[0] + "=" + args[1]);
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,328 @@
+package org.restfulwhois.rdap.search.common.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.dao.SearchDao;
+import org.restfulwhois.rdap.common.model.Domain;
+import org.restfulwhois.rdap.common.model.base.BaseModel;
+import org.restfulwhois.rdap.common.model.base.BaseSearchModel;
+import org.restfulwhois.rdap.common.service.AccessControlManager;
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.core.domain.queryparam.DomainQueryParam;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test for AbstractSearchService.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class AbstractSearchServiceTest {
+
+    private Long maxsizeSearch;
+    private Long batchsizeSearch;
+    private Long maxBatchsizeSearch;
+
+    @Before
+    public void before() {
+        maxsizeSearch = RdapProperties.getMaxsizeSearch();
+        batchsizeSearch = RdapProperties.getBatchsizeSearch();
+        maxBatchsizeSearch = RdapProperties.getMaxBatchsizeSearch();
+    }
+
+    @After
+    public void after() {
+        RdapProperties properties = new RdapProperties();
+        properties.setMaxsizeSearch(maxsizeSearch);
+        properties.setBatchsizeSearch(batchsizeSearch);
+        properties.setMaxBatchsizeSearch(maxBatchsizeSearch);
+    }
+
+    /**
+     * test batch size grows when less objects are permitted.
+     */
+    @Test
+    public void test_getNextBatchSize_grows_by_permitted_ratio() {
+        setBatchSize(100L, 1000L);
+        assertEquals(100, AbstractSearchService.getNextBatchSize(5, 100, 100));
+        assertEquals(637, AbstractSearchService.getNextBatchSize(50, 100, 10));
+        assertEquals(1000,
+                AbstractSearchService.getNextBatchSize(500, 100, 10));
+        int previous = 0;
+        for (long permitted = 100; permitted > 0; permitted -= 20) {
+            int size =
+                    AbstractSearchService.getNextBatchSize(50, 100, permitted);
+            assertTrue(size >= previous);
+            previous = size;
+        }
+    }
+
+    /**
+     * test batch size is clamped between batchsizeSearch and
+     * maxBatchsizeSearch.
+     */
+    @Test
+    public void test_getNextBatchSize_clamp() {
+        setBatchSize(100L, 1000L);
+        assertEquals(1000, AbstractSearchService.getNextBatchSize(5, 100, 0));
+        assertEquals(100, AbstractSearchService.getNextBatchSize(0, 1, 1));
+        setBatchSize(100L, 50L);
+        assertEquals(100, AbstractSearchService.getNextBatchSize(50, 100, 1));
+        setBatchSize(100L, null);
+        assertEquals(100, AbstractSearchService.getNextBatchSize(50, 100, 1));
+    }
+
+    /**
+     * test search stops on batch smaller than batch size, and objects with
+     * the same sort key across batch boundary are neither lost nor repeated.
+     */
+    @Test
+    public void test_search_stops_on_short_batch_with_duplicate_sort_keys() {
+        setSearchSize(10L, 2L, 2L);
+        SeekSearchDao dao =
+                new SeekSearchDao(createDomains("a.cn", "b.cn", "b.cn",
+                        "b.cn", "c.cn"));
+        BaseSearchModel<Domain> result =
+                createService(false).search(createQueryParam(), dao);
+        assertEquals(3, dao.searchCount);
+        assertIds(result.getSearchResults(), 1, 2, 3, 4, 5);
+        assertFalse(result.getTruncatedInfo().getResultsTruncated());
+    }
+
+    /**
+     * test search queries one more empty batch when last batch is full.
+     */
+    @Test
+    public void test_search_stops_on_empty_batch() {
+        setSearchSize(10L, 2L, 2L);
+        SeekSearchDao dao =
+                new SeekSearchDao(createDomains("a.cn", "b.cn", "b.cn",
+                        "c.cn"));
+        BaseSearchModel<Domain> result =
+                createService(false).search(createQueryParam(), dao);
+        assertEquals(3, dao.searchCount);
+        assertIds(result.getSearchResults(), 1, 2, 3, 4);
+    }
+
+    /**
+     * test search stops when maxsizeSearch permitted objects are found and
+     * one more object exists.
+     */
+    @Test
+    public void test_search_truncated_by_maxsize() {
+        setSearchSize(2L, 2L, 2L);
+        SeekSearchDao dao =
+                new SeekSearchDao(createDomains("a.cn", "a.cn", "a.cn",
+                        "b.cn"));
+        BaseSearchModel<Domain> result =
+                createService(false).search(createQueryParam(), dao);
+        assertEquals(2, dao.searchCount);
+        assertIds(result.getSearchResults(), 1, 2);
+        assertTrue(result.getTruncatedInfo().getResultsTruncated());
+    }
+
+    /**
+     * test search continues when objects found by index are deleted from
+     * database, by comparing scanned count with batch size.
+     */
+    @Test
+    public void test_search_continues_on_scanned_count() {
+        setSearchSize(10L, 2L, 2L);
+        SeekSearchDao dao =
+                new SeekSearchDao(createDomains("a.cn", "b.cn", "c.cn",
+                        "d.cn", "e.cn"));
+        dao.deletedIds.add(2L);
+        BaseSearchModel<Domain> result =
+                createService(false).search(createQueryParam(), dao);
+        assertEquals(3, dao.searchCount);
+        assertIds(result.getSearchResults(), 1, 3, 4, 5);
+    }
+
+    /**
+     * test search returns null if nothing is searched.
+     */
+    @Test
+    public void test_search_nothing() {
+        setSearchSize(10L, 2L, 2L);
+        SeekSearchDao dao = new SeekSearchDao(new ArrayList<Domain>());
+        assertNull(createService(false).search(createQueryParam(), dao));
+        assertEquals(1, dao.searchCount);
+    }
+
+    /**
+     * test objects not permitted are skipped, and next batch grows.
+     */
+    @Test
+    public void test_search_skips_not_permitted() {
+        setSearchSize(2L, 2L, 100L);
+        SeekSearchDao dao =
+                new SeekSearchDao(createDomains("a.cn", "b.cn", "c.cn",
+                        "d.cn", "e.cn", "f.cn"));
+        BaseSearchModel<Domain> result =
+                createService(true).search(createQueryParam(), dao);
+        assertIds(result.getSearchResults(), 2, 4);
+        assertEquals(2, dao.searchCount);
+        assertEquals(Integer.valueOf(5), dao.maxRecords.get(1));
+    }
+
+    private void setBatchSize(Long batchsize, Long maxBatchsize) {
+        RdapProperties properties = new RdapProperties();
+        properties.setBatchsizeSearch(batchsize);
+        properties.setMaxBatchsizeSearch(maxBatchsize);
+    }
+
+    private void setSearchSize(Long maxsize, Long batchsize,
+            Long maxBatchsize) {
+        new RdapProperties().setMaxsizeSearch(maxsize);
+        setBatchSize(batchsize, maxBatchsize);
+    }
+
+    private QueryParam createQueryParam() {
+        return new DomainQueryParam("*.cn", "*.cn");
+    }
+
+    private List<Domain> createDomains(String... names) {
+        List<Domain> domains = new ArrayList<Domain>();
+        long id = 1;
+        for (String name : names) {
+            Domain domain = new Domain();
+            domain.setId(id++);
+            domain.setLdhName(name);
+            domains.add(domain);
+        }
+        return domains;
+    }
+
+    private void assertIds(List<Domain> domains, long... ids) {
+        assertEquals(ids.length, domains.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(Long.valueOf(ids[i]), domains.get(i).getId());
+        }
+    }
+
+    private TestSearchService createService(boolean onlyEvenIdPermitted) {
+        TestSearchService service = new TestSearchService();
+        ReflectionTestUtils.setField(service, "accessControlManager",
+                new TestAccessControlManager(onlyEvenIdPermitted));
+        return service;
+    }
+
+    /**
+     * search service exposing search.
+     */
+    private static class TestSearchService extends AbstractSearchService {
+        public <T extends BaseModel> BaseSearchModel<T> search(
+                QueryParam queryParam, SearchDao<T> searchDao) {
+            return super.search(queryParam, searchDao);
+        }
+    }
+
+    /**
+     * access control manager permitting all objects or objects with even
+     * id.
+     */
+    private static class TestAccessControlManager implements
+            AccessControlManager {
+        private final boolean onlyEvenIdPermitted;
+
+        TestAccessControlManager(boolean onlyEvenIdPermitted) {
+            this.onlyEvenIdPermitted = onlyEvenIdPermitted;
+        }
+
+        @Override
+        public boolean hasPermission(BaseModel object) {
+            return !onlyEvenIdPermitted || object.getId() % 2 == 0;
+        }
+
+        @Override
+        public <T extends BaseModel> List<T> filterPermitted(List<T> objects) {
+            List<T> result = new ArrayList<T>();
+            for (T object : objects) {
+                if (hasPermission(object)) {
+                    result.add(object);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void clearCache(BaseModel object) {
+        }
+
+        @Override
+        public void clearCache() {
+        }
+    }
+
+    /**
+     * search DAO seeking after last object of previous batch, ordered by
+     * ldhName and id, like the search strategies. Deleted objects are
+     * scanned but not returned, like objects found by index.
+     */
+    private static class SeekSearchDao implements SearchDao<Domain> {
+        private final List<Domain> domains;
+        private final List<Integer> maxRecords = new ArrayList<Integer>();
+        private final List<Long> deletedIds = new ArrayList<Long>();
+        private int searchCount;
+
+        SeekSearchDao(List<Domain> domains) {
+            this.domains = domains;
+        }
+
+        @Override
+        public List<Domain> search(QueryParam queryParam) {
+            searchCount++;
+            PageBean page = queryParam.getPageBean();
+            maxRecords.add(page.getMaxRecords());
+            List<Domain> scanned = new ArrayList<Domain>();
+            for (Domain domain : domains) {
+                if (scanned.size() == page.getMaxRecords()) {
+                    break;
+                }
+                if (isAfterSeekPosition(domain, page)) {
+                    scanned.add(domain);
+                }
+            }
+            if (!scanned.isEmpty()) {
+                Domain last = scanned.get(scanned.size() - 1);
+                page.setSeekPosition(last.getLdhName(), last.getId());
+            }
+            if (deletedIds.isEmpty()) {
+                return scanned;
+            }
+            page.setScannedCount(scanned.size());
+            List<Domain> result = new ArrayList<Domain>();
+            for (Domain domain : scanned) {
+                if (!deletedIds.contains(domain.getId())) {
+                    result.add(domain);
+                }
+            }
+            return result;
+        }
+
+        private boolean isAfterSeekPosition(Domain domain, PageBean page) {
+            if (!page.hasSeekPosition()) {
+                return true;
+            }
+            int compare = domain.getLdhName().compareTo(page.getLastSortKey());
+            return compare > 0
+                    || (compare == 0 && domain.getId() > page.getLastId());
+        }
+
+        @Override
+        public Long searchCount(QueryParam queryParam) {
+            return (long) domains.size();
+        }
+    }
+}
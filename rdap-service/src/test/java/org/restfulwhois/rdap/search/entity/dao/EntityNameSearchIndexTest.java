@@ -0,0 +1,218 @@
+package org.restfulwhois.rdap.search.entity.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test for EntityNameSearchIndex.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class EntityNameSearchIndexTest {
+
+    private Boolean entitySearchIndexEnabled;
+
+    private EntityNameSearchIndex index;
+
+    @Before
+    public void before() {
+        entitySearchIndexEnabled = RdapProperties.getEntitySearchIndexEnabled();
+        new RdapProperties().setEntitySearchIndexEnabled(true);
+        EntityJdbcTemplate jdbcTemplate = new EntityJdbcTemplate();
+        jdbcTemplate.rows.add(new Object[] { 1L, "h-smith", "John Smith" });
+        jdbcTemplate.rows.add(new Object[] { 2L, "h-jones", "john jones" });
+        jdbcTemplate.rows.add(new Object[] { 3L, "h-full", "ＪＯＨＮ" });
+        jdbcTemplate.rows.add(new Object[] { 4L, "h-smithson",
+                "Smithson Ltd" });
+        jdbcTemplate.rows.add(new Object[] { 5L, "h-nofn", null });
+        index = new EntityNameSearchIndex();
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @After
+    public void after() {
+        new RdapProperties()
+                .setEntitySearchIndexEnabled(entitySearchIndexEnabled);
+    }
+
+    /**
+     * test value is folded to words.
+     */
+    @Test
+    public void test_foldWords() {
+        assertEquals(" john smith ltd ",
+                EntityNameSearchIndex.foldWords("John SMITH-Ltd.", false));
+        assertEquals(" john ", EntityNameSearchIndex.foldWords("ＪＯＨＮ", false));
+        assertEquals(" smith ", EntityNameSearchIndex.foldWords("smith*",
+                false));
+        assertEquals(" smith * ", EntityNameSearchIndex.foldWords("Smith-*",
+                true));
+        assertNull(EntityNameSearchIndex.foldWords("--", false));
+        assertNull(EntityNameSearchIndex.foldWords(null, false));
+    }
+
+    /**
+     * test first search waits for index to be built, and is not null.
+     */
+    @Test
+    public void test_search_waits_for_build() {
+        assertIds(index.searchByFn("jones", new PageBean(10)), 2);
+    }
+
+    /**
+     * test fn is matched case insensitively, after NFKC normalization.
+     */
+    @Test
+    public void test_searchByFn_is_case_insensitive() {
+        assertIds(index.searchByFn("JOHN", new PageBean(10)), 3, 2, 1);
+        assertIds(index.searchByFn("ｊｏｈｎ", new PageBean(10)), 3, 2, 1);
+    }
+
+    /**
+     * test fn pattern is matched by words, and prefix of word is matched by
+     * wildcard.
+     */
+    @Test
+    public void test_searchByFn_matches_words() {
+        assertIds(index.searchByFn("smith", new PageBean(10)), 1);
+        assertIds(index.searchByFn("smith*", new PageBean(10)), 1, 4);
+        assertIds(index.searchByFn("*mith*", new PageBean(10)), 1, 4);
+        assertIds(index.searchByFn("John Smith", new PageBean(10)), 1);
+        assertIds(index.searchByFn("john-smith", new PageBean(10)), 1);
+        assertIds(index.searchByFn("ohn", new PageBean(10)));
+    }
+
+    /**
+     * test pattern with less than 3 literal characters is scanned in index.
+     */
+    @Test
+    public void test_searchByFn_short_prefix() {
+        assertIds(index.searchByFn("s*", new PageBean(10)), 1, 4);
+        assertIds(index.searchByFn("j*", new PageBean(1)), 3);
+    }
+
+    /**
+     * test handle is searched in handle only, ordered by handle.
+     */
+    @Test
+    public void test_searchByHandle() {
+        assertIds(index.searchByHandle("h-smith*", new PageBean(10)), 1, 4);
+        assertIds(index.searchByHandle("H-SMITH", new PageBean(10)), 1);
+        assertIds(index.searchByHandle("*jones*", new PageBean(10)), 2);
+        assertIds(index.searchByHandle("*John*", new PageBean(10)));
+        assertIds(index.searchByFn("h-smith*", new PageBean(10)));
+    }
+
+    /**
+     * test next page is after seek position.
+     */
+    @Test
+    public void test_search_next_page() {
+        PageBean page = new PageBean(2);
+        page.setSeekPosition("h-jones", 2L);
+        assertIds(index.searchByFn("j*", page), 1);
+    }
+
+    /**
+     * test count is capped by limit.
+     */
+    @Test
+    public void test_count() {
+        assertEquals(Long.valueOf(3L), index.countByFn("john", 10));
+        assertEquals(Long.valueOf(2L), index.countByFn("j*", 2));
+        assertEquals(Long.valueOf(2L), index.countByHandle("h-smith*", 10));
+        assertEquals(Long.valueOf(0L), index.countByHandle("none", 10));
+    }
+
+    /**
+     * test null is returned if index is disabled.
+     */
+    @Test
+    public void test_disabled() {
+        new RdapProperties().setEntitySearchIndexEnabled(false);
+        assertNull(index.searchByFn("john", new PageBean(10)));
+        assertNull(index.countByHandle("h-smith", 10));
+    }
+
+    /**
+     * test search fails if index can not be built, instead of searching
+     * database.
+     */
+    @Test(expected = DataAccessResourceFailureException.class)
+    public void test_build_failed() {
+        ReflectionTestUtils.setField(index, "jdbcTemplate",
+                new JdbcTemplate() {
+                    @Override
+                    public void query(String sql, RowCallbackHandler rch) {
+                        throw new DataAccessResourceFailureException(
+                                "database is down");
+                    }
+                });
+        index.searchByFn("john", new PageBean(10));
+    }
+
+    private void assertIds(List<Entry> entries, long... ids) {
+        assertNotNull(entries);
+        assertEquals(ids.length, entries.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], entries.get(i).getId());
+        }
+    }
+
+    /**
+     * JdbcTemplate returning rows of ID, HANDLE and FN.
+     */
+    private static class EntityJdbcTemplate extends JdbcTemplate {
+        private final List<Object[]> rows = new ArrayList<Object[]>();
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            for (final Object[] row : rows) {
+                ResultSet rs =
+                        (ResultSet) Proxy.newProxyInstance(getClass()
+                                .getClassLoader(),
+                                new Class<?>[] { ResultSet.class },
+                                new InvocationHandler() {
+                                    @Override
+                                    public Object invoke(Object proxy,
+                                            Method method, Object[] args) {
+                                        String column = (String) args[0];
+                                        if ("ID".equals(column)) {
+                                            return row[0];
+                                        }
+                                        if ("HANDLE".equals(column)) {
+                                            return row[1];
+                                        }
+                                        return row[2];
+                                    }
+                                });
+                try {
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.restfulwhois.rdap.search.entity.dao.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.support.PageBean;
+import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.common.util.TrigramIndex.Entry;
+import org.restfulwhois.rdap.core.entity.queryparam.EntitySearchByFnParam;
+import org.restfulwhois.rdap.core.entity.queryparam.EntitySearchByHandleParam;
+import org.restfulwhois.rdap.search.entity.dao.EntityNameSearchIndex;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test for routing of entity search strategies to index and database.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class EntitySearchStrategyTest {
+
+    private EntitySearchByFnStrategy fnStrategy;
+
+    private EntitySearchByHandleStrategy handleStrategy;
+
+    private TestEntityNameSearchIndex index;
+
+    private SqlJdbcTemplate jdbcTemplate;
+
+    private Long maxsizeSearch;
+
+    @Before
+    public void before() {
+        maxsizeSearch = RdapProperties.getMaxsizeSearch();
+        new RdapProperties().setMaxsizeSearch(100L);
+        index = new TestEntityNameSearchIndex();
+        jdbcTemplate = new SqlJdbcTemplate();
+        fnStrategy = new EntitySearchByFnStrategy();
+        handleStrategy = new EntitySearchByHandleStrategy();
+        ReflectionTestUtils.setField(fnStrategy, "entityNameSearchIndex",
+                index);
+        ReflectionTestUtils.setField(handleStrategy, "entityNameSearchIndex",
+                index);
+    }
+
+    @After
+    public void after() {
+        new RdapProperties().setMaxsizeSearch(maxsizeSearch);
+    }
+
+    @Test
+    public void test_support() {
+        assertTrue(fnStrategy.support(new EntitySearchByFnParam()));
+        assertFalse(fnStrategy.support(new EntitySearchByHandleParam()));
+        assertTrue(handleStrategy.support(new EntitySearchByHandleParam()));
+        assertFalse(handleStrategy.support(new EntitySearchByFnParam()));
+    }
+
+    /**
+     * test fn search is routed to fn index, and entities are selected by id.
+     */
+    @Test
+    public void test_search_by_fn_index() {
+        index.entries = new ArrayList<Entry>();
+        index.entries.add(new Entry(3L, "h-3", "fn3", "h-3"));
+        index.entries.add(new Entry(5L, "h-5", "fn5", "h-5"));
+        QueryParam queryParam = newParam(new EntitySearchByFnParam(), "*fn*");
+        fnStrategy.search(queryParam, jdbcTemplate);
+        assertEquals("fn:*fn*", index.searched);
+        assertEquals(1, jdbcTemplate.sqls.size());
+        assertTrue(jdbcTemplate.sqls.get(0).contains("ENTITY_ID in (3,5)"));
+        PageBean page = queryParam.getPageBean();
+        assertEquals(Integer.valueOf(2), page.getScannedCount());
+        assertEquals("h-5", page.getLastSortKey());
+        assertEquals(Long.valueOf(5L), page.getLastId());
+    }
+
+    /**
+     * test handle search is routed to handle index, and empty index result is
+     * not searched in database.
+     */
+    @Test
+    public void test_search_by_handle_index_empty() {
+        index.entries = new ArrayList<Entry>();
+        QueryParam queryParam =
+                newParam(new EntitySearchByHandleParam(), "h-*");
+        assertTrue(handleStrategy.search(queryParam, jdbcTemplate).isEmpty());
+        assertEquals("handle:h-*", index.searched);
+        assertTrue(jdbcTemplate.sqls.isEmpty());
+        assertEquals(Integer.valueOf(0), queryParam.getPageBean()
+                .getScannedCount());
+    }
+
+    /**
+     * test search is in database if index is not enabled.
+     */
+    @Test
+    public void test_search_database_if_not_indexed() {
+        QueryParam queryParam = newParam(new EntitySearchByFnParam(), "*f*");
+        fnStrategy.search(queryParam, jdbcTemplate);
+        assertEquals("fn:*f*", index.searched);
+        assertEquals(1, jdbcTemplate.creatorCount);
+        assertNull(queryParam.getPageBean().getScannedCount());
+    }
+
+    /**
+     * test count is from index, without database query.
+     */
+    @Test
+    public void test_count_by_index() {
+        index.count = 7L;
+        QueryParam queryParam = newParam(new EntitySearchByFnParam(), "smith*");
+        assertEquals(Long.valueOf(7L),
+                fnStrategy.searchCount(queryParam, jdbcTemplate));
+        assertEquals("fn:smith*:101", index.counted);
+        assertEquals(Long.valueOf(7L), handleStrategy.searchCount(
+                newParam(new EntitySearchByHandleParam(), "h-*"),
+                jdbcTemplate));
+        assertEquals("handle:h-*:101", index.counted);
+        assertEquals(0, jdbcTemplate.creatorCount);
+    }
+
+    /**
+     * test count is in database if index is not enabled.
+     */
+    @Test
+    public void test_count_database_if_not_indexed() {
+        QueryParam queryParam = newParam(new EntitySearchByFnParam(), "*f*");
+        assertEquals(Long.valueOf(0L),
+                fnStrategy.searchCount(queryParam, jdbcTemplate));
+        assertEquals("fn:*f*:101", index.counted);
+        assertEquals(1, jdbcTemplate.creatorCount);
+    }
+
+    private QueryParam newParam(QueryParam queryParam, String q) {
+        queryParam.setQ(q);
+        queryParam.setPageBean(new PageBean(10));
+        return queryParam;
+    }
+
+    /**
+     * index returning given entries.
+     */
+    private static class TestEntityNameSearchIndex extends
+            EntityNameSearchIndex {
+        private List<Entry> entries;
+        private String searched;
+        private Long count;
+        private String counted;
+
+        @Override
+        public List<Entry> searchByFn(String fnPattern, PageBean page) {
+            searched = "fn:" + fnPattern;
+            return entries;
+        }
+
+        @Override
+        public List<Entry> searchByHandle(String handlePattern,
+                PageBean page) {
+            searched = "handle:" + handlePattern;
+            return entries;
+        }
+
+        @Override
+        public Long countByFn(String fnPattern, long limit) {
+            counted = "fn:" + fnPattern + ":" + limit;
+            return count;
+        }
+
+        @Override
+        public Long countByHandle(String handlePattern, long limit) {
+            counted = "handle:" + handlePattern + ":" + limit;
+            return count;
+        }
+    }
+
+    /**
+     * JdbcTemplate recording queries, and returning empty result.
+     */
+    private static class SqlJdbcTemplate extends JdbcTemplate {
+        private final List<String> sqls = new ArrayList<String>();
+        private int creatorCount;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T query(String sql, ResultSetExtractor<T> rse) {
+            sqls.add(sql);
+            return (T) new ArrayList<Object>();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T query(PreparedStatementCreator psc,
+                ResultSetExtractor<T> rse) {
+            creatorCount++;
+            if (rse instanceof AbstractEntitySearchStrategy
+                    .CountResultSetExtractor) {
+                return (T) Long.valueOf(0L);
+            }
+            return (T) new ArrayList<Object>();
+        }
+    }
+}
@@ -30,9 +30,14 @@
  */
 package org.restfulwhois.rdap.service.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.restfulwhois.rdap.BaseTest;
 import org.restfulwhois.rdap.common.model.Domain;
@@ -91,5 +96,35 @@ public class AccessControlManagerImplTest extends BaseTest {
          */
         domain.setId(2000000L);
         assertTrue(accessControlManager.hasPermission(domain));
-    }    
+    }
+
+    /**
+     * test filterPermitted for secure and non-secure objects.
+     */
+    @Test
+    @DatabaseTearDown("classpath:org/restfulwhois/rdap/dao/impl/teardown.xml")
+    @DatabaseSetup("classpath:org/restfulwhois/rdap/dao/impl/acl.xml")
+    public void testFilterPermitted() {
+        Domain secureDomain = new Domain();
+        secureDomain.setId(1L);
+        Domain nonSecureDomain = new Domain();
+        nonSecureDomain.setId(2000000L);
+        List<Domain> domains = new ArrayList<Domain>();
+        domains.add(secureDomain);
+        domains.add(nonSecureDomain);
+        /**
+         * anonymous user
+         */
+        List<Domain> permitted = accessControlManager.filterPermitted(domains);
+        assertEquals(1, permitted.size());
+        assertSame(nonSecureDomain, permitted.get(0));
+        /**
+         * userId with 1, order is kept.
+         */
+        super.setUserIdToPrincipal(1L);
+        permitted = accessControlManager.filterPermitted(domains);
+        assertEquals(2, permitted.size());
+        assertSame(secureDomain, permitted.get(0));
+        assertSame(nonSecureDomain, permitted.get(1));
+    }
 }
@@ -0,0 +1,109 @@
+package org.restfulwhois.rdap.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.Domain;
+import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.model.Nameserver;
+import org.restfulwhois.rdap.common.model.Notice;
+import org.restfulwhois.rdap.common.model.base.ModelType;
+import org.restfulwhois.rdap.filters.queryFilter.service.CustomColumnPolicyPlan;
+
+/**
+ * test for CustomColumnPolicyPlan.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class CustomColumnPolicyPlanTest {
+
+    /**
+     * test hidden columns of model and inner models are set to null.
+     */
+    @Test
+    public void testApply() {
+        Map<String, Set<String>> hiddenColumns =
+                new HashMap<String, Set<String>>();
+        addHiddenColumn(hiddenColumns, ModelType.NAMESERVER, "ldhName");
+        addHiddenColumn(hiddenColumns, ModelType.NAMESERVER, "ENTITIES");
+        addHiddenColumn(hiddenColumns, ModelType.ENTITY, "lang");
+        addHiddenColumn(hiddenColumns, ModelType.NOTICE, "lang");
+        CustomColumnPolicyPlan plan = new CustomColumnPolicyPlan(hiddenColumns);
+
+        Domain domain = new Domain();
+        domain.setLang("en");
+        Entity domainEntity = new Entity();
+        domainEntity.setLang("en");
+        domainEntity.setHandle("h1");
+        List<Entity> domainEntities = new ArrayList<Entity>();
+        domainEntities.add(domainEntity);
+        domain.setEntities(domainEntities);
+        Nameserver ns = new Nameserver();
+        ns.setLdhName("ns.cnnic.cn");
+        ns.setLang("en");
+        ns.setEntities(new ArrayList<Entity>());
+        List<Nameserver> nameservers = new ArrayList<Nameserver>();
+        nameservers.add(ns);
+        domain.setNameservers(nameservers);
+        Notice notice = new Notice();
+        notice.setLang("en");
+        List<Notice> notices = new ArrayList<Notice>();
+        notices.add(notice);
+        domain.setNotices(notices);
+
+        plan.apply(domain);
+        plan.apply(domain);
+
+        assertEquals("en", domain.getLang());
+        assertNull(domainEntity.getLang());
+        assertEquals("h1", domainEntity.getHandle());
+        assertNull(ns.getLdhName());
+        assertNull(ns.getEntities());
+        assertEquals("en", ns.getLang());
+        assertEquals("en", notice.getLang());
+    }
+
+    /**
+     * test model without hidden columns is not changed.
+     */
+    @Test
+    public void testApplyWithoutPolicy() {
+        CustomColumnPolicyPlan plan =
+                new CustomColumnPolicyPlan(new HashMap<String, Set<String>>());
+        Entity entity = new Entity();
+        entity.setLang("en");
+        plan.apply(entity);
+        plan.apply(null);
+        plan.apply("not model");
+        assertEquals("en", entity.getLang());
+    }
+
+    /**
+     * add hidden column.
+     * 
+     * @param hiddenColumns
+     *            hiddenColumns.
+     * @param modelType
+     *            modelType.
+     * @param column
+     *            column.
+     */
+    private void addHiddenColumn(Map<String, Set<String>> hiddenColumns,
+            ModelType modelType, String column) {
+        Set<String> columns = hiddenColumns.get(modelType.getName());
+        if (null == columns) {
+            columns = new HashSet<String>();
+            hiddenColumns.put(modelType.getName(), columns);
+        }
+        columns.add(column);
+    }
+}
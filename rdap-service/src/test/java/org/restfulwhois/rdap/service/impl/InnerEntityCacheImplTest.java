@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.service.impl;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.core.entity.service.impl.InnerEntityCacheImpl;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Test for InnerEntityCacheImpl.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class InnerEntityCacheImplTest {
+
+    @After
+    public void after() {
+        RequestContextHolder.resetRequestAttributes();
+        new RdapProperties().setInnerEntityCacheMaxSize(null);
+    }
+
+    /**
+     * test identity map is used in request when shared cache is disabled.
+     */
+    @Test
+    public void testIdentityMap() {
+        new RdapProperties().setInnerEntityCacheMaxSize(0);
+        InnerEntityCacheImpl cache = new InnerEntityCacheImpl();
+        Entity entity = new Entity();
+        cache.put(1L, entity, cache.getVersion());
+        assertNull(cache.get(1L));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(
+                new MockHttpServletRequest()));
+        cache.put(1L, entity, cache.getVersion());
+        assertSame(entity, cache.get(1L));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(
+                new MockHttpServletRequest()));
+        assertNull(cache.get(1L));
+    }
+
+    /**
+     * test shared cache, evict and clear.
+     */
+    @Test
+    public void testSharedCache() {
+        new RdapProperties().setInnerEntityCacheMaxSize(100);
+        InnerEntityCacheImpl cache = new InnerEntityCacheImpl();
+        Entity entity = new Entity();
+        long version = cache.getVersion();
+        cache.evict(2L);
+        cache.put(1L, entity, version);
+        assertNull(cache.get(1L));
+        cache.put(1L, entity, cache.getVersion());
+        assertSame(entity, cache.get(1L));
+        cache.evict(1L);
+        assertNull(cache.get(1L));
+        cache.put(1L, entity, cache.getVersion());
+        cache.clear();
+        assertNull(cache.get(1L));
+    }
+}
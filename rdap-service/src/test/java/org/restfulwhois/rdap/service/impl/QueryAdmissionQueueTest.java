@@ -0,0 +1,108 @@
+package org.restfulwhois.rdap.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.filters.httpFilter.service.QueryAdmissionQueue;
+import org.restfulwhois.rdap.filters.httpFilter.service.QueryAdmissionQueue.Admission;
+import org.restfulwhois.rdap.filters.httpFilter.service.QueryAdmissionQueue.Waiter;
+
+/**
+ * Test for QueryAdmissionQueue.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class QueryAdmissionQueueTest {
+
+    /**
+     * events of waiters, in order.
+     */
+    private final List<String> events = new ArrayList<String>();
+
+    /**
+     * create waiter which records its events.
+     * 
+     * @param name
+     *            name.
+     * @return waiter.
+     */
+    private Waiter createWaiter(final String name) {
+        return new Waiter() {
+            @Override
+            public void admit() {
+                events.add("admit:" + name);
+            }
+
+            @Override
+            public void expire() {
+                events.add("expire:" + name);
+            }
+        };
+    }
+
+    /**
+     * test query is run, queued or rejected.
+     */
+    @Test
+    public void testAdmit() {
+        QueryAdmissionQueue queue = new QueryAdmissionQueue(1, 1, 10000L);
+        assertEquals(Admission.RUN, queue.admit(false, createWaiter("a")));
+        assertEquals(Admission.QUEUED, queue.admit(false, createWaiter("b")));
+        assertEquals(Admission.REJECTED, queue.admit(true, createWaiter("c")));
+        assertEquals(1, queue.getRunning());
+        assertEquals(1, queue.getQueued());
+        queue.release();
+        assertEquals("[admit:b]", events.toString());
+        assertEquals(1, queue.getRunning());
+        assertEquals(0, queue.getQueued());
+        queue.release();
+        assertEquals(0, queue.getRunning());
+    }
+
+    /**
+     * test released slots are given to anonymous and authenticated lanes in
+     * turn.
+     */
+    @Test
+    public void testFairLanes() {
+        QueryAdmissionQueue queue = new QueryAdmissionQueue(1, 10, 10000L);
+        queue.admit(false, createWaiter("running"));
+        queue.admit(false, createWaiter("anonymous1"));
+        queue.admit(false, createWaiter("anonymous2"));
+        queue.admit(false, createWaiter("anonymous3"));
+        queue.admit(true, createWaiter("authenticated1"));
+        for (int i = 0; i < 4; i++) {
+            queue.release();
+        }
+        assertEquals("[admit:anonymous1, admit:authenticated1, "
+                + "admit:anonymous2, admit:anonymous3]", events.toString());
+    }
+
+    /**
+     * test waiting query expires, and removed waiter is not admitted.
+     * 
+     * @throws InterruptedException
+     *             InterruptedException.
+     */
+    @Test
+    public void testExpireAndRemove() throws InterruptedException {
+        QueryAdmissionQueue queue = new QueryAdmissionQueue(1, 10, 10L);
+        queue.admit(false, createWaiter("running"));
+        queue.admit(false, createWaiter("expired"));
+        Thread.sleep(20L);
+        Waiter removed = createWaiter("removed");
+        assertEquals(Admission.QUEUED, queue.admit(true, removed));
+        assertEquals("[expire:expired]", events.toString());
+        assertTrue(queue.remove(removed));
+        assertFalse(queue.remove(removed));
+        queue.release();
+        assertEquals("[expire:expired]", events.toString());
+        assertEquals(0, queue.getRunning());
+    }
+}
@@ -0,0 +1,70 @@
+package org.restfulwhois.rdap.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.restfulwhois.rdap.acl.bean.Principal;
+import org.restfulwhois.rdap.filters.httpFilter.service.RateLimiter;
+
+/**
+ * test for RateLimiter.
+ * 
+ * @author jiashuo
+ * 
+ */
+public class RateLimiterTest {
+
+    /**
+     * test burst and interval.
+     * 
+     * @throws InterruptedException
+     *             InterruptedException.
+     */
+    @Test
+    public void testTryAcquire() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(50L, 50L, 2, 24, 64);
+        Principal anonymous = Principal.getAnonymousPrincipal();
+        assertTrue(limiter.tryAcquire("10.0.0.1", anonymous));
+        assertTrue(limiter.tryAcquire("10.0.0.1", anonymous));
+        assertFalse(limiter.tryAcquire("10.0.0.1", anonymous));
+        Thread.sleep(120);
+        assertTrue(limiter.tryAcquire("10.0.0.1", anonymous));
+    }
+
+    /**
+     * test anonymous clients in the same prefix share one limit.
+     */
+    @Test
+    public void testPrefixAggregation() {
+        RateLimiter limiter = new RateLimiter(60000L, 60000L, 1, 24, 64);
+        Principal anonymous = Principal.getAnonymousPrincipal();
+        assertTrue(limiter.tryAcquire("10.0.0.1", anonymous));
+        assertFalse(limiter.tryAcquire("10.0.0.200", anonymous));
+        assertTrue(limiter.tryAcquire("10.0.1.1", anonymous));
+        assertTrue(limiter.tryAcquire("2001:db8::1", anonymous));
+        assertFalse(limiter.tryAcquire("2001:db8::ffff:1", anonymous));
+        assertTrue(limiter.tryAcquire("2001:db8:0:1::1", anonymous));
+        assertEquals(4, limiter.size());
+    }
+
+    /**
+     * test logined user is limited by user id, with its own interval.
+     */
+    @Test
+    public void testPrincipalLimit() {
+        RateLimiter limiter = new RateLimiter(60000L, -1L, 1, 24, 64);
+        Principal anonymous = Principal.getAnonymousPrincipal();
+        Principal user = new Principal(1L);
+        assertTrue(limiter.tryAcquire("10.0.0.1", anonymous));
+        assertFalse(limiter.tryAcquire("10.0.0.1", anonymous));
+        assertTrue(limiter.tryAcquire("10.0.0.1", user));
+        assertTrue(limiter.tryAcquire("10.0.0.1", user));
+
+        limiter = new RateLimiter(-1L, 60000L, 1, 24, 64);
+        assertTrue(limiter.tryAcquire("10.0.0.1", user));
+        assertFalse(limiter.tryAcquire("10.0.0.2", user));
+        assertTrue(limiter.tryAcquire("10.0.0.1", new Principal(2L)));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012 - 2015, Internet Corporation for Assigned Names and
+ * Numbers (ICANN) and China Internet Network Information Center (CNNIC)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *  this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *  this list of conditions and the following disclaimer in the documentation
+ *  and/or other materials provided with the distribution.
+ * * Neither the name of the ICANN, CNNIC nor the names of its contributors may
+ *  be used to endorse or promote products derived from this software without
+ *  specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL ICANN OR CNNIC BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH
+ * DAMAGE.
+ */
+package org.restfulwhois.rdap.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restfulwhois.rdap.common.model.Domain;
+import org.restfulwhois.rdap.common.model.Entity;
+import org.restfulwhois.rdap.common.model.Remark;
+import org.restfulwhois.rdap.common.service.impl.ResponseCacheImpl;
+import org.restfulwhois.rdap.common.support.QueryParam;
+import org.restfulwhois.rdap.common.support.RdapProperties;
+import org.restfulwhois.rdap.core.domain.queryparam.DomainQueryParam;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Test for ResponseCacheImpl.
+ * 
+ * @author jiashuo
+ * 
+ */
+@SuppressWarnings("rawtypes")
+public class ResponseCacheImplTest {
+
+    @After
+    public void after() {
+        new RdapProperties().setResponseCacheMaxSize(null);
+        new RdapProperties().setResponseCacheTtlSeconds(null);
+    }
+
+    /**
+     * test body modified by query filters after put or get is not seen by
+     * later get.
+     */
+    @Test
+    public void test_get_returns_copy() {
+        new RdapProperties().setResponseCacheMaxSize(100);
+        new RdapProperties().setResponseCacheTtlSeconds(60L);
+        ResponseCacheImpl cache = new ResponseCacheImpl();
+        QueryParam queryParam = createQueryParam();
+        Domain domain = createDomain();
+        ResponseEntity response =
+                new ResponseEntity<Domain>(domain, HttpStatus.OK);
+        cache.get(queryParam);
+        cache.put(queryParam, response, cache.getVersion());
+        domain.setPort43(null);
+        domain.getEntities().get(0).setFn(null);
+
+        Domain first = (Domain) cache.get(queryParam).getBody();
+        assertNotSame(domain, first);
+        assertEquals("whois.example.cn", first.getPort43());
+        first.getEntities().get(0).setFn(null);
+        first.getRemarks().clear();
+
+        Domain second = (Domain) cache.get(queryParam).getBody();
+        assertEquals("whois.example.cn", second.getPort43());
+        assertEquals("registrar", second.getEntities().get(0).getFn());
+        assertEquals(1, second.getRemarks().size());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * test non 200 response is not cached.
+     */
+    @Test
+    public void test_put_ignores_non_200() {
+        new RdapProperties().setResponseCacheMaxSize(100);
+        ResponseCacheImpl cache = new ResponseCacheImpl();
+        QueryParam queryParam = createQueryParam();
+        cache.put(queryParam, new ResponseEntity<Domain>(createDomain(),
+                HttpStatus.NOT_FOUND), cache.getVersion());
+        assertNull(cache.get(queryParam));
+        assertEquals(0, cache.size());
+    }
+
+    private QueryParam createQueryParam() {
+        QueryParam queryParam = new DomainQueryParam("cnnic.cn", "cnnic.cn");
+        return queryParam;
+    }
+
+    private Domain createDomain() {
+        Domain domain = new Domain();
+        domain.setId(1L);
+        domain.setLdhName("cnnic.cn");
+        domain.setPort43("whois.example.cn");
+        Entity entity = new Entity();
+        entity.setFn("registrar");
+        List<Entity> entities = new ArrayList<Entity>();
+        entities.add(entity);
+        domain.setEntities(entities);
+        List<Remark> remarks = new ArrayList<Remark>();
+        remarks.add(new Remark());
+        domain.setRemarks(remarks);
+        return domain;
+    }
+}